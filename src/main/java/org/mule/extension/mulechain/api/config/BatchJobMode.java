@@ -0,0 +1,20 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.api.config;
+
+/**
+ * Enumeration of the back ends running offline batch jobs.
+ */
+public enum BatchJobMode {
+
+  /**
+   * Batch API of the LLM provider (OpenAI), billed at the discounted batch rate.
+   */
+  PROVIDER,
+
+  /**
+   * File-backed stand-in that answers the jobs in the background with the chat model of the configuration.
+   */
+  LOCAL
+}
@@ -0,0 +1,40 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.api.config;
+
+/**
+ * Enumeration of the in-process embedding models.
+ */
+public enum EmbeddingModelType {
+
+  /**
+   * Bundled all-MiniLM-L6-v2 model with fp32 weights.
+   */
+  ALL_MINILM_L6_V2("all-minilm-l6-v2"),
+
+  /**
+   * Bundled all-MiniLM-L6-v2 model with int8-quantized weights, faster on CPU at a small accuracy cost.
+   */
+  ALL_MINILM_L6_V2_QUANTIZED("all-minilm-l6-v2-q"),
+
+  /**
+   * Any BERT-like ONNX model loaded from the file system together with its tokenizer.
+   */
+  CUSTOM_ONNX("custom-onnx");
+
+  private final String value;
+
+  EmbeddingModelType(String value) {
+    this.value = value;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    return value;
+  }
+}
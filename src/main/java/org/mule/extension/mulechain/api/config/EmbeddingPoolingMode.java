@@ -0,0 +1,20 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.api.config;
+
+/**
+ * Enumeration of the strategies used to pool token embeddings into a single text embedding.
+ */
+public enum EmbeddingPoolingMode {
+
+  /**
+   * Average of all token embeddings.
+   */
+  MEAN,
+
+  /**
+   * Embedding of the leading [CLS] token.
+   */
+  CLS
+}
@@ -0,0 +1,22 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.api.config;
+
+/**
+ * Enumeration of the file formats of an embedding store.
+ */
+public enum EmbeddingStoreFormat {
+
+  /**
+   * JSON document holding every entry, parsed into memory when the store is loaded.
+   */
+  JSON,
+
+  /**
+   * Binary files of float32 vectors, record offsets and texts, memory-mapped when the store is opened so that its vectors
+   * are read in place instead of being loaded into the heap. Ingestion appends a segment file instead of rewriting the
+   * store.
+   */
+  BINARY
+}
@@ -0,0 +1,43 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.api.config;
+
+/**
+ * Enumeration of the source metadata an embedding store query can be restricted on.
+ */
+public enum MetadataFilterKey {
+
+  /**
+   * Name of the ingested file.
+   */
+  FILE_NAME("file_name"),
+
+  /**
+   * Full path of the ingested file.
+   */
+  FULL_PATH("full_path"),
+
+  /**
+   * Absolute path of the directory of the ingested file.
+   */
+  ABSOLUTE_DIRECTORY_PATH("absolute_directory_path"),
+
+  /**
+   * URL of the ingested page.
+   */
+  URL("url");
+
+  private final String key;
+
+  MetadataFilterKey(String key) {
+    this.key = key;
+  }
+
+  /**
+   * @return Key of the metadata in the store
+   */
+  public String getKey() {
+    return key;
+  }
+}
@@ -0,0 +1,25 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.api.config;
+
+/**
+ * Enumeration of the comparisons a metadata filter applies to its values.
+ */
+public enum MetadataFilterOperator {
+
+  /**
+   * The metadata equals the single value given.
+   */
+  EQUALS,
+
+  /**
+   * The metadata starts with one of the values given, such as the path of a directory.
+   */
+  PREFIX,
+
+  /**
+   * The metadata equals one of the values given.
+   */
+  IN
+}
@@ -0,0 +1,28 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.api.config;
+
+/**
+ * Enumeration of the ways an embedding store is searched.
+ */
+public enum SearchMode {
+
+  /**
+   * Every entry of the store is scored against the query.
+   */
+  EXACT,
+
+  /**
+   * The HNSW indexes of a binary store are walked to find the closest entries, which only scores a small part of the
+   * store at the cost of occasionally missing a match. JSON stores are searched exactly.
+   */
+  HNSW,
+
+  /**
+   * The quantized vectors of a binary store are scanned instead of its full precision vectors, and the best candidates
+   * are scored again at full precision. Binary stores created without a quantization and JSON stores are searched
+   * exactly.
+   */
+  QUANTIZED
+}
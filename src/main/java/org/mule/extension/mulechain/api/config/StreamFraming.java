@@ -0,0 +1,26 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.api.config;
+
+/**
+ * Enumeration of the ways a streamed response is framed.
+ */
+public enum StreamFraming {
+
+  /**
+   * The generated text only, as it arrives. A provider error fails the stream.
+   */
+  RAW,
+
+  /**
+   * Server-Sent Events: a "delta" event per token, then a "done" event with the token usage, finish reason and timings,
+   * or an "error" event.
+   */
+  SSE,
+
+  /**
+   * Newline-delimited JSON: the same events as SSE, one JSON object per line with the event name as "type".
+   */
+  NDJSON
+}
@@ -0,0 +1,30 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.api.config;
+
+/**
+ * Enumeration of the ways an input larger than the input token budget is handled before being sent to the LLM.
+ */
+public enum TokenBudgetStrategy {
+
+  /**
+   * Reject the input with a TOKEN_BUDGET_EXCEEDED error, without calling the LLM.
+   */
+  FAIL,
+
+  /**
+   * Keep the beginning of the input and drop its end.
+   */
+  TRUNCATE_END,
+
+  /**
+   * Keep the end of the input and drop its beginning.
+   */
+  TRUNCATE_START,
+
+  /**
+   * Keep the beginning and the end of the input and drop its middle.
+   */
+  TRUNCATE_MIDDLE
+}
@@ -0,0 +1,26 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.api.config;
+
+/**
+ * Enumeration of the compressed copies kept of the vectors of a binary embedding store.
+ */
+public enum VectorQuantization {
+
+  /**
+   * Only the full precision vectors are kept.
+   */
+  NONE,
+
+  /**
+   * One byte per dimension, scaled between the minimum and maximum of the dimension: 4 times smaller than float32.
+   */
+  SCALAR_INT8,
+
+  /**
+   * One byte per group of four dimensions, naming the closest of 256 centroids learnt for the group: 16 times smaller
+   * than float32, with a larger loss of precision.
+   */
+  PRODUCT
+}
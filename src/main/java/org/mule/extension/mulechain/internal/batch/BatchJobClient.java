@@ -0,0 +1,40 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.batch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Client of an offline batch endpoint. Requests and results use the JSONL format of the OpenAI Batch API, see
+ * {@link BatchJsonl}.
+ */
+public interface BatchJobClient {
+
+  /**
+   * Submits a batch job.
+   *
+   * @param requestLines One JSONL request line per prompt
+   * @return The status of the submitted job
+   * @throws IOException If the job cannot be submitted
+   */
+  BatchJobStatus submit(List<String> requestLines) throws IOException;
+
+  /**
+   * @param jobId Identifier returned on submission
+   * @return The current status of the job
+   * @throws IOException If the status cannot be retrieved
+   */
+  BatchJobStatus getStatus(String jobId) throws IOException;
+
+  /**
+   * Opens the raw JSONL results of a completed job. The caller closes the stream.
+   *
+   * @param jobId Identifier returned on submission
+   * @return Stream of result lines
+   * @throws IOException If the job is not completed or its results cannot be read
+   */
+  InputStream openResults(String jobId) throws IOException;
+}
@@ -0,0 +1,88 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.batch;
+
+import org.json.JSONObject;
+
+/**
+ * Status of a batch job, using the status names of the OpenAI Batch API (validating, in_progress, finalizing, completed,
+ * failed, expired, cancelling, cancelled).
+ */
+public class BatchJobStatus {
+
+  public static final String IN_PROGRESS = "in_progress";
+  public static final String COMPLETED = "completed";
+  public static final String FAILED = "failed";
+
+  private final String jobId;
+  private final String status;
+  private final int total;
+  private final int completed;
+  private final int failed;
+  private final String outputFileId;
+
+  public BatchJobStatus(String jobId, String status, int total, int completed, int failed, String outputFileId) {
+    this.jobId = jobId;
+    this.status = status;
+    this.total = total;
+    this.completed = completed;
+    this.failed = failed;
+    this.outputFileId = outputFileId;
+  }
+
+  /**
+   * Reads a status from its JSON representation, either a batch object of the OpenAI API or {@link #toJson()}.
+   */
+  public static BatchJobStatus fromJson(JSONObject json) {
+    JSONObject counts = json.optJSONObject("request_counts");
+    return new BatchJobStatus(json.getString("id"), json.getString("status"),
+                              counts != null ? counts.optInt("total") : 0,
+                              counts != null ? counts.optInt("completed") : 0,
+                              counts != null ? counts.optInt("failed") : 0,
+                              json.optString("output_file_id", null));
+  }
+
+  public JSONObject toJson() {
+    JSONObject counts = new JSONObject();
+    counts.put("total", total);
+    counts.put("completed", completed);
+    counts.put("failed", failed);
+    JSONObject json = new JSONObject();
+    json.put("id", jobId);
+    json.put("status", status);
+    json.put("request_counts", counts);
+    if (outputFileId != null) {
+      json.put("output_file_id", outputFileId);
+    }
+    return json;
+  }
+
+  public String getJobId() {
+    return jobId;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  public int getTotal() {
+    return total;
+  }
+
+  public int getCompleted() {
+    return completed;
+  }
+
+  public int getFailed() {
+    return failed;
+  }
+
+  public String getOutputFileId() {
+    return outputFileId;
+  }
+
+  public boolean isCompleted() {
+    return COMPLETED.equals(status);
+  }
+}
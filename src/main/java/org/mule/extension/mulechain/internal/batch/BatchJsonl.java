@@ -0,0 +1,136 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.batch;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.mule.extension.mulechain.internal.config.LangchainLLMConfiguration;
+import org.mule.extension.mulechain.internal.constants.MuleChainConstants;
+
+import static org.mule.extension.mulechain.internal.config.util.LangchainLLMInitializerUtil.shouldUseMaxCompletionTokens;
+
+/**
+ * Builds and reads the JSONL lines of the OpenAI Batch API. The local stand-in uses the same format, so results are
+ * processed the same way whichever client ran the job.
+ */
+public final class BatchJsonl {
+
+  static final String CHAT_COMPLETIONS_URL = "/v1/chat/completions";
+
+  private static final String CUSTOM_ID_PREFIX = "item-";
+
+  private BatchJsonl() {}
+
+  /**
+   * Builds the request line of a prompt, with the model settings of the configuration.
+   *
+   * @param index         Position of the prompt in the batch
+   * @param prompt        The prompt
+   * @param configuration Configuration providing the model name, temperature and token limit
+   * @return A JSONL request line
+   */
+  public static String requestLine(int index, String prompt, LangchainLLMConfiguration configuration) {
+    JSONObject message = new JSONObject();
+    message.put("role", "user");
+    message.put("content", prompt);
+
+    JSONObject body = new JSONObject();
+    body.put("model", configuration.getModelName());
+    body.put("messages", new JSONArray().put(message));
+    if (shouldUseMaxCompletionTokens(configuration.getModelName())) {
+      body.put("max_completion_tokens", configuration.getMaxTokens());
+    } else {
+      body.put("max_tokens", configuration.getMaxTokens());
+      body.put("temperature", configuration.getTemperature());
+      body.put("top_p", configuration.getTopP());
+    }
+
+    JSONObject line = new JSONObject();
+    line.put("custom_id", CUSTOM_ID_PREFIX + index);
+    line.put("method", "POST");
+    line.put("url", CHAT_COMPLETIONS_URL);
+    line.put("body", body);
+    return line.toString();
+  }
+
+  /**
+   * @param requestLine A JSONL request line
+   * @return The user prompt of the request
+   */
+  static String promptOf(JSONObject requestLine) {
+    return requestLine.getJSONObject("body").getJSONArray("messages").getJSONObject(0).getString("content");
+  }
+
+  /**
+   * Builds a result line in the format of the OpenAI Batch API output file.
+   *
+   * @param customId     Custom id of the request
+   * @param content      Answer of the model, null on error
+   * @param inputTokens  Prompt tokens
+   * @param outputTokens Completion tokens
+   * @param error        Error message, null on success
+   * @return A JSONL result line
+   */
+  static String resultLine(String customId, String content, int inputTokens, int outputTokens, String error) {
+    JSONObject line = new JSONObject();
+    line.put("custom_id", customId);
+    if (error != null) {
+      JSONObject errorObject = new JSONObject();
+      errorObject.put("message", error);
+      line.put("error", errorObject);
+      return line.toString();
+    }
+    JSONObject message = new JSONObject();
+    message.put("role", "assistant");
+    message.put("content", content);
+    JSONObject usage = new JSONObject();
+    usage.put("prompt_tokens", inputTokens);
+    usage.put("completion_tokens", outputTokens);
+    usage.put("total_tokens", inputTokens + outputTokens);
+    JSONObject body = new JSONObject();
+    body.put("choices", new JSONArray().put(new JSONObject().put("message", message)));
+    body.put("usage", usage);
+    JSONObject response = new JSONObject();
+    response.put("status_code", 200);
+    response.put("body", body);
+    line.put("response", response);
+    return line.toString();
+  }
+
+  /**
+   * Converts a result line into the item format of the batch chat operation: index, response or error, and token usage.
+   *
+   * @param resultLine A JSONL result line
+   * @return The normalized item
+   */
+  public static JSONObject normalize(String resultLine) {
+    JSONObject line = new JSONObject(resultLine);
+    JSONObject item = new JSONObject();
+    String customId = line.optString("custom_id");
+    item.put(MuleChainConstants.INDEX, customId.startsWith(CUSTOM_ID_PREFIX)
+        ? Integer.parseInt(customId.substring(CUSTOM_ID_PREFIX.length()))
+        : -1);
+
+    JSONObject error = line.optJSONObject("error");
+    JSONObject response = line.optJSONObject("response");
+    if (error != null) {
+      item.put(MuleChainConstants.ERROR, error.optString("message"));
+    } else if (response == null || response.optInt("status_code") != 200) {
+      item.put(MuleChainConstants.ERROR, response != null ? String.valueOf(response.opt("body")) : "No response");
+    } else {
+      JSONObject body = response.getJSONObject("body");
+      item.put(MuleChainConstants.RESPONSE,
+               body.getJSONArray("choices").getJSONObject(0).getJSONObject("message").optString("content"));
+      JSONObject usage = body.optJSONObject("usage");
+      if (usage != null) {
+        JSONObject tokenUsage = new JSONObject();
+        tokenUsage.put(MuleChainConstants.INPUT_COUNT, usage.optInt("prompt_tokens"));
+        tokenUsage.put(MuleChainConstants.OUTPUT_COUNT, usage.optInt("completion_tokens"));
+        tokenUsage.put(MuleChainConstants.TOTAL_COUNT, usage.optInt("total_tokens"));
+        item.put(MuleChainConstants.TOKEN_USAGE, tokenUsage);
+      }
+    }
+    return item;
+  }
+}
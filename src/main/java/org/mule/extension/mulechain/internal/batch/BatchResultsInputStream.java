@@ -0,0 +1,66 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams the results of a batch job as NDJSON items, normalizing one raw result line at a time so that large result
+ * files are never held in memory.
+ */
+public class BatchResultsInputStream extends InputStream {
+
+  private final BufferedReader reader;
+  private byte[] current = new byte[0];
+  private int position;
+
+  public BatchResultsInputStream(InputStream rawResults) {
+    this.reader = new BufferedReader(new InputStreamReader(rawResults, StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!fill()) {
+      return -1;
+    }
+    return current[position++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    if (!fill()) {
+      return -1;
+    }
+    int count = Math.min(length, current.length - position);
+    System.arraycopy(current, position, buffer, offset, count);
+    position += count;
+    return count;
+  }
+
+  private boolean fill() throws IOException {
+    while (position >= current.length) {
+      String line = reader.readLine();
+      if (line == null) {
+        return false;
+      }
+      if (!line.trim().isEmpty()) {
+        current = (BatchJsonl.normalize(line).toString() + "\n").getBytes(StandardCharsets.UTF_8);
+        position = 0;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
@@ -0,0 +1,210 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.batch;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * File-backed stand-in for a provider batch endpoint. Jobs are stored in a local directory and answered in the
+ * background by the chat model of the configuration, one request at a time, writing results in the provider format.
+ * With a local model (for example Ollama) the whole batch pipeline runs offline. Jobs still in progress when the runtime
+ * stopped are resumed by {@link #resumeInterrupted()}.
+ */
+public class LocalBatchJobClient implements BatchJobClient {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LocalBatchJobClient.class);
+
+  private static final String STATUS_SUFFIX = ".status.json";
+
+  // Input files of the jobs processed by any client, so that a job is never processed twice at the same time
+  private static final Set<Path> RUNNING = ConcurrentHashMap.newKeySet();
+
+  private final Path directory;
+  private final ChatLanguageModel model;
+  private final Executor executor;
+
+  public LocalBatchJobClient(Path directory, ChatLanguageModel model, Executor executor) {
+    this.directory = directory;
+    this.model = model;
+    this.executor = executor;
+  }
+
+  @Override
+  public BatchJobStatus submit(List<String> requestLines) throws IOException {
+    Files.createDirectories(directory);
+    String jobId = "local-batch-" + UUID.randomUUID();
+    Files.write(inputFile(jobId), requestLines, StandardCharsets.UTF_8);
+    BatchJobStatus status = new BatchJobStatus(jobId, BatchJobStatus.IN_PROGRESS, requestLines.size(), 0, 0, null);
+    writeStatus(status);
+    start(jobId, requestLines.size());
+    return status;
+  }
+
+  /**
+   * Resumes the jobs of the directory left in progress, such as by a restart of the runtime. A job is processed again
+   * from its first request, since its partial results may end with a truncated line.
+   *
+   * @return The number of jobs resumed
+   */
+  public int resumeInterrupted() throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return 0;
+    }
+    int resumed = 0;
+    try (DirectoryStream<Path> statusFiles = Files.newDirectoryStream(directory, "local-batch-*" + STATUS_SUFFIX)) {
+      for (Path statusFile : statusFiles) {
+        String name = statusFile.getFileName().toString();
+        String jobId = name.substring(0, name.length() - STATUS_SUFFIX.length());
+        try {
+          BatchJobStatus status = getStatus(jobId);
+          if (BatchJobStatus.IN_PROGRESS.equals(status.getStatus()) && start(jobId, status.getTotal())) {
+            LOGGER.info("Resuming the interrupted local batch job {}", jobId);
+            resumed++;
+          }
+        } catch (RuntimeException e) {
+          LOGGER.warn("Unable to resume the local batch job {}: {}", jobId, e.getMessage());
+        }
+      }
+    }
+    return resumed;
+  }
+
+  /**
+   * @return Whether the job was started, false when it is already being processed
+   */
+  private boolean start(String jobId, int total) {
+    Path key = inputFile(jobId).toAbsolutePath().normalize();
+    if (!RUNNING.add(key)) {
+      return false;
+    }
+    try {
+      executor.execute(() -> {
+        try {
+          process(jobId, total);
+        } finally {
+          RUNNING.remove(key);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      RUNNING.remove(key);
+      throw e;
+    }
+    return true;
+  }
+
+  @Override
+  public BatchJobStatus getStatus(String jobId) throws IOException {
+    try {
+      return BatchJobStatus.fromJson(new JSONObject(new String(Files.readAllBytes(statusFile(jobId)),
+                                                               StandardCharsets.UTF_8)));
+    } catch (NoSuchFileException e) {
+      throw new IOException("Unknown batch job " + jobId, e);
+    }
+  }
+
+  @Override
+  public InputStream openResults(String jobId) throws IOException {
+    BatchJobStatus status = getStatus(jobId);
+    if (!status.isCompleted()) {
+      throw new IOException("Batch job " + jobId + " has no results yet, its status is " + status.getStatus());
+    }
+    return Files.newInputStream(outputFile(jobId));
+  }
+
+  private void process(String jobId, int total) {
+    int completed = 0;
+    int failed = 0;
+    Path partial = directory.resolve(jobId + ".output.jsonl.part");
+    try (BufferedWriter writer = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+      for (String requestLine : Files.readAllLines(inputFile(jobId), StandardCharsets.UTF_8)) {
+        JSONObject request = new JSONObject(requestLine);
+        String customId = request.getString("custom_id");
+        String resultLine;
+        try {
+          Response<AiMessage> response = model.generate(UserMessage.from(BatchJsonl.promptOf(request)));
+          TokenUsage usage = response.tokenUsage();
+          resultLine = BatchJsonl.resultLine(customId, response.content().text(),
+                                             usage != null && usage.inputTokenCount() != null ? usage.inputTokenCount() : 0,
+                                             usage != null && usage.outputTokenCount() != null ? usage.outputTokenCount() : 0,
+                                             null);
+          completed++;
+        } catch (Exception e) {
+          resultLine = BatchJsonl.resultLine(customId, null, 0, 0, String.valueOf(e.getMessage()));
+          failed++;
+        }
+        writer.write(resultLine);
+        writer.newLine();
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Local batch job {} failed: {}", jobId, e.getMessage());
+      writeStatusQuietly(new BatchJobStatus(jobId, BatchJobStatus.FAILED, total, completed, failed, null));
+      return;
+    }
+    try {
+      Files.move(partial, outputFile(jobId), StandardCopyOption.REPLACE_EXISTING);
+      writeStatus(new BatchJobStatus(jobId, BatchJobStatus.COMPLETED, total, completed, failed, outputFile(jobId).toString()));
+      LOGGER.debug("Local batch job {} completed with {} failed requests out of {}", jobId, failed, total);
+    } catch (IOException e) {
+      LOGGER.warn("Local batch job {} failed: {}", jobId, e.getMessage());
+      writeStatusQuietly(new BatchJobStatus(jobId, BatchJobStatus.FAILED, total, completed, failed, null));
+    }
+  }
+
+  private void writeStatus(BatchJobStatus status) throws IOException {
+    Path temporary = directory.resolve(status.getJobId() + ".status.json.tmp");
+    Files.write(temporary, status.toJson().toString().getBytes(StandardCharsets.UTF_8));
+    Files.move(temporary, statusFile(status.getJobId()), StandardCopyOption.REPLACE_EXISTING,
+               StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void writeStatusQuietly(BatchJobStatus status) {
+    try {
+      writeStatus(status);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to write the status of batch job {}: {}", status.getJobId(), e.getMessage());
+    }
+  }
+
+  private Path jobFile(String jobId, String suffix) {
+    if (!jobId.matches("local-batch-[0-9a-f\\-]+")) {
+      throw new IllegalArgumentException("Invalid local batch job id: " + jobId);
+    }
+    return directory.resolve(jobId + suffix);
+  }
+
+  private Path inputFile(String jobId) {
+    return jobFile(jobId, ".input.jsonl");
+  }
+
+  private Path outputFile(String jobId) {
+    return jobFile(jobId, ".output.jsonl");
+  }
+
+  private Path statusFile(String jobId) {
+    return jobFile(jobId, STATUS_SUFFIX);
+  }
+}
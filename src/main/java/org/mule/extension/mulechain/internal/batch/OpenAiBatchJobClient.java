@@ -0,0 +1,96 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.batch;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.json.JSONObject;
+import org.mule.extension.mulechain.internal.client.HttpClientProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Client of the OpenAI Batch API: uploads the requests as a JSONL file, creates the batch and downloads its output file.
+ */
+public class OpenAiBatchJobClient implements BatchJobClient {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OpenAiBatchJobClient.class);
+  private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+  private static final MediaType JSONL = MediaType.get("application/jsonl");
+  private static final String COMPLETION_WINDOW = "24h";
+
+  private final String apiKey;
+  private final String baseUrl;
+  private final OkHttpClient httpClient;
+
+  public OpenAiBatchJobClient(String apiKey, String baseUrl) {
+    this.apiKey = apiKey;
+    this.baseUrl = baseUrl != null ? baseUrl : "https://api.openai.com/v1";
+    this.httpClient = HttpClientProvider.getClient();
+  }
+
+  @Override
+  public BatchJobStatus submit(List<String> requestLines) throws IOException {
+    byte[] content = (String.join("\n", requestLines) + "\n").getBytes(StandardCharsets.UTF_8);
+    RequestBody upload = new MultipartBody.Builder()
+        .setType(MultipartBody.FORM)
+        .addFormDataPart("purpose", "batch")
+        .addFormDataPart("file", "batch.jsonl", RequestBody.create(content, JSONL))
+        .build();
+    String inputFileId = execute(request("/files").post(upload).build()).getString("id");
+    LOGGER.debug("Uploaded batch input file {} with {} requests", inputFileId, requestLines.size());
+
+    JSONObject batch = new JSONObject();
+    batch.put("input_file_id", inputFileId);
+    batch.put("endpoint", BatchJsonl.CHAT_COMPLETIONS_URL);
+    batch.put("completion_window", COMPLETION_WINDOW);
+    return BatchJobStatus.fromJson(execute(request("/batches").post(RequestBody.create(batch.toString(), JSON)).build()));
+  }
+
+  @Override
+  public BatchJobStatus getStatus(String jobId) throws IOException {
+    return BatchJobStatus.fromJson(execute(request("/batches/" + jobId).get().build()));
+  }
+
+  @Override
+  public InputStream openResults(String jobId) throws IOException {
+    BatchJobStatus status = getStatus(jobId);
+    if (!status.isCompleted() || status.getOutputFileId() == null) {
+      throw new IOException("Batch job " + jobId + " has no results yet, its status is " + status.getStatus());
+    }
+    Response response = httpClient.newCall(request("/files/" + status.getOutputFileId() + "/content").get().build()).execute();
+    if (!response.isSuccessful()) {
+      response.close();
+      throw new IOException("OpenAI API request failed with status " + response.code() + ": " + response.message());
+    }
+    return response.body().byteStream();
+  }
+
+  private Request.Builder request(String path) {
+    return new Request.Builder()
+        .url(baseUrl + path)
+        .header("Authorization", "Bearer " + apiKey);
+  }
+
+  private JSONObject execute(Request request) throws IOException {
+    try (Response response = httpClient.newCall(request).execute()) {
+      ResponseBody body = response.body();
+      String payload = body != null ? body.string() : "";
+      if (!response.isSuccessful()) {
+        throw new IOException("OpenAI API request failed with status " + response.code() + ": " + payload);
+      }
+      return new JSONObject(payload);
+    }
+  }
+}
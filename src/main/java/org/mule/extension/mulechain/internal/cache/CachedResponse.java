@@ -0,0 +1,63 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.cache;
+
+import org.json.JSONObject;
+import org.mule.extension.mulechain.api.metadata.ConfidenceScore;
+import org.mule.extension.mulechain.api.metadata.TokenUsage;
+import org.mule.extension.mulechain.internal.constants.MuleChainConstants;
+
+/**
+ * Response kept in a response cache.
+ */
+public final class CachedResponse {
+
+  private final String response;
+  private final TokenUsage tokenUsage;
+  private final ConfidenceScore confidenceScore;
+
+  public CachedResponse(String response, TokenUsage tokenUsage, ConfidenceScore confidenceScore) {
+    this.response = response;
+    this.tokenUsage = tokenUsage;
+    this.confidenceScore = confidenceScore;
+  }
+
+  public String getResponse() {
+    return response;
+  }
+
+  /**
+   * @return Token usage of the call that produced the response
+   */
+  public TokenUsage getTokenUsage() {
+    return tokenUsage;
+  }
+
+  /**
+   * @return Confidence score of the response, not kept by the persistent tier
+   */
+  public ConfidenceScore getConfidenceScore() {
+    return confidenceScore;
+  }
+
+  String toJson() {
+    JSONObject json = new JSONObject();
+    json.put(MuleChainConstants.RESPONSE, response);
+    if (tokenUsage != null) {
+      json.put(MuleChainConstants.INPUT_COUNT, tokenUsage.getInputCount());
+      json.put(MuleChainConstants.OUTPUT_COUNT, tokenUsage.getOutputCount());
+      json.put(MuleChainConstants.TOTAL_COUNT, tokenUsage.getTotalCount());
+    }
+    return json.toString();
+  }
+
+  static CachedResponse fromJson(String value) {
+    JSONObject json = new JSONObject(value);
+    TokenUsage tokenUsage = json.has(MuleChainConstants.TOTAL_COUNT)
+        ? new TokenUsage(json.getInt(MuleChainConstants.INPUT_COUNT), json.getInt(MuleChainConstants.OUTPUT_COUNT),
+                         json.getInt(MuleChainConstants.TOTAL_COUNT))
+        : null;
+    return new CachedResponse(json.getString(MuleChainConstants.RESPONSE), tokenUsage, null);
+  }
+}
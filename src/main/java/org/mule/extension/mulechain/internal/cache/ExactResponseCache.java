@@ -0,0 +1,198 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.cache;
+
+import org.mapdb.DB;
+import org.mapdb.HTreeMap;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Response cache matching requests exactly, meant for deterministic (temperature 0) calls. Keys are a readable prefix
+ * followed by the SHA-256 digest of the request. Responses are kept in an on-heap LRU tier and, when a file path is set,
+ * in a MapDB file that survives restarts. The configurations of an application pointing at the same file share one
+ * handle on it; MapDB supports a single writer per file, so the file is locked and cannot be shared with other
+ * applications or processes.
+ */
+public class ExactResponseCache implements AutoCloseable {
+
+  private static final char TIMESTAMP_SEPARATOR = '|';
+
+  private final LruCache<String, CachedResponse> heap;
+  private final long ttlMillis;
+  private final LongSupplier clock;
+  private final SharedCacheFile sharedFile;
+  private final DB db;
+  private final HTreeMap<String, String> file;
+
+  private final AtomicLong heapHits = new AtomicLong();
+  private final AtomicLong fileHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private boolean closed;
+
+  /**
+   * @param filePath   Path of the MapDB file, or null to only keep responses on heap
+   * @param maxEntries Maximum number of responses kept on heap
+   * @param ttlMillis  Time-to-live of a response in milliseconds, 0 or less to keep it until evicted or invalidated
+   * @throws IllegalStateException If another application or process holds the file
+   */
+  public ExactResponseCache(String filePath, int maxEntries, long ttlMillis) {
+    this(filePath, maxEntries, ttlMillis, System::currentTimeMillis);
+  }
+
+  ExactResponseCache(String filePath, int maxEntries, long ttlMillis, LongSupplier clock) {
+    this.heap = new LruCache<>(maxEntries, ttlMillis, clock);
+    this.ttlMillis = ttlMillis;
+    this.clock = clock;
+    if (filePath != null && !filePath.trim().isEmpty()) {
+      this.sharedFile = SharedCacheFile.open(filePath);
+      this.db = sharedFile.db();
+      this.file = sharedFile.map();
+    } else {
+      this.sharedFile = null;
+      this.db = null;
+      this.file = null;
+    }
+  }
+
+  /**
+   * Builds a cache key.
+   *
+   * @param prefix Readable prefix used for invalidation, for example {@code OPENAI/gpt-4o-mini/CHAT-answer-prompt/}
+   * @param parts  Every part of the request that influences the response
+   * @return The prefix followed by the hex SHA-256 digest of the parts
+   */
+  public static String key(String prefix, String... parts) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (String part : parts) {
+        digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+      }
+      StringBuilder key = new StringBuilder(prefix);
+      for (byte b : digest.digest()) {
+        key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return key.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * @param key Key built with {@link #key(String, String...)}
+   * @return The cached response, or null
+   */
+  public CachedResponse get(String key) {
+    CachedResponse response = heap.get(key);
+    if (response != null) {
+      heapHits.incrementAndGet();
+      return response;
+    }
+    if (file != null) {
+      String stored = file.get(key);
+      if (stored != null) {
+        int separator = stored.indexOf(TIMESTAMP_SEPARATOR);
+        long createdAt = Long.parseLong(stored.substring(0, separator));
+        if (ttlMillis <= 0 || clock.getAsLong() - createdAt < ttlMillis) {
+          response = CachedResponse.fromJson(stored.substring(separator + 1));
+          heap.put(key, response);
+          fileHits.incrementAndGet();
+          return response;
+        }
+        remove(key);
+      }
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  public void put(String key, CachedResponse response) {
+    heap.put(key, response);
+    if (file != null) {
+      synchronized (db) {
+        file.put(key, String.valueOf(clock.getAsLong()) + TIMESTAMP_SEPARATOR + response.toJson());
+        db.commit();
+      }
+    }
+  }
+
+  /**
+   * @param prefix Key prefix, an empty prefix invalidates every response
+   * @return Number of responses dropped from the persistent tier, or from the heap tier without a file
+   */
+  public int invalidatePrefix(String prefix) {
+    String safePrefix = prefix != null ? prefix : "";
+    int removed = heap.invalidateIf(key -> key.startsWith(safePrefix));
+    if (file == null) {
+      return removed;
+    }
+    synchronized (db) {
+      List<String> keys = new ArrayList<>();
+      for (String key : file.getKeys()) {
+        if (key.startsWith(safePrefix)) {
+          keys.add(key);
+        }
+      }
+      for (String key : keys) {
+        file.remove(key);
+      }
+      db.commit();
+      return keys.size();
+    }
+  }
+
+  private void remove(String key) {
+    synchronized (db) {
+      file.remove(key);
+      db.commit();
+    }
+  }
+
+  public long getHeapHits() {
+    return heapHits.get();
+  }
+
+  public long getFileHits() {
+    return fileHits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * @return Ratio of hits over lookups, 0 when nothing was looked up
+   */
+  public double getHitRatio() {
+    long hits = heapHits.get() + fileHits.get();
+    long lookups = hits + misses.get();
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  public int getHeapSize() {
+    return heap.size();
+  }
+
+  /**
+   * @return Number of responses in the persistent tier, -1 without a file
+   */
+  public int getFileSize() {
+    return file != null ? file.size() : -1;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (sharedFile != null && !closed) {
+      closed = true;
+      sharedFile.release();
+    }
+  }
+}
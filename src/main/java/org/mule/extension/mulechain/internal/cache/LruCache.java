@@ -0,0 +1,158 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.cache;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Thread-safe LRU cache with an entry cap and an optional time-to-live. Expired entries are dropped when read and when
+ * the cache is traversed. Keeps hit, miss and eviction counters.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class LruCache<K, V> {
+
+  private final int maxEntries;
+  private final long ttlMillis;
+  private final LongSupplier clock;
+  private final LinkedHashMap<K, Entry<V>> entries;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * @param maxEntries Maximum number of entries, the least recently used entry is evicted beyond it
+   * @param ttlMillis  Time-to-live of an entry in milliseconds, 0 or less to keep entries until evicted
+   */
+  public LruCache(int maxEntries, long ttlMillis) {
+    this(maxEntries, ttlMillis, System::currentTimeMillis);
+  }
+
+  LruCache(int maxEntries, long ttlMillis, LongSupplier clock) {
+    this.maxEntries = Math.max(1, maxEntries);
+    this.ttlMillis = ttlMillis;
+    this.clock = clock;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * @param key The key
+   * @return The live value of the key, or null
+   */
+  public synchronized V get(K key) {
+    Entry<V> entry = entries.get(key);
+    if (entry != null && isExpired(entry, clock.getAsLong())) {
+      entries.remove(key);
+      entry = null;
+    }
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return entry.value;
+  }
+
+  public synchronized void put(K key, V value) {
+    entries.put(key, new Entry<>(value, clock.getAsLong()));
+    Iterator<Entry<V>> iterator = entries.values().iterator();
+    while (entries.size() > maxEntries && iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+      evictions++;
+    }
+  }
+
+  public synchronized void invalidate(K key) {
+    entries.remove(key);
+  }
+
+  /**
+   * @param predicate Selects the keys to drop
+   * @return Number of entries dropped
+   */
+  public synchronized int invalidateIf(Predicate<K> predicate) {
+    int removed = 0;
+    Iterator<K> iterator = entries.keySet().iterator();
+    while (iterator.hasNext()) {
+      if (predicate.test(iterator.next())) {
+        iterator.remove();
+        removed++;
+      }
+    }
+    return removed;
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Returns the live entries without touching their recency nor the hit counters, dropping the expired ones.
+   *
+   * @return Snapshot of the live entries, least recently used first
+   */
+  public synchronized List<Map.Entry<K, V>> snapshot() {
+    long now = clock.getAsLong();
+    List<Map.Entry<K, V>> snapshot = new ArrayList<>(entries.size());
+    Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<K, Entry<V>> entry = iterator.next();
+      if (isExpired(entry.getValue(), now)) {
+        iterator.remove();
+      } else {
+        snapshot.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().value));
+      }
+    }
+    return snapshot;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * @return Ratio of hits over lookups, 0 when nothing was looked up
+   */
+  public synchronized double getHitRatio() {
+    long lookups = hits + misses;
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  private boolean isExpired(Entry<V> entry, long now) {
+    return ttlMillis > 0 && now - entry.createdAt >= ttlMillis;
+  }
+
+  private static class Entry<V> {
+
+    private final V value;
+    private final long createdAt;
+
+    Entry(V value, long createdAt) {
+      this.value = value;
+      this.createdAt = createdAt;
+    }
+  }
+}
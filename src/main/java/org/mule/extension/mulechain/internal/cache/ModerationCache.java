@@ -0,0 +1,66 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.cache;
+
+import org.json.JSONObject;
+
+/**
+ * Cache of moderation results, keyed by provider, moderation model and the SHA-256 digest of the normalized input, so that
+ * repeated content such as signatures and boilerplate is moderated once. Results are stored as JSON text, which keeps the
+ * memory used by an entry bounded by the size of one moderation result.
+ */
+public class ModerationCache {
+
+  private final LruCache<String, String> cache;
+
+  /**
+   * @param maxEntries Maximum number of cached results
+   * @param ttlMillis  Time-to-live of a result in milliseconds, 0 or less to keep it until evicted
+   */
+  public ModerationCache(int maxEntries, long ttlMillis) {
+    this.cache = new LruCache<>(maxEntries, ttlMillis);
+  }
+
+  /**
+   * @param provider Moderation provider
+   * @param model    Moderation model
+   * @param input    Moderated input, whitespace differences are ignored
+   * @return The cache key of the input
+   */
+  public static String key(String provider, String model, String input) {
+    return ExactResponseCache.key(provider + "/" + model + "/", input.trim().replaceAll("\\s+", " "));
+  }
+
+  /**
+   * @return The cached result of one input, or null
+   */
+  public JSONObject get(String key) {
+    String result = cache.get(key);
+    return result != null ? new JSONObject(result) : null;
+  }
+
+  public void put(String key, JSONObject result) {
+    cache.put(key, result.toString());
+  }
+
+  public void clear() {
+    cache.clear();
+  }
+
+  public int size() {
+    return cache.size();
+  }
+
+  public long getHits() {
+    return cache.getHits();
+  }
+
+  public long getMisses() {
+    return cache.getMisses();
+  }
+
+  public double getHitRatio() {
+    return cache.getHitRatio();
+  }
+}
@@ -0,0 +1,183 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.cache;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Response cache matching prompts by meaning. Prompts are normalized and embedded with the in-process embedding model; a
+ * prompt whose embedding is close enough to a cached prompt of the same scope is answered from the cache. A normalized
+ * prompt seen before is answered without being embedded.
+ */
+public class SemanticResponseCache {
+
+  private static final char KEY_SEPARATOR = '\u0000';
+
+  private final EmbeddingModel embeddingModel;
+  private final double threshold;
+  private final LruCache<String, Entry> cache;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * @param embeddingModel Model used to embed the prompts
+   * @param threshold      Minimum cosine similarity for a cached prompt to answer a new one
+   * @param maxEntries     Maximum number of cached responses
+   * @param ttlMillis      Time-to-live of a cached response in milliseconds, 0 or less to keep it until evicted
+   */
+  public SemanticResponseCache(EmbeddingModel embeddingModel, double threshold, int maxEntries, long ttlMillis) {
+    this.embeddingModel = embeddingModel;
+    this.threshold = threshold;
+    this.cache = new LruCache<>(maxEntries, ttlMillis);
+  }
+
+  /**
+   * Looks up the response of a prompt.
+   *
+   * @param scope  Scope of the prompt (operation and model parameters), responses are never shared across scopes
+   * @param prompt The prompt
+   * @return The lookup, to be passed to {@link #put(Lookup, CachedResponse)} on a miss
+   */
+  public Lookup lookup(String scope, String prompt) {
+    String normalized = normalize(prompt);
+    String key = scope + KEY_SEPARATOR + normalized;
+
+    Entry exact = cache.get(key);
+    if (exact != null) {
+      hits.incrementAndGet();
+      return new Lookup(key, scope, exact.vector, exact.response, 1.0);
+    }
+
+    float[] vector = unitVector(embeddingModel.embed(normalized).content().vector());
+    String bestKey = null;
+    double bestSimilarity = -1;
+    for (Map.Entry<String, Entry> candidate : cache.snapshot()) {
+      Entry entry = candidate.getValue();
+      if (entry.scope.equals(scope) && entry.vector.length == vector.length) {
+        double similarity = dot(vector, entry.vector);
+        if (similarity > bestSimilarity) {
+          bestSimilarity = similarity;
+          bestKey = candidate.getKey();
+        }
+      }
+    }
+    if (bestKey != null && bestSimilarity >= threshold) {
+      Entry best = cache.get(bestKey);
+      if (best != null) {
+        hits.incrementAndGet();
+        return new Lookup(key, scope, vector, best.response, bestSimilarity);
+      }
+    }
+    misses.incrementAndGet();
+    return new Lookup(key, scope, vector, null, bestSimilarity);
+  }
+
+  /**
+   * Caches the response computed after a miss.
+   *
+   * @param lookup   The lookup that missed
+   * @param response The response to cache
+   */
+  public void put(Lookup lookup, CachedResponse response) {
+    cache.put(lookup.key, new Entry(lookup.scope, lookup.vector, response));
+  }
+
+  public void clear() {
+    cache.clear();
+  }
+
+  public int size() {
+    return cache.size();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  static String normalize(String prompt) {
+    return prompt.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+  }
+
+  private static float[] unitVector(float[] vector) {
+    double norm = 0;
+    for (float value : vector) {
+      norm += value * value;
+    }
+    norm = Math.sqrt(norm);
+    float[] unit = new float[vector.length];
+    if (norm > 0) {
+      for (int i = 0; i < vector.length; i++) {
+        unit[i] = (float) (vector[i] / norm);
+      }
+    }
+    return unit;
+  }
+
+  private static double dot(float[] a, float[] b) {
+    double sum = 0;
+    for (int i = 0; i < a.length; i++) {
+      sum += a[i] * b[i];
+    }
+    return sum;
+  }
+
+  /**
+   * Result of a lookup.
+   */
+  public static final class Lookup {
+
+    private final String key;
+    private final String scope;
+    private final float[] vector;
+    private final CachedResponse response;
+    private final double similarity;
+
+    private Lookup(String key, String scope, float[] vector, CachedResponse response, double similarity) {
+      this.key = key;
+      this.scope = scope;
+      this.vector = vector;
+      this.response = response;
+      this.similarity = similarity;
+    }
+
+    public boolean isHit() {
+      return response != null;
+    }
+
+    /**
+     * @return The cached response on a hit, null on a miss
+     */
+    public CachedResponse getResponse() {
+      return response;
+    }
+
+    /**
+     * @return Similarity of the closest cached prompt of the scope, -1 when the scope is empty
+     */
+    public double getSimilarity() {
+      return similarity;
+    }
+  }
+
+  private static final class Entry {
+
+    private final String scope;
+    private final float[] vector;
+    private final CachedResponse response;
+
+    Entry(String scope, float[] vector, CachedResponse response) {
+      this.scope = scope;
+      this.vector = vector;
+      this.response = response;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.cache;
+
+import org.mapdb.DB;
+import org.mapdb.DBException;
+import org.mapdb.DBMaker;
+import org.mapdb.HTreeMap;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mapdb.Serializer.STRING;
+
+/**
+ * MapDB file of an exact response cache, opened once per canonical path and shared by every cache of this application
+ * pointing at it. MapDB supports a single writer per file, so the file stays locked while open: a second application or
+ * process opening the same path fails instead of corrupting the file. The file is closed when its last cache is closed.
+ */
+final class SharedCacheFile {
+
+  private static final String MAP_NAME = "responses";
+  private static final Map<Path, SharedCacheFile> OPEN = new HashMap<>();
+
+  private final Path path;
+  private final DB db;
+  private final HTreeMap<String, String> map;
+  private int references;
+
+  private SharedCacheFile(Path path, DB db) {
+    this.path = path;
+    this.db = db;
+    this.map = db.hashMap(MAP_NAME, STRING, STRING).createOrOpen();
+  }
+
+  /**
+   * Opens the file at the given path, or shares the handle already open on it.
+   *
+   * @throws IllegalStateException If another application or process holds the file
+   */
+  static synchronized SharedCacheFile open(String filePath) {
+    Path path = canonical(filePath);
+    SharedCacheFile file = OPEN.get(path);
+    if (file == null) {
+      try {
+        file = new SharedCacheFile(path, DBMaker.fileDB(path.toFile()).transactionEnable().closeOnJvmShutdown().make());
+      } catch (DBException.FileLocked e) {
+        throw new IllegalStateException(String.format("Exact cache file %s is used by another application or process; "
+            + "a cache file supports a single writer, give each application its own path", path), e);
+      }
+      OPEN.put(path, file);
+    }
+    file.references++;
+    return file;
+  }
+
+  DB db() {
+    return db;
+  }
+
+  HTreeMap<String, String> map() {
+    return map;
+  }
+
+  /**
+   * Releases the handle of one cache, closing the file once no cache uses it.
+   */
+  void release() {
+    synchronized (SharedCacheFile.class) {
+      if (--references > 0) {
+        return;
+      }
+      OPEN.remove(path);
+    }
+    synchronized (db) {
+      db.close();
+    }
+  }
+
+  /**
+   * @return Absolute path of the file, with the symbolic links of its directory resolved
+   */
+  private static Path canonical(String filePath) {
+    Path path = Paths.get(filePath).toAbsolutePath().normalize();
+    Path parent = path.getParent();
+    try {
+      return parent != null && Files.isDirectory(parent) ? parent.toRealPath().resolve(path.getFileName()) : path;
+    } catch (IOException e) {
+      return path;
+    }
+  }
+}
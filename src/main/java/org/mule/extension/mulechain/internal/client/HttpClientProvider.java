@@ -0,0 +1,79 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.client;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the HTTP client shared by the connector's direct REST clients. Every client handed out by this class shares the
+ * same connection pool and dispatcher, so connections opened once (for example during warm-up) are reused by later calls.
+ */
+public final class HttpClientProvider {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientProvider.class);
+
+  private static final int MAX_IDLE_CONNECTIONS = 10;
+  private static final long KEEP_ALIVE_MINUTES = 5L;
+  private static final long DEFAULT_TIMEOUT_SECONDS = 60L;
+
+  private static final OkHttpClient SHARED_CLIENT = new OkHttpClient.Builder()
+      .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+      .connectTimeout(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+      .readTimeout(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+      .writeTimeout(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+      .build();
+
+  private HttpClientProvider() {}
+
+  /**
+   * @return The shared client with the default timeouts
+   */
+  public static OkHttpClient getClient() {
+    return SHARED_CLIENT;
+  }
+
+  /**
+   * Returns a client with the given timeout that still shares the pooled connections of the shared client.
+   *
+   * @param timeout Connect, read and write timeout; the default timeout is used when null
+   * @return A client backed by the shared connection pool
+   */
+  public static OkHttpClient getClient(Duration timeout) {
+    if (timeout == null) {
+      return SHARED_CLIENT;
+    }
+    long timeoutSeconds = timeout.getSeconds();
+    return SHARED_CLIENT.newBuilder()
+        .connectTimeout(timeoutSeconds, TimeUnit.SECONDS)
+        .readTimeout(timeoutSeconds, TimeUnit.SECONDS)
+        .writeTimeout(timeoutSeconds, TimeUnit.SECONDS)
+        .build();
+  }
+
+  /**
+   * Opens a pooled connection to the given endpoint by sending a HEAD request. Any HTTP status is accepted, the goal is
+   * to pay for DNS resolution and the TCP/TLS handshakes ahead of the first real request.
+   *
+   * @param url Endpoint to connect to
+   * @throws IOException If the endpoint cannot be reached
+   */
+  public static void preconnect(String url) throws IOException {
+    Request request = new Request.Builder()
+        .url(url)
+        .head()
+        .build();
+    try (Response response = SHARED_CLIENT.newCall(request).execute()) {
+      LOGGER.debug("Pre-connected to {} (HTTP {})", url, response.code());
+    }
+  }
+}
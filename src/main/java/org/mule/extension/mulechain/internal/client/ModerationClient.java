@@ -0,0 +1,64 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.client;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Client of the OpenAI and Mistral moderation endpoints, which share the same request and response format. Requests go
+ * through the shared pooled HTTP client.
+ */
+public class ModerationClient {
+
+  private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+  private static final int MAX_ERROR_BODY_LENGTH = 500;
+
+  private final String url;
+  private final String apiKey;
+  private final OkHttpClient httpClient;
+
+  /**
+   * @param url     URL of the moderation endpoint
+   * @param apiKey  API key of the provider
+   * @param timeout Connect, read and write timeout; the default timeout is used when null
+   */
+  public ModerationClient(String url, String apiKey, Duration timeout) {
+    this.url = url;
+    this.apiKey = apiKey;
+    this.httpClient = HttpClientProvider.getClient(timeout);
+  }
+
+  /**
+   * Sends a moderation request.
+   *
+   * @param payload Request body, with the model and an input string or array of strings
+   * @return The response of the provider, with one result per input
+   * @throws IOException If the request fails or the provider answers with an error status
+   */
+  public JSONObject moderate(JSONObject payload) throws IOException {
+    Request request = new Request.Builder()
+        .url(url)
+        .header("Authorization", "Bearer " + apiKey)
+        .post(RequestBody.create(payload.toString(), JSON))
+        .build();
+    try (Response response = httpClient.newCall(request).execute()) {
+      ResponseBody body = response.body();
+      String content = body != null ? body.string() : "";
+      if (!response.isSuccessful()) {
+        throw new IOException("Moderation request failed with status " + response.code() + ": "
+            + (content.length() > MAX_ERROR_BODY_LENGTH ? content.substring(0, MAX_ERROR_BODY_LENGTH) : content));
+      }
+      return new JSONObject(content);
+    }
+  }
+}
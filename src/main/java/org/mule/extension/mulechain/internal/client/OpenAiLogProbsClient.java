@@ -23,7 +23,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+
+import static org.mule.extension.mulechain.internal.config.util.LangchainLLMInitializerUtil.shouldUseMaxCompletionTokens;
 
 /**
  * Direct OpenAI API client for making requests with logprobs support.
@@ -43,12 +44,7 @@ public class OpenAiLogProbsClient {
     this.apiKey = apiKey;
     this.baseUrl = baseUrl != null ? baseUrl : "https://api.openai.com/v1";
 
-    long timeoutSeconds = timeout != null ? timeout.getSeconds() : 60L;
-    this.httpClient = new OkHttpClient.Builder()
-        .connectTimeout(timeoutSeconds, TimeUnit.SECONDS)
-        .readTimeout(timeoutSeconds, TimeUnit.SECONDS)
-        .writeTimeout(timeoutSeconds, TimeUnit.SECONDS)
-        .build();
+    this.httpClient = HttpClientProvider.getClient(timeout);
     this.objectMapper = new ObjectMapper();
   }
 
@@ -161,33 +157,6 @@ public class OpenAiLogProbsClient {
     return new LogProbsData(tokens, metadata);
   }
 
-  /**
-   * Determines if the model requires max_completion_tokens instead of max_tokens.
-   * OpenAI models starting with "o" (like o1, o1-preview, o1-mini) or reasoning
-   * models
-   * require max_completion_tokens instead of max_tokens.
-   */
-  private boolean shouldUseMaxCompletionTokens(String model) {
-    if (model == null) {
-      return false;
-    }
-
-    String lowerModel = model.toLowerCase();
-
-    // Check if model starts with "o" followed by a digit or dash (o1, o1-preview,
-    // o1-mini, etc.)
-    if (lowerModel.matches("^o[0-9].*") || lowerModel.matches("^o-.*")) {
-      return true;
-    }
-
-    // Check for reasoning models
-    if (lowerModel.contains("reasoning")) {
-      return true;
-    }
-
-    return false;
-  }
-
   // Request/Response DTOs
 
   @JsonIgnoreProperties(ignoreUnknown = true)
@@ -4,16 +4,40 @@
 package org.mule.extension.mulechain.internal.config;
 
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import org.json.JSONObject;
+import org.mule.extension.mulechain.api.config.BatchJobMode;
 import org.mule.extension.mulechain.api.config.ConfidenceStrategy;
+import org.mule.extension.mulechain.api.config.EmbeddingModelType;
+import org.mule.extension.mulechain.api.config.EmbeddingPoolingMode;
+import org.mule.extension.mulechain.api.config.TokenBudgetStrategy;
+import org.mule.extension.mulechain.internal.batch.BatchJobClient;
+import org.mule.extension.mulechain.internal.batch.LocalBatchJobClient;
+import org.mule.extension.mulechain.internal.batch.OpenAiBatchJobClient;
+import org.mule.extension.mulechain.internal.cache.ExactResponseCache;
+import org.mule.extension.mulechain.internal.cache.ModerationCache;
+import org.mule.extension.mulechain.internal.cache.SemanticResponseCache;
+import org.mule.extension.mulechain.internal.embedding.CentroidClassifier;
+import org.mule.extension.mulechain.internal.embedding.EmbeddingModelSettings;
+import org.mule.extension.mulechain.internal.embedding.SharedEmbeddingModel;
+import org.mule.extension.mulechain.internal.error.exception.ConfigValidationException;
+import org.mule.extension.mulechain.internal.helpers.WarmUpService;
+import org.mule.extension.mulechain.internal.operation.LangchainBatchOperations;
+import org.mule.extension.mulechain.internal.operation.LangchainCacheOperations;
 import org.mule.extension.mulechain.internal.operation.LangchainEmbeddingStoresOperations;
 import org.mule.extension.mulechain.internal.operation.LangchainImageModelsOperations;
 import org.mule.extension.mulechain.internal.llm.type.LangchainLLMType;
 import org.mule.extension.mulechain.internal.llm.ConfigTypeProvider;
 import org.mule.extension.mulechain.internal.operation.LangchainLLMOperations;
+import org.mule.extension.mulechain.internal.operation.LangchainStreamingOperations;
 import org.mule.extension.mulechain.internal.llm.LangchainLLMModelNameProvider;
 import org.mule.extension.mulechain.internal.llm.LangchainLLMTypeProvider;
 import org.mule.extension.mulechain.internal.llm.config.ConfigExtractor;
 import org.mule.extension.mulechain.internal.llm.config.ConfigType;
+import org.mule.extension.mulechain.internal.util.JsonUtils;
+import org.mule.extension.mulechain.internal.util.NamedThreadFactory;
+import org.mule.runtime.api.lifecycle.Disposable;
 import org.mule.runtime.api.lifecycle.Initialisable;
 import org.mule.runtime.api.lifecycle.InitialisationException;
 import org.mule.runtime.api.meta.ExpressionSupport;
@@ -29,6 +53,12 @@ import org.mule.runtime.extension.api.annotation.values.OfValues;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -38,11 +68,15 @@ import java.util.concurrent.TimeUnit;
  */
 @Configuration(name = "config")
 @Operations({LangchainLLMOperations.class, LangchainEmbeddingStoresOperations.class,
-    LangchainImageModelsOperations.class})
-public class LangchainLLMConfiguration implements Initialisable {
+    LangchainImageModelsOperations.class, LangchainBatchOperations.class, LangchainCacheOperations.class,
+    LangchainStreamingOperations.class})
+public class LangchainLLMConfiguration implements Initialisable, Disposable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(LangchainLLMConfiguration.class);
 
+  private static final String SENTIMENT_CLASSIFIER = "sentiment";
+  private static final String MODERATION_CLASSIFIER = "moderation";
+
   @Parameter
   @Placement(order = 1, tab = Placement.DEFAULT_TAB)
   @DisplayName("LLM type")
@@ -107,10 +141,250 @@ public class LangchainLLMConfiguration implements Initialisable {
   @Summary("Strategy for calculating confidence scores")
   private ConfidenceStrategy confidenceStrategy = ConfidenceStrategy.ENTROPY_BASED;
 
+  @Parameter
+  @Optional(defaultValue = "false")
+  @Placement(order = 12, tab = "Advanced")
+  @DisplayName("Enable warm-up")
+  @Summary("Pre-open provider connections and prepare models at startup so the first request runs at steady-state latency")
+  private boolean enableWarmUp = false;
+
+  @Parameter
+  @Optional(defaultValue = "true")
+  @Placement(order = 13, tab = "Advanced")
+  @DisplayName("Warm up embedding model")
+  @Summary("Load the in-process ONNX embedding model during warm-up")
+  private boolean warmUpEmbeddingModel = true;
+
+  @Parameter
+  @Optional(defaultValue = "false")
+  @Placement(order = 14, tab = "Advanced")
+  @DisplayName("Send warm-up probe")
+  @Summary("Send a minimal prompt to the LLM during warm-up (consumes a few tokens)")
+  private boolean sendWarmUpProbe = false;
+
+  @Parameter
+  @Optional(defaultValue = "4")
+  @Placement(order = 15, tab = "Advanced")
+  @DisplayName("Batch parallelism")
+  @Summary("Maximum number of batch prompts sent to the LLM concurrently by this configuration")
+  private int batchParallelism = 4;
+
+  @Parameter
+  @Optional(defaultValue = "0")
+  @Placement(order = 16, tab = "Advanced")
+  @DisplayName("Max input tokens")
+  @Summary("Input token budget checked before calling the LLM, counted locally (0 disables the check)")
+  private int maxInputTokens = 0;
+
+  @Parameter
+  @Optional(defaultValue = "FAIL")
+  @Placement(order = 17, tab = "Advanced")
+  @DisplayName("Token budget strategy")
+  @Summary("Fail fast or truncate inputs over the input token budget")
+  private TokenBudgetStrategy tokenBudgetStrategy = TokenBudgetStrategy.FAIL;
+
+  @Parameter
+  @Optional(defaultValue = "false")
+  @Placement(order = 1, tab = "Response Cache")
+  @DisplayName("Enable semantic cache")
+  @Summary("Answer prompts similar to a previous prompt of this configuration from a cache instead of calling the LLM")
+  private boolean enableSemanticCache = false;
+
+  @Parameter
+  @Optional(defaultValue = "0.95")
+  @Placement(order = 2, tab = "Response Cache")
+  @DisplayName("Similarity threshold")
+  @Summary("Minimum cosine similarity between two prompts for the cached response to be reused")
+  private double semanticCacheThreshold = 0.95;
+
+  @Parameter
+  @Optional(defaultValue = "1000")
+  @Placement(order = 3, tab = "Response Cache")
+  @DisplayName("Max cached responses")
+  @Summary("Maximum number of responses kept by the semantic cache, the least recently used are evicted first")
+  private int semanticCacheMaxEntries = 1000;
+
+  @Parameter
+  @Optional(defaultValue = "3600")
+  @Placement(order = 4, tab = "Response Cache")
+  @DisplayName("Time to live (seconds)")
+  @Summary("Time after which a cached response expires, 0 keeps responses until evicted")
+  private long semanticCacheTtlSeconds = 3600;
+
+  @Parameter
+  @Optional(defaultValue = "false")
+  @Placement(order = 5, tab = "Response Cache")
+  @DisplayName("Enable exact cache")
+  @Summary("Answer a deterministic (temperature 0) request seen before from a cache instead of calling the LLM")
+  private boolean enableExactCache = false;
+
+  @Parameter
+  @Optional
+  @Placement(order = 6, tab = "Response Cache")
+  @DisplayName("Exact cache file")
+  @Summary("MapDB file persisting the exact cache across restarts; locked while open, so each application needs its own path")
+  private String exactCacheFilePath;
+
+  @Parameter
+  @Optional(defaultValue = "1000")
+  @Placement(order = 7, tab = "Response Cache")
+  @DisplayName("Exact cache max entries")
+  @Summary("Maximum number of responses of the exact cache kept in memory, the least recently used are evicted first")
+  private int exactCacheMaxEntries = 1000;
+
+  @Parameter
+  @Optional(defaultValue = "0")
+  @Placement(order = 8, tab = "Response Cache")
+  @DisplayName("Exact cache time to live (seconds)")
+  @Summary("Time after which a response of the exact cache expires, 0 keeps responses until invalidated")
+  private long exactCacheTtlSeconds = 0;
+
+  @Parameter
+  @Optional(defaultValue = "false")
+  @Placement(order = 9, tab = "Response Cache")
+  @DisplayName("Enable moderation cache")
+  @Summary("Reuse the moderation result of an input moderated before instead of calling the moderation API")
+  private boolean enableModerationCache = false;
+
+  @Parameter
+  @Optional(defaultValue = "10000")
+  @Placement(order = 10, tab = "Response Cache")
+  @DisplayName("Moderation cache max entries")
+  @Summary("Maximum number of cached moderation results, the least recently used are evicted first")
+  private int moderationCacheMaxEntries = 10000;
+
+  @Parameter
+  @Optional(defaultValue = "86400")
+  @Placement(order = 11, tab = "Response Cache")
+  @DisplayName("Moderation cache time to live (seconds)")
+  @Summary("Time after which a cached moderation result expires, 0 keeps results until evicted")
+  private long moderationCacheTtlSeconds = 86400;
+
+  @Parameter
+  @Optional(defaultValue = "PROVIDER")
+  @Placement(order = 1, tab = "Batch Jobs")
+  @DisplayName("Batch job mode")
+  @Summary("Run offline batch jobs on the provider Batch API (OpenAI) or on a local file-backed stand-in")
+  private BatchJobMode batchJobMode = BatchJobMode.PROVIDER;
+
+  @Parameter
+  @Optional
+  @Placement(order = 2, tab = "Batch Jobs")
+  @DisplayName("Local batch directory")
+  @Summary("Directory holding the jobs of the local stand-in, defaults to a folder in the temporary directory")
+  private String localBatchDirectory;
+
+  @Parameter
+  @Optional(defaultValue = "ALL_MINILM_L6_V2")
+  @Placement(order = 1, tab = "Embedding Model")
+  @DisplayName("Embedding model")
+  @Summary("In-process model used to embed documents and queries; the quantized variant is faster on CPU")
+  private EmbeddingModelType embeddingModelType = EmbeddingModelType.ALL_MINILM_L6_V2;
+
+  @Parameter
+  @Optional
+  @Placement(order = 2, tab = "Embedding Model")
+  @DisplayName("ONNX model path")
+  @Summary("Path of the ONNX model file, required for the custom ONNX model")
+  private String embeddingModelPath;
+
+  @Parameter
+  @Optional
+  @Placement(order = 3, tab = "Embedding Model")
+  @DisplayName("Tokenizer path")
+  @Summary("Path of the tokenizer.json file of the model, required for the custom ONNX model")
+  private String embeddingTokenizerPath;
+
+  @Parameter
+  @Optional(defaultValue = "MEAN")
+  @Placement(order = 4, tab = "Embedding Model")
+  @DisplayName("Pooling mode")
+  @Summary("Pooling applied to the token embeddings of the custom ONNX model")
+  private EmbeddingPoolingMode embeddingPoolingMode = EmbeddingPoolingMode.MEAN;
+
+  @Parameter
+  @Optional(defaultValue = "0")
+  @Placement(order = 5, tab = "Embedding Model")
+  @DisplayName("Intra-op threads")
+  @Summary("Threads used inside a single ONNX operator of the embedding model (0 uses the ONNX runtime default)")
+  private int embeddingIntraOpThreads = 0;
+
+  @Parameter
+  @Optional(defaultValue = "0")
+  @Placement(order = 6, tab = "Embedding Model")
+  @DisplayName("Inter-op threads")
+  @Summary("Threads used to run independent ONNX operators in parallel (0 uses the ONNX runtime default)")
+  private int embeddingInterOpThreads = 0;
+
+  @Parameter
+  @Optional(defaultValue = "0")
+  @Placement(order = 7, tab = "Embedding Model")
+  @DisplayName("Inference threads")
+  @Summary("Size of the executor that embeds text segments in parallel (0 uses the default executor)")
+  private int embeddingInferenceThreads = 0;
+
+  /**
+   * JSON object whose "sentiment" and "moderation" entries map each label to an array of example texts. Sentiment labels
+   * are sentiment categories such as POSITIVE; the moderation label "safe" marks inputs that are not flagged.
+   */
+  @Parameter
+  @Optional
+  @Placement(order = 1, tab = "Local Classifier")
+  @DisplayName("Classifier examples file")
+  @Summary("JSON file of labelled examples used to answer clear-cut sentiment and moderation inputs without the LLM")
+  private String localClassifierFile;
+
+  @Parameter
+  @Optional(defaultValue = "0.15")
+  @Placement(order = 2, tab = "Local Classifier")
+  @DisplayName("Minimum margin")
+  @Summary("Minimum similarity margin between the two closest labels for an input to be answered locally instead of by the LLM")
+  private double localClassifierMargin = 0.15;
+
+  @Parameter
+  @Optional(defaultValue = "65536")
+  @Placement(order = 1, tab = "Streaming")
+  @DisplayName("Stream buffer size")
+  @Summary("Bytes of a streamed response buffered ahead of the flow; the provider is slowed down when the buffer is full")
+  private int streamBufferSize = 65536;
+
+  @Parameter
+  @Optional(defaultValue = "60")
+  @Placement(order = 2, tab = "Streaming")
+  @DisplayName("Stream idle timeout (seconds)")
+  @Summary("Seconds without data moving through a streamed response before it fails (0 waits forever)")
+  private long streamIdleTimeoutSeconds = 60;
+
   private ConfigExtractor configExtractor;
 
   private ChatLanguageModel model;
 
+  private StreamingChatLanguageModel streamingModel;
+
+  private long warmUpDurationMillis = -1;
+
+  private EmbeddingModelSettings embeddingModelSettings;
+
+  private ExecutorService batchExecutor;
+
+  private ExecutorService interactiveExecutor;
+
+  private ExecutorService compactionExecutor;
+
+  private ForkJoinPool searchPool;
+
+  private BatchJobClient batchJobClient;
+
+  private SemanticResponseCache semanticCache;
+
+  private ExactResponseCache exactCache;
+
+  private ModerationCache moderationCache;
+
+  private CentroidClassifier sentimentClassifier;
+
+  private CentroidClassifier moderationClassifier;
+
   public String getLlmType() {
     return llmType;
   }
@@ -155,6 +429,199 @@ public class LangchainLLMConfiguration implements Initialisable {
     return confidenceStrategy;
   }
 
+  public boolean getEnableWarmUp() {
+    return enableWarmUp;
+  }
+
+  public boolean getWarmUpEmbeddingModel() {
+    return warmUpEmbeddingModel;
+  }
+
+  public boolean getSendWarmUpProbe() {
+    return sendWarmUpProbe;
+  }
+
+  /**
+   * @return Duration of the last warm-up in milliseconds, or -1 when warm-up is disabled
+   */
+  public long getWarmUpDurationMillis() {
+    return warmUpDurationMillis;
+  }
+
+  /**
+   * @return Settings of the in-process embedding model used by this configuration
+   */
+  public EmbeddingModelSettings getEmbeddingModelSettings() {
+    if (embeddingModelSettings != null) {
+      return embeddingModelSettings;
+    }
+    return new EmbeddingModelSettings(embeddingModelType, embeddingModelPath, embeddingTokenizerPath, embeddingPoolingMode,
+                                      embeddingIntraOpThreads, embeddingInterOpThreads, embeddingInferenceThreads);
+  }
+
+  public int getBatchParallelism() {
+    return batchParallelism;
+  }
+
+  public int getMaxInputTokens() {
+    return maxInputTokens;
+  }
+
+  public TokenBudgetStrategy getTokenBudgetStrategy() {
+    return tokenBudgetStrategy;
+  }
+
+  /**
+   * @return Executor running the concurrent LLM requests of batch operations and batch jobs, created on first use with
+   *         {@link #getBatchParallelism()} threads
+   */
+  public synchronized ExecutorService getBatchExecutor() {
+    if (batchExecutor == null) {
+      batchExecutor = Executors.newFixedThreadPool(Math.max(1, batchParallelism), new NamedThreadFactory("mulechain-batch"));
+    }
+    return batchExecutor;
+  }
+
+  /**
+   * @return Single thread executor compacting the binary embedding stores this configuration ingests into, created on
+   *         first use
+   */
+  public synchronized ExecutorService getCompactionExecutor() {
+    if (compactionExecutor == null) {
+      compactionExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("mulechain-compactor"));
+    }
+    return compactionExecutor;
+  }
+
+  /**
+   * @return Pool splitting the exact searches of large JSON embedding stores across the available processors, created on
+   *         first use
+   */
+  public synchronized ForkJoinPool getSearchPool() {
+    if (searchPool == null) {
+      searchPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("mulechain-search-" + thread.getPoolIndex());
+        return thread;
+      }, null, false);
+    }
+    return searchPool;
+  }
+
+  /**
+   * @return Executor running the work of single requests off the calling thread, such as the concurrent calls of a
+   *         sentiment analysis and streamed generations, created on first use. It is unbounded, so that this work never
+   *         queues behind a running batch or behind streams waiting for their reader.
+   */
+  public synchronized ExecutorService getInteractiveExecutor() {
+    if (interactiveExecutor == null) {
+      interactiveExecutor = Executors.newCachedThreadPool(new NamedThreadFactory("mulechain-interactive"));
+    }
+    return interactiveExecutor;
+  }
+
+  /**
+   * @return The semantic response cache of this configuration, or null when disabled
+   */
+  public synchronized SemanticResponseCache getSemanticCache() {
+    if (enableSemanticCache && semanticCache == null) {
+      semanticCache = new SemanticResponseCache(SharedEmbeddingModel.delegate(getEmbeddingModelSettings()),
+                                                semanticCacheThreshold, semanticCacheMaxEntries,
+                                                TimeUnit.SECONDS.toMillis(semanticCacheTtlSeconds));
+    }
+    return semanticCache;
+  }
+
+  /**
+   * @return The exact response cache of this configuration, or null when disabled
+   */
+  public synchronized ExactResponseCache getExactCache() {
+    if (enableExactCache && exactCache == null) {
+      exactCache = new ExactResponseCache(exactCacheFilePath, exactCacheMaxEntries,
+                                          TimeUnit.SECONDS.toMillis(exactCacheTtlSeconds));
+    }
+    return exactCache;
+  }
+
+  /**
+   * @return The moderation result cache of this configuration, or null when disabled
+   */
+  public synchronized ModerationCache getModerationCache() {
+    if (enableModerationCache && moderationCache == null) {
+      moderationCache = new ModerationCache(moderationCacheMaxEntries, TimeUnit.SECONDS.toMillis(moderationCacheTtlSeconds));
+    }
+    return moderationCache;
+  }
+
+  /**
+   * @return Classifier answering clear-cut sentiment analyses locally, or null when no sentiment examples are configured
+   */
+  public CentroidClassifier getSentimentClassifier() {
+    return sentimentClassifier;
+  }
+
+  /**
+   * @return Classifier answering clear-cut moderations locally, or null when no moderation examples are configured
+   */
+  public CentroidClassifier getModerationClassifier() {
+    return moderationClassifier;
+  }
+
+  public double getLocalClassifierMargin() {
+    return localClassifierMargin;
+  }
+
+  public int getStreamBufferSize() {
+    return streamBufferSize;
+  }
+
+  public long getStreamIdleTimeoutSeconds() {
+    return streamIdleTimeoutSeconds;
+  }
+
+  /**
+   * @return Identifies the model and the generation parameters, so that cached responses are only reused for the same
+   *         model settings
+   */
+  public String getModelScope() {
+    return llmType + "|" + modelName + "|" + temperature + "|" + topP + "|" + maxTokens;
+  }
+
+  public BatchJobMode getBatchJobMode() {
+    return batchJobMode;
+  }
+
+  /**
+   * @return Client running the offline batch jobs of this configuration, created on first use. The local client then
+   *         resumes the jobs its directory holds in progress.
+   */
+  public synchronized BatchJobClient getBatchJobClient() {
+    if (batchJobClient == null) {
+      batchJobClient = createBatchJobClient();
+    }
+    return batchJobClient;
+  }
+
+  private BatchJobClient createBatchJobClient() {
+    if (batchJobMode == BatchJobMode.LOCAL) {
+      String directory = localBatchDirectory != null && !localBatchDirectory.trim().isEmpty()
+          ? localBatchDirectory
+          : Paths.get(System.getProperty("java.io.tmpdir"), "mulechain-batch").toString();
+      LocalBatchJobClient client = new LocalBatchJobClient(Paths.get(directory), model, getBatchExecutor());
+      try {
+        client.resumeInterrupted();
+      } catch (IOException e) {
+        LOGGER.warn("Unable to resume the local batch jobs of {}: {}", directory, e.getMessage());
+      }
+      return client;
+    }
+    if (LangchainLLMType.fromValue(llmType) != LangchainLLMType.OPENAI) {
+      throw new ConfigValidationException("The provider Batch API is only supported for OpenAI, use the local batch job mode for "
+          + llmType);
+    }
+    return new OpenAiBatchJobClient(configExtractor.extractValue("OPENAI_API_KEY"), null);
+  }
+
   public ConfigExtractor getConfigExtractor() {
     return configExtractor;
   }
@@ -163,20 +630,106 @@ public class LangchainLLMConfiguration implements Initialisable {
     return model;
   }
 
+  /**
+   * @return The streaming model of the LLM type, built once with the same settings as the chat model
+   */
+  public StreamingChatLanguageModel getStreamingModel() {
+    return streamingModel;
+  }
+
   private ChatLanguageModel createModel(ConfigExtractor configExtractor) {
     LangchainLLMType type = LangchainLLMType.fromValue(llmType);
     LOGGER.debug("Creating Model of LLMType: {}", llmType);
     return type.getConfigBiFunction().apply(configExtractor, this);
   }
 
+  private StreamingChatLanguageModel createStreamingModel(ConfigExtractor configExtractor) {
+    LangchainLLMType type = LangchainLLMType.fromValue(llmType);
+    LOGGER.debug("Creating Streaming Model of LLMType: {}", llmType);
+    return type.getStreamingConfigBiFunction().apply(configExtractor, this);
+  }
+
   @Override
   public void initialise() throws InitialisationException {
     if (configType != null) {
       ConfigType config = ConfigType.fromValue(configType);
       configExtractor = config.getConfigExtractorFunction().apply(this);
       model = createModel(configExtractor);
+      streamingModel = createStreamingModel(configExtractor);
+      if (embeddingModelSettings == null) {
+        validateEmbeddingModel();
+        embeddingModelSettings = getEmbeddingModelSettings();
+        SharedEmbeddingModel.retain(embeddingModelSettings);
+      }
+      if (localClassifierFile != null && !localClassifierFile.trim().isEmpty()) {
+        trainLocalClassifiers();
+      }
+      if (enableWarmUp) {
+        warmUpDurationMillis = WarmUpService.warmUp(this);
+      }
     } else {
       LOGGER.warn("Initialisation is called before the values are populated");
     }
   }
+
+  private void validateEmbeddingModel() {
+    if (embeddingModelType == EmbeddingModelType.CUSTOM_ONNX
+        && (embeddingModelPath == null || embeddingModelPath.trim().isEmpty()
+            || embeddingTokenizerPath == null || embeddingTokenizerPath.trim().isEmpty())) {
+      throw new ConfigValidationException("The custom ONNX embedding model requires both a model path and a tokenizer path");
+    }
+  }
+
+  private void trainLocalClassifiers() {
+    JSONObject examples = JsonUtils.readConfigFile(localClassifierFile);
+    if (examples == null) {
+      throw new ConfigValidationException("Unable to read the classifier examples file " + localClassifierFile);
+    }
+    try {
+      EmbeddingModel embeddingModel = SharedEmbeddingModel.delegate(embeddingModelSettings);
+      if (examples.has(SENTIMENT_CLASSIFIER)) {
+        sentimentClassifier = CentroidClassifier.train(embeddingModel,
+                                                       CentroidClassifier.examples(examples.getJSONObject(SENTIMENT_CLASSIFIER)));
+      }
+      if (examples.has(MODERATION_CLASSIFIER)) {
+        moderationClassifier = CentroidClassifier.train(embeddingModel,
+                                                        CentroidClassifier
+                                                            .examples(examples.getJSONObject(MODERATION_CLASSIFIER)));
+      }
+    } catch (RuntimeException e) {
+      throw new ConfigValidationException("Invalid classifier examples file " + localClassifierFile + ": " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void dispose() {
+    synchronized (this) {
+      if (batchExecutor != null) {
+        batchExecutor.shutdownNow();
+        batchExecutor = null;
+      }
+      if (interactiveExecutor != null) {
+        interactiveExecutor.shutdownNow();
+        interactiveExecutor = null;
+      }
+      if (compactionExecutor != null) {
+        // A running compaction is left to complete, so that it does not leave a partly written segment behind
+        compactionExecutor.shutdown();
+        compactionExecutor = null;
+      }
+      if (searchPool != null) {
+        searchPool.shutdownNow();
+        searchPool = null;
+      }
+      batchJobClient = null;
+      if (exactCache != null) {
+        exactCache.close();
+        exactCache = null;
+      }
+    }
+    if (embeddingModelSettings != null) {
+      SharedEmbeddingModel.release(embeddingModelSettings);
+      embeddingModelSettings = null;
+    }
+  }
 }
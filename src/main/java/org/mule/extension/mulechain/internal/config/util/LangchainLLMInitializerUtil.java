@@ -212,7 +212,7 @@ public final class LangchainLLMInitializerUtil {
    * models
    * require max_completion_tokens instead of max_tokens.
    */
-  private static boolean shouldUseMaxCompletionTokens(String model) {
+  public static boolean shouldUseMaxCompletionTokens(String model) {
     if (model == null) {
       return false;
     }
@@ -0,0 +1,119 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.config.util;
+
+import dev.langchain4j.model.anthropic.AnthropicStreamingChatModel;
+import dev.langchain4j.model.azure.AzureOpenAiStreamingChatModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.mistralai.MistralAiStreamingChatModel;
+import dev.langchain4j.model.ollama.OllamaStreamingChatModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import org.mule.extension.mulechain.internal.config.LangchainLLMConfiguration;
+import org.mule.extension.mulechain.internal.llm.config.ConfigExtractor;
+import org.mule.extension.mulechain.internal.streaming.BlockingStreamingChatModel;
+
+import static java.time.Duration.ofSeconds;
+import static org.mule.extension.mulechain.internal.config.util.LangchainLLMInitializerUtil.shouldUseMaxCompletionTokens;
+
+/**
+ * Builds the streaming counterpart of the chat model of each LLM type, with the same settings as the chat model.
+ */
+public final class LangchainLLMStreamingInitializerUtil {
+
+  private static final String GROQ_BASE_URL = "https://api.groq.com/openai/v1";
+
+  private LangchainLLMStreamingInitializerUtil() {}
+
+  public static OpenAiStreamingChatModel createOpenAiStreamingChatModel(ConfigExtractor configExtractor,
+                                                                        LangchainLLMConfiguration configuration) {
+    return openAiCompatibleStreamingChatModel(null, configExtractor.extractValue("OPENAI_API_KEY"), configuration);
+  }
+
+  public static OpenAiStreamingChatModel createGroqOpenAiStreamingChatModel(ConfigExtractor configExtractor,
+                                                                            LangchainLLMConfiguration configuration) {
+    return openAiCompatibleStreamingChatModel(GROQ_BASE_URL, configExtractor.extractValue("GROQ_API_KEY"), configuration);
+  }
+
+  private static OpenAiStreamingChatModel openAiCompatibleStreamingChatModel(String baseUrl, String apiKey,
+                                                                             LangchainLLMConfiguration configuration) {
+    long durationInSec = configuration.getLlmTimeoutUnit().toSeconds(configuration.getLlmTimeout());
+    OpenAiStreamingChatModel.OpenAiStreamingChatModelBuilder builder = OpenAiStreamingChatModel.builder()
+        .baseUrl(baseUrl)
+        .apiKey(apiKey)
+        .modelName(configuration.getModelName())
+        .timeout(ofSeconds(durationInSec));
+    if (shouldUseMaxCompletionTokens(configuration.getModelName())) {
+      // Reasoning models reject temperature and topP
+      builder.maxCompletionTokens(configuration.getMaxTokens());
+    } else {
+      builder.temperature(configuration.getTemperature())
+          .topP(configuration.getTopP())
+          .maxTokens(configuration.getMaxTokens());
+    }
+    return builder.build();
+  }
+
+  public static MistralAiStreamingChatModel createMistralAiStreamingChatModel(ConfigExtractor configExtractor,
+                                                                              LangchainLLMConfiguration configuration) {
+    long durationInSec = configuration.getLlmTimeoutUnit().toSeconds(configuration.getLlmTimeout());
+    return MistralAiStreamingChatModel.builder()
+        .apiKey(configExtractor.extractValue("MISTRAL_AI_API_KEY"))
+        .modelName(configuration.getModelName())
+        .maxTokens(configuration.getMaxTokens())
+        .temperature(configuration.getTemperature())
+        .topP(configuration.getTopP())
+        .timeout(ofSeconds(durationInSec))
+        .build();
+  }
+
+  public static OllamaStreamingChatModel createOllamaStreamingChatModel(ConfigExtractor configExtractor,
+                                                                        LangchainLLMConfiguration configuration) {
+    long durationInSec = configuration.getLlmTimeoutUnit().toSeconds(configuration.getLlmTimeout());
+    return OllamaStreamingChatModel.builder()
+        .baseUrl(configExtractor.extractValue("OLLAMA_BASE_URL"))
+        .modelName(configuration.getModelName())
+        .temperature(configuration.getTemperature())
+        .topP(configuration.getTopP())
+        .timeout(ofSeconds(durationInSec))
+        .build();
+  }
+
+  public static AnthropicStreamingChatModel createAnthropicStreamingChatModel(ConfigExtractor configExtractor,
+                                                                              LangchainLLMConfiguration configuration) {
+    long durationInSec = configuration.getLlmTimeoutUnit().toSeconds(configuration.getLlmTimeout());
+    return AnthropicStreamingChatModel.builder()
+        .apiKey(configExtractor.extractValue("ANTHROPIC_API_KEY"))
+        .modelName(configuration.getModelName())
+        .maxTokens(configuration.getMaxTokens())
+        .temperature(configuration.getTemperature())
+        .topP(configuration.getTopP())
+        .timeout(ofSeconds(durationInSec))
+        .build();
+  }
+
+  public static AzureOpenAiStreamingChatModel createAzureOpenAiStreamingChatModel(ConfigExtractor configExtractor,
+                                                                                  LangchainLLMConfiguration configuration) {
+    long durationInSec = configuration.getLlmTimeoutUnit().toSeconds(configuration.getLlmTimeout());
+    AzureOpenAiStreamingChatModel.Builder builder = AzureOpenAiStreamingChatModel.builder()
+        .apiKey(configExtractor.extractValue("AZURE_OPENAI_KEY"))
+        .endpoint(configExtractor.extractValue("AZURE_OPENAI_ENDPOINT"))
+        .deploymentName(configExtractor.extractValue("AZURE_OPENAI_DEPLOYMENT_NAME"))
+        .timeout(ofSeconds(durationInSec))
+        .maxTokens(configuration.getMaxTokens());
+    if (!shouldUseMaxCompletionTokens(configuration.getModelName())) {
+      builder.temperature(configuration.getTemperature())
+          .topP(configuration.getTopP());
+    }
+    return builder.build();
+  }
+
+  /**
+   * The LLM types without a streaming model in langchain4j (Hugging Face, Gemini) stream the answer of their chat model as
+   * a single token, generated off the calling thread.
+   */
+  public static StreamingChatLanguageModel createBlockingStreamingChatModel(ConfigExtractor configExtractor,
+                                                                            LangchainLLMConfiguration configuration) {
+    return new BlockingStreamingChatModel(configuration.getModel(), configuration.getInteractiveExecutor());
+  }
+}
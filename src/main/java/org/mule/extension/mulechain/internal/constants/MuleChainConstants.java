@@ -43,6 +43,33 @@ public class MuleChainConstants {
   public static final String PAGES = "pages";
   public static final String SENTIMENT_SCORE = "sentimentScore";
   public static final String SENTIMENT_CATEGORY = "sentimentCategory";
+  public static final String INDEX = "index";
+  public static final String ERROR = "error";
+  public static final String TOKEN_USAGE = "tokenUsage";
+  public static final String RESPONSES = "responses";
+  public static final String TOTAL_ITEMS = "totalItems";
+  public static final String SUCCEEDED_ITEMS = "succeededItems";
+  public static final String FAILED_ITEMS = "failedItems";
+  public static final String REQUEST_COUNT = "requestCount";
+  public static final String JOB_ID = "jobId";
+  public static final String BATCH_JOB_MODE = "batchJobMode";
+  public static final String CACHED = "cached";
+  public static final String CACHE_SIMILARITY = "cacheSimilarity";
+  public static final String CACHE_TYPE = "cacheType";
+  public static final String CLASSIFIER = "classifier";
+  public static final String CLASSIFIER_MARGIN = "classifierMargin";
+  public static final String FLAGGED = "flagged";
+  public static final String CATEGORIES = "categories";
+  public static final String CATEGORY_SCORES = "categoryScores";
+  public static final String FLAGGED_ITEMS = "flaggedItems";
+  public static final String ESTIMATED_INPUT_TOKENS = "estimatedInputTokens";
+  public static final String TRUNCATED = "truncated";
+  public static final String PREFIX = "prefix";
+  public static final String INVALIDATED = "invalidated";
+  public static final String TEXT = "text";
+  public static final String FINISH_REASON = "finishReason";
+  public static final String LATENCY_MILLIS = "latencyMillis";
+  public static final String TIME_TO_FIRST_TOKEN_MILLIS = "timeToFirstTokenMillis";
 
   public static class EmbeddingConstants {
 
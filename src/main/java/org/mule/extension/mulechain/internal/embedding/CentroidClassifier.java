@@ -0,0 +1,180 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Nearest-centroid classifier over the embeddings of the in-process embedding model. Each label is represented by the
+ * normalized mean of the embeddings of its examples; a text gets the label of the most similar centroid. The margin
+ * between the best and the second best similarity tells how clear-cut the answer is, so that only ambiguous texts need
+ * an LLM.
+ */
+public class CentroidClassifier {
+
+  private final EmbeddingModel embeddingModel;
+  private final String[] labels;
+  private final float[][] centroids;
+
+  private CentroidClassifier(EmbeddingModel embeddingModel, String[] labels, float[][] centroids) {
+    this.embeddingModel = embeddingModel;
+    this.labels = labels;
+    this.centroids = centroids;
+  }
+
+  /**
+   * Computes the centroids of the labels.
+   *
+   * @param embeddingModel Model embedding the examples and the texts to classify
+   * @param examples       Labelled examples, at least two labels with at least one example each
+   * @return The trained classifier
+   * @throws IllegalArgumentException If less than two labels have examples
+   */
+  public static CentroidClassifier train(EmbeddingModel embeddingModel, Map<String, List<String>> examples) {
+    List<String> labels = new ArrayList<>();
+    List<float[]> centroids = new ArrayList<>();
+    for (Map.Entry<String, List<String>> entry : examples.entrySet()) {
+      if (entry.getValue().isEmpty()) {
+        continue;
+      }
+      List<TextSegment> segments = new ArrayList<>(entry.getValue().size());
+      for (String example : entry.getValue()) {
+        segments.add(TextSegment.from(example));
+      }
+      float[] centroid = null;
+      for (Embedding embedding : embeddingModel.embedAll(segments).content()) {
+        float[] vector = unitVector(embedding.vector());
+        if (centroid == null) {
+          centroid = new float[vector.length];
+        }
+        for (int i = 0; i < vector.length; i++) {
+          centroid[i] += vector[i];
+        }
+      }
+      labels.add(entry.getKey());
+      centroids.add(unitVector(centroid));
+    }
+    if (labels.size() < 2) {
+      throw new IllegalArgumentException("A classifier needs examples for at least two labels");
+    }
+    return new CentroidClassifier(embeddingModel, labels.toArray(new String[0]), centroids.toArray(new float[0][]));
+  }
+
+  /**
+   * Reads labelled examples from a JSON object mapping each label to an array of example texts.
+   *
+   * @param json The JSON object
+   * @return The examples by label, in file order
+   */
+  public static Map<String, List<String>> examples(JSONObject json) {
+    Map<String, List<String>> examples = new LinkedHashMap<>();
+    for (String label : json.keySet()) {
+      JSONArray texts = json.getJSONArray(label);
+      List<String> values = new ArrayList<>(texts.length());
+      for (int i = 0; i < texts.length(); i++) {
+        values.add(texts.getString(i));
+      }
+      examples.put(label, values);
+    }
+    return examples;
+  }
+
+  /**
+   * @param text The text to classify
+   * @return The closest label, its cosine similarity and its margin over the second closest label, along with the
+   *         similarity of every label
+   */
+  public Prediction classify(String text) {
+    float[] vector = unitVector(embeddingModel.embed(text).content().vector());
+    int best = -1;
+    double bestSimilarity = -2;
+    double secondSimilarity = -2;
+    Map<String, Double> similarities = new LinkedHashMap<>();
+    for (int i = 0; i < centroids.length; i++) {
+      double similarity = dot(vector, centroids[i]);
+      similarities.put(labels[i], similarity);
+      if (similarity > bestSimilarity) {
+        secondSimilarity = bestSimilarity;
+        bestSimilarity = similarity;
+        best = i;
+      } else if (similarity > secondSimilarity) {
+        secondSimilarity = similarity;
+      }
+    }
+    return new Prediction(labels[best], bestSimilarity, bestSimilarity - secondSimilarity, similarities);
+  }
+
+  private static float[] unitVector(float[] vector) {
+    double norm = 0;
+    for (float value : vector) {
+      norm += value * value;
+    }
+    norm = Math.sqrt(norm);
+    float[] unit = new float[vector.length];
+    if (norm > 0) {
+      for (int i = 0; i < vector.length; i++) {
+        unit[i] = (float) (vector[i] / norm);
+      }
+    }
+    return unit;
+  }
+
+  private static double dot(float[] a, float[] b) {
+    double sum = 0;
+    for (int i = 0; i < a.length; i++) {
+      sum += a[i] * b[i];
+    }
+    return sum;
+  }
+
+  /**
+   * Label predicted for a text.
+   */
+  public static final class Prediction {
+
+    private final String label;
+    private final double similarity;
+    private final double margin;
+    private final Map<String, Double> similarities;
+
+    Prediction(String label, double similarity, double margin, Map<String, Double> similarities) {
+      this.label = label;
+      this.similarity = similarity;
+      this.margin = margin;
+      this.similarities = Collections.unmodifiableMap(similarities);
+    }
+
+    public String getLabel() {
+      return label;
+    }
+
+    public double getSimilarity() {
+      return similarity;
+    }
+
+    /**
+     * @return Similarity of the predicted label minus the similarity of the second closest label
+     */
+    public double getMargin() {
+      return margin;
+    }
+
+    /**
+     * @return Cosine similarity of the text to the centroid of each label, in label order
+     */
+    public Map<String, Double> getSimilarities() {
+      return similarities;
+    }
+  }
+}
@@ -0,0 +1,268 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.CosineSimilarity;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Read-only view of a JSON embedding store laid out for exact search. The vectors of all entries are copied back to back
+ * into one float array, along with their norms, so that scoring an entry is a single dot product over contiguous memory,
+ * and a search keeps a heap of the best matches instead of sorting every candidate. Through a {@link #parallel} view,
+ * stores holding more than {@link #PARALLEL_THRESHOLD} vector values are split into partitions scanned on the given pool,
+ * each keeping its own heap. Filters on source metadata only scan the candidates found through a {@link MetadataIndex}.
+ * Scores, the minimum score and filters are applied exactly like {@link InMemoryEmbeddingStore} does, so both return the
+ * same matches. Matches of equal score come in insertion order, whereas the in-memory store leaves their order to its
+ * heap.
+ * <p>
+ * The layout is built from the store on the first search, since the dimension of a JSON store is only known from a
+ * query, and the store is released once copied.
+ */
+public final class DenseEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+  static final int PARALLEL_THRESHOLD = 1 << 20;
+
+  private static final Comparator<Candidate> WORST_FIRST =
+      Comparator.<Candidate>comparingDouble(candidate -> candidate.score).thenComparing(candidate -> -candidate.index);
+
+  private final DenseEmbeddingStore layout;
+  private final ForkJoinPool pool;
+  private InMemoryEmbeddingStore<TextSegment> source;
+  private volatile Matrix matrix;
+
+  public DenseEmbeddingStore(InMemoryEmbeddingStore<TextSegment> source) {
+    this.layout = this;
+    this.pool = null;
+    this.source = source;
+  }
+
+  private DenseEmbeddingStore(DenseEmbeddingStore layout, ForkJoinPool pool) {
+    this.layout = layout;
+    this.pool = pool;
+  }
+
+  /**
+   * Returns a view of the store whose large searches are split across a pool. The store itself scans on the calling
+   * thread.
+   *
+   * @param pool Pool scanning the partitions
+   * @return A view sharing the layout of the store
+   */
+  public DenseEmbeddingStore parallel(ForkJoinPool pool) {
+    return new DenseEmbeddingStore(layout, pool);
+  }
+
+  @Override
+  public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+    float[] query = request.queryEmbedding().vector();
+    Matrix matrix = layout.matrix(query.length);
+    if (matrix.count > 0 && query.length != matrix.dimension) {
+      throw new IllegalArgumentException(String.format("Length of vector a (%s) must be equal to the length of vector b (%s)",
+                                                       matrix.dimension, query.length));
+    }
+    int[] rows = request.filter() != null ? matrix.metadataIndex.candidates(request.filter()) : null;
+    int total = rows != null ? rows.length : matrix.count;
+    Scan scan = new Scan(matrix, request, query, MappedEmbeddingStore.norm(query), rows, 0, total);
+    PriorityQueue<Candidate> best = pool != null && (long) total * matrix.dimension > PARALLEL_THRESHOLD
+        ? pool.invoke(scan)
+        : scan.compute();
+
+    List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(best.size());
+    while (!best.isEmpty()) {
+      Candidate candidate = best.poll();
+      int base = candidate.index * matrix.dimension;
+      matches.add(new EmbeddingMatch<>(candidate.score, matrix.ids[candidate.index],
+                                       Embedding.from(Arrays.copyOfRange(matrix.vectors, base, base + matrix.dimension)),
+                                       matrix.segments[candidate.index]));
+    }
+    Collections.reverse(matches);
+    return new EmbeddingSearchResult<>(matches);
+  }
+
+  /**
+   * Copies the entries of the store, read through a search with a zero vector that every entry matches with the same
+   * score. The in-memory store returns such a tie in reverse insertion order, which is read backwards.
+   */
+  private Matrix matrix(int dimension) {
+    Matrix built = matrix;
+    if (built != null) {
+      return built;
+    }
+    synchronized (this) {
+      if (matrix == null) {
+        EmbeddingSearchRequest all = EmbeddingSearchRequest.builder().queryEmbedding(Embedding.from(new float[dimension]))
+            .maxResults(Integer.MAX_VALUE).minScore(0.0).build();
+        List<EmbeddingMatch<TextSegment>> entries = source.search(all).matches();
+        Matrix copy = new Matrix(dimension, entries.size());
+        for (int index = 0; index < copy.count; index++) {
+          EmbeddingMatch<TextSegment> entry = entries.get(copy.count - 1 - index);
+          float[] vector = entry.embedding().vector();
+          System.arraycopy(vector, 0, copy.vectors, index * dimension, dimension);
+          copy.norms[index] = MappedEmbeddingStore.norm(vector);
+          copy.ids[index] = entry.embeddingId();
+          copy.segments[index] = entry.embedded();
+        }
+        copy.metadataIndex = MetadataIndex.build(copy.count, index -> copy.segments[index], true);
+        matrix = copy;
+        source = null;
+      }
+      return matrix;
+    }
+  }
+
+  @Override
+  public String add(Embedding embedding) {
+    throw readOnly();
+  }
+
+  @Override
+  public void add(String id, Embedding embedding) {
+    throw readOnly();
+  }
+
+  @Override
+  public String add(Embedding embedding, TextSegment segment) {
+    throw readOnly();
+  }
+
+  @Override
+  public List<String> addAll(List<Embedding> embeddings) {
+    throw readOnly();
+  }
+
+  @Override
+  public List<String> addAll(List<Embedding> embeddings, List<TextSegment> segments) {
+    throw readOnly();
+  }
+
+  private static UnsupportedOperationException readOnly() {
+    return new UnsupportedOperationException("Cached embedding stores are read-only, entries are added by the ingestion operations");
+  }
+
+  /**
+   * Entries of the store, the vector of entry {@code i} starting at {@code i * dimension}.
+   */
+  private static final class Matrix {
+
+    private final int dimension;
+    private final int count;
+    private final float[] vectors;
+    private final double[] norms;
+    private final String[] ids;
+    private final TextSegment[] segments;
+    private MetadataIndex metadataIndex;
+
+    private Matrix(int dimension, int count) {
+      this.dimension = dimension;
+      this.count = count;
+      this.vectors = new float[count * dimension];
+      this.norms = new double[count];
+      this.ids = new String[count];
+      this.segments = new TextSegment[count];
+    }
+  }
+
+  /**
+   * Scan of a range of the entries, or of the candidates found through the metadata index, returning its best matches
+   * worst first. Ranges too large to scan alone are split in halves scanned in parallel, whose heaps are then merged.
+   */
+  private static final class Scan extends RecursiveTask<PriorityQueue<Candidate>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Matrix matrix;
+    private final EmbeddingSearchRequest request;
+    private final float[] query;
+    private final double queryNorm;
+    private final int[] rows;
+    private final int from;
+    private final int to;
+
+    private Scan(Matrix matrix, EmbeddingSearchRequest request, float[] query, double queryNorm, int[] rows, int from,
+                 int to) {
+      this.matrix = matrix;
+      this.request = request;
+      this.query = query;
+      this.queryNorm = queryNorm;
+      this.rows = rows;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected PriorityQueue<Candidate> compute() {
+      if ((long) (to - from) * matrix.dimension > PARALLEL_THRESHOLD / 4 && getPool() != null) {
+        int middle = (from + to) >>> 1;
+        Scan left = new Scan(matrix, request, query, queryNorm, rows, from, middle);
+        left.fork();
+        PriorityQueue<Candidate> best = new Scan(matrix, request, query, queryNorm, rows, middle, to).compute();
+        for (Candidate candidate : left.join()) {
+          offer(best, candidate);
+        }
+        return best;
+      }
+
+      Filter filter = request.filter();
+      double minScore = request.minScore();
+      int dimension = matrix.dimension;
+      float[] vectors = matrix.vectors;
+      PriorityQueue<Candidate> best = new PriorityQueue<>(WORST_FIRST);
+      for (int position = from; position < to; position++) {
+        int index = rows != null ? rows[position] : position;
+        TextSegment segment = matrix.segments[index];
+        if (filter != null && segment != null && !filter.test(segment.metadata())) {
+          continue;
+        }
+        int base = index * dimension;
+        double dot = 0;
+        for (int i = 0; i < dimension; i++) {
+          dot += vectors[base + i] * query[i];
+        }
+        double score = RelevanceScore
+            .fromCosineSimilarity(dot / Math.max(matrix.norms[index] * queryNorm, CosineSimilarity.EPSILON));
+        if (score >= minScore) {
+          offer(best, new Candidate(index, score));
+        }
+      }
+      return best;
+    }
+
+    private void offer(PriorityQueue<Candidate> best, Candidate candidate) {
+      if (best.size() < request.maxResults()) {
+        best.add(candidate);
+      } else if (WORST_FIRST.compare(candidate, best.peek()) > 0) {
+        best.poll();
+        best.add(candidate);
+      }
+    }
+  }
+
+  private static final class Candidate {
+
+    private final int index;
+    private final double score;
+
+    private Candidate(int index, double score) {
+      this.index = index;
+      this.score = score;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Embeddings collected in memory by an ingestion, before they are written to a binary embedding store. The batch only
+ * supports adding entries.
+ */
+public class EmbeddingBatch implements EmbeddingStore<TextSegment>, EmbeddingEntries {
+
+  private final List<String> ids = new ArrayList<>();
+  private final List<Embedding> embeddings = new ArrayList<>();
+  private final List<TextSegment> segments = new ArrayList<>();
+
+  @Override
+  public synchronized String add(Embedding embedding) {
+    return add(embedding, null);
+  }
+
+  @Override
+  public synchronized void add(String id, Embedding embedding) {
+    add(id, embedding, null);
+  }
+
+  @Override
+  public synchronized String add(Embedding embedding, TextSegment segment) {
+    String id = UUID.randomUUID().toString();
+    add(id, embedding, segment);
+    return id;
+  }
+
+  @Override
+  public synchronized List<String> addAll(List<Embedding> embeddings) {
+    return addAll(embeddings, Collections.nCopies(embeddings.size(), null));
+  }
+
+  @Override
+  public synchronized List<String> addAll(List<Embedding> embeddings, List<TextSegment> segments) {
+    List<String> added = new ArrayList<>(embeddings.size());
+    for (int i = 0; i < embeddings.size(); i++) {
+      added.add(add(embeddings.get(i), segments.get(i)));
+    }
+    return added;
+  }
+
+  public synchronized void add(String id, Embedding embedding, TextSegment segment) {
+    ids.add(id);
+    embeddings.add(embedding);
+    segments.add(segment);
+  }
+
+  @Override
+  public synchronized int size() {
+    return ids.size();
+  }
+
+  @Override
+  public synchronized String id(int index) {
+    return ids.get(index);
+  }
+
+  @Override
+  public synchronized Embedding embedding(int index) {
+    return embeddings.get(index);
+  }
+
+  @Override
+  public synchronized TextSegment segment(int index) {
+    return segments.get(index);
+  }
+}
@@ -0,0 +1,24 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * Indexed entries of an embedding store, as read when writing them to a binary store.
+ */
+public interface EmbeddingEntries {
+
+  int size();
+
+  String id(int index);
+
+  Embedding embedding(int index);
+
+  /**
+   * @return The segment of the entry, or null for an entry added without one
+   */
+  TextSegment segment(int index);
+}
@@ -0,0 +1,127 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import org.mule.extension.mulechain.api.config.EmbeddingModelType;
+import org.mule.extension.mulechain.api.config.EmbeddingPoolingMode;
+
+import java.nio.file.Paths;
+import java.util.Objects;
+
+/**
+ * Settings of an in-process embedding model: which model to load and how to thread it. A thread count of 0 keeps the
+ * default of the ONNX runtime (or of langchain4j for the inference executor).
+ * <p>
+ * Equality only covers the model, not the threading: configurations that load the same model share one ONNX session,
+ * threaded as requested by the first of them.
+ */
+public final class EmbeddingModelSettings {
+
+  private final EmbeddingModelType modelType;
+  private final String modelPath;
+  private final String tokenizerPath;
+  private final EmbeddingPoolingMode poolingMode;
+  private final int intraOpThreads;
+  private final int interOpThreads;
+  private final int inferenceThreads;
+
+  public EmbeddingModelSettings(EmbeddingModelType modelType, String modelPath, String tokenizerPath,
+                                EmbeddingPoolingMode poolingMode, int intraOpThreads, int interOpThreads,
+                                int inferenceThreads) {
+    this.modelType = modelType != null ? modelType : EmbeddingModelType.ALL_MINILM_L6_V2;
+    boolean custom = this.modelType == EmbeddingModelType.CUSTOM_ONNX;
+    this.modelPath = custom ? modelPath : null;
+    this.tokenizerPath = custom ? tokenizerPath : null;
+    this.poolingMode = custom && poolingMode != null ? poolingMode : EmbeddingPoolingMode.MEAN;
+    this.intraOpThreads = Math.max(0, intraOpThreads);
+    this.interOpThreads = Math.max(0, interOpThreads);
+    this.inferenceThreads = Math.max(0, inferenceThreads);
+  }
+
+  public EmbeddingModelType getModelType() {
+    return modelType;
+  }
+
+  /**
+   * @return Path of the ONNX model file, only set for {@link EmbeddingModelType#CUSTOM_ONNX}
+   */
+  public String getModelPath() {
+    return modelPath;
+  }
+
+  /**
+   * @return Path of the tokenizer.json file, only set for {@link EmbeddingModelType#CUSTOM_ONNX}
+   */
+  public String getTokenizerPath() {
+    return tokenizerPath;
+  }
+
+  public EmbeddingPoolingMode getPoolingMode() {
+    return poolingMode;
+  }
+
+  /**
+   * @return Identifier of the model recorded in the stores it creates, independent of the threading settings
+   */
+  public String getModelId() {
+    if (modelType == EmbeddingModelType.CUSTOM_ONNX && modelPath != null) {
+      return modelType.getValue() + ":" + Paths.get(modelPath).getFileName() + ":" + poolingMode.name().toLowerCase();
+    }
+    return modelType.getValue();
+  }
+
+  /**
+   * @return Threads used to parallelize the execution within a single ONNX operator
+   */
+  public int getIntraOpThreads() {
+    return intraOpThreads;
+  }
+
+  /**
+   * @return Threads used to run independent ONNX operators in parallel
+   */
+  public int getInterOpThreads() {
+    return interOpThreads;
+  }
+
+  /**
+   * @return Size of the executor that embeds segments in parallel
+   */
+  public int getInferenceThreads() {
+    return inferenceThreads;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof EmbeddingModelSettings)) {
+      return false;
+    }
+    EmbeddingModelSettings that = (EmbeddingModelSettings) o;
+    return modelType == that.modelType && Objects.equals(modelPath, that.modelPath)
+        && Objects.equals(tokenizerPath, that.tokenizerPath) && poolingMode == that.poolingMode;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(modelType, modelPath, tokenizerPath, poolingMode);
+  }
+
+  /**
+   * @param other Settings of the same model
+   * @return Whether both settings thread the model the same way
+   */
+  boolean hasSameThreading(EmbeddingModelSettings other) {
+    return intraOpThreads == other.intraOpThreads && interOpThreads == other.interOpThreads
+        && inferenceThreads == other.inferenceThreads;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("EmbeddingModelSettings{model=%s, intraOpThreads=%d, interOpThreads=%d, inferenceThreads=%d}",
+                         getModelId(), intraOpThreads, interOpThreads, inferenceThreads);
+  }
+}
@@ -0,0 +1,120 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import org.json.JSONObject;
+import org.mule.extension.mulechain.internal.error.MuleChainErrorType;
+import org.mule.runtime.extension.api.exception.ModuleException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records which embedding model and dimension created an embedding store, in a {@code <store>.meta.json} file next to
+ * it, and refuses to mix embeddings of different models in the same store. Stores created before this file existed are
+ * accepted and get their metadata recorded on the next write, as do stores just created, whose previous metadata is
+ * dropped so that a store recreated at the same path can be used with another model.
+ */
+public final class EmbeddingStoreMetadata {
+
+  private static final String SUFFIX = ".meta.json";
+  private static final String MODEL = "model";
+  private static final String DIMENSION = "dimension";
+
+  private static final Map<Path, Snapshot> CACHE = new ConcurrentHashMap<>();
+
+  private EmbeddingStoreMetadata() {}
+
+  /**
+   * Checks that the store was created by the given model.
+   *
+   * @param storeName Path of the embedding store
+   * @param modelId   Identifier of the model used by the operation
+   * @param dimension Dimension of the embeddings produced by the model
+   * @throws ModuleException If the store records another model or dimension
+   */
+  public static void verify(String storeName, String modelId, int dimension) {
+    Snapshot snapshot = read(metadataPath(storeName));
+    if (snapshot != null && (!snapshot.modelId.equals(modelId) || snapshot.dimension != dimension)) {
+      throw new ModuleException(String
+          .format("Embedding store %s was created with model %s (dimension %d) and cannot be used with model %s (dimension %d)",
+                  storeName, snapshot.modelId, snapshot.dimension, modelId, dimension),
+                                MuleChainErrorType.EMBEDDING_OPERATIONS_FAILURE);
+    }
+  }
+
+  /**
+   * Records the model of the store if not recorded yet.
+   *
+   * @param storeName Path of the embedding store
+   * @param modelId   Identifier of the model that wrote to the store
+   * @param dimension Dimension of the embeddings produced by the model
+   * @throws IOException If the metadata file cannot be written
+   */
+  public static void record(String storeName, String modelId, int dimension) throws IOException {
+    Path path = metadataPath(storeName);
+    if (read(path) != null) {
+      return;
+    }
+    JSONObject metadata = new JSONObject();
+    metadata.put(MODEL, modelId);
+    metadata.put(DIMENSION, dimension);
+    Files.write(path, metadata.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Drops the recorded model of a store, which the next write records again.
+   *
+   * @param storeName Path of the embedding store
+   * @throws IOException If the metadata file cannot be deleted
+   */
+  public static void reset(String storeName) throws IOException {
+    Path path = metadataPath(storeName);
+    Files.deleteIfExists(path);
+    CACHE.remove(path);
+  }
+
+  private static Path metadataPath(String storeName) {
+    return Paths.get(storeName + SUFFIX);
+  }
+
+  private static Snapshot read(Path path) {
+    try {
+      if (!Files.exists(path)) {
+        CACHE.remove(path);
+        return null;
+      }
+      long lastModified = Files.getLastModifiedTime(path).toMillis();
+      Snapshot cached = CACHE.get(path);
+      if (cached != null && cached.lastModified == lastModified) {
+        return cached;
+      }
+      JSONObject metadata = new JSONObject(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+      Snapshot snapshot = new Snapshot(metadata.getString(MODEL), metadata.getInt(DIMENSION), lastModified);
+      CACHE.put(path, snapshot);
+      return snapshot;
+    } catch (IOException e) {
+      throw new ModuleException("Unable to read the embedding store metadata " + path,
+                                MuleChainErrorType.EMBEDDING_OPERATIONS_FAILURE, e);
+    }
+  }
+
+  private static class Snapshot {
+
+    private final String modelId;
+    private final int dimension;
+    private final long lastModified;
+
+    Snapshot(String modelId, int dimension, long lastModified) {
+      this.modelId = modelId;
+      this.dimension = dimension;
+      this.lastModified = lastModified;
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache of the embedding stores loaded from disk, keyed by store path. A cached store is reused as long as
+ * its file, and the segment manifest of a binary store, keep the size and modification time they had when loaded, and
+ * no writer of this process recorded a newer version through {@link #written(String, InMemoryEmbeddingStore)}. Stores
+ * are evicted in least recently used order once their estimated size, approximated by their file size, exceeds the
+ * memory cap. JSON stores are served as {@link DenseEmbeddingStore} views laid out for exact search. Binary stores are
+ * memory-mapped rather than loaded into the heap, and do not count against the cap.
+ * <p>
+ * Since the cached stores are shared by every configuration, the cap is not a configuration parameter: it is read once
+ * from the {@value #MAX_MEGABYTES_PROPERTY} system property, in megabytes, and defaults to 512 MB.
+ */
+public final class EmbeddingStoreRegistry {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EmbeddingStoreRegistry.class);
+
+  public static final String MAX_MEGABYTES_PROPERTY = "mulechain.embeddingStoreCache.maxMegabytes";
+
+  static final long DEFAULT_MAX_BYTES = Long.getLong(MAX_MEGABYTES_PROPERTY, 512L) * 1024 * 1024;
+
+  private static final Map<Path, Entry> STORES = new LinkedHashMap<>(16, 0.75f, true);
+  private static final Map<Path, Object> LOCKS = new ConcurrentHashMap<>();
+
+  private static long maxBytes = DEFAULT_MAX_BYTES;
+  private static long usedBytes;
+
+  private EmbeddingStoreRegistry() {}
+
+  /**
+   * Overrides the memory cap, evicting stores if needed.
+   *
+   * @param bytes Estimated bytes the cached stores may use
+   */
+  static synchronized void setMaxBytes(long bytes) {
+    maxBytes = bytes;
+    evict(null);
+  }
+
+  /**
+   * Returns the store saved at the given path, loading it only when it is not cached or its file changed.
+   *
+   * @param storeName   Path of the embedding store
+   * @param forceReload Whether to load the store even if its file did not change
+   * @return The store
+   * @throws IOException If the store file cannot be read
+   */
+  public static EmbeddingStore<TextSegment> get(String storeName, boolean forceReload) throws IOException {
+    Path path = key(storeName);
+    synchronized (LOCKS.computeIfAbsent(path, p -> new Object())) {
+      FileStamp stamp = FileStamp.of(path);
+      synchronized (EmbeddingStoreRegistry.class) {
+        Entry entry = STORES.get(path);
+        if (entry != null && !forceReload && entry.stamp.equals(stamp)) {
+          return entry.store;
+        }
+      }
+      LOGGER.debug("Loading embedding store {}", path);
+      Entry entry = MappedEmbeddingStore.isMapped(path)
+          ? new Entry(SegmentedEmbeddingStore.open(path), stamp, 0)
+          : new Entry(new DenseEmbeddingStore(InMemoryEmbeddingStore.fromFile(path)), stamp, stamp.size);
+      put(path, entry);
+      return entry.store;
+    }
+  }
+
+  /**
+   * Records a store that a writer of this process just saved at the given path, so that readers get it without loading
+   * the file again.
+   *
+   * @param storeName Path the store was saved at
+   * @param store     The saved store
+   * @throws IOException If the store file cannot be read
+   */
+  public static void written(String storeName, InMemoryEmbeddingStore<TextSegment> store) throws IOException {
+    Path path = key(storeName);
+    synchronized (LOCKS.computeIfAbsent(path, p -> new Object())) {
+      FileStamp stamp = FileStamp.of(path);
+      put(path, new Entry(new DenseEmbeddingStore(store), stamp, stamp.size));
+    }
+  }
+
+  /**
+   * Drops the cached store of the given path, if any.
+   */
+  public static synchronized void invalidate(String storeName) {
+    Entry entry = STORES.remove(key(storeName));
+    if (entry != null) {
+      usedBytes -= entry.weight;
+    }
+  }
+
+  static synchronized int size() {
+    return STORES.size();
+  }
+
+  static synchronized void clear() {
+    STORES.clear();
+    usedBytes = 0;
+  }
+
+  private static synchronized void put(Path path, Entry entry) {
+    Entry previous = STORES.put(path, entry);
+    if (previous != null) {
+      usedBytes -= previous.weight;
+    }
+    usedBytes += entry.weight;
+    evict(path);
+  }
+
+  /**
+   * Evicts the least recently used stores until the cap is met, keeping the store just put even if it alone exceeds it.
+   */
+  private static void evict(Path keep) {
+    Iterator<Map.Entry<Path, Entry>> iterator = STORES.entrySet().iterator();
+    while (usedBytes > maxBytes && iterator.hasNext()) {
+      Map.Entry<Path, Entry> eldest = iterator.next();
+      if (eldest.getKey().equals(keep)) {
+        continue;
+      }
+      LOGGER.debug("Evicting embedding store {} from the cache", eldest.getKey());
+      usedBytes -= eldest.getValue().weight;
+      iterator.remove();
+    }
+  }
+
+  private static Path key(String storeName) {
+    return Paths.get(storeName).toAbsolutePath().normalize();
+  }
+
+  private static final class Entry {
+
+    private final EmbeddingStore<TextSegment> store;
+    private final FileStamp stamp;
+    private final long weight;
+
+    private Entry(EmbeddingStore<TextSegment> store, FileStamp stamp, long weight) {
+      this.store = store;
+      this.stamp = stamp;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * Size and modification time of a store file and of its segment manifest, which change whenever another process
+   * rewrites the store or adds segments to it.
+   */
+  private static final class FileStamp {
+
+    private final long size;
+    private final long lastModified;
+    private final long manifestLastModified;
+
+    private FileStamp(long size, long lastModified, long manifestLastModified) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.manifestLastModified = manifestLastModified;
+    }
+
+    private static FileStamp of(Path path) throws IOException {
+      Path manifest = SegmentedEmbeddingStore.manifestPath(path);
+      return new FileStamp(Files.size(path), Files.getLastModifiedTime(path).toMillis(),
+                           Files.exists(manifest) ? Files.getLastModifiedTime(manifest).toMillis() : -1);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof FileStamp && ((FileStamp) other).size == size
+          && ((FileStamp) other).lastModified == lastModified
+          && ((FileStamp) other).manifestLastModified == manifestLastModified;
+    }
+
+    @Override
+    public int hashCode() {
+      return (Long.hashCode(size) * 31 + Long.hashCode(lastModified)) * 31 + Long.hashCode(manifestLastModified);
+    }
+  }
+}
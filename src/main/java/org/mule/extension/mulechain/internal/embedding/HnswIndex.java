@@ -0,0 +1,334 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.store.embedding.CosineSimilarity;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Hierarchical navigable small world graph over the entries of a binary store segment, answering approximate nearest
+ * neighbour queries by cosine similarity in logarithmic time. Each entry is linked to up to {@code m} neighbours per layer
+ * ({@code 2 * m} on the bottom layer), chosen with the neighbour selection heuristic of Malkov and Yashunin. The index is
+ * built once per segment, as segments are immutable, and saved next to it in a {@code <segment>.hnsw} file.
+ */
+public final class HnswIndex {
+
+  public static final int DEFAULT_M = 16;
+  public static final int DEFAULT_EF_CONSTRUCTION = 200;
+  public static final int DEFAULT_EF_SEARCH = 64;
+
+  private static final String SUFFIX = ".hnsw";
+  private static final int MAGIC = 0x57534E48;
+  private static final int VERSION = 1;
+
+  private final int m;
+  private final float[] norms;
+  private final int[][][] links;
+  private int entryPoint = -1;
+  private int maxLevel = -1;
+
+  private HnswIndex(int m, int count) {
+    this.m = m;
+    this.norms = new float[count];
+    this.links = new int[count][][];
+  }
+
+  /**
+   * @return Path of the index of the given segment file
+   */
+  public static Path indexPath(Path segment) {
+    return segment.resolveSibling(segment.getFileName() + SUFFIX);
+  }
+
+  /**
+   * Builds the index of a segment, inserting its entries in order.
+   *
+   * @param store          Segment to index
+   * @param m              Neighbours linked to each entry per layer
+   * @param efConstruction Size of the candidate list explored while inserting an entry
+   * @return The index
+   */
+  public static HnswIndex build(MappedEmbeddingStore store, int m, int efConstruction) {
+    HnswIndex index = new HnswIndex(m, store.size());
+    // A fixed seed keeps the graph of a segment reproducible
+    Random random = new Random(store.size());
+    double levelMultiplier = 1 / Math.log(Math.max(m, 2));
+    for (int node = 0; node < store.size(); node++) {
+      int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+      index.insert(store, node, level, efConstruction);
+    }
+    return index;
+  }
+
+  private void insert(MappedEmbeddingStore store, int node, int level, int efConstruction) {
+    float[] vector = store.vector(node);
+    double norm = MappedEmbeddingStore.norm(vector);
+    norms[node] = (float) norm;
+    links[node] = new int[level + 1][0];
+    if (entryPoint < 0) {
+      entryPoint = node;
+      maxLevel = level;
+      return;
+    }
+
+    Neighbor entry = new Neighbor(entryPoint, similarity(store, entryPoint, vector, norm));
+    for (int layer = maxLevel; layer > level; layer--) {
+      entry = greedy(store, entry, vector, norm, layer);
+    }
+    List<Neighbor> entries = Collections.singletonList(entry);
+    for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+      List<Neighbor> candidates = searchLayer(store, entries, vector, norm, efConstruction, layer);
+      List<Neighbor> selected = selectNeighbors(store, candidates, maxLinks(layer));
+      int[] nodeLinks = new int[selected.size()];
+      for (int i = 0; i < nodeLinks.length; i++) {
+        nodeLinks[i] = selected.get(i).node;
+        link(store, selected.get(i).node, node, selected.get(i).similarity, layer);
+      }
+      links[node][layer] = nodeLinks;
+      entries = candidates;
+    }
+    if (level > maxLevel) {
+      maxLevel = level;
+      entryPoint = node;
+    }
+  }
+
+  /**
+   * Adds a link from an existing entry to the new one, pruning the links of the existing entry if it has too many.
+   */
+  private void link(MappedEmbeddingStore store, int from, int to, double similarity, int layer) {
+    int[] current = links[from][layer];
+    if (current.length < maxLinks(layer)) {
+      int[] extended = new int[current.length + 1];
+      System.arraycopy(current, 0, extended, 0, current.length);
+      extended[current.length] = to;
+      links[from][layer] = extended;
+      return;
+    }
+    float[] vector = store.vector(from);
+    List<Neighbor> candidates = new ArrayList<>(current.length + 1);
+    for (int neighbor : current) {
+      candidates.add(new Neighbor(neighbor, similarity(store, neighbor, vector, norms[from])));
+    }
+    candidates.add(new Neighbor(to, similarity));
+    Collections.sort(candidates);
+    List<Neighbor> selected = selectNeighbors(store, candidates, maxLinks(layer));
+    int[] pruned = new int[selected.size()];
+    for (int i = 0; i < pruned.length; i++) {
+      pruned[i] = selected.get(i).node;
+    }
+    links[from][layer] = pruned;
+  }
+
+  /**
+   * Keeps the candidates closer to the query than to any candidate already kept, which spreads links across clusters,
+   * then fills the remaining links with the closest candidates left.
+   *
+   * @param candidates Candidates, most similar first
+   */
+  private List<Neighbor> selectNeighbors(MappedEmbeddingStore store, List<Neighbor> candidates, int max) {
+    if (candidates.size() <= max) {
+      return candidates;
+    }
+    List<Neighbor> selected = new ArrayList<>(max);
+    List<Neighbor> discarded = new ArrayList<>();
+    for (Neighbor candidate : candidates) {
+      if (selected.size() >= max) {
+        break;
+      }
+      float[] vector = store.vector(candidate.node);
+      boolean diverse = true;
+      for (Neighbor kept : selected) {
+        if (similarity(store, kept.node, vector, norms[candidate.node]) > candidate.similarity) {
+          diverse = false;
+          break;
+        }
+      }
+      (diverse ? selected : discarded).add(candidate);
+    }
+    for (int i = 0; selected.size() < max && i < discarded.size(); i++) {
+      selected.add(discarded.get(i));
+    }
+    return selected;
+  }
+
+  private int maxLinks(int layer) {
+    return layer == 0 ? 2 * m : m;
+  }
+
+  /**
+   * Finds the approximate nearest neighbours of a query.
+   *
+   * @param store    Segment the index was built for
+   * @param query    Query vector
+   * @param ef       Size of the candidate list explored on the bottom layer
+   * @return Indexes of the closest entries found, at most {@code ef}
+   */
+  public int[] search(MappedEmbeddingStore store, float[] query, int ef) {
+    if (entryPoint < 0) {
+      return new int[0];
+    }
+    double norm = MappedEmbeddingStore.norm(query);
+    Neighbor entry = new Neighbor(entryPoint, similarity(store, entryPoint, query, norm));
+    for (int layer = maxLevel; layer > 0; layer--) {
+      entry = greedy(store, entry, query, norm, layer);
+    }
+    List<Neighbor> found = searchLayer(store, Collections.singletonList(entry), query, norm, ef, 0);
+    int[] nodes = new int[found.size()];
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = found.get(i).node;
+    }
+    return nodes;
+  }
+
+  private Neighbor greedy(MappedEmbeddingStore store, Neighbor entry, float[] query, double norm, int layer) {
+    Neighbor best = entry;
+    boolean improved = true;
+    while (improved) {
+      improved = false;
+      for (int neighbor : links[best.node][layer]) {
+        double similarity = similarity(store, neighbor, query, norm);
+        if (similarity > best.similarity) {
+          best = new Neighbor(neighbor, similarity);
+          improved = true;
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * @return The closest entries found on the layer, at most {@code ef}, most similar first
+   */
+  private List<Neighbor> searchLayer(MappedEmbeddingStore store, List<Neighbor> entries, float[] query, double norm, int ef,
+                                     int layer) {
+    BitSet visited = new BitSet(links.length);
+    // Candidates to expand, most similar first, and results kept, least similar first
+    PriorityQueue<Neighbor> candidates = new PriorityQueue<>();
+    PriorityQueue<Neighbor> results = new PriorityQueue<>(Collections.reverseOrder());
+    for (Neighbor entry : entries) {
+      visited.set(entry.node);
+      candidates.add(entry);
+      results.add(entry);
+      if (results.size() > ef) {
+        results.poll();
+      }
+    }
+    while (!candidates.isEmpty()) {
+      Neighbor candidate = candidates.poll();
+      if (results.size() >= ef && candidate.similarity < results.peek().similarity) {
+        break;
+      }
+      for (int neighbor : links[candidate.node][layer]) {
+        if (visited.get(neighbor)) {
+          continue;
+        }
+        visited.set(neighbor);
+        double similarity = similarity(store, neighbor, query, norm);
+        if (results.size() < ef || similarity > results.peek().similarity) {
+          Neighbor found = new Neighbor(neighbor, similarity);
+          candidates.add(found);
+          results.add(found);
+          if (results.size() > ef) {
+            results.poll();
+          }
+        }
+      }
+    }
+    List<Neighbor> found = new ArrayList<>(results);
+    Collections.sort(found);
+    return found;
+  }
+
+  private double similarity(MappedEmbeddingStore store, int node, float[] vector, double norm) {
+    return store.dot(node, vector) / Math.max(norms[node] * norm, CosineSimilarity.EPSILON);
+  }
+
+  /**
+   * Saves the index, replacing the file atomically once complete.
+   */
+  public void save(Path path) throws IOException {
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      output.writeInt(m);
+      output.writeInt(links.length);
+      output.writeInt(entryPoint);
+      output.writeInt(maxLevel);
+      for (int node = 0; node < links.length; node++) {
+        output.writeFloat(norms[node]);
+        output.writeInt(links[node].length);
+        for (int[] layer : links[node]) {
+          output.writeInt(layer.length);
+          for (int neighbor : layer) {
+            output.writeInt(neighbor);
+          }
+        }
+      }
+    }
+    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Loads a saved index.
+   *
+   * @throws IOException If the file is not an index
+   */
+  public static HnswIndex load(Path path) throws IOException {
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+        throw new IOException(path + " is not a supported HNSW index");
+      }
+      HnswIndex index = new HnswIndex(input.readInt(), input.readInt());
+      index.entryPoint = input.readInt();
+      index.maxLevel = input.readInt();
+      for (int node = 0; node < index.links.length; node++) {
+        index.norms[node] = input.readFloat();
+        index.links[node] = new int[input.readInt()][];
+        for (int layer = 0; layer < index.links[node].length; layer++) {
+          int[] neighbors = new int[input.readInt()];
+          for (int i = 0; i < neighbors.length; i++) {
+            neighbors[i] = input.readInt();
+          }
+          index.links[node][layer] = neighbors;
+        }
+      }
+      return index;
+    }
+  }
+
+  /**
+   * Entry of the graph with its similarity to the current query, ordered most similar first.
+   */
+  private static final class Neighbor implements Comparable<Neighbor> {
+
+    private final int node;
+    private final double similarity;
+
+    private Neighbor(int node, double similarity) {
+      this.node = node;
+      this.similarity = similarity;
+    }
+
+    @Override
+    public int compareTo(Neighbor other) {
+      return Double.compare(other.similarity, similarity);
+    }
+  }
+}
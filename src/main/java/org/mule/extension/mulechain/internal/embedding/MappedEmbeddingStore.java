@@ -0,0 +1,536 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.CosineSimilarity;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Read-only embedding store over a binary store file, memory-mapped when opened, which is one segment of a
+ * {@link SegmentedEmbeddingStore}. The file holds, in little-endian order:
+ * <ul>
+ * <li>a header: magic, format version, dimension, entry count, and the offsets of the records and of the offsets
+ * table;</li>
+ * <li>the float32 vectors of all entries, back to back;</li>
+ * <li>one record per entry: its id, its text and its metadata;</li>
+ * <li>the offsets of the records, relative to the first one.</li>
+ * </ul>
+ * Opening a store only maps these regions, and a search reads the vectors in place, so the store costs little heap and
+ * its pages are shared through the OS page cache by every process reading it. Only the matches are decoded into
+ * segments. Scores are computed like {@link dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore} does.
+ */
+public class MappedEmbeddingStore implements EmbeddingStore<TextSegment>, EmbeddingEntries {
+
+  private static final int MAGIC = 0x5345434D;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 32;
+
+  private static final byte STRING = 'S';
+  private static final byte UUID_VALUE = 'U';
+  private static final byte INTEGER = 'I';
+  private static final byte LONG = 'L';
+  private static final byte FLOAT = 'F';
+  private static final byte DOUBLE = 'D';
+
+  private final int dimension;
+  private final int count;
+  private final FloatBuffer vectors;
+  private final ByteBuffer records;
+  private final LongBuffer offsets;
+  private volatile MetadataIndex metadataIndex;
+
+  private MappedEmbeddingStore(int dimension, int count, FloatBuffer vectors, ByteBuffer records, LongBuffer offsets) {
+    this.dimension = dimension;
+    this.count = count;
+    this.vectors = vectors;
+    this.records = records;
+    this.offsets = offsets;
+  }
+
+  /**
+   * @return Whether the file is a binary embedding store
+   */
+  public static boolean isMapped(Path path) throws IOException {
+    if (!Files.isRegularFile(path) || Files.size(path) < HEADER_SIZE) {
+      return false;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+      channel.read(magic, 0);
+      magic.flip();
+      return magic.remaining() == 4 && magic.getInt() == MAGIC;
+    }
+  }
+
+  /**
+   * Maps a binary store file.
+   *
+   * @param path Path of the store file
+   * @return The store, which stays readable if the file is replaced
+   * @throws IOException If the file is not a binary store
+   */
+  public static MappedEmbeddingStore open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      channel.read(header, 0);
+      header.flip();
+      if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+        throw new IOException(path + " is not a binary embedding store");
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported version " + version + " of the binary embedding store " + path);
+      }
+      int dimension = header.getInt();
+      int count = header.getInt();
+      long recordsOffset = header.getLong();
+      long offsetsOffset = header.getLong();
+      return new MappedEmbeddingStore(dimension, count,
+                                      map(channel, HEADER_SIZE, recordsOffset - HEADER_SIZE).asFloatBuffer(),
+                                      map(channel, recordsOffset, offsetsOffset - recordsOffset),
+                                      map(channel, offsetsOffset, (count + 1L) * Long.BYTES).asLongBuffer());
+    }
+  }
+
+  private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Binary embedding store region of " + size + " bytes exceeds the 2 GB mapping limit");
+    }
+    return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Writes the entries of the given sources to a binary store file, replacing it atomically once complete.
+   *
+   * @param path    Path of the store file
+   * @param sources Entries to write, in order
+   * @throws IOException If the file cannot be written or the sources mix dimensions
+   */
+  public static void write(Path path, EmbeddingEntries... sources) throws IOException {
+    int dimension = 0;
+    int count = 0;
+    for (EmbeddingEntries source : sources) {
+      for (int i = 0; i < source.size(); i++) {
+        int entryDimension = source.embedding(i).dimension();
+        if (dimension == 0) {
+          dimension = entryDimension;
+        } else if (dimension != entryDimension) {
+          throw new IOException(String.format("Cannot write an embedding of dimension %d to a store of dimension %d",
+                                              entryDimension, dimension));
+        }
+      }
+      count += source.size();
+    }
+
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING)) {
+      Output output = new Output(channel, HEADER_SIZE);
+      for (EmbeddingEntries source : sources) {
+        for (int i = 0; i < source.size(); i++) {
+          for (float value : source.embedding(i).vector()) {
+            output.putFloat(value);
+          }
+        }
+      }
+      long recordsOffset = output.position();
+      long[] recordOffsets = new long[count + 1];
+      int index = 0;
+      for (EmbeddingEntries source : sources) {
+        for (int i = 0; i < source.size(); i++) {
+          recordOffsets[index++] = output.position() - recordsOffset;
+          writeRecord(output, source.id(i), source.segment(i));
+        }
+      }
+      recordOffsets[count] = output.position() - recordsOffset;
+      long offsetsOffset = output.position();
+      for (long offset : recordOffsets) {
+        output.putLong(offset);
+      }
+      output.flush();
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      header.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(count).putLong(recordsOffset).putLong(offsetsOffset);
+      header.flip();
+      channel.write(header, 0);
+      channel.force(true);
+    }
+    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static void writeRecord(Output output, String id, TextSegment segment) throws IOException {
+    output.putString(id);
+    if (segment == null) {
+      output.putInt(-1);
+      return;
+    }
+    output.putString(segment.text());
+    Map<String, Object> metadata = segment.metadata().toMap();
+    output.putInt(metadata.size());
+    for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+      output.putString(entry.getKey());
+      Object value = entry.getValue();
+      if (value instanceof UUID) {
+        output.putByte(UUID_VALUE);
+        output.putLong(((UUID) value).getMostSignificantBits());
+        output.putLong(((UUID) value).getLeastSignificantBits());
+      } else if (value instanceof Integer) {
+        output.putByte(INTEGER);
+        output.putInt((Integer) value);
+      } else if (value instanceof Long) {
+        output.putByte(LONG);
+        output.putLong((Long) value);
+      } else if (value instanceof Float) {
+        output.putByte(FLOAT);
+        output.putFloat((Float) value);
+      } else if (value instanceof Double) {
+        output.putByte(DOUBLE);
+        output.putDouble((Double) value);
+      } else {
+        output.putByte(STRING);
+        output.putString(String.valueOf(value));
+      }
+    }
+  }
+
+  public int dimension() {
+    return dimension;
+  }
+
+  @Override
+  public int size() {
+    return count;
+  }
+
+  @Override
+  public String id(int index) {
+    ByteBuffer record = record(index);
+    return readString(record);
+  }
+
+  @Override
+  public Embedding embedding(int index) {
+    return Embedding.from(vector(index));
+  }
+
+  @Override
+  public TextSegment segment(int index) {
+    ByteBuffer record = record(index);
+    readString(record);
+    int textLength = record.getInt();
+    if (textLength < 0) {
+      return null;
+    }
+    String text = readString(record, textLength);
+    int size = record.getInt();
+    Map<String, Object> metadata = new HashMap<>(size * 2);
+    for (int i = 0; i < size; i++) {
+      String key = readString(record);
+      byte type = record.get();
+      switch (type) {
+        case UUID_VALUE:
+          metadata.put(key, new UUID(record.getLong(), record.getLong()));
+          break;
+        case INTEGER:
+          metadata.put(key, record.getInt());
+          break;
+        case LONG:
+          metadata.put(key, record.getLong());
+          break;
+        case FLOAT:
+          metadata.put(key, record.getFloat());
+          break;
+        case DOUBLE:
+          metadata.put(key, record.getDouble());
+          break;
+        default:
+          metadata.put(key, readString(record));
+      }
+    }
+    return TextSegment.from(text, Metadata.from(metadata));
+  }
+
+  private ByteBuffer record(int index) {
+    ByteBuffer record = records.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    record.position((int) offsets.get(index));
+    return record;
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    return readString(buffer, buffer.getInt());
+  }
+
+  private static String readString(ByteBuffer buffer, int length) {
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+    return search(request, request.filter() != null ? prefilter(request.filter()) : null, null);
+  }
+
+  /**
+   * Resolves a filter through the metadata index of the store, built by decoding every record on the first filtered
+   * search.
+   *
+   * @return Indexes of the entries the filter can match, or null if every entry must be scanned
+   */
+  int[] prefilter(Filter filter) {
+    MetadataIndex index = metadataIndex;
+    if (index == null) {
+      synchronized (this) {
+        if (metadataIndex == null) {
+          metadataIndex = MetadataIndex.build(count, this::segment, false);
+        }
+        index = metadataIndex;
+      }
+    }
+    return index.candidates(filter);
+  }
+
+  /**
+   * Scores the given entries, or all of them, and returns the best matches.
+   *
+   * @param request    Search request, whose minimum score and filter apply to the candidates
+   * @param candidates Indexes of the entries to score, or null to scan the store
+   * @param scores     Approximate scores of the candidates to use instead of scoring them, or null
+   * @return The matches, best first
+   */
+  EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request, int[] candidates, double[] scores) {
+    float[] query = request.queryEmbedding().vector();
+    checkDimension(query);
+    Filter filter = request.filter();
+    double queryNorm = norm(query);
+
+    PriorityQueue<Candidate> best = new PriorityQueue<>();
+    int total = candidates != null ? candidates.length : count;
+    for (int position = 0; position < total; position++) {
+      int index = candidates != null ? candidates[position] : position;
+      double score = scores != null ? scores[position] : score(index, query, queryNorm);
+      if (score < request.minScore()) {
+        continue;
+      }
+      if (filter != null) {
+        TextSegment segment = segment(index);
+        if (segment == null || !filter.test(segment.metadata())) {
+          continue;
+        }
+      }
+      best.add(new Candidate(index, score));
+      if (best.size() > request.maxResults()) {
+        best.poll();
+      }
+    }
+
+    List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(best.size());
+    while (!best.isEmpty()) {
+      Candidate candidate = best.poll();
+      matches.add(new EmbeddingMatch<>(candidate.score, id(candidate.index), embedding(candidate.index),
+                                       segment(candidate.index)));
+    }
+    Collections.reverse(matches);
+    return new EmbeddingSearchResult<>(matches);
+  }
+
+  void checkDimension(float[] query) {
+    if (count > 0 && query.length != dimension) {
+      throw new IllegalArgumentException(String.format("Query embedding of dimension %d does not match the store dimension %d",
+                                                       query.length, dimension));
+    }
+  }
+
+  /**
+   * @return Relevance score of the entry for the query, computed like the in-memory store does
+   */
+  double score(int index, float[] query, double queryNorm) {
+    int base = index * dimension;
+    double dot = 0;
+    double norm = 0;
+    for (int i = 0; i < dimension; i++) {
+      float value = vectors.get(base + i);
+      dot += query[i] * value;
+      norm += value * value;
+    }
+    return RelevanceScore.fromCosineSimilarity(dot / Math.max(queryNorm * Math.sqrt(norm), CosineSimilarity.EPSILON));
+  }
+
+  /**
+   * @return Dot product of the vector of the entry with the given vector
+   */
+  double dot(int index, float[] vector) {
+    int base = index * dimension;
+    double dot = 0;
+    for (int i = 0; i < dimension; i++) {
+      dot += vector[i] * vectors.get(base + i);
+    }
+    return dot;
+  }
+
+  /**
+   * @return Copy of the vector of the entry
+   */
+  float[] vector(int index) {
+    float[] vector = new float[dimension];
+    int base = index * dimension;
+    for (int i = 0; i < dimension; i++) {
+      vector[i] = vectors.get(base + i);
+    }
+    return vector;
+  }
+
+  static double norm(float[] vector) {
+    double norm = 0;
+    for (float value : vector) {
+      norm += value * value;
+    }
+    return Math.sqrt(norm);
+  }
+
+  @Override
+  public String add(Embedding embedding) {
+    throw readOnly();
+  }
+
+  @Override
+  public void add(String id, Embedding embedding) {
+    throw readOnly();
+  }
+
+  @Override
+  public String add(Embedding embedding, TextSegment segment) {
+    throw readOnly();
+  }
+
+  @Override
+  public List<String> addAll(List<Embedding> embeddings) {
+    throw readOnly();
+  }
+
+  @Override
+  public List<String> addAll(List<Embedding> embeddings, List<TextSegment> segments) {
+    throw readOnly();
+  }
+
+  private static UnsupportedOperationException readOnly() {
+    return new UnsupportedOperationException("Binary embedding store segments are immutable");
+  }
+
+  /**
+   * Entry of the store with its score, ordered least relevant first.
+   */
+  static final class Candidate implements Comparable<Candidate> {
+
+    final int index;
+    final double score;
+
+    Candidate(int index, double score) {
+      this.index = index;
+      this.score = score;
+    }
+
+    @Override
+    public int compareTo(Candidate other) {
+      return Double.compare(score, other.score);
+    }
+  }
+
+  /**
+   * Buffered little-endian writer over a file channel.
+   */
+  private static final class Output {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    private long position;
+
+    private Output(FileChannel channel, long position) {
+      this.channel = channel;
+      this.position = position;
+    }
+
+    private long position() {
+      return position + buffer.position();
+    }
+
+    private void ensure(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    private void putByte(byte value) throws IOException {
+      ensure(1);
+      buffer.put(value);
+    }
+
+    private void putInt(int value) throws IOException {
+      ensure(Integer.BYTES);
+      buffer.putInt(value);
+    }
+
+    private void putLong(long value) throws IOException {
+      ensure(Long.BYTES);
+      buffer.putLong(value);
+    }
+
+    private void putFloat(float value) throws IOException {
+      ensure(Float.BYTES);
+      buffer.putFloat(value);
+    }
+
+    private void putDouble(double value) throws IOException {
+      ensure(Double.BYTES);
+      buffer.putDouble(value);
+    }
+
+    private void putString(String value) throws IOException {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      putInt(bytes.length);
+      int written = 0;
+      while (written < bytes.length) {
+        ensure(1);
+        int length = Math.min(buffer.remaining(), bytes.length - written);
+        buffer.put(bytes, written, length);
+        written += length;
+      }
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+      buffer.clear();
+    }
+  }
+}
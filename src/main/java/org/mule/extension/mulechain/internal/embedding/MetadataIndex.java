@@ -0,0 +1,208 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsIn;
+import dev.langchain4j.store.embedding.filter.logical.And;
+import dev.langchain4j.store.embedding.filter.logical.Or;
+import org.mule.extension.mulechain.internal.constants.MuleChainConstants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+/**
+ * Inverted index of the source metadata of the entries of a store, mapping each value of {@link #KEYS} to the entries
+ * holding it, so that a filtered search only scores the entries the filter can match. Equality, IN and prefix filters on
+ * these keys, and their conjunctions and disjunctions, are resolved through the index; other filters are left to the
+ * scan. The filter is still tested on every candidate, so resolving it only narrows the entries scanned, never the
+ * matches.
+ */
+final class MetadataIndex {
+
+  static final List<String> KEYS = Arrays.asList(MuleChainConstants.EmbeddingConstants.FILE_NAME,
+                                                 MuleChainConstants.EmbeddingConstants.FULL_PATH,
+                                                 MuleChainConstants.EmbeddingConstants.ABSOLUTE_DIRECTORY_PATH,
+                                                 MuleChainConstants.URL);
+
+  private static final int[] NONE = new int[0];
+
+  private final Map<String, NavigableMap<String, int[]>> postings;
+  private final int[] unsegmented;
+
+  private MetadataIndex(Map<String, NavigableMap<String, int[]>> postings, int[] unsegmented) {
+    this.postings = postings;
+    this.unsegmented = unsegmented;
+  }
+
+  /**
+   * Indexes the entries of a store.
+   *
+   * @param count              Number of entries
+   * @param segments           Segment of each entry, or null for an entry added without one
+   * @param matchUnsegmented   Whether entries without a segment pass every filter, as in the in-memory store, so that they
+   *                           are candidates of every resolved filter
+   * @return The index
+   */
+  static MetadataIndex build(int count, IntFunction<TextSegment> segments, boolean matchUnsegmented) {
+    Map<String, Map<String, List<Integer>>> lists = new HashMap<>();
+    List<Integer> unsegmented = new ArrayList<>();
+    for (int index = 0; index < count; index++) {
+      TextSegment segment = segments.apply(index);
+      if (segment == null) {
+        unsegmented.add(index);
+        continue;
+      }
+      Map<String, Object> metadata = segment.metadata().toMap();
+      for (String key : KEYS) {
+        Object value = metadata.get(key);
+        if (value instanceof String) {
+          lists.computeIfAbsent(key, k -> new HashMap<>()).computeIfAbsent((String) value, v -> new ArrayList<>())
+              .add(index);
+        }
+      }
+    }
+
+    Map<String, NavigableMap<String, int[]>> postings = new HashMap<>();
+    for (Map.Entry<String, Map<String, List<Integer>>> key : lists.entrySet()) {
+      NavigableMap<String, int[]> values = new TreeMap<>();
+      for (Map.Entry<String, List<Integer>> value : key.getValue().entrySet()) {
+        values.put(value.getKey(), toArray(value.getValue()));
+      }
+      postings.put(key.getKey(), values);
+    }
+    return new MetadataIndex(postings, matchUnsegmented ? toArray(unsegmented) : NONE);
+  }
+
+  /**
+   * @return Indexes of the entries the filter can match, in increasing order, or null if the filter cannot be resolved
+   *         through the index and every entry must be scanned
+   */
+  int[] candidates(Filter filter) {
+    int[] resolved = resolve(filter);
+    return resolved == null ? null : union(resolved, unsegmented);
+  }
+
+  private int[] resolve(Filter filter) {
+    if (filter instanceof IsEqualTo) {
+      IsEqualTo equalTo = (IsEqualTo) filter;
+      return KEYS.contains(equalTo.key()) && equalTo.comparisonValue() instanceof String
+          ? postings(equalTo.key()).getOrDefault(equalTo.comparisonValue(), NONE)
+          : null;
+    }
+    if (filter instanceof IsIn) {
+      IsIn in = (IsIn) filter;
+      return KEYS.contains(in.key()) && allStrings(in.comparisonValues())
+          ? union(postings(in.key()), in.comparisonValues())
+          : null;
+    }
+    if (filter instanceof MetadataPrefixFilter) {
+      MetadataPrefixFilter prefix = (MetadataPrefixFilter) filter;
+      if (!KEYS.contains(prefix.key())) {
+        return null;
+      }
+      NavigableMap<String, int[]> values = postings(prefix.key());
+      int[] rows = NONE;
+      for (String start : prefix.prefixes()) {
+        for (int[] postingList : values.subMap(start, true, start + Character.MAX_VALUE, false).values()) {
+          rows = union(rows, postingList);
+        }
+      }
+      return rows;
+    }
+    if (filter instanceof And) {
+      int[] left = resolve(((And) filter).left());
+      int[] right = resolve(((And) filter).right());
+      return left == null ? right : right == null ? left : intersection(left, right);
+    }
+    if (filter instanceof Or) {
+      int[] left = resolve(((Or) filter).left());
+      int[] right = resolve(((Or) filter).right());
+      return left == null || right == null ? null : union(left, right);
+    }
+    return null;
+  }
+
+  private NavigableMap<String, int[]> postings(String key) {
+    NavigableMap<String, int[]> values = postings.get(key);
+    return values != null ? values : new TreeMap<>();
+  }
+
+  private static boolean allStrings(Collection<?> values) {
+    for (Object value : values) {
+      if (!(value instanceof String)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int[] union(NavigableMap<String, int[]> values, Collection<?> keys) {
+    int[] rows = NONE;
+    for (Object key : keys) {
+      rows = union(rows, values.getOrDefault(key, NONE));
+    }
+    return rows;
+  }
+
+  private static int[] union(int[] left, int[] right) {
+    if (right.length == 0) {
+      return left;
+    }
+    if (left.length == 0) {
+      return right;
+    }
+    int[] merged = new int[left.length + right.length];
+    int i = 0;
+    int j = 0;
+    int size = 0;
+    while (i < left.length || j < right.length) {
+      int next = j == right.length || (i < left.length && left[i] <= right[j]) ? left[i] : right[j];
+      if (i < left.length && left[i] == next) {
+        i++;
+      }
+      if (j < right.length && right[j] == next) {
+        j++;
+      }
+      merged[size++] = next;
+    }
+    return Arrays.copyOf(merged, size);
+  }
+
+  private static int[] intersection(int[] left, int[] right) {
+    int[] common = new int[Math.min(left.length, right.length)];
+    int i = 0;
+    int j = 0;
+    int size = 0;
+    while (i < left.length && j < right.length) {
+      if (left[i] < right[j]) {
+        i++;
+      } else if (left[i] > right[j]) {
+        j++;
+      } else {
+        common[size++] = left[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(common, size);
+  }
+
+  private static int[] toArray(List<Integer> values) {
+    int[] array = new int[values.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = values.get(i);
+    }
+    return array;
+  }
+}
@@ -0,0 +1,57 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Filter matching entries whose metadata value for a key is a string starting with one of the given prefixes, such as
+ * every file under a directory. langchain4j has no prefix filter; stores that do not resolve this one through a
+ * {@link MetadataIndex} still apply it by testing each entry.
+ */
+public final class MetadataPrefixFilter implements Filter {
+
+  private final String key;
+  private final List<String> prefixes;
+
+  public MetadataPrefixFilter(String key, Collection<String> prefixes) {
+    this.key = key;
+    this.prefixes = new ArrayList<>(prefixes);
+  }
+
+  public String key() {
+    return key;
+  }
+
+  public List<String> prefixes() {
+    return prefixes;
+  }
+
+  @Override
+  public boolean test(Object object) {
+    if (!(object instanceof Metadata)) {
+      return false;
+    }
+    Object value = ((Metadata) object).toMap().get(key);
+    if (!(value instanceof String)) {
+      return false;
+    }
+    for (String prefix : prefixes) {
+      if (((String) value).startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return "MetadataPrefixFilter(key=" + key + ", prefixes=" + prefixes + ")";
+  }
+}
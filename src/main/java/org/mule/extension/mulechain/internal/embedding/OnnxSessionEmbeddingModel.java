@@ -0,0 +1,60 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import dev.langchain4j.model.embedding.onnx.AbstractInProcessEmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.OnnxBertBiEncoder;
+import dev.langchain4j.model.embedding.onnx.PoolingMode;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+
+/**
+ * In-process ONNX embedding model whose session is created with explicit threading options, instead of the defaults used
+ * by the langchain4j bundled models. The session is released when the model is closed.
+ */
+public class OnnxSessionEmbeddingModel extends AbstractInProcessEmbeddingModel implements AutoCloseable {
+
+  private final OrtSession session;
+  private final OnnxBertBiEncoder encoder;
+  private final Integer knownDimension;
+
+  OnnxSessionEmbeddingModel(InputStream modelStream, InputStream tokenizerStream, PoolingMode poolingMode,
+                            Integer knownDimension, EmbeddingModelSettings settings, Executor executor)
+      throws IOException, OrtException {
+    super(executor);
+    OrtEnvironment environment = OrtEnvironment.getEnvironment();
+    try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+      if (settings.getIntraOpThreads() > 0) {
+        options.setIntraOpNumThreads(settings.getIntraOpThreads());
+      }
+      if (settings.getInterOpThreads() > 0) {
+        options.setInterOpNumThreads(settings.getInterOpThreads());
+      }
+      this.session = environment.createSession(IOUtils.toByteArray(modelStream), options);
+    }
+    this.encoder = new OnnxBertBiEncoder(environment, session, tokenizerStream, poolingMode);
+    this.knownDimension = knownDimension;
+  }
+
+  @Override
+  protected OnnxBertBiEncoder model() {
+    return encoder;
+  }
+
+  @Override
+  protected Integer knownDimension() {
+    return knownDimension;
+  }
+
+  @Override
+  public void close() throws OrtException {
+    session.close();
+  }
+}
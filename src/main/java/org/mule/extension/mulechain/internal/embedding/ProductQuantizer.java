@@ -0,0 +1,195 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+/**
+ * Product quantization: the vector is split into groups of {@value #GROUP_SIZE} dimensions, and each group is replaced by
+ * the index of the closest of up to 256 centroids learnt for it with k-means over a sample of the segment. A query is
+ * scored with a table of its products with every centroid, so decoding a vector takes one lookup per group.
+ */
+final class ProductQuantizer extends QuantizedVectors {
+
+  static final int GROUP_SIZE = 4;
+
+  private static final int CENTROIDS = 256;
+  private static final int TRAINING_SAMPLE = 4096;
+  private static final int ITERATIONS = 10;
+
+  private final int dimension;
+  private final int groups;
+  private final int centroidCount;
+  private final float[][] centroids;
+  private final ByteBuffer codes;
+
+  private ProductQuantizer(int count, int dimension, int centroidCount, FloatBuffer norms, ByteBuffer codes) {
+    super(count, norms);
+    this.dimension = dimension;
+    this.groups = groups(dimension);
+    this.centroidCount = centroidCount;
+    this.centroids = new float[groups][];
+    this.codes = codes;
+  }
+
+  private static int groups(int dimension) {
+    return (dimension + GROUP_SIZE - 1) / GROUP_SIZE;
+  }
+
+  static ProductQuantizer build(MappedEmbeddingStore store) {
+    int count = store.size();
+    ProductQuantizer quantizer = new ProductQuantizer(count, store.dimension(), Math.max(1, Math.min(CENTROIDS, count)),
+                                                      FloatBuffer.allocate(count),
+                                                      ByteBuffer.allocate(count * groups(store.dimension())));
+    Random random = new Random(count);
+    float[][] sample = new float[Math.min(TRAINING_SAMPLE, count)][];
+    for (int i = 0; i < sample.length; i++) {
+      sample[i] = store.vector(sample.length == count ? i : random.nextInt(count));
+    }
+    for (int group = 0; group < quantizer.groups; group++) {
+      quantizer.centroids[group] = quantizer.train(sample, group, random);
+    }
+    for (int index = 0; index < count; index++) {
+      float[] vector = store.vector(index);
+      double norm = 0;
+      for (int group = 0; group < quantizer.groups; group++) {
+        int code = quantizer.nearest(vector, group);
+        quantizer.codes.put(index * quantizer.groups + group, (byte) code);
+        int length = quantizer.length(group);
+        for (int i = 0; i < length; i++) {
+          double decoded = quantizer.centroids[group][code * length + i];
+          norm += decoded * decoded;
+        }
+      }
+      quantizer.norms.put(index, (float) Math.sqrt(norm));
+    }
+    return quantizer;
+  }
+
+  private int length(int group) {
+    return Math.min(GROUP_SIZE, dimension - group * GROUP_SIZE);
+  }
+
+  /**
+   * Runs k-means on one group of dimensions of the sample, starting from randomly picked vectors.
+   *
+   * @return The centroids of the group, back to back
+   */
+  private float[] train(float[][] sample, int group, Random random) {
+    int start = group * GROUP_SIZE;
+    int length = length(group);
+    float[] trained = new float[centroidCount * length];
+    if (sample.length == 0) {
+      return trained;
+    }
+    for (int c = 0; c < centroidCount; c++) {
+      System.arraycopy(sample[random.nextInt(sample.length)], start, trained, c * length, length);
+    }
+    centroids[group] = trained;
+    int[] assignments = new int[sample.length];
+    for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+      for (int i = 0; i < sample.length; i++) {
+        assignments[i] = nearest(sample[i], group);
+      }
+      double[] sums = new double[centroidCount * length];
+      int[] sizes = new int[centroidCount];
+      for (int i = 0; i < sample.length; i++) {
+        sizes[assignments[i]]++;
+        for (int j = 0; j < length; j++) {
+          sums[assignments[i] * length + j] += sample[i][start + j];
+        }
+      }
+      for (int c = 0; c < centroidCount; c++) {
+        // An empty cluster keeps its centroid
+        if (sizes[c] > 0) {
+          for (int j = 0; j < length; j++) {
+            trained[c * length + j] = (float) (sums[c * length + j] / sizes[c]);
+          }
+        }
+      }
+    }
+    return trained;
+  }
+
+  private int nearest(float[] vector, int group) {
+    int start = group * GROUP_SIZE;
+    int length = length(group);
+    float[] groupCentroids = centroids[group];
+    int nearest = 0;
+    double nearestDistance = Double.MAX_VALUE;
+    for (int c = 0; c < centroidCount; c++) {
+      double distance = 0;
+      for (int j = 0; j < length; j++) {
+        double difference = vector[start + j] - groupCentroids[c * length + j];
+        distance += difference * difference;
+      }
+      if (distance < nearestDistance) {
+        nearestDistance = distance;
+        nearest = c;
+      }
+    }
+    return nearest;
+  }
+
+  @Override
+  public int bytesPerVector() {
+    return groups;
+  }
+
+  @Override
+  protected QueryScorer prepare(float[] query) {
+    float[] table = new float[groups * centroidCount];
+    for (int group = 0; group < groups; group++) {
+      int start = group * GROUP_SIZE;
+      int length = length(group);
+      for (int c = 0; c < centroidCount; c++) {
+        double dot = 0;
+        for (int j = 0; j < length; j++) {
+          dot += query[start + j] * centroids[group][c * length + j];
+        }
+        table[group * centroidCount + c] = (float) dot;
+      }
+    }
+    return index -> {
+      int base = index * groups;
+      double dot = 0;
+      for (int group = 0; group < groups; group++) {
+        dot += table[group * centroidCount + (codes.get(base + group) & 0xFF)];
+      }
+      return dot;
+    };
+  }
+
+  @Override
+  protected void writeCodes(DataOutputStream output) throws IOException {
+    output.writeInt(dimension);
+    output.writeInt(centroidCount);
+    for (float[] groupCentroids : centroids) {
+      for (float value : groupCentroids) {
+        output.writeFloat(value);
+      }
+    }
+    write(output, codes);
+  }
+
+  static ProductQuantizer readCodes(int count, FloatBuffer norms, ByteBuffer input) {
+    int dimension = input.getInt();
+    int centroidCount = input.getInt();
+    // The codes follow the centroids of every group, whose lengths add up to the dimension
+    ByteBuffer codes = slice(input, centroidCount * dimension * Float.BYTES, count * groups(dimension));
+    ProductQuantizer quantizer = new ProductQuantizer(count, dimension, centroidCount, norms, codes);
+    for (int group = 0; group < quantizer.groups; group++) {
+      float[] groupCentroids = new float[centroidCount * quantizer.length(group)];
+      for (int i = 0; i < groupCentroids.length; i++) {
+        groupCentroids[i] = input.getFloat();
+      }
+      quantizer.centroids[group] = groupCentroids;
+    }
+    return quantizer;
+  }
+}
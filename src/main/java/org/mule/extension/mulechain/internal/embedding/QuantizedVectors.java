@@ -0,0 +1,197 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.store.embedding.CosineSimilarity;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import org.mule.extension.mulechain.api.config.VectorQuantization;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.PriorityQueue;
+
+/**
+ * Compressed copy of the vectors of a binary store segment, scanned instead of the full precision vectors. The codes of
+ * all entries are stored back to back, along with the norm of each decoded vector, so that a scan only reads a fraction
+ * of the bytes of the segment. Saved next to the segment in a {@code <segment>.sq8} or {@code <segment>.pq} file, which is
+ * memory mapped when loaded like the segment itself: only the small tables of the quantizer are read into the heap.
+ */
+public abstract class QuantizedVectors {
+
+  private static final int MAGIC = 0x56544E51;
+  private static final int VERSION = 1;
+
+  protected final int count;
+  protected final FloatBuffer norms;
+
+  protected QuantizedVectors(int count, FloatBuffer norms) {
+    this.count = count;
+    this.norms = norms;
+  }
+
+  /**
+   * @return Path of the codes of the given segment file
+   */
+  public static Path codesPath(Path segment, VectorQuantization quantization) {
+    return segment.resolveSibling(segment.getFileName() + (quantization == VectorQuantization.PRODUCT ? ".pq" : ".sq8"));
+  }
+
+  /**
+   * Quantizes the vectors of a segment.
+   *
+   * @param store        Segment to quantize
+   * @param quantization Quantization to apply, other than NONE
+   * @return The codes
+   */
+  public static QuantizedVectors build(MappedEmbeddingStore store, VectorQuantization quantization) {
+    return quantization == VectorQuantization.PRODUCT ? ProductQuantizer.build(store) : ScalarQuantizer.build(store);
+  }
+
+  /**
+   * @return Bytes used by the code of one vector
+   */
+  public abstract int bytesPerVector();
+
+  /**
+   * @return Query prepared for scoring codes, such as a table of its products with the centroids
+   */
+  protected abstract QueryScorer prepare(float[] query);
+
+  /**
+   * Scores the codes of all entries against a query.
+   *
+   * @param query Query vector
+   * @param limit Number of entries to return
+   * @return The best entries by approximate relevance score, best first
+   */
+  public Candidates top(float[] query, int limit) {
+    QueryScorer scorer = prepare(query);
+    double queryNorm = MappedEmbeddingStore.norm(query);
+    PriorityQueue<MappedEmbeddingStore.Candidate> best = new PriorityQueue<>();
+    for (int index = 0; index < count; index++) {
+      double score = RelevanceScore.fromCosineSimilarity(scorer.dot(index)
+          / Math.max(queryNorm * norms.get(index), CosineSimilarity.EPSILON));
+      if (best.size() < limit) {
+        best.add(new MappedEmbeddingStore.Candidate(index, score));
+      } else if (limit > 0 && score > best.peek().score) {
+        best.poll();
+        best.add(new MappedEmbeddingStore.Candidate(index, score));
+      }
+    }
+    Candidates candidates = new Candidates(best.size());
+    for (int i = best.size() - 1; i >= 0; i--) {
+      MappedEmbeddingStore.Candidate candidate = best.poll();
+      candidates.indexes[i] = candidate.index;
+      candidates.scores[i] = candidate.score;
+    }
+    return candidates;
+  }
+
+  /**
+   * Saves the codes, replacing the file atomically once complete.
+   */
+  public void save(Path path) throws IOException {
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      output.writeInt(count);
+      for (int index = 0; index < count; index++) {
+        output.writeFloat(norms.get(index));
+      }
+      writeCodes(output);
+    }
+    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Maps saved codes.
+   *
+   * @return The codes, which stay readable if the file is replaced
+   * @throws IOException If the file does not hold codes of the given quantization
+   */
+  public static QuantizedVectors load(Path path, VectorQuantization quantization) throws IOException {
+    ByteBuffer input;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Quantized vectors of " + channel.size() + " bytes exceed the 2 GB mapping limit");
+      }
+      input = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      if (input.getInt() != MAGIC || input.getInt() != VERSION) {
+        throw new IOException(path + " does not hold supported quantized vectors");
+      }
+      int count = input.getInt();
+      FloatBuffer norms = slice(input, 0, count * Float.BYTES).asFloatBuffer();
+      input.position(input.position() + count * Float.BYTES);
+      return quantization == VectorQuantization.PRODUCT
+          ? ProductQuantizer.readCodes(count, norms, input)
+          : ScalarQuantizer.readCodes(count, norms, input);
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new IOException(path + " holds truncated quantized vectors", e);
+    }
+  }
+
+  /**
+   * @return The given bytes of the buffer, starting at an offset from its position
+   */
+  protected static ByteBuffer slice(ByteBuffer input, int offset, int size) {
+    ByteBuffer slice = input.duplicate();
+    slice.position(input.position() + offset);
+    slice.limit(slice.position() + size);
+    return slice.slice();
+  }
+
+  protected abstract void writeCodes(DataOutputStream output) throws IOException;
+
+  protected static void write(DataOutputStream output, ByteBuffer codes) throws IOException {
+    ByteBuffer source = codes.duplicate();
+    byte[] chunk = new byte[8192];
+    while (source.hasRemaining()) {
+      int length = Math.min(chunk.length, source.remaining());
+      source.get(chunk, 0, length);
+      output.write(chunk, 0, length);
+    }
+  }
+
+  /**
+   * Dot product of a prepared query with the decoded vector of an entry.
+   */
+  protected interface QueryScorer {
+
+    double dot(int index);
+  }
+
+  /**
+   * Entries found by a scan of the codes, with their approximate relevance scores.
+   */
+  public static final class Candidates {
+
+    private final int[] indexes;
+    private final double[] scores;
+
+    private Candidates(int size) {
+      this.indexes = new int[size];
+      this.scores = new double[size];
+    }
+
+    public int[] indexes() {
+      return indexes;
+    }
+
+    public double[] scores() {
+      return scores;
+    }
+  }
+}
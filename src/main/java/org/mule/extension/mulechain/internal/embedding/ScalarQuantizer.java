@@ -0,0 +1,108 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Int8 scalar quantization: each dimension is mapped linearly from its range over the segment to the 256 values of a
+ * byte.
+ */
+final class ScalarQuantizer extends QuantizedVectors {
+
+  private final int dimension;
+  private final float[] minimums;
+  private final float[] steps;
+  private final ByteBuffer codes;
+
+  private ScalarQuantizer(int count, int dimension, FloatBuffer norms, ByteBuffer codes) {
+    super(count, norms);
+    this.dimension = dimension;
+    this.minimums = new float[dimension];
+    this.steps = new float[dimension];
+    this.codes = codes;
+  }
+
+  static ScalarQuantizer build(MappedEmbeddingStore store) {
+    int dimension = store.dimension();
+    ScalarQuantizer quantizer = new ScalarQuantizer(store.size(), dimension, FloatBuffer.allocate(store.size()),
+                                                    ByteBuffer.allocate(store.size() * dimension));
+    float[] maximums = new float[dimension];
+    Arrays.fill(quantizer.minimums, Float.POSITIVE_INFINITY);
+    Arrays.fill(maximums, Float.NEGATIVE_INFINITY);
+    for (int index = 0; index < store.size(); index++) {
+      float[] vector = store.vector(index);
+      for (int i = 0; i < dimension; i++) {
+        quantizer.minimums[i] = Math.min(quantizer.minimums[i], vector[i]);
+        maximums[i] = Math.max(maximums[i], vector[i]);
+      }
+    }
+    for (int i = 0; i < dimension; i++) {
+      quantizer.steps[i] = (maximums[i] - quantizer.minimums[i]) / 255f;
+    }
+    for (int index = 0; index < store.size(); index++) {
+      float[] vector = store.vector(index);
+      double norm = 0;
+      for (int i = 0; i < dimension; i++) {
+        int code = quantizer.steps[i] > 0 ? Math.round((vector[i] - quantizer.minimums[i]) / quantizer.steps[i]) : 0;
+        quantizer.codes.put(index * dimension + i, (byte) code);
+        double decoded = quantizer.minimums[i] + quantizer.steps[i] * code;
+        norm += decoded * decoded;
+      }
+      quantizer.norms.put(index, (float) Math.sqrt(norm));
+    }
+    return quantizer;
+  }
+
+  @Override
+  public int bytesPerVector() {
+    return dimension;
+  }
+
+  @Override
+  protected QueryScorer prepare(float[] query) {
+    // The dot product with a decoded vector is the constant sum of query * minimum plus the codes weighted by query * step
+    double offset = 0;
+    float[] weights = new float[dimension];
+    for (int i = 0; i < dimension; i++) {
+      offset += query[i] * minimums[i];
+      weights[i] = query[i] * steps[i];
+    }
+    double constant = offset;
+    return index -> {
+      int base = index * dimension;
+      double dot = constant;
+      for (int i = 0; i < dimension; i++) {
+        dot += weights[i] * (codes.get(base + i) & 0xFF);
+      }
+      return dot;
+    };
+  }
+
+  @Override
+  protected void writeCodes(DataOutputStream output) throws IOException {
+    output.writeInt(dimension);
+    for (int i = 0; i < dimension; i++) {
+      output.writeFloat(minimums[i]);
+      output.writeFloat(steps[i]);
+    }
+    write(output, codes);
+  }
+
+  static ScalarQuantizer readCodes(int count, FloatBuffer norms, ByteBuffer input) {
+    int dimension = input.getInt();
+    // The codes follow the minimum and step of every dimension
+    ByteBuffer codes = slice(input, dimension * 2 * Float.BYTES, count * dimension);
+    ScalarQuantizer quantizer = new ScalarQuantizer(count, dimension, norms, codes);
+    for (int i = 0; i < dimension; i++) {
+      quantizer.minimums[i] = input.getFloat();
+      quantizer.steps[i] = input.getFloat();
+    }
+    return quantizer;
+  }
+}
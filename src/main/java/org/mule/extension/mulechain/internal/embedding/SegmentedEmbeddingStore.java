@@ -0,0 +1,474 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.json.JSONArray;
+import org.mule.extension.mulechain.api.config.SearchMode;
+import org.mule.extension.mulechain.api.config.VectorQuantization;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Binary embedding store made of immutable segment files. The store file itself is the first segment; each ingestion
+ * writes its entries to a new {@code <store>.seg-<n>} file and lists it in the {@code <store>.segments.json} manifest, so
+ * its cost depends on the entries added rather than on the size of the store. Once a store has more than
+ * {@value #COMPACTION_THRESHOLD} segments, they are merged into one in the background, on the executor passed by
+ * the ingestion. The manifest is always replaced
+ * atomically, and segments that it no longer lists are deleted, so readers see either the segments before or after an
+ * ingestion or compaction.
+ * <p>
+ * Every segment written by an ingestion or a compaction gets an {@link HnswIndex}, built with the settings recorded in
+ * the manifest when the store was created, which approximate searches use instead of scanning the segment. When the
+ * store was created with a quantization, each segment also gets a compressed copy of its vectors, which quantized
+ * searches scan instead of the full precision vectors. Segments without an index or quantized vectors, such as the store
+ * file of a store created before they existed, are scanned. Searches filtered on source metadata only score the entries
+ * the filter can match, found through the {@link MetadataIndex} of each segment.
+ */
+public class SegmentedEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentedEmbeddingStore.class);
+
+  static final int COMPACTION_THRESHOLD = 8;
+
+  private static final String MANIFEST_SUFFIX = ".segments.json";
+  private static final String SEGMENT_SUFFIX = ".seg-";
+  private static final String FILES = "files";
+  private static final String NEXT = "next";
+  private static final String M = "m";
+  private static final String EF_CONSTRUCTION = "efConstruction";
+  private static final String QUANTIZATION = "quantization";
+
+  private static final Map<Path, Object> LOCKS = new ConcurrentHashMap<>();
+  private static final Set<Path> COMPACTING = ConcurrentHashMap.newKeySet();
+
+  private final List<Segment> segments;
+  private final VectorQuantization quantization;
+  private final SearchMode mode;
+  private final int efSearch;
+  private final int rerankFactor;
+
+  private SegmentedEmbeddingStore(List<Segment> segments, VectorQuantization quantization, SearchMode mode, int efSearch,
+                                  int rerankFactor) {
+    this.segments = segments;
+    this.quantization = quantization;
+    this.mode = mode;
+    this.efSearch = efSearch;
+    this.rerankFactor = rerankFactor;
+  }
+
+  /**
+   * @return Path of the manifest listing the segments of the store
+   */
+  public static Path manifestPath(Path path) {
+    return path.resolveSibling(path.getFileName() + MANIFEST_SUFFIX);
+  }
+
+  /**
+   * Maps the segments of a binary store.
+   *
+   * @param path Path of the store file
+   * @return The store
+   * @throws IOException If a segment cannot be mapped
+   */
+  public static SegmentedEmbeddingStore open(Path path) throws IOException {
+    // Mapping only takes the file handles, so holding the lock keeps a compaction from deleting segments meanwhile
+    synchronized (lock(path)) {
+      Manifest manifest = readManifest(path);
+      List<Segment> segments = new ArrayList<>();
+      for (String file : manifest.files) {
+        segments.add(new Segment(MappedEmbeddingStore.open(path.resolveSibling(file)), path.resolveSibling(file)));
+      }
+      return new SegmentedEmbeddingStore(segments, manifest.quantization, SearchMode.EXACT, 0, 0);
+    }
+  }
+
+  /**
+   * Writes the entries of a batch to a new segment of the store, and schedules a compaction if the store has too many
+   * segments.
+   *
+   * @param path      Path of the store file
+   * @param batch     Entries to add
+   * @param compactor Executor running the compaction, if one is needed
+   * @throws IOException If the segment or the manifest cannot be written
+   */
+  public static void append(Path path, EmbeddingBatch batch, Executor compactor) throws IOException {
+    if (batch.size() == 0) {
+      return;
+    }
+    String file = reserveSegment(path);
+    writeSegment(path, file, batch);
+    int segmentCount;
+    synchronized (lock(path)) {
+      Manifest manifest = readManifest(path);
+      manifest.files.add(file);
+      writeManifest(path, manifest);
+      segmentCount = manifest.files.size();
+    }
+    // A compaction already running merges this segment too, or leaves it to the next one
+    if (segmentCount > COMPACTION_THRESHOLD && !COMPACTING.contains(key(path))) {
+      compactor.execute(() -> {
+        try {
+          compact(path, COMPACTION_THRESHOLD + 1);
+        } catch (Exception e) {
+          LOGGER.warn("Unable to compact the embedding store {}", path, e);
+        }
+      });
+    }
+  }
+
+  /**
+   * Merges the segments of the store into one. Segments appended while the merge runs are kept after the merged one.
+   * Only one compaction of a store runs at a time in this process, whichever executor runs it; a compaction requested
+   * while another one runs is skipped, as is a compaction of a store with fewer segments than requested, such as one
+   * queued behind a compaction that already merged its segments.
+   *
+   * @param path        Path of the store file
+   * @param minSegments Fewest segments worth merging
+   * @return Whether the segments were merged
+   * @throws IOException If the merged segment or the manifest cannot be written
+   */
+  static boolean compact(Path path, int minSegments) throws IOException {
+    Path key = key(path);
+    if (!COMPACTING.add(key)) {
+      return false;
+    }
+    try {
+      return merge(path, minSegments);
+    } finally {
+      COMPACTING.remove(key);
+    }
+  }
+
+  private static boolean merge(Path path, int minSegments) throws IOException {
+    Manifest snapshot;
+    synchronized (lock(path)) {
+      snapshot = readManifest(path);
+    }
+    if (snapshot.files.size() < Math.max(2, minSegments)) {
+      return false;
+    }
+    String merged = reserveSegment(path);
+    List<MappedEmbeddingStore> parts = new ArrayList<>();
+    for (String file : snapshot.files) {
+      parts.add(MappedEmbeddingStore.open(path.resolveSibling(file)));
+    }
+    writeSegment(path, merged, parts.toArray(new EmbeddingEntries[0]));
+
+    synchronized (lock(path)) {
+      Manifest current = readManifest(path);
+      List<String> files = new ArrayList<>();
+      files.add(merged);
+      for (String file : current.files) {
+        if (!snapshot.files.contains(file)) {
+          files.add(file);
+        }
+      }
+      current.files = files;
+      writeManifest(path, current);
+      deleteSegments(path, snapshot.files);
+    }
+    LOGGER.debug("Compacted {} segments of the embedding store {}", snapshot.files.size(), path);
+    return true;
+  }
+
+  /**
+   * Creates an empty store, dropping the segments of any previous store saved at the same path.
+   *
+   * @param path           Path of the store file
+   * @param m              Neighbours linked to each entry per layer of the HNSW indexes of the store
+   * @param efConstruction Size of the candidate list explored while indexing an entry
+   * @param quantization   Compressed copy kept of the vectors of each segment
+   * @throws IOException If the store cannot be written
+   */
+  public static void create(Path path, int m, int efConstruction, VectorQuantization quantization) throws IOException {
+    synchronized (lock(path)) {
+      if (Files.exists(manifestPath(path))) {
+        deleteSegments(path, readManifest(path).files);
+      } else {
+        deleteSegments(path, Collections.singletonList(path.getFileName().toString()));
+      }
+      MappedEmbeddingStore.write(path);
+      Manifest manifest = new Manifest();
+      manifest.files.add(path.getFileName().toString());
+      manifest.m = m;
+      manifest.efConstruction = efConstruction;
+      manifest.quantization = quantization;
+      writeManifest(path, manifest);
+    }
+  }
+
+  private static void writeSegment(Path path, String file, EmbeddingEntries... sources) throws IOException {
+    Manifest manifest;
+    synchronized (lock(path)) {
+      manifest = readManifest(path);
+    }
+    Path segment = path.resolveSibling(file);
+    MappedEmbeddingStore.write(segment, sources);
+    MappedEmbeddingStore store = MappedEmbeddingStore.open(segment);
+    HnswIndex.build(store, manifest.m, manifest.efConstruction).save(HnswIndex.indexPath(segment));
+    if (manifest.quantization != VectorQuantization.NONE) {
+      QuantizedVectors.build(store, manifest.quantization)
+          .save(QuantizedVectors.codesPath(segment, manifest.quantization));
+    }
+  }
+
+  private static void deleteSegments(Path path, List<String> files) throws IOException {
+    for (String file : files) {
+      Path segment = path.resolveSibling(file);
+      Files.deleteIfExists(HnswIndex.indexPath(segment));
+      Files.deleteIfExists(QuantizedVectors.codesPath(segment, VectorQuantization.SCALAR_INT8));
+      Files.deleteIfExists(QuantizedVectors.codesPath(segment, VectorQuantization.PRODUCT));
+      if (file.equals(path.getFileName().toString())) {
+        // The store file stays as the entry point of the store, emptied
+        MappedEmbeddingStore.write(path);
+      } else {
+        Files.deleteIfExists(segment);
+      }
+    }
+  }
+
+  /**
+   * Reserves the file name of a new segment, so that segments written concurrently get distinct names.
+   */
+  private static String reserveSegment(Path path) throws IOException {
+    synchronized (lock(path)) {
+      Manifest manifest = readManifest(path);
+      String file = path.getFileName() + SEGMENT_SUFFIX + manifest.next;
+      manifest.next++;
+      writeManifest(path, manifest);
+      return file;
+    }
+  }
+
+  private static Object lock(Path path) {
+    return LOCKS.computeIfAbsent(key(path), p -> new Object());
+  }
+
+  private static Path key(Path path) {
+    return path.toAbsolutePath().normalize();
+  }
+
+  private static Manifest readManifest(Path path) throws IOException {
+    Manifest manifest = new Manifest();
+    Path manifestPath = manifestPath(path);
+    if (!Files.exists(manifestPath)) {
+      manifest.files.add(path.getFileName().toString());
+      return manifest;
+    }
+    JSONObject json = new JSONObject(new String(Files.readAllBytes(manifestPath), StandardCharsets.UTF_8));
+    JSONArray files = json.getJSONArray(FILES);
+    for (int i = 0; i < files.length(); i++) {
+      manifest.files.add(files.getString(i));
+    }
+    manifest.next = json.getLong(NEXT);
+    manifest.m = json.optInt(M, HnswIndex.DEFAULT_M);
+    manifest.efConstruction = json.optInt(EF_CONSTRUCTION, HnswIndex.DEFAULT_EF_CONSTRUCTION);
+    manifest.quantization = json.optEnum(VectorQuantization.class, QUANTIZATION, VectorQuantization.NONE);
+    return manifest;
+  }
+
+  private static void writeManifest(Path path, Manifest manifest) throws IOException {
+    JSONObject json = new JSONObject();
+    json.put(FILES, new JSONArray(manifest.files));
+    json.put(NEXT, manifest.next);
+    json.put(M, manifest.m);
+    json.put(EF_CONSTRUCTION, manifest.efConstruction);
+    json.put(QUANTIZATION, manifest.quantization.name());
+    Path manifestPath = manifestPath(path);
+    Path temporary = manifestPath.resolveSibling(manifestPath.getFileName() + ".tmp");
+    Files.write(temporary, json.toString().getBytes(StandardCharsets.UTF_8));
+    Files.move(temporary, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * @return Number of segments of the store
+   */
+  public int segmentCount() {
+    return segments.size();
+  }
+
+  /**
+   * @return Number of entries of the store
+   */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.store.size();
+    }
+    return size;
+  }
+
+  /**
+   * Returns a view of the store whose searches use the HNSW indexes of its segments.
+   *
+   * @param efSearch Size of the candidate list explored by a search, raised to the number of results requested
+   * @return The view
+   */
+  public SegmentedEmbeddingStore approximate(int efSearch) {
+    return new SegmentedEmbeddingStore(segments, quantization, SearchMode.HNSW, Math.max(efSearch, 1), 0);
+  }
+
+  /**
+   * Returns a view of the store whose searches scan the quantized vectors of its segments.
+   *
+   * @param rerankFactor Multiple of the number of results taken from the scan and scored again at full precision, or 0
+   *                     to return the approximate scores of the scan
+   * @return The view
+   */
+  public SegmentedEmbeddingStore quantized(int rerankFactor) {
+    return new SegmentedEmbeddingStore(segments, quantization, SearchMode.QUANTIZED, 0, Math.max(rerankFactor, 0));
+  }
+
+  @Override
+  public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+    if (segments.size() == 1) {
+      return search(segments.get(0), request);
+    }
+    List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+    for (Segment segment : segments) {
+      matches.addAll(search(segment, request).matches());
+    }
+    matches.sort(Comparator.comparingDouble((EmbeddingMatch<TextSegment> match) -> match.score()).reversed());
+    return new EmbeddingSearchResult<>(matches.size() > request.maxResults()
+        ? new ArrayList<>(matches.subList(0, request.maxResults()))
+        : matches);
+  }
+
+  private EmbeddingSearchResult<TextSegment> search(Segment segment, EmbeddingSearchRequest request) {
+    MappedEmbeddingStore store = segment.store;
+    if (request.filter() != null) {
+      // The candidates of a filter resolved through the metadata index are scored exactly, whatever the search mode
+      int[] candidates = store.prefilter(request.filter());
+      if (candidates != null) {
+        return store.search(request, candidates, null);
+      }
+    }
+    float[] query = request.queryEmbedding().vector();
+    if (mode == SearchMode.QUANTIZED) {
+      QuantizedVectors codes = segment.codes(quantization);
+      if (codes != null) {
+        store.checkDimension(query);
+        QuantizedVectors.Candidates candidates =
+            codes.top(query, request.maxResults() * Math.max(rerankFactor, 1));
+        return store.search(request, candidates.indexes(), rerankFactor > 0 ? null : candidates.scores());
+      }
+    } else if (mode == SearchMode.HNSW) {
+      HnswIndex index = segment.index();
+      if (index != null) {
+        store.checkDimension(query);
+        return store.search(request, index.search(store, query, Math.max(efSearch, request.maxResults())), null);
+      }
+    }
+    return store.search(request);
+  }
+
+  @Override
+  public String add(Embedding embedding) {
+    throw readOnly();
+  }
+
+  @Override
+  public void add(String id, Embedding embedding) {
+    throw readOnly();
+  }
+
+  @Override
+  public String add(Embedding embedding, TextSegment segment) {
+    throw readOnly();
+  }
+
+  @Override
+  public List<String> addAll(List<Embedding> embeddings) {
+    throw readOnly();
+  }
+
+  @Override
+  public List<String> addAll(List<Embedding> embeddings, List<TextSegment> segments) {
+    throw readOnly();
+  }
+
+  private static UnsupportedOperationException readOnly() {
+    return new UnsupportedOperationException("Binary embedding stores are read-only, entries are added with append");
+  }
+
+  /**
+   * Segment of the store, with its HNSW index and quantized vectors loaded on first use.
+   */
+  private static final class Segment {
+
+    private final MappedEmbeddingStore store;
+    private final Path file;
+    private HnswIndex index;
+    private boolean indexLoaded;
+    private QuantizedVectors codes;
+    private boolean codesLoaded;
+
+    private Segment(MappedEmbeddingStore store, Path file) {
+      this.store = store;
+      this.file = file;
+    }
+
+    /**
+     * @return The index of the segment, or null if it has none
+     */
+    private synchronized HnswIndex index() {
+      if (!indexLoaded) {
+        Path indexPath = HnswIndex.indexPath(file);
+        try {
+          index = Files.exists(indexPath) ? HnswIndex.load(indexPath) : null;
+        } catch (IOException e) {
+          LOGGER.warn("Unable to load the index {}, the segment is scanned instead", indexPath, e);
+        }
+        indexLoaded = true;
+      }
+      return index;
+    }
+
+    /**
+     * @return The quantized vectors of the segment, or null if it has none
+     */
+    private synchronized QuantizedVectors codes(VectorQuantization quantization) {
+      if (!codesLoaded) {
+        Path codesPath = quantization != VectorQuantization.NONE ? QuantizedVectors.codesPath(file, quantization) : null;
+        try {
+          codes = codesPath != null && Files.exists(codesPath) ? QuantizedVectors.load(codesPath, quantization) : null;
+        } catch (IOException e) {
+          LOGGER.warn("Unable to load the quantized vectors {}, the segment is scanned instead", codesPath, e);
+        }
+        codesLoaded = true;
+      }
+      return codes;
+    }
+  }
+
+  private static final class Manifest {
+
+    private List<String> files = new ArrayList<>();
+    private long next = 1;
+    private int m = HnswIndex.DEFAULT_M;
+    private int efConstruction = HnswIndex.DEFAULT_EF_CONSTRUCTION;
+    private VectorQuantization quantization = VectorQuantization.NONE;
+  }
+}
@@ -0,0 +1,261 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.PoolingMode;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2q.AllMiniLmL6V2QuantizedEmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.mule.extension.mulechain.api.config.EmbeddingPoolingMode;
+import org.mule.extension.mulechain.internal.util.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide holder of the in-process ONNX embedding models. Configurations retain the model matching their settings
+ * while they are alive and release it when disposed; each ONNX session is loaded lazily on first use and closed once the
+ * last configuration releases it and no call is running on it. Operations embed through
+ * {@link #delegate(EmbeddingModelSettings)} with the settings of their configuration, which resolves the live model on
+ * every call and marks it in use for the duration of the call, so that a session is never closed under a running
+ * inference.
+ * <p>
+ * The bookkeeping is guarded by the class lock, which is never held while a session loads: each model is loaded under
+ * the lock of its own holder, so that loading a model does not block the calls on the other ones.
+ */
+public final class SharedEmbeddingModel {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SharedEmbeddingModel.class);
+
+  private static final int MINILM_DIMENSION = 384;
+
+  private static final Map<EmbeddingModelSettings, Holder> MODELS = new LinkedHashMap<>();
+
+  private SharedEmbeddingModel() {}
+
+  /**
+   * Registers a user of the model matching the given settings.
+   *
+   * @param settings Settings requested by the caller
+   */
+  public static synchronized void retain(EmbeddingModelSettings settings) {
+    Holder holder = holder(settings);
+    if (!holder.settings.hasSameThreading(settings)) {
+      LOGGER.warn("Embedding model {} is already shared with {}, ignoring the threading of {}", settings.getModelId(),
+                  holder.settings, settings);
+    }
+    holder.references++;
+  }
+
+  /**
+   * Unregisters a user of the model matching the given settings, closing its ONNX session when no user is left.
+   *
+   * @param settings Settings passed to {@link #retain(EmbeddingModelSettings)}
+   */
+  public static synchronized void release(EmbeddingModelSettings settings) {
+    Holder holder = MODELS.get(settings);
+    if (holder == null || holder.references == 0) {
+      return;
+    }
+    holder.references--;
+    if (holder.references == 0) {
+      MODELS.remove(settings);
+      holder.retire();
+    }
+  }
+
+  /**
+   * Marks the model matching the settings in use, loading it if needed. A holder in use is never closed, so the model is
+   * loaded outside of the class lock.
+   *
+   * @param settings Settings of the model
+   * @return The holder of the model, to pass to {@link #finish(Holder)} once the call completes
+   */
+  private static Holder acquire(EmbeddingModelSettings settings) {
+    Holder holder;
+    synchronized (SharedEmbeddingModel.class) {
+      holder = holder(settings);
+      holder.inFlight++;
+    }
+    try {
+      holder.ensureLoaded();
+    } catch (RuntimeException e) {
+      finish(holder);
+      throw e;
+    }
+    return holder;
+  }
+
+  private static synchronized void finish(Holder holder) {
+    holder.inFlight--;
+    if (holder.retired && holder.inFlight == 0) {
+      holder.close();
+    }
+  }
+
+  /**
+   * @param settings Settings of the model
+   * @return A stable embedding model that forwards every call to the live model matching the settings
+   */
+  public static EmbeddingModel delegate(EmbeddingModelSettings settings) {
+    return new DelegatingEmbeddingModel(settings);
+  }
+
+  private static Holder holder(EmbeddingModelSettings settings) {
+    Holder holder = MODELS.get(settings);
+    if (holder == null) {
+      // Models used after their last configuration released them are not retained, drop the ones no call is running on
+      Iterator<Holder> iterator = MODELS.values().iterator();
+      while (iterator.hasNext()) {
+        Holder unused = iterator.next();
+        if (unused.references == 0 && unused.inFlight == 0) {
+          unused.close();
+          iterator.remove();
+        }
+      }
+      holder = new Holder(settings);
+      MODELS.put(settings, holder);
+    }
+    return holder;
+  }
+
+  private static class Holder {
+
+    private final EmbeddingModelSettings settings;
+    private int references;
+    private int inFlight;
+    private boolean retired;
+    private volatile OnnxSessionEmbeddingModel model;
+    private ExecutorService inferenceExecutor;
+
+    Holder(EmbeddingModelSettings settings) {
+      this.settings = settings;
+    }
+
+    synchronized void ensureLoaded() {
+      if (model == null) {
+        load();
+      }
+    }
+
+    private void load() {
+      long start = System.currentTimeMillis();
+      inferenceExecutor = settings.getInferenceThreads() > 0
+          ? Executors.newFixedThreadPool(settings.getInferenceThreads(), new NamedThreadFactory("mulechain-embedding"))
+          : null;
+      try (InputStream modelStream = openModel();
+          InputStream tokenizerStream = openTokenizer()) {
+        Integer knownDimension = settings.getModelPath() == null ? MINILM_DIMENSION : null;
+        PoolingMode poolingMode =
+            settings.getPoolingMode() == EmbeddingPoolingMode.CLS ? PoolingMode.CLS : PoolingMode.MEAN;
+        model = new OnnxSessionEmbeddingModel(modelStream, tokenizerStream, poolingMode, knownDimension, settings,
+                                              inferenceExecutor);
+        LOGGER.info("Shared embedding model loaded in {} ms with {}", System.currentTimeMillis() - start, settings);
+      } catch (Exception e) {
+        close();
+        throw new IllegalStateException("Unable to load the embedding model " + settings.getModelId(), e);
+      }
+    }
+
+    private InputStream openModel() throws Exception {
+      switch (settings.getModelType()) {
+        case ALL_MINILM_L6_V2_QUANTIZED:
+          return resource(AllMiniLmL6V2QuantizedEmbeddingModel.class, "/all-minilm-l6-v2-q.onnx");
+        case CUSTOM_ONNX:
+          return Files.newInputStream(Paths.get(settings.getModelPath()));
+        case ALL_MINILM_L6_V2:
+        default:
+          return resource(AllMiniLmL6V2EmbeddingModel.class, "/all-minilm-l6-v2.onnx");
+      }
+    }
+
+    private InputStream openTokenizer() throws Exception {
+      switch (settings.getModelType()) {
+        case ALL_MINILM_L6_V2_QUANTIZED:
+          return resource(AllMiniLmL6V2QuantizedEmbeddingModel.class, "/all-minilm-l6-v2-q-tokenizer.json");
+        case CUSTOM_ONNX:
+          return Files.newInputStream(Paths.get(settings.getTokenizerPath()));
+        case ALL_MINILM_L6_V2:
+        default:
+          return resource(AllMiniLmL6V2EmbeddingModel.class, "/all-minilm-l6-v2-tokenizer.json");
+      }
+    }
+
+    private static InputStream resource(Class<?> owner, String name) throws FileNotFoundException {
+      InputStream stream = owner.getResourceAsStream(name);
+      if (stream == null) {
+        throw new FileNotFoundException("Resource not found on the classpath: " + name);
+      }
+      return stream;
+    }
+
+    /**
+     * Closes the model once the calls running on it complete.
+     */
+    void retire() {
+      retired = true;
+      if (inFlight == 0) {
+        close();
+      }
+    }
+
+    void close() {
+      if (model != null) {
+        try {
+          model.close();
+        } catch (Exception e) {
+          LOGGER.warn("Unable to close the embedding model session: {}", e.getMessage());
+        }
+        model = null;
+        LOGGER.debug("Shared embedding model {} released", settings.getModelId());
+      }
+      if (inferenceExecutor != null) {
+        inferenceExecutor.shutdown();
+        inferenceExecutor = null;
+      }
+    }
+  }
+
+  private static class DelegatingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModelSettings settings;
+
+    DelegatingEmbeddingModel(EmbeddingModelSettings settings) {
+      this.settings = settings;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+      Holder holder = acquire(settings);
+      try {
+        return holder.model.embedAll(textSegments);
+      } finally {
+        finish(holder);
+      }
+    }
+
+    @Override
+    public int dimension() {
+      Holder holder = acquire(settings);
+      try {
+        return holder.model.dimension();
+      } finally {
+        finish(holder);
+      }
+    }
+  }
+}
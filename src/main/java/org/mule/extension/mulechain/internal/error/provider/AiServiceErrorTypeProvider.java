@@ -6,18 +6,19 @@ package org.mule.extension.mulechain.internal.error.provider;
 import org.mule.runtime.extension.api.annotation.error.ErrorTypeProvider;
 import org.mule.runtime.extension.api.error.ErrorTypeDefinition;
 
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.unmodifiableSet;
 import static org.mule.extension.mulechain.internal.error.MuleChainErrorType.AI_SERVICES_FAILURE;
+import static org.mule.extension.mulechain.internal.error.MuleChainErrorType.TOKEN_BUDGET_EXCEEDED;
 
 public class AiServiceErrorTypeProvider implements ErrorTypeProvider {
 
   @SuppressWarnings("rawtypes")
   @Override
   public Set<ErrorTypeDefinition> getErrorTypes() {
-    return unmodifiableSet(new HashSet<>(Collections.singletonList(AI_SERVICES_FAILURE)));
+    return unmodifiableSet(new HashSet<>(asList(AI_SERVICES_FAILURE, TOKEN_BUDGET_EXCEEDED)));
   }
 }
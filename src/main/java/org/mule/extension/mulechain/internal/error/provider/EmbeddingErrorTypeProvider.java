@@ -15,6 +15,7 @@ import static org.mule.extension.mulechain.internal.error.MuleChainErrorType.AI_
 import static org.mule.extension.mulechain.internal.error.MuleChainErrorType.EMBEDDING_OPERATIONS_FAILURE;
 import static org.mule.extension.mulechain.internal.error.MuleChainErrorType.FILE_HANDLING_FAILURE;
 import static org.mule.extension.mulechain.internal.error.MuleChainErrorType.RAG_FAILURE;
+import static org.mule.extension.mulechain.internal.error.MuleChainErrorType.TOKEN_BUDGET_EXCEEDED;
 import static org.mule.extension.mulechain.internal.error.MuleChainErrorType.TOOLS_OPERATION_FAILURE;
 
 public class EmbeddingErrorTypeProvider implements ErrorTypeProvider {
@@ -23,6 +24,6 @@ public class EmbeddingErrorTypeProvider implements ErrorTypeProvider {
   @Override
   public Set<ErrorTypeDefinition> getErrorTypes() {
     return unmodifiableSet(new HashSet<>(asList(EMBEDDING_OPERATIONS_FAILURE, AI_SERVICES_FAILURE, RAG_FAILURE,
-                                                FILE_HANDLING_FAILURE, TOOLS_OPERATION_FAILURE)));
+                                                FILE_HANDLING_FAILURE, TOOLS_OPERATION_FAILURE, TOKEN_BUDGET_EXCEEDED)));
   }
 }
@@ -15,6 +15,7 @@ import static org.mule.extension.mulechain.internal.error.MuleChainErrorType.FIL
 import static org.mule.extension.mulechain.internal.error.MuleChainErrorType.IMAGE_ANALYSIS_FAILURE;
 import static org.mule.extension.mulechain.internal.error.MuleChainErrorType.IMAGE_GENERATION_FAILURE;
 import static org.mule.extension.mulechain.internal.error.MuleChainErrorType.IMAGE_PROCESSING_FAILURE;
+import static org.mule.extension.mulechain.internal.error.MuleChainErrorType.TOKEN_BUDGET_EXCEEDED;
 
 public class ImageErrorTypeProvider implements ErrorTypeProvider {
 
@@ -22,6 +23,6 @@ public class ImageErrorTypeProvider implements ErrorTypeProvider {
   @Override
   public Set<ErrorTypeDefinition> getErrorTypes() {
     return unmodifiableSet(new HashSet<>(asList(IMAGE_ANALYSIS_FAILURE, IMAGE_GENERATION_FAILURE, IMAGE_PROCESSING_FAILURE,
-                                                FILE_HANDLING_FAILURE)));
+                                                FILE_HANDLING_FAILURE, TOKEN_BUDGET_EXCEEDED)));
   }
 }
@@ -0,0 +1,201 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.helpers;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.input.PromptTemplate;
+import dev.langchain4j.model.output.Response;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.mule.extension.mulechain.api.metadata.TokenUsage;
+import org.mule.extension.mulechain.internal.constants.MuleChainConstants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.UnaryOperator;
+
+/**
+ * Helper service that answers a batch of prompts concurrently. Items are independent: a failing item is reported with
+ * its error and never fails the rest of the batch. Results keep the order of the input.
+ */
+public final class BatchChatService {
+
+  private BatchChatService() {}
+
+  /**
+   * Outcome of one prompt of the batch.
+   */
+  public static final class ItemResult {
+
+    private final int index;
+    private final String response;
+    private final String error;
+    private final TokenUsage tokenUsage;
+
+    private ItemResult(int index, String response, String error, TokenUsage tokenUsage) {
+      this.index = index;
+      this.response = response;
+      this.error = error;
+      this.tokenUsage = tokenUsage;
+    }
+
+    public int getIndex() {
+      return index;
+    }
+
+    public String getResponse() {
+      return response;
+    }
+
+    public String getError() {
+      return error;
+    }
+
+    public TokenUsage getTokenUsage() {
+      return tokenUsage;
+    }
+
+    public boolean isSuccess() {
+      return error == null;
+    }
+  }
+
+  /**
+   * Builds the prompts of the batch from a JSON array. String items are used as they are; object items are treated as
+   * variable sets and applied to the template.
+   *
+   * @param prompts  JSON array of prompts or variable sets
+   * @param template Prompt template with {{variable}} placeholders, required when the array holds objects
+   * @return The prompts in input order
+   */
+  public static List<String> toPrompts(String prompts, String template) {
+    JSONArray items = new JSONArray(prompts);
+    PromptTemplate promptTemplate = template != null && !template.trim().isEmpty() ? PromptTemplate.from(template) : null;
+    List<String> result = new ArrayList<>(items.length());
+    for (int i = 0; i < items.length(); i++) {
+      Object item = items.get(i);
+      if (item instanceof JSONObject) {
+        if (promptTemplate == null) {
+          throw new IllegalArgumentException("Item " + i + " is a variable set but no template was provided");
+        }
+        result.add(promptTemplate.apply(((JSONObject) item).toMap()).text());
+      } else {
+        result.add(String.valueOf(item));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Sends every prompt to the model on the given executor and waits for all of them.
+   *
+   * @param model    Chat model of the configuration
+   * @param prompts  Prompts to answer
+   * @param executor Executor bounding the number of concurrent requests
+   * @return One result per prompt, in input order
+   */
+  public static List<ItemResult> execute(ChatLanguageModel model, List<String> prompts, Executor executor) {
+    return execute(model, prompts, UnaryOperator.identity(), executor);
+  }
+
+  /**
+   * Sends every prompt to the model on the given executor and waits for all of them. Each prompt is first sized by the
+   * budget, whose failure is reported as the error of its item.
+   *
+   * @param model    Chat model of the configuration
+   * @param prompts  Prompts to answer
+   * @param budget   Sizing of a prompt, returning the prompt to send
+   * @param executor Executor bounding the number of concurrent requests
+   * @return One result per prompt, in input order
+   */
+  public static List<ItemResult> execute(ChatLanguageModel model, List<String> prompts, UnaryOperator<String> budget,
+                                         Executor executor) {
+    List<CompletableFuture<ItemResult>> futures = new ArrayList<>(prompts.size());
+    for (int i = 0; i < prompts.size(); i++) {
+      final int index = i;
+      final String prompt = prompts.get(i);
+      futures.add(CompletableFuture.supplyAsync(() -> answer(model, index, prompt, budget), executor));
+    }
+    List<ItemResult> results = new ArrayList<>(futures.size());
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        results.add(futures.get(i).get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        results.add(new ItemResult(i, null, "Interrupted while waiting for the response", null));
+      } catch (ExecutionException e) {
+        results.add(new ItemResult(i, null, String.valueOf(e.getCause().getMessage()), null));
+      }
+    }
+    return results;
+  }
+
+  private static ItemResult answer(ChatLanguageModel model, int index, String prompt, UnaryOperator<String> budget) {
+    try {
+      Response<AiMessage> response = model.generate(UserMessage.from(budget.apply(prompt)));
+      TokenUsage tokenUsage = response.tokenUsage() != null
+          ? new TokenUsage(response.tokenUsage().inputTokenCount(), response.tokenUsage().outputTokenCount(),
+                           response.tokenUsage().totalTokenCount())
+          : null;
+      return new ItemResult(index, response.content().text(), null, tokenUsage);
+    } catch (Exception e) {
+      return new ItemResult(index, null, String.valueOf(e.getMessage()), null);
+    }
+  }
+
+  /**
+   * @param results Results of the batch
+   * @return Sum of the token usage of all items, or null when no item reported usage
+   */
+  public static TokenUsage aggregateTokenUsage(List<ItemResult> results) {
+    int input = 0;
+    int output = 0;
+    int total = 0;
+    boolean reported = false;
+    for (ItemResult result : results) {
+      TokenUsage usage = result.getTokenUsage();
+      if (usage != null) {
+        input += usage.getInputCount();
+        output += usage.getOutputCount();
+        total += usage.getTotalCount();
+        reported = true;
+      }
+    }
+    return reported ? new TokenUsage(input, output, total) : null;
+  }
+
+  /**
+   * @param results Results of the batch
+   * @return The JSON payload of the batch operation
+   */
+  public static JSONObject toJson(List<ItemResult> results) {
+    JSONArray items = new JSONArray();
+    for (ItemResult result : results) {
+      JSONObject item = new JSONObject();
+      item.put(MuleChainConstants.INDEX, result.getIndex());
+      if (result.isSuccess()) {
+        item.put(MuleChainConstants.RESPONSE, result.getResponse());
+      } else {
+        item.put(MuleChainConstants.ERROR, result.getError());
+      }
+      TokenUsage usage = result.getTokenUsage();
+      if (usage != null) {
+        JSONObject tokenUsage = new JSONObject();
+        tokenUsage.put(MuleChainConstants.INPUT_COUNT, usage.getInputCount());
+        tokenUsage.put(MuleChainConstants.OUTPUT_COUNT, usage.getOutputCount());
+        tokenUsage.put(MuleChainConstants.TOTAL_COUNT, usage.getTotalCount());
+        item.put(MuleChainConstants.TOKEN_USAGE, tokenUsage);
+      }
+      items.put(item);
+    }
+    JSONObject jsonObject = new JSONObject();
+    jsonObject.put(MuleChainConstants.RESPONSES, items);
+    return jsonObject;
+  }
+}
@@ -0,0 +1,263 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.helpers;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.mule.extension.mulechain.api.metadata.TokenUsage;
+import org.mule.extension.mulechain.internal.constants.MuleChainConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.UnaryOperator;
+
+/**
+ * Helper service scoring the sentiment of many texts with few requests. Texts are packed into requests under a token
+ * budget and the model answers with the score of every text by index. Texts whose score is missing or unreadable are
+ * packed again and retried; the other texts of the request are kept.
+ */
+public final class BatchSentimentService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchSentimentService.class);
+
+  /** Rough number of characters per token, used to estimate the size of a text without a provider tokenizer. */
+  private static final int CHARS_PER_TOKEN = 4;
+  /** Tokens taken by the index and JSON punctuation of an item, in the request and in the answer. */
+  private static final int TOKENS_PER_ITEM = 12;
+  private static final int INSTRUCTION_TOKENS = 80;
+
+  private static final String INSTRUCTIONS = "Analyze the sentiment of each text of the JSON array sent by the user. "
+      + "Answer only with a JSON array holding one object per text, with the fields \"index\" (the index of the text) "
+      + "and \"score\" (a number from -1 for very negative to 1 for very positive, 0 being neutral).";
+
+  private BatchSentimentService() {}
+
+  /**
+   * Outcome of the batch: the score or error of every text, and the number of requests sent.
+   */
+  public static final class BatchResult {
+
+    private final Double[] scores;
+    private final String[] errors;
+    private final TokenUsage tokenUsage;
+    private final int requestCount;
+
+    private BatchResult(Double[] scores, String[] errors, TokenUsage tokenUsage, int requestCount) {
+      this.scores = scores;
+      this.errors = errors;
+      this.tokenUsage = tokenUsage;
+      this.requestCount = requestCount;
+    }
+
+    public int size() {
+      return scores.length;
+    }
+
+    /**
+     * @return The score of the text, or null when it could not be scored
+     */
+    public Double getScore(int index) {
+      return scores[index];
+    }
+
+    /**
+     * @return Why the text could not be scored, or null when it was scored
+     */
+    public String getError(int index) {
+      return errors[index];
+    }
+
+    public TokenUsage getTokenUsage() {
+      return tokenUsage;
+    }
+
+    public int getRequestCount() {
+      return requestCount;
+    }
+  }
+
+  /**
+   * @param texts JSON array of texts
+   * @return The texts in input order
+   */
+  public static List<String> toTexts(String texts) {
+    JSONArray items = new JSONArray(texts);
+    List<String> result = new ArrayList<>(items.length());
+    for (int i = 0; i < items.length(); i++) {
+      result.add(String.valueOf(items.get(i)));
+    }
+    return result;
+  }
+
+  /**
+   * Scores every text, packing them into requests sent concurrently.
+   *
+   * @param model                Chat model of the configuration
+   * @param texts                Texts to score
+   * @param maxTokensPerRequest  Estimated token budget of a request, prompt and answer included
+   * @param maxRetries           Number of times the texts without a readable score are sent again
+   * @param executor             Executor bounding the number of concurrent requests
+   * @return The score or error of every text
+   */
+  public static BatchResult analyze(ChatLanguageModel model, List<String> texts, int maxTokensPerRequest, int maxRetries,
+                                    Executor executor) {
+    return analyze(model, texts, UnaryOperator.identity(), maxTokensPerRequest, maxRetries, executor);
+  }
+
+  /**
+   * Scores every text, packing them into requests sent concurrently. Each text is first sized by the budget; a text it
+   * rejects is reported with the error and never sent.
+   *
+   * @param model                Chat model of the configuration
+   * @param inputs               Texts to score
+   * @param budget               Sizing of a text, returning the text to send
+   * @param maxTokensPerRequest  Estimated token budget of a request, prompt and answer included
+   * @param maxRetries           Number of times the texts without a readable score are sent again
+   * @param executor             Executor bounding the number of concurrent requests
+   * @return The score or error of every text
+   */
+  public static BatchResult analyze(ChatLanguageModel model, List<String> inputs, UnaryOperator<String> budget,
+                                    int maxTokensPerRequest, int maxRetries, Executor executor) {
+    Double[] scores = new Double[inputs.size()];
+    String[] errors = new String[inputs.size()];
+    TokenUsage tokenUsage = null;
+    int requestCount = 0;
+
+    List<String> texts = new ArrayList<>(inputs.size());
+    List<Integer> pending = new ArrayList<>(inputs.size());
+    for (int i = 0; i < inputs.size(); i++) {
+      try {
+        texts.add(budget.apply(inputs.get(i)));
+        pending.add(i);
+      } catch (RuntimeException e) {
+        texts.add(null);
+        errors[i] = String.valueOf(e.getMessage());
+      }
+    }
+    for (int attempt = 0; attempt <= maxRetries && !pending.isEmpty(); attempt++) {
+      List<List<Integer>> requests = pack(texts, pending, maxTokensPerRequest);
+      List<CompletableFuture<Response<AiMessage>>> futures = new ArrayList<>(requests.size());
+      for (List<Integer> request : requests) {
+        futures.add(CompletableFuture.supplyAsync(() -> send(model, texts, request), executor));
+      }
+      requestCount += requests.size();
+
+      List<Integer> failed = new ArrayList<>();
+      for (int r = 0; r < requests.size(); r++) {
+        List<Integer> request = requests.get(r);
+        try {
+          Response<AiMessage> response = futures.get(r).join();
+          tokenUsage = ResponseHelper.sumTokenUsage(tokenUsage, ResponseHelper.toTokenUsage(response.tokenUsage()));
+          Map<Integer, Double> parsed = parse(response.content().text());
+          for (Integer index : request) {
+            Double score = parsed.get(index);
+            if (score != null) {
+              scores[index] = score;
+              errors[index] = null;
+            } else {
+              errors[index] = "The model did not return a readable score for this text";
+              failed.add(index);
+            }
+          }
+        } catch (Exception e) {
+          String message = String.valueOf(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+          for (Integer index : request) {
+            errors[index] = message;
+          }
+          failed.addAll(request);
+        }
+      }
+      if (!failed.isEmpty() && attempt < maxRetries) {
+        LOGGER.debug("Retrying the sentiment analysis of {} texts", failed.size());
+      }
+      pending = failed;
+    }
+    return new BatchResult(scores, errors, tokenUsage, requestCount);
+  }
+
+  /**
+   * Packs texts into requests whose estimated size stays under the token budget. A text larger than the budget gets a
+   * request of its own.
+   *
+   * @return The indexes of the texts of each request
+   */
+  static List<List<Integer>> pack(List<String> texts, List<Integer> indexes, int maxTokensPerRequest) {
+    List<List<Integer>> requests = new ArrayList<>();
+    List<Integer> current = new ArrayList<>();
+    int budget = INSTRUCTION_TOKENS;
+    for (Integer index : indexes) {
+      int tokens = estimateTokens(texts.get(index)) + TOKENS_PER_ITEM;
+      if (!current.isEmpty() && budget + tokens > maxTokensPerRequest) {
+        requests.add(current);
+        current = new ArrayList<>();
+        budget = INSTRUCTION_TOKENS;
+      }
+      current.add(index);
+      budget += tokens;
+    }
+    if (!current.isEmpty()) {
+      requests.add(current);
+    }
+    return requests;
+  }
+
+  static int estimateTokens(String text) {
+    return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+  }
+
+  private static Response<AiMessage> send(ChatLanguageModel model, List<String> texts, List<Integer> request) {
+    JSONArray items = new JSONArray();
+    for (Integer index : request) {
+      JSONObject item = new JSONObject();
+      item.put(MuleChainConstants.INDEX, index);
+      item.put("text", texts.get(index));
+      items.put(item);
+    }
+    return model.generate(Arrays.asList(SystemMessage.from(INSTRUCTIONS), UserMessage.from(items.toString())));
+  }
+
+  /**
+   * Reads the scores of an answer. Items that are not objects with a numeric index and score are skipped, so that only
+   * their texts are retried.
+   */
+  static Map<Integer, Double> parse(String text) {
+    Map<Integer, Double> scores = new HashMap<>();
+    int start = text != null ? text.indexOf('[') : -1;
+    int end = text != null ? text.lastIndexOf(']') : -1;
+    if (start < 0 || end < start) {
+      return scores;
+    }
+    JSONArray items;
+    try {
+      items = new JSONArray(text.substring(start, end + 1));
+    } catch (JSONException e) {
+      return scores;
+    }
+    for (int i = 0; i < items.length(); i++) {
+      JSONObject item = items.optJSONObject(i);
+      if (item == null) {
+        continue;
+      }
+      double score = item.optDouble("score", Double.NaN);
+      int index = item.optInt(MuleChainConstants.INDEX, -1);
+      if (index >= 0 && !Double.isNaN(score)) {
+        scores.put(index, Math.max(-1.0, Math.min(1.0, score)));
+      }
+    }
+    return scores;
+  }
+}
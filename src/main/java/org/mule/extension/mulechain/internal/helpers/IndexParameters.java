@@ -0,0 +1,43 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.helpers;
+
+import org.mule.extension.mulechain.api.config.VectorQuantization;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+public class IndexParameters {
+
+  @Parameter
+  @Optional(defaultValue = "16")
+  @DisplayName("HNSW M")
+  @Summary("Neighbours linked to each entry of a binary store per layer of its HNSW index; higher values improve recall and use more memory")
+  private int hnswM = 16;
+
+  @Parameter
+  @Optional(defaultValue = "200")
+  @DisplayName("HNSW efConstruction")
+  @Summary("Candidates explored while indexing an entry of a binary store; higher values build a better index more slowly")
+  private int hnswEfConstruction = 200;
+
+  @Parameter
+  @Optional(defaultValue = "NONE")
+  @DisplayName("Vector quantization")
+  @Summary("Compressed copy kept of the vectors of a binary store, scanned by quantized searches instead of the full precision vectors")
+  private VectorQuantization quantization = VectorQuantization.NONE;
+
+  public int getHnswM() {
+    return hnswM;
+  }
+
+  public int getHnswEfConstruction() {
+    return hnswEfConstruction;
+  }
+
+  public VectorQuantization getQuantization() {
+    return quantization;
+  }
+}
@@ -0,0 +1,122 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.helpers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes the JSON payload of an operation with a streaming generator into a chunked byte buffer, and hands the chunks
+ * over as the output stream of the operation. Unlike building a {@code JSONObject} and converting it to a string, the
+ * payload is never held as a tree, a string and a byte array at the same time, and the buffer never copies bytes to
+ * grow.
+ */
+public final class JsonResponseWriter {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private static final int FIRST_CHUNK_SIZE = 1024;
+  private static final int MAX_CHUNK_SIZE = 64 * 1024;
+
+  private final ChunkedOutputStream buffer = new ChunkedOutputStream();
+  private final JsonGenerator generator;
+
+  public JsonResponseWriter() {
+    try {
+      generator = JSON_FACTORY.createGenerator(buffer);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @return The generator to write the payload with
+   */
+  public JsonGenerator generator() {
+    return generator;
+  }
+
+  /**
+   * Writes a string field, skipping it when the value is null as {@code JSONObject.put} does.
+   */
+  public static void writeOptionalField(JsonGenerator generator, String name, String value) throws IOException {
+    if (value != null) {
+      generator.writeStringField(name, value);
+    }
+  }
+
+  /**
+   * Completes the payload. The writer must not be used afterwards.
+   *
+   * @return A stream over the written bytes
+   */
+  public InputStream toInputStream() {
+    try {
+      generator.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return buffer.toInputStream();
+  }
+
+  /**
+   * Output stream appending to chunks of growing size, so that growing never copies the bytes written so far.
+   */
+  static final class ChunkedOutputStream extends OutputStream {
+
+    private final List<byte[]> chunks = new ArrayList<>();
+    private byte[] current = new byte[FIRST_CHUNK_SIZE];
+    private int position;
+
+    @Override
+    public void write(int b) {
+      if (position == current.length) {
+        nextChunk();
+      }
+      current[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      while (length > 0) {
+        if (position == current.length) {
+          nextChunk();
+        }
+        int count = Math.min(length, current.length - position);
+        System.arraycopy(bytes, offset, current, position, count);
+        position += count;
+        offset += count;
+        length -= count;
+      }
+    }
+
+    private void nextChunk() {
+      chunks.add(current);
+      current = new byte[Math.min(current.length * 2, MAX_CHUNK_SIZE)];
+      position = 0;
+    }
+
+    InputStream toInputStream() {
+      if (chunks.isEmpty()) {
+        return new ByteArrayInputStream(current, 0, position);
+      }
+      List<InputStream> streams = new ArrayList<>(chunks.size() + 1);
+      for (byte[] chunk : chunks) {
+        streams.add(new ByteArrayInputStream(chunk));
+      }
+      streams.add(new ByteArrayInputStream(current, 0, position));
+      return new SequenceInputStream(Collections.enumeration(streams));
+    }
+  }
+}
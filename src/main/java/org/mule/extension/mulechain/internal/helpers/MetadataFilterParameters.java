@@ -0,0 +1,48 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.helpers;
+
+import org.mule.extension.mulechain.api.config.MetadataFilterKey;
+import org.mule.extension.mulechain.api.config.MetadataFilterOperator;
+import org.mule.runtime.extension.api.annotation.param.NullSafe;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+import java.util.List;
+
+public class MetadataFilterParameters {
+
+  @Parameter
+  @Optional
+  @DisplayName("Filter metadata")
+  @Summary("Source metadata the query is restricted on; every entry of the store is searched when not set")
+  private MetadataFilterKey filterKey;
+
+  @Parameter
+  @Optional(defaultValue = "EQUALS")
+  @DisplayName("Filter operator")
+  @Summary("Whether the metadata must equal the value, start with one of the values or equal one of the values")
+  private MetadataFilterOperator filterOperator = MetadataFilterOperator.EQUALS;
+
+  @Parameter
+  @Optional
+  @NullSafe
+  @DisplayName("Filter values")
+  @Summary("Values compared with the metadata, such as a directory path for a PREFIX filter")
+  private List<String> filterValues;
+
+  public MetadataFilterKey getFilterKey() {
+    return filterKey;
+  }
+
+  public MetadataFilterOperator getFilterOperator() {
+    return filterOperator;
+  }
+
+  public List<String> getFilterValues() {
+    return filterValues;
+  }
+}
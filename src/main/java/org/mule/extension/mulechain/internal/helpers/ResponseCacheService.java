@@ -0,0 +1,146 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.helpers;
+
+import dev.langchain4j.data.message.UserMessage;
+import org.mule.extension.mulechain.api.metadata.ConfidenceScore;
+import org.mule.extension.mulechain.api.metadata.LLMResponseAttributes;
+import org.mule.extension.mulechain.api.metadata.TokenUsage;
+import org.mule.extension.mulechain.internal.cache.CachedResponse;
+import org.mule.extension.mulechain.internal.cache.ExactResponseCache;
+import org.mule.extension.mulechain.internal.cache.SemanticResponseCache;
+import org.mule.extension.mulechain.internal.config.LangchainLLMConfiguration;
+import org.mule.extension.mulechain.internal.constants.MuleChainConstants;
+import org.mule.runtime.extension.api.runtime.operation.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static dev.langchain4j.data.message.ChatMessageSerializer.messagesToJson;
+import static org.mule.extension.mulechain.internal.helpers.ResponseHelper.createLLMResponse;
+
+/**
+ * Helper service putting the response caches of a configuration in front of an operation. The exact cache is only used
+ * for deterministic calls (temperature 0) and is looked up first; the semantic cache is looked up next. A failing cache is
+ * logged and treated as a miss, it never fails the operation.
+ */
+public final class ResponseCacheService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCacheService.class);
+
+  private static final String EXACT = "exact";
+  private static final String SEMANTIC = "semantic";
+
+  private ResponseCacheService() {}
+
+  /**
+   * Outcome of the cache lookups of a prompt.
+   */
+  public static final class Lookup {
+
+    private String exactKey;
+    private SemanticResponseCache.Lookup semantic;
+    private CachedResponse hit;
+    private String cacheType;
+
+    public boolean isHit() {
+      return hit != null;
+    }
+
+    private boolean isEnabled() {
+      return exactKey != null || semantic != null;
+    }
+  }
+
+  /**
+   * Looks up the response of a prompt in the caches of the configuration.
+   *
+   * @param configuration Configuration owning the caches
+   * @param operation     Operation answering the prompt, responses are never shared across operations
+   * @param prompt        The prompt sent to the LLM
+   * @return The lookup, to be passed back once the response is computed
+   */
+  public static Lookup lookup(LangchainLLMConfiguration configuration, String operation, String prompt) {
+    Lookup lookup = new Lookup();
+
+    ExactResponseCache exactCache = configuration.getExactCache();
+    if (exactCache != null && configuration.getTemperature() == 0) {
+      try {
+        String prefix = configuration.getLlmType() + "/" + configuration.getModelName() + "/" + operation + "/";
+        lookup.exactKey = ExactResponseCache.key(prefix, configuration.getModelScope(),
+                                                 messagesToJson(Collections.singletonList(UserMessage.from(prompt))));
+        lookup.hit = exactCache.get(lookup.exactKey);
+        if (lookup.hit != null) {
+          lookup.cacheType = EXACT;
+          return lookup;
+        }
+      } catch (Exception e) {
+        LOGGER.warn("Exact cache lookup failed, calling the LLM: {}", e.getMessage());
+        lookup.exactKey = null;
+      }
+    }
+
+    SemanticResponseCache semanticCache = configuration.getSemanticCache();
+    if (semanticCache != null) {
+      try {
+        lookup.semantic = semanticCache.lookup(configuration.getModelScope() + "|" + operation, prompt);
+        if (lookup.semantic.isHit()) {
+          lookup.hit = lookup.semantic.getResponse();
+          lookup.cacheType = SEMANTIC;
+        }
+      } catch (Exception e) {
+        LOGGER.warn("Semantic cache lookup failed, calling the LLM: {}", e.getMessage());
+      }
+    }
+    return lookup;
+  }
+
+  /**
+   * Builds the operation result of a cache hit. No token is consumed by a hit, so the token usage is zero.
+   *
+   * @param lookup A lookup that hit
+   * @return The operation result
+   */
+  public static Result<InputStream, LLMResponseAttributes> cachedResponse(Lookup lookup) {
+    Map<String, String> attributes = new HashMap<>();
+    attributes.put(MuleChainConstants.CACHED, String.valueOf(true));
+    attributes.put(MuleChainConstants.CACHE_TYPE, lookup.cacheType);
+    if (SEMANTIC.equals(lookup.cacheType)) {
+      attributes.put(MuleChainConstants.CACHE_SIMILARITY, String.valueOf(lookup.semantic.getSimilarity()));
+    }
+    LOGGER.debug("Answered from the {} cache", lookup.cacheType);
+    return createLLMResponse(lookup.hit.getResponse(), new TokenUsage(0, 0, 0), attributes,
+                             lookup.hit.getConfidenceScore());
+  }
+
+  /**
+   * Stores a response computed after a miss in every cache that was looked up.
+   *
+   * @return The response attributes, marking the response as not cached when a cache is enabled
+   */
+  public static Map<String, String> store(LangchainLLMConfiguration configuration, Lookup lookup, String response,
+                                          TokenUsage tokenUsage, ConfidenceScore confidenceScore) {
+    Map<String, String> attributes = new HashMap<>();
+    if (!lookup.isEnabled()) {
+      return attributes;
+    }
+    CachedResponse cached = new CachedResponse(response, tokenUsage, confidenceScore);
+    try {
+      if (lookup.exactKey != null) {
+        configuration.getExactCache().put(lookup.exactKey, cached);
+      }
+      if (lookup.semantic != null) {
+        configuration.getSemanticCache().put(lookup.semantic, cached);
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Unable to cache the response: {}", e.getMessage());
+    }
+    attributes.put(MuleChainConstants.CACHED, String.valueOf(false));
+    return attributes;
+  }
+}
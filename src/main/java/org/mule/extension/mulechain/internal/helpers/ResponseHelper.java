@@ -20,6 +20,28 @@ public final class ResponseHelper {
 
   private ResponseHelper() {}
 
+  public static TokenUsage toTokenUsage(dev.langchain4j.model.output.TokenUsage tokenUsage) {
+    return tokenUsage != null ? new TokenUsage(tokenUsage.inputTokenCount(), tokenUsage.outputTokenCount(),
+                                               tokenUsage.totalTokenCount())
+        : null;
+  }
+
+  /**
+   * @return Sum of the token usages, ignoring the missing ones, or null when none is reported
+   */
+  public static TokenUsage sumTokenUsage(TokenUsage... tokenUsages) {
+    TokenUsage sum = null;
+    for (TokenUsage tokenUsage : tokenUsages) {
+      if (tokenUsage != null) {
+        sum = sum == null ? tokenUsage
+            : new TokenUsage(sum.getInputCount() + tokenUsage.getInputCount(),
+                             sum.getOutputCount() + tokenUsage.getOutputCount(),
+                             sum.getTotalCount() + tokenUsage.getTotalCount());
+      }
+    }
+    return sum;
+  }
+
   public static Result<InputStream, LLMResponseAttributes> createLLMResponse(String response,
                                                                              dev.langchain4j.service.Result<?> result,
                                                                              Map<String, String> responseAttributes) {
@@ -31,10 +53,7 @@ public final class ResponseHelper {
                                                                              Map<String, String> responseAttributes,
                                                                              ConfidenceScore confidenceScore) {
 
-    TokenUsage tokenUsage = result.tokenUsage() != null ? new TokenUsage(result.tokenUsage().inputTokenCount(),
-                                                                         result.tokenUsage().outputTokenCount(),
-                                                                         result.tokenUsage().totalTokenCount())
-        : null;
+    TokenUsage tokenUsage = toTokenUsage(result.tokenUsage());
 
     return createLLMResponse(response, tokenUsage, responseAttributes, confidenceScore);
   }
@@ -49,10 +68,7 @@ public final class ResponseHelper {
                                                                              Response<?> result,
                                                                              Map<String, String> responseAttributes,
                                                                              ConfidenceScore confidenceScore) {
-    TokenUsage tokenUsage = result.tokenUsage() != null ? new TokenUsage(result.tokenUsage().inputTokenCount(),
-                                                                         result.tokenUsage().outputTokenCount(),
-                                                                         result.tokenUsage().totalTokenCount())
-        : null;
+    TokenUsage tokenUsage = toTokenUsage(result.tokenUsage());
     return createLLMResponse(response, tokenUsage, responseAttributes, confidenceScore);
   }
 
@@ -66,35 +82,74 @@ public final class ResponseHelper {
                                                                              TokenUsage tokenUsage,
                                                                              Map<String, String> responseAttributes,
                                                                              ConfidenceScore confidenceScore) {
+    return llmResponse(toInputStream(response, StandardCharsets.UTF_8), tokenUsage, responseAttributes, confidenceScore);
+  }
 
+  public static Result<InputStream, LLMResponseAttributes> createLLMResponse(JsonResponseWriter response,
+                                                                             dev.langchain4j.service.Result<?> result,
+                                                                             Map<String, String> responseAttributes) {
+    return llmResponse(response.toInputStream(), toTokenUsage(result.tokenUsage()), responseAttributes, null);
+  }
+
+  public static Result<InputStream, LLMResponseAttributes> createLLMResponse(JsonResponseWriter response,
+                                                                             Response<?> result,
+                                                                             Map<String, String> responseAttributes) {
+    return llmResponse(response.toInputStream(), toTokenUsage(result.tokenUsage()), responseAttributes, null);
+  }
+
+  public static Result<InputStream, ScannedDocResponseAttributes> createLLMResponse(String response,
+                                                                                    List<ScannedDocResponseAttributes.DocResponseAttribute> docResponseAttributes,
+                                                                                    Map<String, String> responseAttributes) {
+    return scannedDocResponse(toInputStream(response, StandardCharsets.UTF_8), docResponseAttributes, responseAttributes);
+  }
+
+  public static Result<InputStream, ScannedDocResponseAttributes> createLLMResponse(JsonResponseWriter response,
+                                                                                    List<ScannedDocResponseAttributes.DocResponseAttribute> docResponseAttributes,
+                                                                                    Map<String, String> responseAttributes) {
+    return scannedDocResponse(response.toInputStream(), docResponseAttributes, responseAttributes);
+  }
+
+  public static Result<InputStream, Map<String, Object>> createLLMResponse(String response,
+                                                                           Map<String, Object> responseAttributes) {
+    return mapResponse(toInputStream(response, StandardCharsets.UTF_8), responseAttributes);
+  }
+
+  public static Result<InputStream, Map<String, Object>> createLLMResponse(JsonResponseWriter response,
+                                                                           Map<String, Object> responseAttributes) {
+    return mapResponse(response.toInputStream(), responseAttributes);
+  }
+
+  private static Result<InputStream, LLMResponseAttributes> llmResponse(InputStream output, TokenUsage tokenUsage,
+                                                                        Map<String, String> responseAttributes,
+                                                                        ConfidenceScore confidenceScore) {
     return Result.<InputStream, LLMResponseAttributes>builder()
         .attributes(new LLMResponseAttributes(tokenUsage, (HashMap<String, String>) responseAttributes,
                                               confidenceScore))
         .attributesMediaType(org.mule.runtime.api.metadata.MediaType.APPLICATION_JAVA)
-        .output(toInputStream(response, StandardCharsets.UTF_8))
+        .output(output)
         .mediaType(org.mule.runtime.api.metadata.MediaType.APPLICATION_JSON)
         .build();
   }
 
-  public static Result<InputStream, ScannedDocResponseAttributes> createLLMResponse(String response,
-                                                                                    List<ScannedDocResponseAttributes.DocResponseAttribute> docResponseAttributes,
-                                                                                    Map<String, String> responseAttributes) {
+  private static Result<InputStream, ScannedDocResponseAttributes> scannedDocResponse(InputStream output,
+                                                                                      List<ScannedDocResponseAttributes.DocResponseAttribute> docResponseAttributes,
+                                                                                      Map<String, String> responseAttributes) {
     return Result.<InputStream, ScannedDocResponseAttributes>builder()
         .attributes(new ScannedDocResponseAttributes(
                                                      (ArrayList<ScannedDocResponseAttributes.DocResponseAttribute>) docResponseAttributes,
                                                      (HashMap<String, String>) responseAttributes))
         .attributesMediaType(org.mule.runtime.api.metadata.MediaType.APPLICATION_JAVA)
-        .output(toInputStream(response, StandardCharsets.UTF_8))
+        .output(output)
         .mediaType(org.mule.runtime.api.metadata.MediaType.APPLICATION_JSON)
         .build();
   }
 
-  public static Result<InputStream, Map<String, Object>> createLLMResponse(String response,
-                                                                           Map<String, Object> responseAttributes) {
+  private static Result<InputStream, Map<String, Object>> mapResponse(InputStream output,
+                                                                      Map<String, Object> responseAttributes) {
     return Result.<InputStream, Map<String, Object>>builder()
         .attributes(responseAttributes)
         .attributesMediaType(org.mule.runtime.api.metadata.MediaType.APPLICATION_JAVA)
-        .output(toInputStream(response, StandardCharsets.UTF_8))
+        .output(output)
         .mediaType(org.mule.runtime.api.metadata.MediaType.APPLICATION_JSON)
         .build();
   }
@@ -0,0 +1,43 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.helpers;
+
+import org.mule.extension.mulechain.api.config.SearchMode;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+public class SearchParameters {
+
+  @Parameter
+  @Optional(defaultValue = "EXACT")
+  @DisplayName("Search mode")
+  @Summary("Whether to score every entry of the store, walk the HNSW indexes of a binary store or scan its quantized vectors")
+  private SearchMode searchMode = SearchMode.EXACT;
+
+  @Parameter
+  @Optional(defaultValue = "64")
+  @DisplayName("HNSW efSearch")
+  @Summary("Candidates explored by an HNSW search; higher values improve recall and cost more")
+  private int efSearch = 64;
+
+  @Parameter
+  @Optional(defaultValue = "4")
+  @DisplayName("Rerank factor")
+  @Summary("Multiple of the maximum results taken from a quantized scan and scored again at full precision; 0 returns the approximate scores")
+  private int rerankFactor = 4;
+
+  public SearchMode getSearchMode() {
+    return searchMode;
+  }
+
+  public int getEfSearch() {
+    return efSearch;
+  }
+
+  public int getRerankFactor() {
+    return rerankFactor;
+  }
+}
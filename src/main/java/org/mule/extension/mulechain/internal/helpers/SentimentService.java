@@ -0,0 +1,146 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.helpers;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ResponseFormat;
+import dev.langchain4j.model.chat.request.ResponseFormatType;
+import dev.langchain4j.model.chat.request.json.JsonNumberSchema;
+import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
+import dev.langchain4j.model.chat.request.json.JsonSchema;
+import dev.langchain4j.model.chat.request.json.JsonSchemaElement;
+import dev.langchain4j.model.chat.request.json.JsonStringSchema;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.mule.extension.mulechain.api.metadata.TokenUsage;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helper service scoring the sentiment of a text, and optionally replying to it, in a single JSON-constrained call. Models
+ * supporting JSON schemas get the schema as response format; other models are instructed to answer with the same JSON
+ * object.
+ */
+public final class SentimentService {
+
+  static final String SCORE = "score";
+  static final String REPLY = "reply";
+
+  private SentimentService() {}
+
+  /**
+   * Outcome of a sentiment analysis.
+   */
+  public static final class SentimentResult {
+
+    private final double score;
+    private final String reply;
+    private final TokenUsage tokenUsage;
+
+    public SentimentResult(double score, String reply, TokenUsage tokenUsage) {
+      this.score = score;
+      this.reply = reply;
+      this.tokenUsage = tokenUsage;
+    }
+
+    /**
+     * @return Sentiment score between -1 (very negative) and 1 (very positive)
+     */
+    public double getScore() {
+      return score;
+    }
+
+    /**
+     * @return Brief reply to the text, null when no reply was requested
+     */
+    public String getReply() {
+      return reply;
+    }
+
+    public TokenUsage getTokenUsage() {
+      return tokenUsage;
+    }
+  }
+
+  /**
+   * Scores the sentiment of a text, and optionally replies to it, in one call.
+   *
+   * @param model         Chat model of the configuration
+   * @param text          The text to analyze
+   * @param generateReply Whether the model should also reply briefly to the text
+   * @return The score and reply
+   * @throws IllegalArgumentException when the model does not answer with the expected JSON object
+   */
+  public static SentimentResult analyze(ChatLanguageModel model, String text, boolean generateReply) {
+    List<ChatMessage> messages = Arrays.asList(SystemMessage.from(instructions(generateReply)), UserMessage.from(text));
+    AiMessage aiMessage;
+    dev.langchain4j.model.output.TokenUsage tokenUsage;
+    if (model.supportedCapabilities().contains(Capability.RESPONSE_FORMAT_JSON_SCHEMA)) {
+      ChatResponse response = model.chat(ChatRequest.builder()
+          .messages(messages)
+          .responseFormat(ResponseFormat.builder()
+              .type(ResponseFormatType.JSON)
+              .jsonSchema(schema(generateReply))
+              .build())
+          .build());
+      aiMessage = response.aiMessage();
+      tokenUsage = response.tokenUsage();
+    } else {
+      dev.langchain4j.model.output.Response<AiMessage> response = model.generate(messages);
+      aiMessage = response.content();
+      tokenUsage = response.tokenUsage();
+    }
+    return parse(aiMessage.text(), generateReply, ResponseHelper.toTokenUsage(tokenUsage));
+  }
+
+  static SentimentResult parse(String text, boolean generateReply, TokenUsage tokenUsage) {
+    int start = text != null ? text.indexOf('{') : -1;
+    int end = text != null ? text.lastIndexOf('}') : -1;
+    if (start < 0 || end < start) {
+      throw new IllegalArgumentException("The sentiment response is not a JSON object: " + text);
+    }
+    try {
+      JSONObject json = new JSONObject(text.substring(start, end + 1));
+      double score = Math.max(-1.0, Math.min(1.0, json.getDouble(SCORE)));
+      String reply = generateReply ? json.getString(REPLY) : null;
+      return new SentimentResult(score, reply, tokenUsage);
+    } catch (JSONException e) {
+      throw new IllegalArgumentException("The sentiment response does not match the expected format: " + text, e);
+    }
+  }
+
+  private static String instructions(boolean generateReply) {
+    String fields = generateReply
+        ? "\"score\" (number) and \"reply\" (string, a brief reply to the text)"
+        : "\"score\" (number)";
+    return "Analyze the sentiment of the text sent by the user. Answer only with a JSON object with the fields " + fields
+        + ". The score ranges from -1 (very negative) to 1 (very positive), 0 being neutral.";
+  }
+
+  private static JsonSchema schema(boolean generateReply) {
+    Map<String, JsonSchemaElement> properties = new LinkedHashMap<>();
+    properties.put(SCORE, JsonNumberSchema.builder().description("Sentiment score from -1 to 1").build());
+    if (generateReply) {
+      properties.put(REPLY, JsonStringSchema.builder().description("Brief reply to the text").build());
+    }
+    return JsonSchema.builder()
+        .name("sentiment")
+        .rootElement(JsonObjectSchema.builder()
+            .properties(properties)
+            .required(generateReply ? Arrays.asList(SCORE, REPLY) : Arrays.asList(SCORE))
+            .additionalProperties(false)
+            .build())
+        .build();
+  }
+}
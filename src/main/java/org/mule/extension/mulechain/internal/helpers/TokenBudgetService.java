@@ -0,0 +1,178 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.helpers;
+
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import org.mule.extension.mulechain.api.config.TokenBudgetStrategy;
+import org.mule.extension.mulechain.internal.config.LangchainLLMConfiguration;
+import org.mule.extension.mulechain.internal.constants.MuleChainConstants;
+import org.mule.extension.mulechain.internal.error.MuleChainErrorType;
+import org.mule.runtime.extension.api.exception.ModuleException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Helper service sizing inputs before they are sent to the LLM. Tokens are counted locally with the OpenAI tokenizer of
+ * the model, or of GPT-3.5 for other models, which makes the count an estimate for non-OpenAI providers. Inputs above the
+ * input token budget of the configuration are truncated or rejected, according to its token budget strategy.
+ */
+public final class TokenBudgetService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TokenBudgetService.class);
+
+  private static final String ELLIPSIS = "\n...\n";
+
+  private static final Map<String, OpenAiTokenizer> TOKENIZERS = new ConcurrentHashMap<>();
+
+  private TokenBudgetService() {}
+
+  /**
+   * An input after sizing.
+   */
+  public static final class BudgetedInput {
+
+    private final String text;
+    private final int tokens;
+    private final boolean truncated;
+
+    BudgetedInput(String text, int tokens, boolean truncated) {
+      this.text = text;
+      this.tokens = tokens;
+      this.truncated = truncated;
+    }
+
+    /**
+     * @return The input to send, truncated when it exceeded the budget
+     */
+    public String getText() {
+      return text;
+    }
+
+    /**
+     * @return Estimated number of tokens of the input to send
+     */
+    public int getTokens() {
+      return tokens;
+    }
+
+    public boolean isTruncated() {
+      return truncated;
+    }
+
+    /**
+     * Adds the estimated input tokens, and whether the input was truncated, to the response attributes.
+     *
+     * @param attributes The response attributes
+     * @return The same attributes
+     */
+    public Map<String, String> addTo(Map<String, String> attributes) {
+      attributes.put(MuleChainConstants.ESTIMATED_INPUT_TOKENS, String.valueOf(tokens));
+      if (truncated) {
+        attributes.put(MuleChainConstants.TRUNCATED, String.valueOf(true));
+      }
+      return attributes;
+    }
+  }
+
+  /**
+   * Sizes an input against the input token budget of the configuration.
+   *
+   * @param configuration The configuration
+   * @param text          The input
+   * @return The input to send, with its estimated token count
+   * @throws ModuleException TOKEN_BUDGET_EXCEEDED when the input exceeds the budget and the strategy is to fail
+   */
+  public static BudgetedInput apply(LangchainLLMConfiguration configuration, String text) {
+    return apply(tokenizer(configuration.getModelName()), text, configuration.getMaxInputTokens(),
+                 configuration.getTokenBudgetStrategy());
+  }
+
+  static BudgetedInput apply(OpenAiTokenizer tokenizer, String text, int maxTokens, TokenBudgetStrategy strategy) {
+    List<Integer> tokens = tokenizer.encode(text);
+    if (maxTokens <= 0 || tokens.size() <= maxTokens) {
+      return new BudgetedInput(text, tokens.size(), false);
+    }
+    if (strategy == TokenBudgetStrategy.FAIL) {
+      throw new ModuleException(String.format("The input has about %d tokens, over the input token budget of %d",
+                                              tokens.size(), maxTokens),
+                                MuleChainErrorType.TOKEN_BUDGET_EXCEEDED);
+    }
+    LOGGER.debug("Truncating an input of {} tokens to {} tokens with strategy {}", tokens.size(), maxTokens, strategy);
+    String truncated;
+    switch (strategy) {
+      case TRUNCATE_START:
+        truncated = tokenizer.decode(tokens.subList(tokens.size() - maxTokens, tokens.size()));
+        break;
+      case TRUNCATE_MIDDLE:
+        // The marker between both ends takes its own tokens out of the budget
+        int kept = maxTokens - tokenizer.encode(ELLIPSIS).size();
+        if (kept >= 2) {
+          int head = (kept + 1) / 2;
+          int tail = kept - head;
+          truncated = tokenizer.decode(tokens.subList(0, head)) + ELLIPSIS
+              + tokenizer.decode(tokens.subList(tokens.size() - tail, tokens.size()));
+          break;
+        }
+        // Too small a budget to keep both ends around the marker, the start is kept
+        truncated = tokenizer.decode(tokens.subList(0, maxTokens));
+        break;
+      default:
+        truncated = tokenizer.decode(tokens.subList(0, maxTokens));
+        break;
+    }
+    // Decoded parts may merge into fewer tokens once joined, so the input sent is counted again
+    return new BudgetedInput(truncated, tokenizer.encode(truncated).size(), true);
+  }
+
+  /**
+   * Limits the content retrieved for a question to the part of the input token budget left by the question. Contents are
+   * kept in retrieval order until the next one would exceed the budget.
+   *
+   * @param retriever     The retriever of the RAG operation
+   * @param configuration The configuration
+   * @param question      The sized question
+   * @return The retriever itself when the configuration has no budget, otherwise a retriever limiting its contents
+   */
+  public static ContentRetriever limit(ContentRetriever retriever, LangchainLLMConfiguration configuration,
+                                       BudgetedInput question) {
+    int maxTokens = configuration.getMaxInputTokens();
+    if (maxTokens <= 0) {
+      return retriever;
+    }
+    OpenAiTokenizer tokenizer = tokenizer(configuration.getModelName());
+    return query -> {
+      List<Content> contents = retriever.retrieve(query);
+      List<Content> kept = new ArrayList<>(contents.size());
+      int used = question.getTokens();
+      for (Content content : contents) {
+        used += tokenizer.estimateTokenCountInText(content.textSegment().text());
+        if (used > maxTokens) {
+          LOGGER.debug("Dropping {} retrieved contents over the input token budget", contents.size() - kept.size());
+          break;
+        }
+        kept.add(content);
+      }
+      return kept;
+    };
+  }
+
+  static OpenAiTokenizer tokenizer(String modelName) {
+    String key = modelName != null ? modelName : "";
+    return TOKENIZERS.computeIfAbsent(key, name -> {
+      try {
+        return new OpenAiTokenizer(name);
+      } catch (RuntimeException e) {
+        LOGGER.debug("No tokenizer for model {}, estimating tokens with the GPT-3.5 tokenizer", name);
+        return new OpenAiTokenizer();
+      }
+    });
+  }
+}
@@ -0,0 +1,122 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.helpers;
+
+import org.mule.extension.mulechain.internal.client.HttpClientProvider;
+import org.mule.extension.mulechain.internal.config.LangchainLLMConfiguration;
+import org.mule.extension.mulechain.internal.embedding.SharedEmbeddingModel;
+import org.mule.extension.mulechain.internal.llm.type.LangchainLLMType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helper service that prepares a configuration for its first request, so that the first call after a deployment does not
+ * pay for the connection handshakes or for loading the in-process embedding model.
+ */
+public final class WarmUpService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WarmUpService.class);
+
+  private static final String PROBE_PROMPT = "Reply with OK";
+  private static final String EMBEDDING_WARM_UP_TEXT = "warm-up";
+
+  private WarmUpService() {
+    // Utility class
+  }
+
+  /**
+   * Runs the warm-up phases enabled on the configuration. A failing phase is logged and skipped, it never prevents the
+   * configuration from being initialised.
+   *
+   * @param configuration The configuration to warm up
+   * @return Total warm-up duration in milliseconds
+   */
+  public static long warmUp(LangchainLLMConfiguration configuration) {
+    long start = System.nanoTime();
+
+    preconnect(configuration);
+    if (configuration.getWarmUpEmbeddingModel()) {
+      loadEmbeddingModel(configuration);
+    }
+    if (configuration.getSendWarmUpProbe()) {
+      sendProbe(configuration);
+    }
+
+    long durationMillis = elapsedMillis(start);
+    LOGGER.info("Warm-up of the {} configuration completed in {} ms", configuration.getLlmType(), durationMillis);
+    return durationMillis;
+  }
+
+  /**
+   * Opens a pooled connection to the provider endpoint.
+   */
+  private static void preconnect(LangchainLLMConfiguration configuration) {
+    long start = System.nanoTime();
+    try {
+      String baseUrl = getBaseUrl(configuration);
+      HttpClientProvider.preconnect(baseUrl);
+      LOGGER.info("Warm-up: connection to {} opened in {} ms", baseUrl, elapsedMillis(start));
+    } catch (Exception e) {
+      LOGGER.warn("Warm-up: unable to pre-connect to the {} endpoint: {}", configuration.getLlmType(), e.getMessage());
+    }
+  }
+
+  /**
+   * Loads the ONNX session of the embedding model of the configuration and runs a first inference, which also initialises
+   * the ONNX runtime and the tokenizer.
+   */
+  private static void loadEmbeddingModel(LangchainLLMConfiguration configuration) {
+    long start = System.nanoTime();
+    try {
+      SharedEmbeddingModel.delegate(configuration.getEmbeddingModelSettings()).embed(EMBEDDING_WARM_UP_TEXT);
+      LOGGER.info("Warm-up: embedding model loaded in {} ms", elapsedMillis(start));
+    } catch (Exception e) {
+      LOGGER.warn("Warm-up: unable to load the embedding model: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Sends a minimal prompt through the configured chat model so that its own HTTP client is connected as well.
+   */
+  private static void sendProbe(LangchainLLMConfiguration configuration) {
+    long start = System.nanoTime();
+    try {
+      configuration.getModel().generate(PROBE_PROMPT);
+      LOGGER.info("Warm-up: probe request answered in {} ms", elapsedMillis(start));
+    } catch (Exception e) {
+      LOGGER.warn("Warm-up: probe request failed: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Resolves the endpoint of the provider behind the configuration.
+   */
+  private static String getBaseUrl(LangchainLLMConfiguration configuration) {
+    switch (LangchainLLMType.fromValue(configuration.getLlmType())) {
+      case GROQAI_OPENAI:
+        return "https://api.groq.com/openai/v1";
+      case MISTRAL_AI:
+        return "https://api.mistral.ai/v1";
+      case OLLAMA:
+        return configuration.getConfigExtractor().extractValue("OLLAMA_BASE_URL");
+      case ANTHROPIC:
+        return "https://api.anthropic.com/v1";
+      case AZURE_OPENAI:
+        return configuration.getConfigExtractor().extractValue("AZURE_OPENAI_ENDPOINT");
+      case HUGGING_FACE:
+        return "https://api-inference.huggingface.co";
+      case GEMINI_AI:
+        return "https://generativelanguage.googleapis.com";
+      case OPENAI:
+      default:
+        return "https://api.openai.com/v1";
+    }
+  }
+
+  private static long elapsedMillis(long startNanos) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+}
@@ -5,11 +5,13 @@ package org.mule.extension.mulechain.internal.llm.type;
 
 import dev.langchain4j.model.anthropic.AnthropicChatModelName;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.mistralai.MistralAiChatModelName;
 import dev.langchain4j.model.openai.OpenAiChatModelName;
 import dev.langchain4j.model.openai.OpenAiImageModelName;
 import org.mule.extension.mulechain.internal.config.LangchainLLMConfiguration;
 import org.mule.extension.mulechain.internal.config.util.LangchainLLMInitializerUtil;
+import org.mule.extension.mulechain.internal.config.util.LangchainLLMStreamingInitializerUtil;
 import org.mule.extension.mulechain.internal.error.exception.ConfigValidationException;
 import org.mule.extension.mulechain.internal.llm.config.ConfigExtractor;
 
@@ -18,28 +20,40 @@ import java.util.function.BiFunction;
 import java.util.stream.Stream;
 
 public enum LangchainLLMType {
-  OPENAI("OPENAI", getOpenAIModelNameStream(), LangchainLLMInitializerUtil::createOpenAiChatModel), GROQAI_OPENAI("GROQAI_OPENAI",
-      OPENAI.getModelNameStream(), LangchainLLMInitializerUtil::createGroqOpenAiChatModel), MISTRAL_AI("MISTRAL_AI",
-          getMistralAIModelNameStream(), LangchainLLMInitializerUtil::createMistralAiChatModel), OLLAMA("OLLAMA",
-              getOllamaModelNameStream(), LangchainLLMInitializerUtil::createOllamaChatModel), ANTHROPIC("ANTHROPIC",
-                  getAnthropicModelNameStream(), LangchainLLMInitializerUtil::createAnthropicChatModel), AZURE_OPENAI(
-                      "AZURE_OPENAI", OPENAI.getModelNameStream(),
-                      LangchainLLMInitializerUtil::createAzureOpenAiChatModel), HUGGING_FACE(
-                          "HUGGING_FACE", getHuggingFaceModelNameStream(),
-                          LangchainLLMInitializerUtil::createHuggingFaceChatModel), GEMINI_AI("GEMINI_AI",
-                              getGoogleGeminiModelNameStream(),
-                              LangchainLLMInitializerUtil::createGoogleGeminiChatModel);
+  OPENAI("OPENAI", getOpenAIModelNameStream(), LangchainLLMInitializerUtil::createOpenAiChatModel,
+      LangchainLLMStreamingInitializerUtil::createOpenAiStreamingChatModel), GROQAI_OPENAI("GROQAI_OPENAI",
+          OPENAI.getModelNameStream(), LangchainLLMInitializerUtil::createGroqOpenAiChatModel,
+          LangchainLLMStreamingInitializerUtil::createGroqOpenAiStreamingChatModel), MISTRAL_AI("MISTRAL_AI",
+              getMistralAIModelNameStream(), LangchainLLMInitializerUtil::createMistralAiChatModel,
+              LangchainLLMStreamingInitializerUtil::createMistralAiStreamingChatModel), OLLAMA("OLLAMA",
+                  getOllamaModelNameStream(), LangchainLLMInitializerUtil::createOllamaChatModel,
+                  LangchainLLMStreamingInitializerUtil::createOllamaStreamingChatModel), ANTHROPIC("ANTHROPIC",
+                      getAnthropicModelNameStream(), LangchainLLMInitializerUtil::createAnthropicChatModel,
+                      LangchainLLMStreamingInitializerUtil::createAnthropicStreamingChatModel), AZURE_OPENAI(
+                          "AZURE_OPENAI", OPENAI.getModelNameStream(),
+                          LangchainLLMInitializerUtil::createAzureOpenAiChatModel,
+                          LangchainLLMStreamingInitializerUtil::createAzureOpenAiStreamingChatModel), HUGGING_FACE(
+                              "HUGGING_FACE", getHuggingFaceModelNameStream(),
+                              LangchainLLMInitializerUtil::createHuggingFaceChatModel,
+                              LangchainLLMStreamingInitializerUtil::createBlockingStreamingChatModel), GEMINI_AI(
+                                  "GEMINI_AI", getGoogleGeminiModelNameStream(),
+                                  LangchainLLMInitializerUtil::createGoogleGeminiChatModel,
+                                  LangchainLLMStreamingInitializerUtil::createBlockingStreamingChatModel);
 
   private final String value;
   private final Stream<String> modelNameStream;
 
   private final BiFunction<ConfigExtractor, LangchainLLMConfiguration, ChatLanguageModel> configBiFunction;
 
+  private final BiFunction<ConfigExtractor, LangchainLLMConfiguration, StreamingChatLanguageModel> streamingConfigBiFunction;
+
   LangchainLLMType(String value, Stream<String> modelNameStream,
-                   BiFunction<ConfigExtractor, LangchainLLMConfiguration, ChatLanguageModel> configBiFunction) {
+                   BiFunction<ConfigExtractor, LangchainLLMConfiguration, ChatLanguageModel> configBiFunction,
+                   BiFunction<ConfigExtractor, LangchainLLMConfiguration, StreamingChatLanguageModel> streamingConfigBiFunction) {
     this.value = value;
     this.modelNameStream = modelNameStream;
     this.configBiFunction = configBiFunction;
+    this.streamingConfigBiFunction = streamingConfigBiFunction;
   }
 
   public String getValue() {
@@ -54,6 +68,10 @@ public enum LangchainLLMType {
     return configBiFunction;
   }
 
+  public BiFunction<ConfigExtractor, LangchainLLMConfiguration, StreamingChatLanguageModel> getStreamingConfigBiFunction() {
+    return streamingConfigBiFunction;
+  }
+
   private static Stream<String> getOpenAIModelNameStream() {
     return Stream.concat(Arrays.stream(OpenAiChatModelName.values()), Arrays.stream(OpenAiImageModelName.values()))
         .map(String::valueOf);
@@ -1,9 +1,21 @@
 package org.mule.extension.mulechain.internal.llm.type;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
+import org.mule.extension.mulechain.internal.cache.ModerationCache;
+import org.mule.extension.mulechain.internal.client.ModerationClient;
 import org.mule.extension.mulechain.internal.config.LangchainLLMConfiguration;
+import org.mule.extension.mulechain.internal.constants.MuleChainConstants;
+import org.mule.extension.mulechain.internal.embedding.CentroidClassifier;
 import org.mule.extension.mulechain.internal.llm.config.ConfigExtractor;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
 public class ModerationModelType {
 
   private static final String URL_BASE_OPENAI = "https://api.openai.com/v1";
@@ -13,6 +25,18 @@ public class ModerationModelType {
   private static final String MODERATION_MODEL_MISTRAL = "mistral-moderation-latest";
 
   public static JSONObject moderationType(String input, LangchainLLMConfiguration configuration) {
+    return moderationType((Object) input, configuration);
+  }
+
+  /**
+   * Builds the moderation request of the provider of the configuration.
+   *
+   * @param input         A string, or a JSON array of strings moderated in one request
+   * @param configuration The configuration
+   * @return The payload, URL and API key of the request
+   * @throws IllegalArgumentException If the provider has no moderation endpoint
+   */
+  public static JSONObject moderationType(Object input, LangchainLLMConfiguration configuration) {
     JSONObject resultObject = new JSONObject();
     JSONObject payload = new JSONObject();
     payload.put("input", input);
@@ -29,7 +53,9 @@ public class ModerationModelType {
       ConfigExtractor configExtractor = configuration.getConfigExtractor();
       apiKey = configExtractor.extractValue("MISTRAL_AI_API_KEY");
       urlString = URL_BASE_MISTRAL + MODERATION_RESSOURCE;
-
+    } else {
+      throw new IllegalArgumentException("Moderation is only supported for OPENAI and MISTRAL_AI, not for "
+          + configuration.getLlmType());
     }
 
     resultObject.put("payload", payload);
@@ -38,4 +64,133 @@ public class ModerationModelType {
 
     return resultObject;
   }
+
+  /**
+   * Moderates the input with the moderation endpoint of the provider of the configuration. When the moderation cache of
+   * the configuration is enabled, only the inputs without a cached result are sent.
+   *
+   * @param input         A string, or a JSON array of strings moderated in one request
+   * @param configuration The configuration
+   * @return The response of the provider, with one result per input; a response served entirely from the cache has no
+   *         request identifier
+   * @throws IOException           If the request fails
+   * @throws IllegalStateException If the provider does not return one result per input sent
+   */
+  public static JSONObject moderate(Object input, LangchainLLMConfiguration configuration) throws IOException {
+    JSONObject request = moderationType(input, configuration);
+    ModerationCache cache = configuration.getModerationCache();
+    if (cache == null) {
+      return send(request, configuration);
+    }
+
+    JSONArray inputs = input instanceof JSONArray ? (JSONArray) input : new JSONArray().put(input);
+    String provider = configuration.getLlmType();
+    String model = request.getJSONObject("payload").getString("model");
+    JSONObject[] results = new JSONObject[inputs.length()];
+    String[] keys = new String[inputs.length()];
+    List<Integer> misses = new ArrayList<>();
+    for (int i = 0; i < inputs.length(); i++) {
+      keys[i] = ModerationCache.key(provider, model, inputs.getString(i));
+      results[i] = cache.get(keys[i]);
+      if (results[i] == null) {
+        misses.add(i);
+      }
+    }
+
+    JSONObject response = new JSONObject();
+    response.put("model", model);
+    if (!misses.isEmpty()) {
+      JSONArray missingInputs = new JSONArray();
+      for (Integer index : misses) {
+        missingInputs.put(inputs.get(index));
+      }
+      Object missingInput = input instanceof JSONArray ? missingInputs : missingInputs.get(0);
+      request.getJSONObject("payload").put("input", missingInput);
+      JSONObject fetchedResponse = send(request, configuration);
+      JSONArray fetched = fetchedResponse.getJSONArray("results");
+      if (fetched.length() != misses.size()) {
+        throw new IllegalStateException("The moderation response holds " + fetched.length() + " results for "
+            + misses.size() + " inputs");
+      }
+      for (int i = 0; i < misses.size(); i++) {
+        int index = misses.get(i);
+        results[index] = fetched.getJSONObject(i);
+        cache.put(keys[index], results[index]);
+      }
+      // The identifier of the provider request that answered the inputs not cached yet
+      if (fetchedResponse.has("id")) {
+        response.put("id", fetchedResponse.get("id"));
+      }
+      response.put("model", fetchedResponse.optString("model", model));
+    }
+    response.put("results", new JSONArray(results));
+    return response;
+  }
+
+  private static JSONObject send(JSONObject request, LangchainLLMConfiguration configuration) throws IOException {
+    Duration timeout = Duration.ofSeconds(configuration.getLlmTimeoutUnit().toSeconds(configuration.getLlmTimeout()));
+    return new ModerationClient(request.getString("url"), request.getString("apiKey"), timeout)
+        .moderate(request.getJSONObject("payload"));
+  }
+
+  /**
+   * Builds a moderation response in the provider format from a prediction of a local moderation classifier. Every label
+   * but the safe one is a category, flagged when it is the predicted label; its score is the cosine similarity of the
+   * input to the examples of the label, floored at 0.
+   *
+   * @param prediction The prediction of the classifier
+   * @param safeLabel  Label of the inputs that are not flagged
+   * @param model      Name reported as the moderation model
+   * @return The response, with the one result of the input
+   */
+  public static JSONObject fromPrediction(CentroidClassifier.Prediction prediction, String safeLabel, String model) {
+    JSONObject categories = new JSONObject();
+    JSONObject categoryScores = new JSONObject();
+    for (Map.Entry<String, Double> label : prediction.getSimilarities().entrySet()) {
+      if (!safeLabel.equalsIgnoreCase(label.getKey())) {
+        categories.put(label.getKey(), label.getKey().equals(prediction.getLabel()));
+        categoryScores.put(label.getKey(), Math.max(0, label.getValue()));
+      }
+    }
+    JSONObject result = new JSONObject();
+    result.put(MuleChainConstants.FLAGGED, !safeLabel.equalsIgnoreCase(prediction.getLabel()));
+    result.put("categories", categories);
+    result.put("category_scores", categoryScores);
+
+    JSONObject response = new JSONObject();
+    response.put("model", model);
+    response.put("results", new JSONArray().put(result));
+    return response;
+  }
+
+  /**
+   * Converts a moderation result into the item format of the batch moderation operation. Mistral results have no
+   * flagged field, an input is then flagged when any category is.
+   *
+   * @param index  Position of the input
+   * @param result One result of the moderation response
+   * @return The index, flagged state, flagged categories and category scores of the input
+   */
+  public static JSONObject toItem(int index, JSONObject result) {
+    JSONObject categories = result.optJSONObject("categories");
+    JSONArray flaggedCategories = new JSONArray();
+    if (categories != null) {
+      Iterator<String> names = categories.keys();
+      while (names.hasNext()) {
+        String name = names.next();
+        if (categories.optBoolean(name)) {
+          flaggedCategories.put(name);
+        }
+      }
+    }
+    JSONObject item = new JSONObject();
+    item.put(MuleChainConstants.INDEX, index);
+    item.put(MuleChainConstants.FLAGGED, result.has(MuleChainConstants.FLAGGED)
+        ? result.getBoolean(MuleChainConstants.FLAGGED)
+        : flaggedCategories.length() > 0);
+    item.put(MuleChainConstants.CATEGORIES, flaggedCategories);
+    item.put(MuleChainConstants.CATEGORY_SCORES,
+             result.has("category_scores") ? result.getJSONObject("category_scores") : new JSONObject());
+    return item;
+  }
 }
@@ -0,0 +1,144 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.operation;
+
+import org.mule.extension.mulechain.internal.batch.BatchJobClient;
+import org.mule.extension.mulechain.internal.batch.BatchJobStatus;
+import org.mule.extension.mulechain.internal.batch.BatchJsonl;
+import org.mule.extension.mulechain.internal.batch.BatchResultsInputStream;
+import org.mule.extension.mulechain.internal.config.LangchainLLMConfiguration;
+import org.mule.extension.mulechain.internal.constants.MuleChainConstants;
+import org.mule.extension.mulechain.internal.error.MuleChainErrorType;
+import org.mule.extension.mulechain.internal.error.provider.BatchErrorTypeProvider;
+import org.mule.extension.mulechain.internal.helpers.BatchChatService;
+import org.mule.extension.mulechain.internal.helpers.TokenBudgetService;
+import org.mule.runtime.extension.api.annotation.Alias;
+import org.mule.runtime.extension.api.annotation.error.Throws;
+import org.mule.runtime.extension.api.annotation.metadata.fixed.OutputJsonType;
+import org.mule.runtime.extension.api.annotation.param.Config;
+import org.mule.runtime.extension.api.annotation.param.Content;
+import org.mule.runtime.extension.api.annotation.param.MediaType;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.exception.ModuleException;
+import org.mule.runtime.extension.api.runtime.operation.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mule.extension.mulechain.internal.helpers.ResponseHelper.createLLMResponse;
+import static org.mule.runtime.extension.api.annotation.param.MediaType.APPLICATION_JSON;
+
+/**
+ * This class is a container for offline batch job operations, every public method in this class will be taken as an
+ * extension operation.
+ */
+public class LangchainBatchOperations {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LangchainBatchOperations.class);
+
+  private static final String NDJSON = "application/x-ndjson";
+
+  /**
+   * Submits a batch of prompts as an offline batch job, answered within 24 hours at the provider batch rate.
+   *
+   * @param configuration Refers to the configuration object
+   * @param prompts       JSON array of prompts, or of variable sets when a template is provided
+   * @param template      Optional prompt template whose {{variables}} are filled from each variable set
+   * @return Returns the identifier and status of the submitted job
+   */
+  @MediaType(value = APPLICATION_JSON, strict = false)
+  @Alias("BATCH-submit-job")
+  @Throws(BatchErrorTypeProvider.class)
+  @OutputJsonType(schema = "api/response/BatchJobStatus.json")
+  public Result<InputStream, Map<String, Object>> submitBatchJob(@Config LangchainLLMConfiguration configuration,
+                                                                 @Content String prompts,
+                                                                 @Optional String template) {
+    try {
+      List<String> batch = BatchChatService.toPrompts(prompts, template);
+      LOGGER.debug("Batch Submit Job Operation called with {} prompts", batch.size());
+      List<String> requestLines = new ArrayList<>(batch.size());
+      for (int i = 0; i < batch.size(); i++) {
+        requestLines.add(BatchJsonl.requestLine(i, TokenBudgetService.apply(configuration, batch.get(i)).getText(),
+                                                configuration));
+      }
+      BatchJobStatus status = configuration.getBatchJobClient().submit(requestLines);
+      LOGGER.debug("Batch Submit Job Operation submitted job {}", status.getJobId());
+      return createLLMResponse(status.toJson().toString(), statusAttributes(configuration, status));
+    } catch (ModuleException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ModuleException("Unable to submit the batch job", MuleChainErrorType.AI_SERVICES_FAILURE, e);
+    }
+  }
+
+  /**
+   * Retrieves the status of an offline batch job.
+   *
+   * @param configuration Refers to the configuration object
+   * @param jobId         Identifier returned by the submit operation
+   * @return Returns the status and request counts of the job
+   */
+  @MediaType(value = APPLICATION_JSON, strict = false)
+  @Alias("BATCH-get-job-status")
+  @Throws(BatchErrorTypeProvider.class)
+  @OutputJsonType(schema = "api/response/BatchJobStatus.json")
+  public Result<InputStream, Map<String, Object>> getBatchJobStatus(@Config LangchainLLMConfiguration configuration,
+                                                                    String jobId) {
+    try {
+      BatchJobStatus status = configuration.getBatchJobClient().getStatus(jobId);
+      LOGGER.debug("Batch Get Job Status Operation returned {} for job {}", status.getStatus(), jobId);
+      return createLLMResponse(status.toJson().toString(), statusAttributes(configuration, status));
+    } catch (ModuleException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ModuleException("Unable to retrieve the status of the batch job " + jobId,
+                                MuleChainErrorType.AI_SERVICES_FAILURE, e);
+    }
+  }
+
+  /**
+   * Streams the results of a completed offline batch job as NDJSON, one item per prompt with its index, response or
+   * error, and token usage. Items are not guaranteed to be in input order.
+   *
+   * @param configuration Refers to the configuration object
+   * @param jobId         Identifier returned by the submit operation
+   * @return Returns the stream of result items
+   */
+  @MediaType(value = NDJSON, strict = false)
+  @Alias("BATCH-get-job-results")
+  @Throws(BatchErrorTypeProvider.class)
+  public Result<InputStream, Map<String, Object>> getBatchJobResults(@Config LangchainLLMConfiguration configuration,
+                                                                     String jobId) {
+    try {
+      BatchJobClient client = configuration.getBatchJobClient();
+      InputStream results = new BatchResultsInputStream(client.openResults(jobId));
+      Map<String, Object> attributes = new HashMap<>();
+      attributes.put(MuleChainConstants.JOB_ID, jobId);
+      return Result.<InputStream, Map<String, Object>>builder()
+          .output(results)
+          .mediaType(org.mule.runtime.api.metadata.MediaType.parse(NDJSON))
+          .attributes(attributes)
+          .attributesMediaType(org.mule.runtime.api.metadata.MediaType.APPLICATION_JAVA)
+          .build();
+    } catch (ModuleException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ModuleException("Unable to retrieve the results of the batch job " + jobId,
+                                MuleChainErrorType.AI_SERVICES_FAILURE, e);
+    }
+  }
+
+  private static Map<String, Object> statusAttributes(LangchainLLMConfiguration configuration, BatchJobStatus status) {
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put(MuleChainConstants.JOB_ID, status.getJobId());
+    attributes.put(MuleChainConstants.STATUS, status.getStatus());
+    attributes.put(MuleChainConstants.BATCH_JOB_MODE, configuration.getBatchJobMode().name());
+    return attributes;
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.operation;
+
+import org.json.JSONObject;
+import org.mule.extension.mulechain.internal.cache.ExactResponseCache;
+import org.mule.extension.mulechain.internal.cache.ModerationCache;
+import org.mule.extension.mulechain.internal.cache.SemanticResponseCache;
+import org.mule.extension.mulechain.internal.config.LangchainLLMConfiguration;
+import org.mule.extension.mulechain.internal.constants.MuleChainConstants;
+import org.mule.extension.mulechain.internal.error.MuleChainErrorType;
+import org.mule.extension.mulechain.internal.error.provider.AiServiceErrorTypeProvider;
+import org.mule.runtime.extension.api.annotation.Alias;
+import org.mule.runtime.extension.api.annotation.error.Throws;
+import org.mule.runtime.extension.api.annotation.metadata.fixed.OutputJsonType;
+import org.mule.runtime.extension.api.annotation.param.Config;
+import org.mule.runtime.extension.api.annotation.param.MediaType;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.exception.ModuleException;
+import org.mule.runtime.extension.api.runtime.operation.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mule.extension.mulechain.internal.helpers.ResponseHelper.createLLMResponse;
+import static org.mule.runtime.extension.api.annotation.param.MediaType.APPLICATION_JSON;
+
+/**
+ * This class is a container for response cache operations, every public method in this class will be taken as an
+ * extension operation.
+ */
+public class LangchainCacheOperations {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LangchainCacheOperations.class);
+
+  /**
+   * Invalidates the cached responses of the configuration. Exact cache keys start with
+   * {@code <llmType>/<modelName>/<operation>/}, so a prefix such as {@code OPENAI/gpt-4o-mini/} drops every response of a
+   * model. Without a prefix, the exact, semantic and moderation caches are cleared.
+   *
+   * @param configuration Refers to the configuration object
+   * @param prefix        Key prefix of the exact cache responses to drop
+   * @return Returns the number of responses dropped
+   */
+  @MediaType(value = APPLICATION_JSON, strict = false)
+  @Alias("CACHE-invalidate")
+  @Throws(AiServiceErrorTypeProvider.class)
+  public Result<InputStream, Map<String, Object>> invalidateCache(@Config LangchainLLMConfiguration configuration,
+                                                                  @Optional String prefix) {
+    try {
+      String safePrefix = prefix != null ? prefix : "";
+      int invalidated = 0;
+      ExactResponseCache exactCache = configuration.getExactCache();
+      if (exactCache != null) {
+        invalidated += exactCache.invalidatePrefix(safePrefix);
+      }
+      SemanticResponseCache semanticCache = configuration.getSemanticCache();
+      if (safePrefix.isEmpty() && semanticCache != null) {
+        invalidated += semanticCache.size();
+        semanticCache.clear();
+      }
+      ModerationCache moderationCache = configuration.getModerationCache();
+      if (safePrefix.isEmpty() && moderationCache != null) {
+        invalidated += moderationCache.size();
+        moderationCache.clear();
+      }
+      LOGGER.debug("Cache Invalidate Operation dropped {} responses for prefix '{}'", invalidated, safePrefix);
+
+      JSONObject jsonObject = new JSONObject();
+      jsonObject.put(MuleChainConstants.INVALIDATED, invalidated);
+      Map<String, Object> attributes = new HashMap<>();
+      attributes.put(MuleChainConstants.PREFIX, safePrefix);
+      return createLLMResponse(jsonObject.toString(), attributes);
+    } catch (Exception e) {
+      throw new ModuleException("Unable to invalidate the response cache", MuleChainErrorType.AI_SERVICES_FAILURE, e);
+    }
+  }
+
+  /**
+   * Reports the hit and miss counts, hit ratio and size of the response and moderation caches of the configuration.
+   *
+   * @param configuration Refers to the configuration object
+   * @return Returns the statistics of each enabled cache
+   */
+  @MediaType(value = APPLICATION_JSON, strict = false)
+  @Alias("CACHE-get-statistics")
+  @Throws(AiServiceErrorTypeProvider.class)
+  @OutputJsonType(schema = "api/response/CacheStatistics.json")
+  public Result<InputStream, Map<String, Object>> getCacheStatistics(@Config LangchainLLMConfiguration configuration) {
+    try {
+      JSONObject jsonObject = new JSONObject();
+      ExactResponseCache exactCache = configuration.getExactCache();
+      if (exactCache != null) {
+        JSONObject exact = new JSONObject();
+        exact.put("heapHits", exactCache.getHeapHits());
+        exact.put("fileHits", exactCache.getFileHits());
+        exact.put("misses", exactCache.getMisses());
+        exact.put("hitRatio", exactCache.getHitRatio());
+        exact.put("heapSize", exactCache.getHeapSize());
+        exact.put("fileSize", exactCache.getFileSize());
+        jsonObject.put("exact", exact);
+      }
+      SemanticResponseCache semanticCache = configuration.getSemanticCache();
+      if (semanticCache != null) {
+        long lookups = semanticCache.getHits() + semanticCache.getMisses();
+        JSONObject semantic = new JSONObject();
+        semantic.put("hits", semanticCache.getHits());
+        semantic.put("misses", semanticCache.getMisses());
+        semantic.put("hitRatio", lookups == 0 ? 0 : (double) semanticCache.getHits() / lookups);
+        semantic.put("size", semanticCache.size());
+        jsonObject.put("semantic", semantic);
+      }
+      ModerationCache moderationCache = configuration.getModerationCache();
+      if (moderationCache != null) {
+        JSONObject moderation = new JSONObject();
+        moderation.put("hits", moderationCache.getHits());
+        moderation.put("misses", moderationCache.getMisses());
+        moderation.put("hitRatio", moderationCache.getHitRatio());
+        moderation.put("size", moderationCache.size());
+        jsonObject.put("moderation", moderation);
+      }
+      return createLLMResponse(jsonObject.toString(), new HashMap<>());
+    } catch (Exception e) {
+      throw new ModuleException("Unable to read the response cache statistics", MuleChainErrorType.AI_SERVICES_FAILURE, e);
+    }
+  }
+}
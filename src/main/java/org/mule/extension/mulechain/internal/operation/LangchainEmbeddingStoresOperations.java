@@ -10,9 +10,15 @@ import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.rag.content.Content;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.content.injector.DefaultContentInjector;
 import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
+import dev.langchain4j.rag.query.Query;
 import dev.langchain4j.service.AiServices;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
 import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsIn;
 import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 
 import static org.mapdb.Serializer.STRING;
@@ -22,7 +28,9 @@ import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -33,20 +41,39 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
+import org.mule.extension.mulechain.api.config.EmbeddingStoreFormat;
+import org.mule.extension.mulechain.api.config.MetadataFilterOperator;
+import org.mule.extension.mulechain.api.config.SearchMode;
+import org.mule.extension.mulechain.api.config.StreamFraming;
 import org.mule.extension.mulechain.api.metadata.LLMResponseAttributes;
 import org.mule.extension.mulechain.internal.constants.MuleChainConstants;
 import org.mule.extension.mulechain.internal.error.MuleChainErrorType;
+import org.mule.extension.mulechain.internal.embedding.DenseEmbeddingStore;
+import org.mule.extension.mulechain.internal.embedding.EmbeddingBatch;
+import org.mule.extension.mulechain.internal.embedding.EmbeddingModelSettings;
+import org.mule.extension.mulechain.internal.embedding.EmbeddingStoreMetadata;
+import org.mule.extension.mulechain.internal.embedding.EmbeddingStoreRegistry;
+import org.mule.extension.mulechain.internal.embedding.MappedEmbeddingStore;
+import org.mule.extension.mulechain.internal.embedding.MetadataPrefixFilter;
+import org.mule.extension.mulechain.internal.embedding.SegmentedEmbeddingStore;
+import org.mule.extension.mulechain.internal.embedding.SharedEmbeddingModel;
 import org.mule.extension.mulechain.internal.error.provider.EmbeddingErrorTypeProvider;
 import org.mule.extension.mulechain.internal.helpers.FileType;
 import org.mule.extension.mulechain.internal.helpers.FileTypeParameters;
+import org.mule.extension.mulechain.internal.helpers.IndexParameters;
+import org.mule.extension.mulechain.internal.helpers.MetadataFilterParameters;
+import org.mule.extension.mulechain.internal.helpers.SearchParameters;
+import org.mule.extension.mulechain.internal.helpers.JsonResponseWriter;
+import org.mule.extension.mulechain.internal.helpers.TokenBudgetService;
 import org.mule.extension.mulechain.internal.operation.LangchainEmbeddingStoresOperations.AssistantSources;
 import org.mule.extension.mulechain.internal.config.LangchainLLMConfiguration;
+import org.mule.extension.mulechain.internal.streaming.StreamingResponder;
 import org.mule.extension.mulechain.internal.tools.GenericRestApiTool;
-import org.mule.extension.mulechain.internal.util.ExcludeFromGeneratedCoverage;
 import org.mule.runtime.extension.api.annotation.Alias;
 import org.mule.runtime.extension.api.annotation.error.Throws;
 import org.mule.runtime.extension.api.annotation.metadata.fixed.OutputJsonType;
 import org.mule.runtime.extension.api.annotation.param.MediaType;
+import org.mule.runtime.extension.api.annotation.param.Optional;
 import org.mule.runtime.extension.api.annotation.param.ParameterGroup;
 import org.mule.runtime.extension.api.annotation.param.Config;
 import dev.langchain4j.model.chat.ChatLanguageModel;
@@ -72,7 +99,6 @@ import dev.langchain4j.data.document.loader.UrlDocumentLoader;
 import dev.langchain4j.data.document.parser.TextDocumentParser;
 import dev.langchain4j.data.document.splitter.DocumentSplitters;
 import dev.langchain4j.memory.chat.ChatMemoryProvider;
-import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.openai.OpenAiTokenizer;
 import dev.langchain4j.model.output.Response;
@@ -90,6 +116,7 @@ import static dev.langchain4j.data.document.loader.FileSystemDocumentLoader.load
 import static dev.langchain4j.data.message.ChatMessageDeserializer.messagesFromJson;
 import static dev.langchain4j.data.message.ChatMessageSerializer.messagesToJson;
 import static org.mule.extension.mulechain.internal.helpers.ResponseHelper.createLLMResponse;
+import static org.mule.runtime.extension.api.annotation.param.MediaType.ANY;
 import static org.mule.runtime.extension.api.annotation.param.MediaType.APPLICATION_JSON;
 
 import java.util.regex.Matcher;
@@ -99,6 +126,7 @@ import org.mule.runtime.extension.api.exception.ModuleException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -108,23 +136,6 @@ public class LangchainEmbeddingStoresOperations {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(LangchainEmbeddingStoresOperations.class);
 
-  @ExcludeFromGeneratedCoverage
-  private final EmbeddingModel embeddingModel;
-
-  private InMemoryEmbeddingStore<TextSegment> deserializedStore;
-
-  private InMemoryEmbeddingStore<TextSegment> getDeserializedStore(String storeName, boolean getLatest) {
-    if (deserializedStore == null || getLatest) {
-      deserializedStore = InMemoryEmbeddingStore.fromFile(storeName);
-    }
-    return deserializedStore;
-  }
-
-
-  public LangchainEmbeddingStoresOperations() {
-    this.embeddingModel = new AllMiniLmL6V2EmbeddingModel();
-  }
-
   /**
    * Enables the user to query the doc provided in natural language.<br>
    * The doc will be embedded into in memory vector store.
@@ -149,6 +160,7 @@ public class LangchainEmbeddingStoresOperations {
       LOGGER.debug("RAG Load Document Operation called with data: {}, file: {} & fileType: {}", data, contextPath,
                    fileType.getFileType());
       EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+      EmbeddingModel embeddingModel = SharedEmbeddingModel.delegate(configuration.getEmbeddingModelSettings());
 
       EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
           .documentSplitter(DocumentSplitters.recursive(1000, 200, new OpenAiTokenizer()))
@@ -161,23 +173,30 @@ public class LangchainEmbeddingStoresOperations {
       LOGGER.debug("File successfully embedded into the in-memory embedding store");
 
       ChatLanguageModel model = configuration.getModel();
+      TokenBudgetService.BudgetedInput input = TokenBudgetService.apply(configuration, data);
 
 
       // MIGRATE CHAINS TO AI SERVICES: https://docs.langchain4j.dev/tutorials/ai-services/
       // and Specifically the RAG section: https://docs.langchain4j.dev/tutorials/ai-services#rag
       //chains are legacy now, please use AI Services: https://docs.langchain4j.dev/tutorials/ai-services > Update to AI Services
 
-      ContentRetriever contentRetriever = new EmbeddingStoreContentRetriever(embeddingStore, embeddingModel);
+      ContentRetriever contentRetriever = TokenBudgetService.limit(
+                                                                   new EmbeddingStoreContentRetriever(embeddingStore,
+                                                                                                      embeddingModel),
+                                                                   configuration, input);
 
       AssistantSources assistant = AiServices.builder(AssistantSources.class)
           .chatLanguageModel(model)
           .contentRetriever(contentRetriever)
           .build();
 
-      Result<String> answer = assistant.chat(data);
+      Result<String> answer = assistant.chat(input.getText());
 
-      JSONObject jsonObject = new JSONObject();
-      jsonObject.put(MuleChainConstants.RESPONSE, answer.content());
+      JsonResponseWriter writer = new JsonResponseWriter();
+      JsonGenerator json = writer.generator();
+      json.writeStartObject();
+      JsonResponseWriter.writeOptionalField(json, MuleChainConstants.RESPONSE, answer.content());
+      json.writeEndObject();
 
       Map<String, String> attributes = new HashMap<>();
       attributes.put(MuleChainConstants.FILE_PATH, contextPath);
@@ -186,7 +205,52 @@ public class LangchainEmbeddingStoresOperations {
 
       LOGGER.debug("RAG Load Document Operation completed with response: {}", answer.content());
 
-      return createLLMResponse(jsonObject.toString(), answer, attributes);
+      return createLLMResponse(writer, answer, input.addTo(attributes));
+    } catch (ModuleException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ModuleException("Error while loading and retrieving content from the document " + contextPath,
+                                MuleChainErrorType.RAG_FAILURE, e);
+    }
+  }
+
+  /**
+   * Streaming counterpart of RAG-load-document. The document is embedded and the relevant segments are retrieved before
+   * the operation returns; the answer is then streamed as it is generated, after an event listing the retrieved sources.
+   *
+   * @param configuration       Refers to the configuration object
+   * @param data                Defines the query input provided by the user
+   * @param contextPath         Defines the file path which will be embedded
+   * @param fileType            Specifies the type of file. {@link org.mule.extension.mulechain.internal.helpers.FileType} Eg: "any", "text" & "url"
+   * @param framing             Framing of the streamed answer; the sources event is only sent with SSE and NDJSON
+   * @return                    Returns the answer as it is generated
+   */
+  @MediaType(value = ANY, strict = false)
+  @Alias("RAG-load-document-w-stream")
+  @Throws(EmbeddingErrorTypeProvider.class)
+  public org.mule.runtime.extension.api.runtime.operation.Result<InputStream, Void> loadDocumentFileStream(@Config LangchainLLMConfiguration configuration,
+                                                                                                           @org.mule.runtime.extension.api.annotation.param.Content String data,
+                                                                                                           String contextPath,
+                                                                                                           @ParameterGroup(
+                                                                                                               name = "Context") FileTypeParameters fileType,
+                                                                                                           @Optional(
+                                                                                                               defaultValue = "SSE") StreamFraming framing) {
+    try {
+      LOGGER.debug("RAG Load Document Stream Operation called with data: {}, file: {} & fileType: {}", data, contextPath,
+                   fileType.getFileType());
+      EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+      EmbeddingModel embeddingModel = SharedEmbeddingModel.delegate(configuration.getEmbeddingModelSettings());
+
+      EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
+          .documentSplitter(DocumentSplitters.recursive(1000, 200, new OpenAiTokenizer()))
+          .embeddingModel(embeddingModel)
+          .embeddingStore(embeddingStore)
+          .build();
+
+      ingestDocument(fileType, contextPath, ingestor);
+
+      return streamRagAnswer(configuration, new EmbeddingStoreContentRetriever(embeddingStore, embeddingModel), data,
+                             framing);
     } catch (ModuleException e) {
       throw e;
     } catch (Exception e) {
@@ -195,6 +259,37 @@ public class LangchainEmbeddingStoresOperations {
     }
   }
 
+  /**
+   * Retrieves the contents relevant to a question synchronously, then streams the answer of the streaming model to the
+   * question augmented with these contents.
+   */
+  private org.mule.runtime.extension.api.runtime.operation.Result<InputStream, Void> streamRagAnswer(LangchainLLMConfiguration configuration,
+                                                                                                     ContentRetriever retriever,
+                                                                                                     String question,
+                                                                                                     StreamFraming framing) {
+    TokenBudgetService.BudgetedInput input = TokenBudgetService.apply(configuration, question);
+    List<Content> contents = TokenBudgetService.limit(retriever, configuration, input).retrieve(Query.from(input.getText()));
+    LOGGER.debug("Streaming an answer augmented with {} retrieved contents", contents.size());
+
+    JSONArray sources = new JSONArray();
+    for (Content content : contents) {
+      Metadata metadata = content.textSegment().metadata();
+      JSONObject contentObject = new JSONObject();
+      contentObject.put(MuleChainConstants.ABSOLUTE_DIRECTORY_PATH,
+                        metadata.getString(MuleChainConstants.EmbeddingConstants.ABSOLUTE_DIRECTORY_PATH));
+      contentObject.put(MuleChainConstants.FILE_NAME, metadata.getString(MuleChainConstants.EmbeddingConstants.FILE_NAME));
+      contentObject.put(MuleChainConstants.URL, metadata.getString(MuleChainConstants.URL));
+      contentObject.put(MuleChainConstants.TEXT_SEGMENT, content.textSegment().text());
+      sources.put(contentObject);
+    }
+
+    // Typed as a ChatMessage, the question goes through the current overload rather than the deprecated UserMessage one
+    ChatMessage userMessage = dev.langchain4j.data.message.UserMessage.from(input.getText());
+    ChatMessage message = new DefaultContentInjector().inject(contents, userMessage);
+    return StreamingResponder.stream(configuration, framing, message, MuleChainConstants.SOURCES,
+                                     new JSONObject().put(MuleChainConstants.SOURCES, sources));
+  }
+
   private void ingestDocument(FileTypeParameters fileType, String contextPath, EmbeddingStoreIngestor ingestor) {
     Document document = null;
     switch (FileType.fromValue(fileType.getFileType())) {
@@ -257,6 +352,7 @@ public class LangchainEmbeddingStoresOperations {
       LOGGER.debug(
                    "Chat Answer Prompt With Memory Operation called with userPrompt: {}, memoryName: {}, dbFilePath: {} & maxMessages: {}",
                    data, memoryName, dbFilePath, maxMessages);
+      TokenBudgetService.BudgetedInput input = TokenBudgetService.apply(configuration, data);
       ChatLanguageModel model = configuration.getModel();
       PersistentChatMemoryStore store = new PersistentChatMemoryStore(dbFilePath);
       ChatMemoryProvider chatMemoryProvider = memoryId -> MessageWindowChatMemory.builder()
@@ -270,10 +366,13 @@ public class LangchainEmbeddingStoresOperations {
           .chatMemoryProvider(chatMemoryProvider)
           .build();
 
-      Result<String> response = assistant.chat(memoryName, data);
+      Result<String> response = assistant.chat(memoryName, input.getText());
 
-      JSONObject jsonObject = new JSONObject();
-      jsonObject.put(MuleChainConstants.RESPONSE, response.content());
+      JsonResponseWriter writer = new JsonResponseWriter();
+      JsonGenerator json = writer.generator();
+      json.writeStartObject();
+      JsonResponseWriter.writeOptionalField(json, MuleChainConstants.RESPONSE, response.content());
+      json.writeEndObject();
 
       LOGGER.debug("Chat Answer Prompt With Memory Operation completed with response: {}", response.content());
 
@@ -282,7 +381,9 @@ public class LangchainEmbeddingStoresOperations {
       attributes.put(MuleChainConstants.DB_FILE_PATH, dbFilePath);
       attributes.put(MuleChainConstants.MAX_MESSAGES, String.valueOf(maxMessages));
 
-      return createLLMResponse(jsonObject.toString(), response, attributes);
+      return createLLMResponse(writer, response, input.addTo(attributes));
+    } catch (ModuleException e) {
+      throw e;
     } catch (Exception e) {
       throw new ModuleException("Error while responding with the chat provided", MuleChainErrorType.AI_SERVICES_FAILURE, e);
     }
@@ -361,18 +462,32 @@ public class LangchainEmbeddingStoresOperations {
   /**
    * Create a new embedding store (in-memory), which is exported to the defined storeName (full path)
    * @param storeName           Name of the embedding store
+   * @param storeFormat         File format of the store; binary stores are memory-mapped instead of loaded into the heap
+   * @param index               Settings of the HNSW indexes and quantized vectors of a binary store
    * @return                    Returns the status of creation of the store.
    */
   @MediaType(value = APPLICATION_JSON, strict = false)
   @Alias("EMBEDDING-new-store")
   @Throws(EmbeddingErrorTypeProvider.class)
   @OutputJsonType(schema = "api/response/StatusResponse.json")
-  public org.mule.runtime.extension.api.runtime.operation.Result<InputStream, Map<String, Object>> createEmbedding(String storeName) {
+  public org.mule.runtime.extension.api.runtime.operation.Result<InputStream, Map<String, Object>> createEmbedding(String storeName,
+                                                                                                                   @Optional(
+                                                                                                                       defaultValue = "JSON") EmbeddingStoreFormat storeFormat,
+                                                                                                                   @ParameterGroup(
+                                                                                                                       name = "Index") IndexParameters index) {
     try {
-      LOGGER.debug("Embedding New Store Operation called with the storeName: {}", storeName);
-      InMemoryEmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
-
-      embeddingStore.serializeToFile(storeName);
+      LOGGER.debug("Embedding New Store Operation called with the storeName: {} & format: {}", storeName, storeFormat);
+      // The new store is not bound to the model of the store it replaces
+      EmbeddingStoreMetadata.reset(storeName);
+      if (storeFormat == EmbeddingStoreFormat.BINARY) {
+        SegmentedEmbeddingStore.create(Paths.get(storeName), index.getHnswM(), index.getHnswEfConstruction(),
+                                       index.getQuantization());
+        EmbeddingStoreRegistry.invalidate(storeName);
+      } else {
+        InMemoryEmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        embeddingStore.serializeToFile(storeName);
+        EmbeddingStoreRegistry.written(storeName, embeddingStore);
+      }
 
       JSONObject jsonObject = new JSONObject();
       jsonObject.put(MuleChainConstants.STATUS, MuleChainConstants.CREATED);
@@ -392,6 +507,7 @@ public class LangchainEmbeddingStoresOperations {
 
   /**
    * Add document of type text, any and url to embedding store (in-memory), which is exported to the defined storeName (full path)
+   * @param configuration           Refers to the configuration object
    * @param storeName               Name of the embedding store
    * @param contextPath             Refers to the location of the file to be processed
    * @param maxSegmentSizeInChars   Max allowed size of continuous sequence of characters while embedding
@@ -403,7 +519,8 @@ public class LangchainEmbeddingStoresOperations {
   @Alias("EMBEDDING-add-document-to-store")
   @Throws(EmbeddingErrorTypeProvider.class)
   @OutputJsonType(schema = "api/response/StatusResponse.json")
-  public org.mule.runtime.extension.api.runtime.operation.Result<InputStream, Map<String, Object>> addFileEmbedding(String storeName,
+  public org.mule.runtime.extension.api.runtime.operation.Result<InputStream, Map<String, Object>> addFileEmbedding(@Config LangchainLLMConfiguration configuration,
+                                                                                                                    String storeName,
                                                                                                                     String contextPath,
                                                                                                                     int maxSegmentSizeInChars,
                                                                                                                     int maxOverlapSizeInChars,
@@ -413,17 +530,8 @@ public class LangchainEmbeddingStoresOperations {
     try {
       LOGGER.debug("Embedding Add Document To Store Operation called with the storeName: {}, filePath: {} & fileType: {}",
                    storeName, contextPath, fileType.getFileType());
-      InMemoryEmbeddingStore<TextSegment> store = InMemoryEmbeddingStore.fromFile(storeName);
-
-      EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
-          .documentSplitter(DocumentSplitters.recursive(maxSegmentSizeInChars, maxOverlapSizeInChars))
-          .embeddingModel(this.embeddingModel)
-          .embeddingStore(store)
-          .build();
-
-      ingestDocument(fileType, contextPath, ingestor);
-
-      store.serializeToFile(storeName);
+      ingestIntoStore(storeName, configuration, maxSegmentSizeInChars, maxOverlapSizeInChars,
+                      ingestor -> ingestDocument(fileType, contextPath, ingestor));
 
       JSONObject jsonObject = new JSONObject();
       jsonObject.put(MuleChainConstants.STATUS, MuleChainConstants.UPDATED);
@@ -449,22 +557,30 @@ public class LangchainEmbeddingStoresOperations {
 
   /**
    * Query information from embedding store (in-Memory), which is imported from the storeName (full path)
+   * @param configuration     Refers to the configuration object
    * @param storeName         Name of the embedding store
    * @param question          Refers to the user prompt or query
    * @param maxResults        Max results to be retrieved from the store
    * @param minScore          Filters the response with this minScore
-   * @param getLatest         Determines whether the store needs to be freshly fetched from the location
+   * @param getLatest         Forces a reload of the store, which is otherwise only reloaded when its file changed
+   * @param search            Whether to search the store exactly or through its HNSW indexes
+   * @param filter            Source metadata the query is restricted on
    * @return                  Returns the relevant embeddings with the attached sources
    */
   @MediaType(value = APPLICATION_JSON, strict = false)
   @Alias("EMBEDDING-query-from-store")
   @Throws(EmbeddingErrorTypeProvider.class)
   @OutputJsonType(schema = "api/response/Response.json")
-  public org.mule.runtime.extension.api.runtime.operation.Result<InputStream, Map<String, Object>> queryFromEmbedding(String storeName,
+  public org.mule.runtime.extension.api.runtime.operation.Result<InputStream, Map<String, Object>> queryFromEmbedding(@Config LangchainLLMConfiguration configuration,
+                                                                                                                      String storeName,
                                                                                                                       @org.mule.runtime.extension.api.annotation.param.Content String question,
                                                                                                                       int maxResults,
                                                                                                                       double minScore,
-                                                                                                                      boolean getLatest) {
+                                                                                                                      boolean getLatest,
+                                                                                                                      @ParameterGroup(
+                                                                                                                          name = "Search") SearchParameters search,
+                                                                                                                      @ParameterGroup(
+                                                                                                                          name = "Filter") MetadataFilterParameters filter) {
     try {
       LOGGER.debug(
                    "Embedding Query from Store Operation called with storeName: {}, latestFetchRequired:{}, query: {}, minScore: {}, maxResults: {}",
@@ -473,18 +589,27 @@ public class LangchainEmbeddingStoresOperations {
         minScore = 0.7;
       }
 
-      InMemoryEmbeddingStore<TextSegment> store = getDeserializedStore(storeName, getLatest);
+      EmbeddingModelSettings modelSettings = configuration.getEmbeddingModelSettings();
+      verifyStoreModel(storeName, modelSettings);
+      EmbeddingStore<TextSegment> store = searchable(EmbeddingStoreRegistry.get(storeName, getLatest), search, configuration);
 
-      Embedding questionEmbedding = this.embeddingModel.embed(question).content();
+      Embedding questionEmbedding = SharedEmbeddingModel.delegate(modelSettings).embed(question).content();
 
-      List<EmbeddingMatch<TextSegment>> relevantEmbeddings = store.findRelevant(questionEmbedding, maxResults, minScore);
+      List<EmbeddingMatch<TextSegment>> relevantEmbeddings = store.search(EmbeddingSearchRequest.builder()
+          .queryEmbedding(questionEmbedding)
+          .maxResults(maxResults)
+          .minScore(minScore)
+          .filter(metadataFilter(filter))
+          .build()).matches();
 
       String information = relevantEmbeddings.stream()
           .map(match -> match.embedded().text())
           .collect(joining("\n\n"));
 
-      JSONObject jsonObject = new JSONObject();
-      jsonObject.put(MuleChainConstants.RESPONSE, information);
+      JsonResponseWriter writer = new JsonResponseWriter();
+      JsonGenerator json = writer.generator();
+      json.writeStartObject();
+      json.writeStringField(MuleChainConstants.RESPONSE, information);
 
       LOGGER.debug("Embedding Query from Store Operation completed with the information: {}", information);
 
@@ -494,35 +619,30 @@ public class LangchainEmbeddingStoresOperations {
       attributes.put(MuleChainConstants.QUESTION, question);
       attributes.put(MuleChainConstants.STORE_NAME, storeName);
 
-      JSONArray sources = new JSONArray();
-      String absoluteDirectoryPath;
-      String fileName;
-      String url;
-
-      JSONObject contentObject;
-      String fullPath;
+      json.writeArrayFieldStart(MuleChainConstants.SOURCES);
       for (EmbeddingMatch<TextSegment> match : relevantEmbeddings) {
         Metadata matchMetadata = match.embedded().metadata();
 
-        fileName = matchMetadata.getString(MuleChainConstants.EmbeddingConstants.FILE_NAME);
-        url = matchMetadata.getString(MuleChainConstants.URL);
-        fullPath = matchMetadata.getString(MuleChainConstants.EmbeddingConstants.FULL_PATH);
-        absoluteDirectoryPath = matchMetadata.getString(MuleChainConstants.EmbeddingConstants.ABSOLUTE_DIRECTORY_PATH);
-
-        contentObject = new JSONObject();
-        contentObject.put(MuleChainConstants.ABSOLUTE_DIRECTORY_PATH, absoluteDirectoryPath);
-        contentObject.put(MuleChainConstants.FULL_PATH, fullPath);
-        contentObject.put(MuleChainConstants.FILE_NAME, fileName);
-        contentObject.put(MuleChainConstants.URL, url);
-        contentObject.put(MuleChainConstants.INDIVIDUAL_SCORE, match.score());
-        contentObject.put(MuleChainConstants.TEXT_SEGMENT, match.embedded().text());
-
-        sources.put(contentObject);
+        json.writeStartObject();
+        JsonResponseWriter.writeOptionalField(json, MuleChainConstants.ABSOLUTE_DIRECTORY_PATH,
+                                              matchMetadata
+                                                  .getString(MuleChainConstants.EmbeddingConstants.ABSOLUTE_DIRECTORY_PATH));
+        JsonResponseWriter.writeOptionalField(json, MuleChainConstants.FULL_PATH,
+                                              matchMetadata.getString(MuleChainConstants.EmbeddingConstants.FULL_PATH));
+        JsonResponseWriter.writeOptionalField(json, MuleChainConstants.FILE_NAME,
+                                              matchMetadata.getString(MuleChainConstants.EmbeddingConstants.FILE_NAME));
+        JsonResponseWriter.writeOptionalField(json, MuleChainConstants.URL, matchMetadata.getString(MuleChainConstants.URL));
+        json.writeNumberField(MuleChainConstants.INDIVIDUAL_SCORE, match.score());
+        json.writeStringField(MuleChainConstants.TEXT_SEGMENT, match.embedded().text());
+        json.writeEndObject();
       }
-      LOGGER.debug("Sources for the information: {}", sources);
-      jsonObject.put(MuleChainConstants.SOURCES, sources);
+      json.writeEndArray();
+      json.writeEndObject();
+      LOGGER.debug("Sources for the information: {} matches", relevantEmbeddings.size());
 
-      return createLLMResponse(jsonObject.toString(), attributes);
+      return createLLMResponse(writer, attributes);
+    } catch (ModuleException e) {
+      throw e;
     } catch (Exception e) {
       throw new ModuleException("Error while querying from the embedding store " + storeName,
                                 MuleChainErrorType.EMBEDDING_OPERATIONS_FAILURE, e);
@@ -534,7 +654,9 @@ public class LangchainEmbeddingStoresOperations {
    * @param configuration           Refers to the configuration object
    * @param data                    Refers to the user prompt or query
    * @param storeName               Name of the store to be queried
-   * @param getLatest               Determines whether the store needs to be freshly fetched from the location
+   * @param getLatest               Forces a reload of the store, which is otherwise only reloaded when its file changed
+   * @param search                  Whether to search the store exactly or through its HNSW indexes
+   * @param filter                  Source metadata the retrieval is restricted on
    * @return                        Returns the embeddings output by the LLM along with the sources
    */
   @MediaType(value = APPLICATION_JSON, strict = false)
@@ -544,16 +666,24 @@ public class LangchainEmbeddingStoresOperations {
   public org.mule.runtime.extension.api.runtime.operation.Result<InputStream, LLMResponseAttributes> promptFromEmbedding(@Config LangchainLLMConfiguration configuration,
                                                                                                                          @org.mule.runtime.extension.api.annotation.param.Content String data,
                                                                                                                          String storeName,
-                                                                                                                         boolean getLatest) {
+                                                                                                                         boolean getLatest,
+                                                                                                                         @ParameterGroup(
+                                                                                                                             name = "Search") SearchParameters search,
+                                                                                                                         @ParameterGroup(
+                                                                                                                             name = "Filter") MetadataFilterParameters filter) {
 
     try {
       LOGGER.debug("Embedding Get info from Store Operation called with storeName: {}, latestFetchRequired:{} & query: {}",
                    storeName, getLatest, data);
-      InMemoryEmbeddingStore<TextSegment> store = getDeserializedStore(storeName, getLatest);
+      verifyStoreModel(storeName, configuration.getEmbeddingModelSettings());
+      EmbeddingStore<TextSegment> store = searchable(EmbeddingStoreRegistry.get(storeName, getLatest), search, configuration);
 
       ChatLanguageModel model = configuration.getModel();
+      TokenBudgetService.BudgetedInput input = TokenBudgetService.apply(configuration, data);
 
-      ContentRetriever contentRetriever = new EmbeddingStoreContentRetriever(store, this.embeddingModel);
+      ContentRetriever contentRetriever = TokenBudgetService.limit(
+                                                                   contentRetriever(store, configuration, filter),
+                                                                   configuration, input);
 
       AssistantSources assistantSources = AiServices.builder(AssistantSources.class)
           .chatLanguageModel(model)
@@ -561,11 +691,13 @@ public class LangchainEmbeddingStoresOperations {
           .build();
 
       Result<String> results;
-      results = assistantSources.chat(data);
+      results = assistantSources.chat(input.getText());
       List<Content> contents = results.sources();
 
-      JSONObject jsonObject = new JSONObject();
-      jsonObject.put(MuleChainConstants.RESPONSE, results.content());
+      JsonResponseWriter writer = new JsonResponseWriter();
+      JsonGenerator json = writer.generator();
+      json.writeStartObject();
+      json.writeStringField(MuleChainConstants.RESPONSE, results.content());
 
       LOGGER.debug("Embedding Get info from Store Operation completed with response: {}", results.content());
 
@@ -574,30 +706,67 @@ public class LangchainEmbeddingStoresOperations {
       attributes.put(MuleChainConstants.QUESTION, data);
       attributes.put(MuleChainConstants.GET_LATEST, String.valueOf(getLatest));
 
-      JSONArray sources = new JSONArray();
-      String absoluteDirectoryPath;
-      String fileName;
-      String url;
+      json.writeArrayFieldStart(MuleChainConstants.SOURCES);
       Metadata metadata;
-
-      JSONObject contentObject;
       for (Content content : contents) {
         metadata = content.textSegment().metadata();
-        absoluteDirectoryPath = metadata.getString(MuleChainConstants.EmbeddingConstants.ABSOLUTE_DIRECTORY_PATH);
-        fileName = metadata.getString(MuleChainConstants.EmbeddingConstants.FILE_NAME);
-        url = metadata.getString(MuleChainConstants.URL);
-
-        contentObject = new JSONObject();
-        contentObject.put(MuleChainConstants.ABSOLUTE_DIRECTORY_PATH, absoluteDirectoryPath);
-        contentObject.put(MuleChainConstants.FILE_NAME, fileName);
-        contentObject.put(MuleChainConstants.URL, url);
-        contentObject.put(MuleChainConstants.TEXT_SEGMENT, content.textSegment().text());
-        sources.put(contentObject);
+
+        json.writeStartObject();
+        JsonResponseWriter.writeOptionalField(json, MuleChainConstants.ABSOLUTE_DIRECTORY_PATH,
+                                              metadata.getString(MuleChainConstants.EmbeddingConstants.ABSOLUTE_DIRECTORY_PATH));
+        JsonResponseWriter.writeOptionalField(json, MuleChainConstants.FILE_NAME,
+                                              metadata.getString(MuleChainConstants.EmbeddingConstants.FILE_NAME));
+        JsonResponseWriter.writeOptionalField(json, MuleChainConstants.URL, metadata.getString(MuleChainConstants.URL));
+        json.writeStringField(MuleChainConstants.TEXT_SEGMENT, content.textSegment().text());
+        json.writeEndObject();
       }
-      jsonObject.put(MuleChainConstants.SOURCES, sources);
-      LOGGER.debug("Sources for this information: {}", sources);
+      json.writeEndArray();
+      json.writeEndObject();
+      LOGGER.debug("Sources for this information: {} contents", contents.size());
+
+      return createLLMResponse(writer, results, input.addTo(attributes));
+    } catch (ModuleException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ModuleException(String.format("Error while getting info from the store %s", storeName),
+                                MuleChainErrorType.EMBEDDING_OPERATIONS_FAILURE, e);
+    }
+  }
+
+  /**
+   * Streaming counterpart of EMBEDDING-get-info-from-store. The relevant segments are retrieved before the operation
+   * returns; the answer is then streamed as it is generated, after an event listing the retrieved sources.
+   * @param configuration           Refers to the configuration object
+   * @param data                    Refers to the user prompt or query
+   * @param storeName               Name of the store to be queried
+   * @param getLatest               Forces a reload of the store, which is otherwise only reloaded when its file changed
+   * @param search                  Whether to search the store exactly or through its HNSW indexes
+   * @param filter                  Source metadata the retrieval is restricted on
+   * @param framing                 Framing of the streamed answer; the sources event is only sent with SSE and NDJSON
+   * @return                        Returns the answer as it is generated
+   */
+  @MediaType(value = ANY, strict = false)
+  @Alias("EMBEDDING-get-info-from-store-w-stream")
+  @Throws(EmbeddingErrorTypeProvider.class)
+  public org.mule.runtime.extension.api.runtime.operation.Result<InputStream, Void> promptFromEmbeddingStream(@Config LangchainLLMConfiguration configuration,
+                                                                                                              @org.mule.runtime.extension.api.annotation.param.Content String data,
+                                                                                                              String storeName,
+                                                                                                              boolean getLatest,
+                                                                                                              @ParameterGroup(
+                                                                                                                  name = "Search") SearchParameters search,
+                                                                                                              @ParameterGroup(
+                                                                                                                  name = "Filter") MetadataFilterParameters filter,
+                                                                                                              @Optional(
+                                                                                                                  defaultValue = "SSE") StreamFraming framing) {
+    try {
+      LOGGER.debug("Embedding Get info from Store Stream Operation called with storeName: {}, latestFetchRequired:{} & query: {}",
+                   storeName, getLatest, data);
+      verifyStoreModel(storeName, configuration.getEmbeddingModelSettings());
+      EmbeddingStore<TextSegment> store = searchable(EmbeddingStoreRegistry.get(storeName, getLatest), search, configuration);
 
-      return createLLMResponse(jsonObject.toString(), results, attributes);
+      return streamRagAnswer(configuration, contentRetriever(store, configuration, filter), data, framing);
+    } catch (ModuleException e) {
+      throw e;
     } catch (Exception e) {
       throw new ModuleException(String.format("Error while getting info from the store %s", storeName),
                                 MuleChainErrorType.EMBEDDING_OPERATIONS_FAILURE, e);
@@ -642,6 +811,7 @@ public class LangchainEmbeddingStoresOperations {
       LOGGER.debug("Tools Use Ai Service Operation called with userPrompt: {}", data);
       LOGGER.debug("Tools Config: {}", toolConfig);
       EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+      EmbeddingModel embeddingModel = SharedEmbeddingModel.delegate(configuration.getEmbeddingModelSettings());
 
       EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
           .documentSplitter(DocumentSplitters.recursive(30000, 200))
@@ -653,7 +823,11 @@ public class LangchainEmbeddingStoresOperations {
       ingestor.ingest(document);
 
       ChatLanguageModel model = configuration.getModel();
-      ContentRetriever contentRetriever = new EmbeddingStoreContentRetriever(embeddingStore, embeddingModel);
+      TokenBudgetService.BudgetedInput input = TokenBudgetService.apply(configuration, data);
+      ContentRetriever contentRetriever = TokenBudgetService.limit(
+                                                                   new EmbeddingStoreContentRetriever(embeddingStore,
+                                                                                                      embeddingModel),
+                                                                   configuration, input);
 
       AssistantEmbeddingR assistant = AiServices.builder(AssistantEmbeddingR.class)
           .chatLanguageModel(model)
@@ -666,10 +840,10 @@ public class LangchainEmbeddingStoresOperations {
           .build();
 
       //String intermediateAnswer = assistant.chat(data);
-      dev.langchain4j.service.Result<String> intermediateAnswer = assistant.chat(data);
+      dev.langchain4j.service.Result<String> intermediateAnswer = assistant.chat(input.getText());
       LOGGER.debug("Intermediate Answer containing the request URLs: {}", intermediateAnswer.content());
       //String response = model.generate(data);
-      Result<String> response = assistantChat.chat(data);
+      Result<String> response = assistantChat.chat(input.getText());
 
       List<String> findURLs = extractUrls(intermediateAnswer.content());
       boolean toolsUsed = false;
@@ -691,16 +865,20 @@ public class LangchainEmbeddingStoresOperations {
         LOGGER.debug("Response after Tools Usage: {}", response.content());
       }
 
-      JSONObject jsonObject = new JSONObject();
-
-      jsonObject.put(MuleChainConstants.RESPONSE, response.content());
+      JsonResponseWriter writer = new JsonResponseWriter();
+      JsonGenerator json = writer.generator();
+      json.writeStartObject();
+      JsonResponseWriter.writeOptionalField(json, MuleChainConstants.RESPONSE, response.content());
+      json.writeEndObject();
 
 
       Map<String, String> attributes = new HashMap<>();
       attributes.put(MuleChainConstants.TOOLS_USED, String.valueOf(toolsUsed));
 
       LOGGER.debug("Tools Use Ai Service Operation completed with response: {}, toolsUsed: {}", response, toolsUsed);
-      return createLLMResponse(jsonObject.toString(), response, attributes);
+      return createLLMResponse(writer, response, input.addTo(attributes));
+    } catch (ModuleException e) {
+      throw e;
     } catch (Exception e) {
       throw new ModuleException("Error occurred while executing AI Tools with the provided config",
                                 MuleChainErrorType.TOOLS_OPERATION_FAILURE, e);
@@ -732,43 +910,49 @@ public class LangchainEmbeddingStoresOperations {
       List<ToolSpecification> toolsSpecs = getTools(tools, configuration);
 
       ChatLanguageModel model = configuration.getModel();
+      TokenBudgetService.BudgetedInput input = TokenBudgetService.apply(configuration, data);
 
-      dev.langchain4j.data.message.UserMessage userMessage = dev.langchain4j.data.message.UserMessage.from(data);
+      dev.langchain4j.data.message.UserMessage userMessage =
+          dev.langchain4j.data.message.UserMessage.from(input.getText());
 
 
       Response<AiMessage> result = model.generate(Arrays.asList(userMessage), toolsSpecs);
 
-      JSONObject jsonObject = new JSONObject();
-
-      JSONArray toolExecutionRequests = new JSONArray();
+      JsonResponseWriter writer = new JsonResponseWriter();
+      JsonGenerator json = writer.generator();
+      json.writeStartObject();
 
       if (result.content().hasToolExecutionRequests()) {
+        json.writeStringField(MuleChainConstants.RESPONSE, "Tools were used");
+        json.writeArrayFieldStart(MuleChainConstants.TOOL_EXECUTION_REQUESTS);
         for (ToolExecutionRequest request : result.content().toolExecutionRequests()) {
-          JSONObject itemJson = new JSONObject();
-          String id = request.id();
-          String name = request.name();
-          String arguments = request.arguments();
-          JSONObject argumentsJson = new JSONObject(arguments);
-          itemJson.put("id", id);
-          itemJson.put("name", name);
-          itemJson.put("arguments", argumentsJson);
-          toolExecutionRequests.put(itemJson);
+          // The arguments are parsed, so that a malformed call fails the operation rather than its caller
+          String arguments = new JSONObject(request.arguments()).toString();
+          json.writeStartObject();
+          JsonResponseWriter.writeOptionalField(json, "id", request.id());
+          JsonResponseWriter.writeOptionalField(json, "name", request.name());
+          json.writeFieldName("arguments");
+          json.writeRawValue(arguments);
+          json.writeEndObject();
         }
-        jsonObject.put(MuleChainConstants.RESPONSE, "Tools were used");
-        jsonObject.put(MuleChainConstants.TOOL_EXECUTION_REQUESTS, toolExecutionRequests);
+        json.writeEndArray();
       } else {
-        JSONObject itemJson = new JSONObject();
-        itemJson.put("id", "-");
-        itemJson.put("name", "-");
-        itemJson.put("arguments", "-");
-        toolExecutionRequests.put(itemJson);
-        jsonObject.put(MuleChainConstants.RESPONSE, result.content().text());
-        jsonObject.put(MuleChainConstants.TOOL_EXECUTION_REQUESTS, toolExecutionRequests);
+        JsonResponseWriter.writeOptionalField(json, MuleChainConstants.RESPONSE, result.content().text());
+        json.writeArrayFieldStart(MuleChainConstants.TOOL_EXECUTION_REQUESTS);
+        json.writeStartObject();
+        json.writeStringField("id", "-");
+        json.writeStringField("name", "-");
+        json.writeStringField("arguments", "-");
+        json.writeEndObject();
+        json.writeEndArray();
       }
+      json.writeEndObject();
 
       Map<String, String> attributes = new HashMap<>();
       attributes.put(MuleChainConstants.TOOLS_USED, String.valueOf(result.content().hasToolExecutionRequests()));
-      return createLLMResponse(jsonObject.toString(), result, attributes);
+      return createLLMResponse(writer, result, input.addTo(attributes));
+    } catch (ModuleException e) {
+      throw e;
     } catch (Exception e) {
       throw new ModuleException("Error occurred while executing native AI Tools with the provided config",
                                 MuleChainErrorType.TOOLS_OPERATION_FAILURE, e);
@@ -779,6 +963,7 @@ public class LangchainEmbeddingStoresOperations {
 
   /**
    * Add document of type text, any and url to embedding store (in-memory), which is exported to the defined storeName (full path)
+   * @param configuration             Refers to the configuration object
    * @param storeName                 Name of the embedding store
    * @param contextPath               Refers to the location of the folder to be processed
    * @param maxSegmentSizeInChars     Max allowed size of continuous sequence of characters while embedding
@@ -790,7 +975,8 @@ public class LangchainEmbeddingStoresOperations {
   @Alias("EMBEDDING-add-folder-to-store")
   @Throws(EmbeddingErrorTypeProvider.class)
   @OutputJsonType(schema = "api/response/StatusResponse.json")
-  public org.mule.runtime.extension.api.runtime.operation.Result<InputStream, Map<String, Object>> addFilesFromFolderEmbedding(String storeName,
+  public org.mule.runtime.extension.api.runtime.operation.Result<InputStream, Map<String, Object>> addFilesFromFolderEmbedding(@Config LangchainLLMConfiguration configuration,
+                                                                                                                               String storeName,
                                                                                                                                String contextPath,
                                                                                                                                int maxSegmentSizeInChars,
                                                                                                                                int maxOverlapSizeInChars,
@@ -799,17 +985,9 @@ public class LangchainEmbeddingStoresOperations {
     try {
       LOGGER.debug("Embedding Add Folder To Store Operation called with storeName: {}, filePath: {} & fileType: {}", storeName,
                    contextPath, fileType.getFileType());
-      InMemoryEmbeddingStore<TextSegment> store = InMemoryEmbeddingStore.fromFile(storeName);
-
-      EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
-          .documentSplitter(DocumentSplitters.recursive(maxSegmentSizeInChars, maxOverlapSizeInChars))
-          .embeddingModel(this.embeddingModel)
-          .embeddingStore(store)
-          .build();
-
       long totalFiles = getTotalFilesCount(contextPath);
-      ingestFolder(contextPath, fileType, ingestor);
-      store.serializeToFile(storeName);
+      ingestIntoStore(storeName, configuration, maxSegmentSizeInChars, maxOverlapSizeInChars,
+                      ingestor -> ingestFolder(contextPath, fileType, ingestor));
 
       JSONObject jsonObject = new JSONObject();
       jsonObject.put(MuleChainConstants.STATUS, MuleChainConstants.UPDATED);
@@ -832,6 +1010,104 @@ public class LangchainEmbeddingStoresOperations {
     }
   }
 
+  /**
+   * Ingests into the store saved at the given path and saves it again. A JSON store is loaded, added to and rewritten; the
+   * entries added to a binary store are collected first and then appended as a new segment.
+   */
+  private void ingestIntoStore(String storeName, LangchainLLMConfiguration configuration, int maxSegmentSizeInChars,
+                               int maxOverlapSizeInChars, Consumer<EmbeddingStoreIngestor> ingestion)
+      throws IOException {
+    EmbeddingModelSettings modelSettings = configuration.getEmbeddingModelSettings();
+    EmbeddingModel embeddingModel = SharedEmbeddingModel.delegate(modelSettings);
+    verifyStoreModel(storeName, modelSettings);
+    Path path = Paths.get(storeName);
+    boolean binary = MappedEmbeddingStore.isMapped(path);
+    EmbeddingBatch batch = new EmbeddingBatch();
+    InMemoryEmbeddingStore<TextSegment> store = binary ? null : InMemoryEmbeddingStore.fromFile(path);
+
+    ingestion.accept(EmbeddingStoreIngestor.builder()
+        .documentSplitter(DocumentSplitters.recursive(maxSegmentSizeInChars, maxOverlapSizeInChars))
+        .embeddingModel(embeddingModel)
+        .embeddingStore(binary ? batch : store)
+        .build());
+
+    if (binary) {
+      SegmentedEmbeddingStore.append(path, batch, configuration.getCompactionExecutor());
+      EmbeddingStoreRegistry.invalidate(storeName);
+    } else {
+      store.serializeToFile(path);
+      EmbeddingStoreRegistry.written(storeName, store);
+    }
+    EmbeddingStoreMetadata.record(storeName, modelSettings.getModelId(),
+                                  embeddingModel.dimension());
+  }
+
+  /**
+   * Applies the search mode to a store; only binary stores have HNSW indexes and quantized vectors, other stores are
+   * searched exactly.
+   */
+  private EmbeddingStore<TextSegment> searchable(EmbeddingStore<TextSegment> store, SearchParameters search,
+                                                 LangchainLLMConfiguration configuration) {
+    if (store instanceof DenseEmbeddingStore) {
+      if (search.getSearchMode() != SearchMode.EXACT) {
+        LOGGER.debug("{} search requested on a JSON store, which is searched exactly", search.getSearchMode());
+      }
+      return ((DenseEmbeddingStore) store).parallel(configuration.getSearchPool());
+    }
+    if (search.getSearchMode() == SearchMode.EXACT || !(store instanceof SegmentedEmbeddingStore)) {
+      return store;
+    }
+    SegmentedEmbeddingStore segmented = (SegmentedEmbeddingStore) store;
+    return search.getSearchMode() == SearchMode.HNSW
+        ? segmented.approximate(search.getEfSearch())
+        : segmented.quantized(search.getRerankFactor());
+  }
+
+  /**
+   * Retriever of the segments of a store relevant to a question, restricted on source metadata.
+   */
+  private ContentRetriever contentRetriever(EmbeddingStore<TextSegment> store, LangchainLLMConfiguration configuration,
+                                            MetadataFilterParameters filter) {
+    return EmbeddingStoreContentRetriever.builder()
+        .embeddingStore(store)
+        .embeddingModel(SharedEmbeddingModel.delegate(configuration.getEmbeddingModelSettings()))
+        .filter(metadataFilter(filter))
+        .build();
+  }
+
+  /**
+   * Builds the filter restricting a query on source metadata, which stores resolve through their metadata index.
+   *
+   * @return The filter, or null if no metadata was chosen
+   */
+  private static Filter metadataFilter(MetadataFilterParameters filter) {
+    if (filter == null || filter.getFilterKey() == null) {
+      return null;
+    }
+    String key = filter.getFilterKey().getKey();
+    List<String> values = filter.getFilterValues() != null ? filter.getFilterValues() : Collections.emptyList();
+    if (values.isEmpty() || (filter.getFilterOperator() == MetadataFilterOperator.EQUALS && values.size() != 1)) {
+      throw new ModuleException(String.format("A %s filter on %s requires %s", filter.getFilterOperator(), key,
+                                              filter.getFilterOperator() == MetadataFilterOperator.EQUALS
+                                                  ? "exactly one value"
+                                                  : "at least one value"),
+                                MuleChainErrorType.EMBEDDING_OPERATIONS_FAILURE);
+    }
+    switch (filter.getFilterOperator()) {
+      case PREFIX:
+        return new MetadataPrefixFilter(key, values);
+      case IN:
+        return new IsIn(key, values);
+      default:
+        return new IsEqualTo(key, values.get(0));
+    }
+  }
+
+  private void verifyStoreModel(String storeName, EmbeddingModelSettings modelSettings) {
+    EmbeddingStoreMetadata.verify(storeName, modelSettings.getModelId(),
+                                  SharedEmbeddingModel.delegate(modelSettings).dimension());
+  }
+
   private long getTotalFilesCount(String contextPath) {
     long totalFiles = 0;
     try (Stream<Path> paths = Files.walk(Paths.get(contextPath))) {
@@ -3,7 +3,7 @@
  */
 package org.mule.extension.mulechain.internal.operation;
 
-import org.json.JSONArray;
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.json.JSONObject;
 import org.mule.extension.mulechain.api.metadata.LLMResponseAttributes;
 import org.mule.extension.mulechain.api.metadata.ScannedDocResponseAttributes;
@@ -15,6 +15,8 @@ import org.mule.extension.mulechain.internal.constants.MuleChainConstants;
 import org.mule.extension.mulechain.internal.error.MuleChainErrorType;
 import org.mule.extension.mulechain.internal.error.provider.ImageErrorTypeProvider;
 import org.mule.extension.mulechain.internal.helpers.ConfidenceService;
+import org.mule.extension.mulechain.internal.helpers.TokenBudgetService;
+import org.mule.extension.mulechain.internal.helpers.JsonResponseWriter;
 import org.mule.extension.mulechain.internal.llm.config.ConfigExtractor;
 import org.mule.runtime.extension.api.annotation.Alias;
 import org.mule.runtime.extension.api.annotation.error.Throws;
@@ -96,18 +98,19 @@ public class LangchainImageModelsOperations {
     try {
       LOGGER.debug("Image Read Operation called with the prompt: {} & the url: {}", data, contextURL);
       ChatLanguageModel model = configuration.getModel();
+      TokenBudgetService.BudgetedInput input = TokenBudgetService.apply(configuration, data);
 
       UserMessage userMessage;
       if (isURL(contextURL)) {
         userMessage = UserMessage.from(
-                                       TextContent.from(data),
+                                       TextContent.from(input.getText()),
                                        ImageContent.from(contextURL));
       } else {
         String imagePath = contextURL;
         String imageBase64 = convertToBase64String(imagePath);
 
         userMessage = UserMessage.from(
-                                       TextContent.from(data),
+                                       TextContent.from(input.getText()),
                                        ImageContent.from(imageBase64, "image/png"));
       }
 
@@ -132,7 +135,9 @@ public class LangchainImageModelsOperations {
         }
       }
 
-      return createLLMResponse(jsonObject.toString(), response, new HashMap<>(), confidenceScore);
+      return createLLMResponse(jsonObject.toString(), response, input.addTo(new HashMap<>()), confidenceScore);
+    } catch (ModuleException e) {
+      throw e;
     } catch (Exception e) {
       throw new ModuleException(
                                 String.format("Unable to analyze the provided image %s with the text: %s", contextURL,
@@ -204,9 +209,10 @@ public class LangchainImageModelsOperations {
     LOGGER.debug("Image Read Scanned Documents Operation called with the prompt: {} & filePath: {}", data,
                  filePath);
     ChatLanguageModel model = configuration.getModel();
+    TokenBudgetService.BudgetedInput input = TokenBudgetService.apply(configuration, data);
 
-    JSONObject jsonObject = new JSONObject();
-    JSONArray docPages = new JSONArray();
+    JsonResponseWriter writer = new JsonResponseWriter();
+    JsonGenerator json = writer.generator();
 
     int totalPages;
     List<ScannedDocResponseAttributes.DocResponseAttribute> docResponseAttributes = new ArrayList<>();
@@ -218,7 +224,8 @@ public class LangchainImageModelsOperations {
       totalPages = document.getNumberOfPages();
       LOGGER.info("Total files to be converted -> {}", totalPages);
 
-      JSONObject docPage;
+      json.writeStartObject();
+      json.writeArrayFieldStart(MuleChainConstants.PAGES);
 
       for (int pageNumber = 0; pageNumber < totalPages; pageNumber++) {
 
@@ -227,7 +234,7 @@ public class LangchainImageModelsOperations {
 
         String imageBase64 = convertToBase64String(image);
         UserMessage userMessage = UserMessage.from(
-                                                   TextContent.from(data),
+                                                   TextContent.from(input.getText()),
                                                    ImageContent.from(imageBase64, "image/png"));
 
         Response<AiMessage> response = model.generate(userMessage);
@@ -248,9 +255,10 @@ public class LangchainImageModelsOperations {
           }
         }
 
-        docPage = new JSONObject();
-        docPage.put(MuleChainConstants.PAGE, pageNumber + 1);
-        docPage.put(MuleChainConstants.RESPONSE, response.content().text());
+        json.writeStartObject();
+        json.writeNumberField(MuleChainConstants.PAGE, pageNumber + 1);
+        json.writeStringField(MuleChainConstants.RESPONSE, response.content().text());
+        json.writeEndObject();
         LOGGER.debug("Image Read Scanned Documents Operation completed with the response: {}",
                      response.content().text());
 
@@ -268,8 +276,9 @@ public class LangchainImageModelsOperations {
         }
 
         docResponseAttributes.add(docAttr);
-        docPages.put(docPage);
       }
+      json.writeEndArray();
+      json.writeEndObject();
 
     } catch (IOException e) {
       throw new ModuleException("Error occurred while processing the document file: " + filePath,
@@ -284,13 +293,10 @@ public class LangchainImageModelsOperations {
                                 e);
     }
 
-    jsonObject.put(MuleChainConstants.PAGES, docPages);
-
     Map<String, String> attributes = new HashMap<>();
     attributes.put(MuleChainConstants.TOTAL_PAGES, String.valueOf(totalPages));
 
-    return createLLMResponse(jsonObject.toString(), docResponseAttributes,
-                             attributes);
+    return createLLMResponse(writer, docResponseAttributes, input.addTo(attributes));
   }
 
   /**
@@ -323,6 +329,10 @@ public class LangchainImageModelsOperations {
     }
 
     ChatLanguageModel model = configuration.getModel();
+    // The instructions are sent with every query, next to a fixed extraction prompt
+    String instructions = specialInstructions != null
+        ? TokenBudgetService.apply(configuration, specialInstructions).getText()
+        : null;
 
     JSONObject jsonObject = new JSONObject();
     JSONObject fieldsObject = new JSONObject();
@@ -360,8 +370,7 @@ public class LangchainImageModelsOperations {
       for (String fieldName : fields) {
         CompletableFuture<FieldExtractionResult> task = CompletableFuture.supplyAsync(() -> {
           try {
-            return extractFieldFromAllPages(fieldName, pageImages, model, configuration,
-                                            specialInstructions);
+            return extractFieldFromAllPages(fieldName, pageImages, model, configuration, instructions);
           } catch (Exception e) {
             LOGGER.error("Error extracting field '{}': {}", fieldName, e.getMessage());
             return new FieldExtractionResult(fieldName, null, null, -1, null);
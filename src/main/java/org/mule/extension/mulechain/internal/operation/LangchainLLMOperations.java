@@ -6,25 +6,35 @@ package org.mule.extension.mulechain.internal.operation;
 import dev.langchain4j.model.chat.ChatLanguageModel;
 
 import static org.mule.extension.mulechain.internal.helpers.ResponseHelper.createLLMResponse;
+import static org.mule.extension.mulechain.internal.helpers.ResponseHelper.sumTokenUsage;
+import static org.mule.extension.mulechain.internal.helpers.ResponseHelper.toTokenUsage;
 import static org.mule.runtime.extension.api.annotation.param.MediaType.APPLICATION_JSON;
 
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.text.StringCharacterIterator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Stream;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.mule.extension.mulechain.api.metadata.ConfidenceScore;
 import org.mule.extension.mulechain.api.metadata.LLMResponseAttributes;
+import org.mule.extension.mulechain.api.metadata.TokenUsage;
 import org.mule.extension.mulechain.internal.config.LangchainLLMConfiguration;
 import org.mule.extension.mulechain.internal.constants.MuleChainConstants;
+import org.mule.extension.mulechain.internal.embedding.CentroidClassifier;
 import org.mule.extension.mulechain.internal.error.MuleChainErrorType;
 import org.mule.extension.mulechain.internal.error.provider.AiServiceErrorTypeProvider;
+import org.mule.extension.mulechain.internal.helpers.BatchChatService;
+import org.mule.extension.mulechain.internal.helpers.BatchSentimentService;
 import org.mule.extension.mulechain.internal.helpers.ConfidenceService;
+import org.mule.extension.mulechain.internal.helpers.ResponseCacheService;
+import org.mule.extension.mulechain.internal.helpers.TokenBudgetService;
+import org.mule.extension.mulechain.internal.helpers.SentimentService;
 import org.mule.extension.mulechain.internal.llm.config.ConfigExtractor;
 import org.mule.extension.mulechain.internal.llm.type.ModerationModelType;
 import org.mule.runtime.extension.api.annotation.Alias;
@@ -35,8 +45,10 @@ import org.mule.runtime.extension.api.annotation.param.Content;
 import org.mule.runtime.extension.api.annotation.param.MediaType;
 import org.mule.runtime.extension.api.annotation.param.Optional;
 
+import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.model.input.Prompt;
 import dev.langchain4j.model.input.PromptTemplate;
+import dev.langchain4j.model.output.Response;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.service.Result;
 import dev.langchain4j.service.UserMessage;
@@ -53,6 +65,9 @@ public class LangchainLLMOperations {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(LangchainLLMOperations.class);
 
+  private static final String LOCAL_CLASSIFIER = "local";
+  private static final String SAFE_LABEL = "safe";
+
   interface Assistant {
 
     Result<String> chat(String userMessage);
@@ -76,12 +91,18 @@ public class LangchainLLMOperations {
     // https://platform.openai.com/docs/api-reference/chat/create
     try {
       LOGGER.debug("Chat Answer Prompt Operation called with prompt: {}", prompt);
+      TokenBudgetService.BudgetedInput input = TokenBudgetService.apply(configuration, prompt);
+      ResponseCacheService.Lookup lookup =
+          ResponseCacheService.lookup(configuration, "CHAT-answer-prompt", input.getText());
+      if (lookup.isHit()) {
+        return ResponseCacheService.cachedResponse(lookup);
+      }
       ChatLanguageModel model = configuration.getModel();
       Assistant assistant = AiServices.create(Assistant.class, model);
-      Result<String> answer = assistant.chat(prompt);
+      Result<String> answer = assistant.chat(input.getText());
 
       // Calculate confidence score if enabled
-      ConfidenceScore confidenceScore = ConfidenceService.calculateConfidence(prompt, answer.content(),
+      ConfidenceScore confidenceScore = ConfidenceService.calculateConfidence(input.getText(), answer.content(),
                                                                               configuration);
 
       JSONObject jsonObject = new JSONObject();
@@ -89,7 +110,13 @@ public class LangchainLLMOperations {
       LOGGER.debug("Chat Answer Prompt Operation completed with response: {} and confidence: {}",
                    answer.content(), confidenceScore != null ? confidenceScore.toString() : "unavailable");
 
-      return createLLMResponse(jsonObject.toString(), answer, new HashMap<>(), confidenceScore);
+      return createLLMResponse(jsonObject.toString(), answer,
+                               input.addTo(ResponseCacheService.store(configuration, lookup, jsonObject.toString(),
+                                                                      toTokenUsage(answer.tokenUsage()),
+                                                                      confidenceScore)),
+                               confidenceScore);
+    } catch (ModuleException e) {
+      throw e;
     } catch (Exception e) {
       throw new ModuleException("Unable to respond with the chat provided",
                                 MuleChainErrorType.AI_SERVICES_FAILURE, e);
@@ -134,13 +161,20 @@ public class LangchainLLMOperations {
       variables.put(MuleChainConstants.DATASET, dataset);
 
       Prompt prompt = promptTemplate.apply(variables);
+      TokenBudgetService.BudgetedInput input = TokenBudgetService.apply(configuration, prompt.text());
+
+      ResponseCacheService.Lookup lookup =
+          ResponseCacheService.lookup(configuration, "AGENT-define-prompt-template", input.getText());
+      if (lookup.isHit()) {
+        return ResponseCacheService.cachedResponse(lookup);
+      }
 
       Assistant assistant = AiServices.create(Assistant.class, model);
 
-      Result<String> answer = assistant.chat(prompt.text());
+      Result<String> answer = assistant.chat(input.getText());
 
       // Calculate confidence score if enabled
-      ConfidenceScore confidenceScore = ConfidenceService.calculateConfidence(prompt.text(), answer.content(),
+      ConfidenceScore confidenceScore = ConfidenceService.calculateConfidence(input.getText(), answer.content(),
                                                                               configuration);
 
       JSONObject jsonObject = new JSONObject();
@@ -148,13 +182,59 @@ public class LangchainLLMOperations {
       LOGGER.debug("Agent Define Prompt Template Operation completed with response: {} and confidence: {}",
                    answer.content(), confidenceScore != null ? confidenceScore.toString() : "unavailable");
 
-      return createLLMResponse(jsonObject.toString(), answer, new HashMap<>(), confidenceScore);
+      return createLLMResponse(jsonObject.toString(), answer,
+                               input.addTo(ResponseCacheService.store(configuration, lookup, jsonObject.toString(),
+                                                                      toTokenUsage(answer.tokenUsage()),
+                                                                      confidenceScore)),
+                               confidenceScore);
+    } catch (ModuleException e) {
+      throw e;
     } catch (Exception e) {
       throw new ModuleException("Unable to reply with the correct prompt template",
                                 MuleChainErrorType.AI_SERVICES_FAILURE, e);
     }
   }
 
+  /**
+   * Answers a batch of prompts in a single operation. The prompts are sent concurrently, up to the batch parallelism of the
+   * configuration, and a failing prompt is reported in its own item without failing the batch.
+   *
+   * @param configuration Refers to the configuration object
+   * @param prompts       JSON array of prompts, or of variable sets when a template is provided
+   * @param template      Optional prompt template whose {{variables}} are filled from each variable set
+   * @return Returns the responses in input order, each with its token usage or error
+   */
+  @MediaType(value = APPLICATION_JSON, strict = false)
+  @Alias("CHAT-answer-prompts-batch")
+  @Throws(AiServiceErrorTypeProvider.class)
+  @OutputJsonType(schema = "api/response/BatchResponse.json")
+  public org.mule.runtime.extension.api.runtime.operation.Result<InputStream, LLMResponseAttributes> answerPromptsBatch(
+                                                                                                                        @Config LangchainLLMConfiguration configuration,
+                                                                                                                        @Content String prompts,
+                                                                                                                        @Optional String template) {
+    try {
+      List<String> batch = BatchChatService.toPrompts(prompts, template);
+      LOGGER.debug("Chat Answer Prompts Batch Operation called with {} prompts", batch.size());
+      List<BatchChatService.ItemResult> results =
+          BatchChatService.execute(configuration.getModel(), batch,
+                                   prompt -> TokenBudgetService.apply(configuration, prompt).getText(),
+                                   configuration.getBatchExecutor());
+
+      long failed = results.stream().filter(result -> !result.isSuccess()).count();
+      Map<String, String> attributes = new HashMap<>();
+      attributes.put(MuleChainConstants.TOTAL_ITEMS, String.valueOf(results.size()));
+      attributes.put(MuleChainConstants.SUCCEEDED_ITEMS, String.valueOf(results.size() - failed));
+      attributes.put(MuleChainConstants.FAILED_ITEMS, String.valueOf(failed));
+      LOGGER.debug("Chat Answer Prompts Batch Operation completed with {} failed prompts out of {}", failed, results.size());
+
+      return createLLMResponse(BatchChatService.toJson(results).toString(), BatchChatService.aggregateTokenUsage(results),
+                               attributes);
+    } catch (Exception e) {
+      throw new ModuleException("Unable to respond to the batch of prompts",
+                                MuleChainErrorType.AI_SERVICES_FAILURE, e);
+    }
+  }
+
   /**
    * Supporting ENUM and Interface for Sentiments
    */
@@ -171,6 +251,13 @@ public class LangchainLLMOperations {
       this.upperBound = upperBound;
     }
 
+    /**
+     * @return The score in the middle of the range of the category
+     */
+    public double getMidpoint() {
+      return (lowerBound + upperBound) / 2;
+    }
+
     /**
      * Maps a floating-point score to a sentiment category.
      *
@@ -197,9 +284,15 @@ public class LangchainLLMOperations {
    * Analyzes the sentiment of the user data and returns both the sentiment score
    * and category, and also provides a chat answer
    * based on the sentiment analysis.
+   * <p>
+   * With structured output, the score and the reply are produced by a single JSON-constrained call. Otherwise, or when the
+   * model does not answer with the expected JSON, the score and the reply are requested by two concurrent calls. Without a
+   * reply, clear-cut inputs are answered by the local sentiment classifier of the configuration, when configured.
    *
-   * @param configuration Refers to the configuration object
-   * @param data          Refers to the user input which needs to be analyzed
+   * @param configuration    Refers to the configuration object
+   * @param data             Refers to the user input which needs to be analyzed
+   * @param generateResponse Whether a brief reply to the input is generated
+   * @param structuredOutput Whether the score and the reply are requested in a single call, off by default
    * @return Returns the response with both sentiment score, category, and chat
    *         reply
    */
@@ -210,60 +303,62 @@ public class LangchainLLMOperations {
   public org.mule.runtime.extension.api.runtime.operation.Result<InputStream, LLMResponseAttributes> extractSentiments(
                                                                                                                        @Config LangchainLLMConfiguration configuration,
                                                                                                                        @Content String data,
-                                                                                                                       boolean generateResponse) {
+                                                                                                                       boolean generateResponse,
+                                                                                                                       @Optional(
+                                                                                                                           defaultValue = "false") boolean structuredOutput) {
 
     LOGGER.debug("Sentiment Analyze Operation initiated with input data: {}", data);
 
     try {
+      // Clear-cut inputs are answered by the local classifier, without calling the LLM
+      if (!generateResponse && configuration.getSentimentClassifier() != null) {
+        org.mule.runtime.extension.api.runtime.operation.Result<InputStream, LLMResponseAttributes> localResult =
+            classifySentimentLocally(configuration, data);
+        if (localResult != null) {
+          return localResult;
+        }
+      }
+
       // Fetch the language model from the configuration
       ChatLanguageModel model = configuration.getModel();
+      Executor executor = configuration.getInteractiveExecutor();
+      TokenBudgetService.BudgetedInput input = TokenBudgetService.apply(configuration, data);
+      String text = input.getText();
+
+      // The confidence score only depends on the input, so it is calculated while the sentiment is analyzed
+      CompletableFuture<ConfidenceScore> confidenceFuture = configuration.getEnableConfidenceScore()
+          ? CompletableFuture.supplyAsync(() -> ConfidenceService.calculateConfidence(text, null, configuration), executor)
+          : CompletableFuture.completedFuture(ConfidenceScore.unavailable());
+
+      SentimentService.SentimentResult sentimentResult = null;
+      if (structuredOutput) {
+        try {
+          sentimentResult = SentimentService.analyze(model, text, generateResponse);
+        } catch (IllegalArgumentException e) {
+          LOGGER.warn("Structured sentiment analysis failed, falling back to separate calls: {}", e.getMessage());
+        }
+      }
+      if (sentimentResult == null) {
+        sentimentResult = analyzeSentimentWithSeparateCalls(model, text, generateResponse, executor);
+      }
 
-      // Create an instance of SentimentAnalyzer using the language model
-      SentimentAnalyzer sentimentAnalyzer = AiServices.create(SentimentAnalyzer.class, model);
-
-      // Analyze sentiment of the provided data and get a floating-point score between
-      // -1 and 1
-      Result<Double> sentimentResult = sentimentAnalyzer.analyzeSentimentOf(data);
-      double sentimentScore = sentimentResult.content(); // The dynamic sentiment score
+      double sentimentScore = sentimentResult.getScore(); // The dynamic sentiment score
       LOGGER.info("Sentiment analyzed with score: {}", sentimentScore);
 
       // Map the score to a sentiment category
       Sentiment sentimentCategory = Sentiment.fromScore(sentimentScore);
       LOGGER.info("Mapped sentiment category: {}", sentimentCategory);
 
-      // Prepare the JSON response with both the sentiment score and category
-      String jsonResponse = createSentimentResponse(sentimentScore, sentimentCategory);
-
-      String chatResponse;
-      if (generateResponse) {
-        // Get a response based on the input data provided (instead of using sentiment
-        // category)
-        String chatPrompt = "Respond to the following input briefly:" + data;
-
-        // Call the answerPromptByModelName method to get the chat response based on the
-        // input data
-        org.mule.runtime.extension.api.runtime.operation.Result<InputStream, LLMResponseAttributes> chatResponseResult =
-            answerPromptByModelName(
-                                    configuration, chatPrompt);
-
-        InputStream chatResponseStream = chatResponseResult.getOutput();
-
-        // Convert InputStream to String
-        chatResponse = convertInputStreamToString(chatResponseStream);
-      } else {
-        chatResponse = "N/A";
-      }
-
-      // Combine the responses into a JSON object
-      JSONObject combinedResponse = new JSONObject(jsonResponse);
-      combinedResponse.put("chatResponse", chatResponse); // Adding chat response to the JSON
-
-      // Calculate confidence score if enabled for sentiment analysis
-      ConfidenceScore confidenceScore = ConfidenceService.calculateConfidence(data, jsonResponse, configuration);
+      // Combine the score, category and chat reply into a JSON object
+      JSONObject combinedResponse = new JSONObject(createSentimentResponse(sentimentScore, sentimentCategory));
+      combinedResponse.put("chatResponse", generateResponse ? sentimentResult.getReply() : "N/A");
 
       // Return the final result encapsulating the combined response and attributes
-      return createLLMResponse(combinedResponse.toString(), sentimentResult, new HashMap<>(), confidenceScore);
+      return createLLMResponse(combinedResponse.toString(), sentimentResult.getTokenUsage(),
+                               input.addTo(new HashMap<>()), confidenceFuture.join());
 
+    } catch (ModuleException ex) {
+      throw ex;
     } catch (IllegalArgumentException ex) {
       LOGGER.error("Invalid input provided for sentiment analysis: {}", ex.getMessage());
       throw new ModuleException("Invalid input for sentiment analysis", MuleChainErrorType.AI_SERVICES_FAILURE,
@@ -275,19 +370,123 @@ public class LangchainLLMOperations {
   }
 
   /**
-   * Helper method to convert InputStream to String.
+   * Classifies the sentiment with the local classifier of the configuration.
+   *
+   * @return The result, or null when the input is ambiguous and needs the LLM
+   */
+  private org.mule.runtime.extension.api.runtime.operation.Result<InputStream, LLMResponseAttributes> classifySentimentLocally(
+                                                                                                                               LangchainLLMConfiguration configuration,
+                                                                                                                               String data) {
+    CentroidClassifier.Prediction prediction = configuration.getSentimentClassifier().classify(data);
+    if (prediction.getMargin() < configuration.getLocalClassifierMargin()) {
+      LOGGER.debug("Local sentiment classification is ambiguous (margin {}), calling the LLM", prediction.getMargin());
+      return null;
+    }
+    Sentiment sentimentCategory;
+    try {
+      sentimentCategory = Sentiment.valueOf(prediction.getLabel());
+    } catch (IllegalArgumentException e) {
+      LOGGER.warn("Label {} of the local sentiment classifier is not a sentiment category, calling the LLM",
+                  prediction.getLabel());
+      return null;
+    }
+    LOGGER.debug("Sentiment classified locally as {} with margin {}", sentimentCategory, prediction.getMargin());
+    JSONObject combinedResponse =
+        new JSONObject(createSentimentResponse(sentimentCategory.getMidpoint(), sentimentCategory));
+    combinedResponse.put("chatResponse", "N/A");
+    return createLLMResponse(combinedResponse.toString(), new TokenUsage(0, 0, 0), localClassifierAttributes(prediction),
+                             ConfidenceScore.unavailable());
+  }
+
+  private static Map<String, String> localClassifierAttributes(CentroidClassifier.Prediction prediction) {
+    Map<String, String> attributes = new HashMap<>();
+    attributes.put(MuleChainConstants.CLASSIFIER, LOCAL_CLASSIFIER);
+    attributes.put(MuleChainConstants.CLASSIFIER_MARGIN, String.valueOf(prediction.getMargin()));
+    return attributes;
+  }
+
+  /**
+   * Requests the sentiment score and the reply with two concurrent calls.
+   */
+  private static SentimentService.SentimentResult analyzeSentimentWithSeparateCalls(ChatLanguageModel model, String data,
+                                                                                    boolean generateResponse,
+                                                                                    Executor executor) {
+    SentimentAnalyzer sentimentAnalyzer = AiServices.create(SentimentAnalyzer.class, model);
+    CompletableFuture<Result<Double>> scoreFuture =
+        CompletableFuture.supplyAsync(() -> sentimentAnalyzer.analyzeSentimentOf(data), executor);
+    CompletableFuture<Response<AiMessage>> replyFuture = generateResponse
+        ? CompletableFuture.supplyAsync(() -> model.generate(
+                                                             dev.langchain4j.data.message.UserMessage
+                                                                 .from("Respond to the following input briefly:" + data)),
+                                        executor)
+        : CompletableFuture.completedFuture(null);
+
+    Result<Double> score = scoreFuture.join();
+    Response<AiMessage> reply = replyFuture.join();
+    return new SentimentService.SentimentResult(score.content(), reply != null ? reply.content().text() : null,
+                                                sumTokenUsage(toTokenUsage(score.tokenUsage()),
+                                                              reply != null ? toTokenUsage(reply.tokenUsage()) : null));
+  }
+
+  /**
+   * Analyzes the sentiment of many texts with few requests. Texts are packed into requests under an estimated token budget
+   * and scored by index; texts without a readable score are retried in new requests, the others are kept.
    *
-   * @param inputStream The InputStream to convert
-   * @return The String representation of the InputStream
+   * @param configuration       Refers to the configuration object
+   * @param texts               JSON array of the texts to analyze
+   * @param maxTokensPerRequest Estimated token budget of a request, prompt and answer included
+   * @param maxRetries          Number of times the texts without a readable score are sent again
+   * @return Returns the sentiment score and category, or the error, of every text in input order
    */
-  private String convertInputStreamToString(InputStream inputStream) throws IOException {
-    StringBuilder resultStringBuilder = new StringBuilder();
-    BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-    String line;
-    while ((line = reader.readLine()) != null) {
-      resultStringBuilder.append(line);
+  @MediaType(value = APPLICATION_JSON, strict = false)
+  @Alias("SENTIMENT-analyze-batch")
+  @Throws(AiServiceErrorTypeProvider.class)
+  @OutputJsonType(schema = "api/response/BatchSentimentResponse.json")
+  public org.mule.runtime.extension.api.runtime.operation.Result<InputStream, LLMResponseAttributes> extractSentimentsBatch(
+                                                                                                                            @Config LangchainLLMConfiguration configuration,
+                                                                                                                            @Content String texts,
+                                                                                                                            @Optional(
+                                                                                                                                defaultValue = "3000") int maxTokensPerRequest,
+                                                                                                                            @Optional(
+                                                                                                                                defaultValue = "2") int maxRetries) {
+    try {
+      List<String> batch = BatchSentimentService.toTexts(texts);
+      LOGGER.debug("Sentiment Analyze Batch Operation called with {} texts", batch.size());
+      BatchSentimentService.BatchResult result =
+          BatchSentimentService.analyze(configuration.getModel(), batch,
+                                        text -> TokenBudgetService.apply(configuration, text).getText(),
+                                        maxTokensPerRequest, maxRetries, configuration.getBatchExecutor());
+
+      JSONArray items = new JSONArray();
+      int failed = 0;
+      for (int i = 0; i < result.size(); i++) {
+        JSONObject item = new JSONObject();
+        item.put(MuleChainConstants.INDEX, i);
+        Double score = result.getScore(i);
+        if (score != null) {
+          item.put(MuleChainConstants.SENTIMENT_SCORE, score.doubleValue());
+          item.put(MuleChainConstants.SENTIMENT_CATEGORY, Sentiment.fromScore(score).name());
+        } else {
+          item.put(MuleChainConstants.ERROR, result.getError(i));
+          failed++;
+        }
+        items.put(item);
+      }
+      JSONObject jsonObject = new JSONObject();
+      jsonObject.put(MuleChainConstants.RESPONSES, items);
+
+      Map<String, String> attributes = new HashMap<>();
+      attributes.put(MuleChainConstants.TOTAL_ITEMS, String.valueOf(result.size()));
+      attributes.put(MuleChainConstants.SUCCEEDED_ITEMS, String.valueOf(result.size() - failed));
+      attributes.put(MuleChainConstants.FAILED_ITEMS, String.valueOf(failed));
+      attributes.put(MuleChainConstants.REQUEST_COUNT, String.valueOf(result.getRequestCount()));
+      LOGGER.debug("Sentiment Analyze Batch Operation scored {} texts with {} requests", result.size() - failed,
+                   result.getRequestCount());
+
+      return createLLMResponse(jsonObject.toString(), result.getTokenUsage(), attributes);
+    } catch (Exception e) {
+      throw new ModuleException("Failed to analyze the sentiment of the batch", MuleChainErrorType.AI_SERVICES_FAILURE, e);
     }
-    return resultStringBuilder.toString();
   }
 
   /**
@@ -309,7 +508,8 @@ public class LangchainLLMOperations {
 
   /**
    * Use OpenAI or Mistral Moderation models to moderate the input (any, from user
-   * or llm)
+   * or llm). Clear-cut inputs are answered by the local moderation classifier of the
+   * configuration, when configured.
    */
   @MediaType(value = APPLICATION_JSON, strict = false)
   @Alias("Toxicity-detection")
@@ -319,11 +519,21 @@ public class LangchainLLMOperations {
                                                                                                                    @Config LangchainLLMConfiguration configuration,
                                                                                                                    String input) {
     try {
-      JSONObject resultObject = org.mule.extension.mulechain.internal.llm.type.ModerationModelType
-          .moderationType(input, configuration);
+      // Clear-cut inputs are answered by the local classifier, without calling the moderation API
+      CentroidClassifier moderationClassifier = configuration.getModerationClassifier();
+      if (moderationClassifier != null) {
+        CentroidClassifier.Prediction prediction = moderationClassifier.classify(input);
+        if (prediction.getMargin() >= configuration.getLocalClassifierMargin()) {
+          LOGGER.debug("Input moderated locally as {} with margin {}", prediction.getLabel(), prediction.getMargin());
+          JSONObject jsonObject = new JSONObject();
+          jsonObject.put(MuleChainConstants.RESPONSE,
+                         ModerationModelType.fromPrediction(prediction, SAFE_LABEL, LOCAL_CLASSIFIER));
+          return createLLMResponse(jsonObject.toString(), new TokenUsage(0, 0, 0), localClassifierAttributes(prediction),
+                                   ConfidenceScore.unavailable());
+        }
+      }
 
-      String response = executeREST(resultObject.getString("url"), resultObject.getString("apiKey"),
-                                    resultObject.getJSONObject("payload").toString());
+      String response = ModerationModelType.moderate(input, configuration).toString();
 
       JSONObject jsonObject = new JSONObject();
       jsonObject.put(MuleChainConstants.RESPONSE, new JSONObject(response));
@@ -344,45 +554,49 @@ public class LangchainLLMOperations {
     }
   }
 
-  private static HttpURLConnection getConnectionObject(URL url, String apiKey) throws IOException {
-    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-    conn.setDoOutput(true);
-    conn.setRequestMethod("POST");
-    conn.setRequestProperty("Authorization", "Bearer " + apiKey);
-    conn.setRequestProperty("Content-Type", "application/json;charset=utf-8");
-    return conn;
-  }
-
-  private static String executeREST(String urlString, String apiKey, String payload) {
-
+  /**
+   * Moderates many inputs with a single request to the OpenAI or Mistral moderation endpoint.
+   *
+   * @param configuration Refers to the configuration object
+   * @param inputs        JSON array of the inputs to moderate
+   * @return Returns whether each input is flagged, with its flagged categories and category scores, in input order
+   */
+  @MediaType(value = APPLICATION_JSON, strict = false)
+  @Alias("Toxicity-detection-batch")
+  @Throws(AiServiceErrorTypeProvider.class)
+  @OutputJsonType(schema = "api/response/ModerationBatchResponse.json")
+  public org.mule.runtime.extension.api.runtime.operation.Result<InputStream, LLMResponseAttributes> moderateInputs(
+                                                                                                                    @Config LangchainLLMConfiguration configuration,
+                                                                                                                    @Content String inputs) {
     try {
-      URL url = new URL(urlString);
-      HttpURLConnection conn = getConnectionObject(url, apiKey);
-
-      try (OutputStream os = conn.getOutputStream()) {
-        byte[] input = payload.getBytes(StandardCharsets.UTF_8);
-        os.write(input, 0, input.length);
+      JSONArray batch = new JSONArray(inputs);
+      LOGGER.debug("Toxicity Detection Batch Operation called with {} inputs", batch.length());
+      JSONArray results = ModerationModelType.moderate(batch, configuration).getJSONArray("results");
+      if (results.length() != batch.length()) {
+        throw new IllegalStateException("The moderation response holds " + results.length() + " results for "
+            + batch.length() + " inputs");
       }
 
-      int responseCode = conn.getResponseCode();
-      if (responseCode == HttpURLConnection.HTTP_OK) {
-        try (BufferedReader br = new BufferedReader(
-                                                    new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-          StringBuilder response = new StringBuilder();
-          String responseLine;
-          while ((responseLine = br.readLine()) != null) {
-            response.append(responseLine.trim());
-          }
-          return response.toString();
+      JSONArray items = new JSONArray();
+      int flagged = 0;
+      for (int i = 0; i < results.length(); i++) {
+        JSONObject item = ModerationModelType.toItem(i, results.getJSONObject(i));
+        if (item.getBoolean(MuleChainConstants.FLAGGED)) {
+          flagged++;
         }
-      } else {
-        return "Error: " + responseCode;
+        items.put(item);
       }
+      JSONObject jsonObject = new JSONObject();
+      jsonObject.put(MuleChainConstants.RESPONSES, items);
+
+      Map<String, String> attributes = new HashMap<>();
+      attributes.put(MuleChainConstants.TOTAL_ITEMS, String.valueOf(items.length()));
+      attributes.put(MuleChainConstants.FLAGGED_ITEMS, String.valueOf(flagged));
+      return createLLMResponse(jsonObject.toString(), (TokenUsage) null, attributes);
     } catch (Exception e) {
-      e.printStackTrace();
-      return "Exception occurred: " + e.getMessage();
+      throw new ModuleException("Unable to perform toxicity detection on the batch", MuleChainErrorType.AI_SERVICES_FAILURE,
+                                e);
     }
-
   }
 
 }
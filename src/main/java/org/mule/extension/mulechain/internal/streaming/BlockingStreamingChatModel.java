@@ -0,0 +1,64 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.streaming;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Streaming facade over a chat model without streaming support. The answer is generated on the executor, as a streaming
+ * model would on its connection thread, and handed to the handler as a single token.
+ */
+public class BlockingStreamingChatModel implements StreamingChatLanguageModel {
+
+  private final ChatLanguageModel model;
+  private final Executor executor;
+
+  public BlockingStreamingChatModel(ChatLanguageModel model, Executor executor) {
+    this.model = model;
+    this.executor = executor;
+  }
+
+  @Override
+  public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+    generate(() -> model.generate(messages), handler);
+  }
+
+  @Override
+  public void generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications,
+                       StreamingResponseHandler<AiMessage> handler) {
+    generate(() -> model.generate(messages, toolSpecifications), handler);
+  }
+
+  @Override
+  public void generate(List<ChatMessage> messages, ToolSpecification toolSpecification,
+                       StreamingResponseHandler<AiMessage> handler) {
+    generate(() -> model.generate(messages, toolSpecification), handler);
+  }
+
+  private void generate(Supplier<Response<AiMessage>> call, StreamingResponseHandler<AiMessage> handler) {
+    executor.execute(() -> {
+      Response<AiMessage> response;
+      try {
+        response = call.get();
+        if (response.content().text() != null) {
+          handler.onNext(response.content().text());
+        }
+      } catch (RuntimeException e) {
+        handler.onError(e);
+        return;
+      }
+      handler.onComplete(response);
+    });
+  }
+}
@@ -0,0 +1,208 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded byte ring buffer between a provider writing a streamed response and the flow reading it.
+ * <p>
+ * The writer blocks while the buffer is full, which slows down the provider connection instead of growing the heap. A
+ * provider error fails the reader with that error instead of ending the stream as if it were complete. When no byte moves
+ * for the idle timeout, in either direction, the stream fails on both sides. Once the reader closes the stream, or the
+ * stream fails, writes throw a {@link CancellationException} so that the writer stops producing; this does not cancel
+ * the provider request, whose remaining response is still received and has to be dropped by the writer.
+ */
+public class StreamBuffer {
+
+  private final byte[] buffer;
+  private final long idleTimeoutNanos;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+
+  private int head;
+  private int count;
+  private boolean completed;
+  private boolean closed;
+  private Throwable error;
+
+  private final InputStream inputStream = new Reader();
+
+  /**
+   * @param capacity    Size of the buffer in bytes
+   * @param idleTimeout Longest time without progress before the stream fails, zero or negative to wait forever
+   */
+  public StreamBuffer(int capacity, Duration idleTimeout) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("The stream buffer size must be positive");
+    }
+    this.buffer = new byte[capacity];
+    this.idleTimeoutNanos = idleTimeout.isNegative() ? 0 : idleTimeout.toNanos();
+  }
+
+  /**
+   * @return The stream the flow reads; reading it fails with the provider error, if any
+   */
+  public InputStream getInputStream() {
+    return inputStream;
+  }
+
+  public void write(String text) {
+    write(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Appends bytes, waiting for the reader to make room when the buffer is full.
+   *
+   * @throws CancellationException If the reader closed the stream, the stream failed or the reader stalled for longer
+   *                               than the idle timeout
+   */
+  public void write(byte[] bytes) {
+    int offset = 0;
+    lock.lock();
+    try {
+      while (offset < bytes.length) {
+        long remaining = idleTimeoutNanos;
+        while (count == buffer.length && !isCancelled()) {
+          if (idleTimeoutNanos == 0) {
+            notFull.awaitUninterruptibly();
+          } else if ((remaining = notFull.awaitNanos(remaining)) <= 0 && count == buffer.length) {
+            failLocked(new IOException("The stream consumer did not read for longer than the idle timeout"));
+          }
+        }
+        if (isCancelled()) {
+          throw new CancellationException("The stream was closed or failed before the response was complete");
+        }
+        int tail = (head + count) % buffer.length;
+        int length = Math.min(bytes.length - offset, Math.min(buffer.length - count, buffer.length - tail));
+        System.arraycopy(bytes, offset, buffer, tail, length);
+        count += length;
+        offset += length;
+        notEmpty.signalAll();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Interrupted while waiting for the stream consumer");
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Ends the stream once the reader has drained the buffer.
+   */
+  public void complete() {
+    lock.lock();
+    try {
+      completed = true;
+      notEmpty.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Fails the stream: the reader gets the error on its next read, pending bytes included.
+   */
+  public void fail(Throwable throwable) {
+    lock.lock();
+    try {
+      failLocked(throwable);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void failLocked(Throwable throwable) {
+    if (error == null && !completed) {
+      error = throwable;
+    }
+    notEmpty.signalAll();
+    notFull.signalAll();
+  }
+
+  private boolean isCancelled() {
+    return closed || error != null;
+  }
+
+  private class Reader extends InputStream {
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      int read = read(single, 0, 1);
+      return read < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      lock.lock();
+      try {
+        long remaining = idleTimeoutNanos;
+        while (count == 0 && !completed && error == null && !closed) {
+          if (idleTimeoutNanos == 0) {
+            notEmpty.awaitUninterruptibly();
+          } else if ((remaining = notEmpty.awaitNanos(remaining)) <= 0 && count == 0 && !completed) {
+            failLocked(new IOException("No response data was received for longer than the idle timeout"));
+          }
+        }
+        if (closed) {
+          throw new IOException("The stream is closed");
+        }
+        if (error != null) {
+          throw error instanceof IOException ? (IOException) error
+              : new IOException("The response stream failed: " + error.getMessage(), error);
+        }
+        if (count == 0) {
+          return -1;
+        }
+        int read = Math.min(length, Math.min(count, buffer.length - head));
+        System.arraycopy(buffer, head, bytes, offset, read);
+        head = (head + read) % buffer.length;
+        count -= read;
+        notFull.signalAll();
+        return read;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for the response stream", e);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public int available() {
+      lock.lock();
+      try {
+        return count;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public void close() {
+      lock.lock();
+      try {
+        closed = true;
+        count = 0;
+        notFull.signalAll();
+        notEmpty.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
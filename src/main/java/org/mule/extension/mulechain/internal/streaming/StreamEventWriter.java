@@ -0,0 +1,180 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.streaming;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.output.Response;
+import org.json.JSONObject;
+import org.mule.extension.mulechain.api.config.StreamFraming;
+import org.mule.extension.mulechain.api.metadata.TokenUsage;
+import org.mule.extension.mulechain.internal.constants.MuleChainConstants;
+import org.mule.runtime.api.metadata.MediaType;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mule.extension.mulechain.internal.helpers.ResponseHelper.toTokenUsage;
+
+/**
+ * Writes the events of a streamed response into its stream buffer, framed as raw text, Server-Sent Events or NDJSON. The
+ * terminal event carries the token usage, the finish reason, the latency and the time to first token, measured from the
+ * creation of the writer.
+ * <p>
+ * Once a write is cancelled, because the reader closed the stream or the stream failed, the writer is closed and drops
+ * every later event without throwing. The streaming models have no way to cancel a request in flight, so the provider
+ * keeps sending the rest of the response; throwing from the callback would only have it reported again through the
+ * error callback for every remaining token.
+ */
+public class StreamEventWriter {
+
+  static final String DELTA = "delta";
+  static final String DONE = "done";
+  static final String ERROR = "error";
+  static final String TYPE = "type";
+
+  private static final MediaType EVENT_STREAM = MediaType.parse("text/event-stream");
+  private static final MediaType NDJSON = MediaType.parse("application/x-ndjson");
+
+  private final StreamBuffer buffer;
+  private final StreamFraming framing;
+  private final long startNanos = System.nanoTime();
+  private long firstTokenNanos = -1;
+  private volatile boolean closed;
+
+  public StreamEventWriter(StreamBuffer buffer, StreamFraming framing) {
+    this.buffer = buffer;
+    this.framing = framing;
+  }
+
+  /**
+   * @return Media type of the framed stream
+   */
+  public MediaType getMediaType() {
+    switch (framing) {
+      case SSE:
+        return EVENT_STREAM;
+      case NDJSON:
+        return NDJSON;
+      default:
+        return MediaType.TEXT;
+    }
+  }
+
+  /**
+   * @return Whether the stream was closed by its reader or failed, after which events are dropped
+   */
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Writes an event carrying additional data ahead of the generated text, ignored by the raw framing.
+   */
+  public void event(String name, JSONObject data) {
+    if (framing != StreamFraming.RAW && !closed) {
+      write(name, data.toString());
+    }
+  }
+
+  /**
+   * Writes a token, waiting while the buffer is full.
+   */
+  public void delta(String token) {
+    if (closed) {
+      return;
+    }
+    if (firstTokenNanos < 0) {
+      firstTokenNanos = System.nanoTime();
+    }
+    if (framing == StreamFraming.RAW) {
+      append(token);
+    } else {
+      StringBuilder data = new StringBuilder(token.length() + 16).append("{\"").append(MuleChainConstants.TEXT).append("\":\"");
+      JsonStringEncoder.getInstance().quoteAsString(token, data);
+      write(DELTA, data.append("\"}").toString());
+    }
+  }
+
+  /**
+   * Writes the terminal event and completes the stream.
+   */
+  public void done(Response<AiMessage> response) {
+    if (closed) {
+      return;
+    }
+    if (framing != StreamFraming.RAW) {
+      JSONObject data = new JSONObject();
+      TokenUsage tokenUsage = response != null ? toTokenUsage(response.tokenUsage()) : null;
+      if (tokenUsage != null) {
+        JSONObject usage = new JSONObject();
+        usage.put(MuleChainConstants.INPUT_COUNT, tokenUsage.getInputCount());
+        usage.put(MuleChainConstants.OUTPUT_COUNT, tokenUsage.getOutputCount());
+        usage.put(MuleChainConstants.TOTAL_COUNT, tokenUsage.getTotalCount());
+        data.put(MuleChainConstants.TOKEN_USAGE, usage);
+      }
+      if (response != null && response.finishReason() != null) {
+        data.put(MuleChainConstants.FINISH_REASON, response.finishReason().name());
+      }
+      addTimings(data);
+      write(DONE, data.toString());
+    }
+    closed = true;
+    buffer.complete();
+  }
+
+  /**
+   * Reports a provider error: the raw framing fails the stream, the other framings end it with an error event that the
+   * consumer can tell apart from a complete answer.
+   */
+  public void error(Throwable throwable) {
+    if (closed) {
+      return;
+    }
+    if (framing == StreamFraming.RAW) {
+      closed = true;
+      buffer.fail(throwable);
+      return;
+    }
+    JSONObject data = new JSONObject();
+    data.put(MuleChainConstants.ERROR, String.valueOf(throwable.getMessage()));
+    addTimings(data);
+    write(ERROR, data.toString());
+    if (closed) {
+      buffer.fail(throwable);
+    } else {
+      closed = true;
+      buffer.complete();
+    }
+  }
+
+  private void addTimings(JSONObject data) {
+    long now = System.nanoTime();
+    data.put(MuleChainConstants.LATENCY_MILLIS, TimeUnit.NANOSECONDS.toMillis(now - startNanos));
+    if (firstTokenNanos >= 0) {
+      data.put(MuleChainConstants.TIME_TO_FIRST_TOKEN_MILLIS, TimeUnit.NANOSECONDS.toMillis(firstTokenNanos - startNanos));
+    }
+  }
+
+  private void write(String event, String json) {
+    if (framing == StreamFraming.SSE) {
+      append("event: " + event + "\ndata: " + json + "\n\n");
+    } else {
+      // The event name goes first, so that consumers can dispatch on it before parsing the rest of the line
+      String fields = json.substring(1);
+      append("{\"" + TYPE + "\":\"" + event + "\"" + (fields.equals("}") ? "" : ",") + fields + "\n");
+    }
+  }
+
+  private void append(String text) {
+    if (closed) {
+      return;
+    }
+    try {
+      buffer.write(text);
+    } catch (CancellationException e) {
+      closed = true;
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.streaming;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.output.Response;
+import org.json.JSONObject;
+import org.mule.extension.mulechain.api.config.StreamFraming;
+import org.mule.extension.mulechain.internal.config.LangchainLLMConfiguration;
+import org.mule.runtime.extension.api.runtime.operation.Result;
+
+import java.io.InputStream;
+import java.util.Collections;
+
+import static java.time.Duration.ofSeconds;
+
+/**
+ * Streams the answer of the streaming model of a configuration to a message, optionally preceded by an event carrying
+ * data known before the generation starts, such as the sources of a RAG answer.
+ */
+public final class StreamingResponder {
+
+  private StreamingResponder() {}
+
+  /**
+   * Starts the generation and returns its stream right away. The preamble and the generation are started on the
+   * interactive executor of the configuration, so that a preamble larger than the stream buffer cannot block the
+   * operation.
+   *
+   * @param configuration Configuration providing the streaming model, the stream buffer settings and the
+   *                      interactive executor
+   * @param framing       Framing of the stream
+   * @param message       Message to answer
+   * @param eventName     Name of the preamble event, or null for none
+   * @param eventData     Data of the preamble event
+   * @return The operation result streaming the answer
+   */
+  public static Result<InputStream, Void> stream(LangchainLLMConfiguration configuration, StreamFraming framing,
+                                                 ChatMessage message, String eventName, JSONObject eventData) {
+    StreamBuffer buffer = new StreamBuffer(configuration.getStreamBufferSize(),
+                                           ofSeconds(configuration.getStreamIdleTimeoutSeconds()));
+    StreamEventWriter events = new StreamEventWriter(buffer, framing);
+
+    configuration.getInteractiveExecutor().execute(() -> {
+      try {
+        if (eventName != null) {
+          events.event(eventName, eventData);
+        }
+        if (events.isClosed()) {
+          // The reader closed the stream before the generation started
+          return;
+        }
+        configuration.getStreamingModel().generate(Collections.singletonList(message), new StreamingResponseHandler<AiMessage>() {
+
+          @Override
+          public void onNext(String token) {
+            events.delta(token);
+          }
+
+          @Override
+          public void onComplete(Response<AiMessage> response) {
+            events.done(response);
+          }
+
+          @Override
+          public void onError(Throwable error) {
+            events.error(error);
+          }
+        });
+      } catch (RuntimeException e) {
+        events.error(e);
+      }
+    });
+
+    return Result.<InputStream, Void>builder()
+        .output(buffer.getInputStream())
+        .mediaType(events.getMediaType())
+        .build();
+  }
+}
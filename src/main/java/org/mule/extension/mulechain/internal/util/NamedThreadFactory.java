@@ -0,0 +1,28 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates daemon threads named after a prefix, so that the connector's pools are recognizable in thread dumps and never
+ * keep the runtime from shutting down.
+ */
+public class NamedThreadFactory implements ThreadFactory {
+
+  private final String prefix;
+  private final AtomicInteger counter = new AtomicInteger();
+
+  public NamedThreadFactory(String prefix) {
+    this.prefix = prefix;
+  }
+
+  @Override
+  public Thread newThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.batch;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mule.extension.mulechain.internal.config.LangchainLLMConfiguration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LocalBatchJobClientTest {
+
+  private Path directory;
+  private LangchainLLMConfiguration configuration;
+  private LocalBatchJobClient client;
+
+  @Before
+  public void set_up() throws IOException {
+    directory = Files.createTempDirectory("local-batch");
+    configuration = mock(LangchainLLMConfiguration.class);
+    when(configuration.getModelName()).thenReturn("gpt-4o-mini");
+    when(configuration.getMaxTokens()).thenReturn(100);
+
+    ChatLanguageModel model = mock(ChatLanguageModel.class);
+    when(model.generate(any(UserMessage.class))).thenAnswer(invocation -> {
+      String prompt = ((UserMessage) invocation.getArgument(0)).singleText();
+      if ("boom".equals(prompt)) {
+        throw new IllegalStateException("model unavailable");
+      }
+      return Response.from(AiMessage.from(prompt.toUpperCase()), new TokenUsage(1, 2));
+    });
+    // Run jobs on the calling thread so the job is completed when submit returns
+    client = new LocalBatchJobClient(directory, model, Runnable::run);
+  }
+
+  @After
+  public void tear_down() throws IOException {
+    FileUtils.deleteDirectory(directory.toFile());
+  }
+
+  @Test
+  public void testJobRunsToCompletion() throws IOException {
+    BatchJobStatus submitted = client.submit(requestLines("hello", "boom", "world"));
+
+    BatchJobStatus status = client.getStatus(submitted.getJobId());
+    Assert.assertTrue(status.isCompleted());
+    Assert.assertEquals(3, status.getTotal());
+    Assert.assertEquals(2, status.getCompleted());
+    Assert.assertEquals(1, status.getFailed());
+
+    List<JSONObject> items = new ArrayList<>();
+    try (InputStream results = new BatchResultsInputStream(client.openResults(submitted.getJobId()))) {
+      for (String line : IOUtils.toString(results, StandardCharsets.UTF_8).split("\n")) {
+        items.add(new JSONObject(line));
+      }
+    }
+    Assert.assertEquals(3, items.size());
+    Assert.assertEquals("HELLO", items.get(0).getString("response"));
+    Assert.assertEquals(3, items.get(0).getJSONObject("tokenUsage").getInt("totalCount"));
+    Assert.assertEquals("model unavailable", items.get(1).getString("error"));
+    Assert.assertEquals(2, items.get(2).getInt("index"));
+  }
+
+  @Test
+  public void testInterruptedJobIsResumed() throws IOException {
+    // Files of a job left in progress by a stopped runtime
+    String jobId = "local-batch-0123";
+    Files.write(directory.resolve(jobId + ".input.jsonl"), requestLines("hello", "world"), StandardCharsets.UTF_8);
+    Files.write(directory.resolve(jobId + ".status.json"),
+                new BatchJobStatus(jobId, BatchJobStatus.IN_PROGRESS, 2, 0, 0, null).toJson().toString()
+                    .getBytes(StandardCharsets.UTF_8));
+
+    Assert.assertEquals(1, client.resumeInterrupted());
+
+    BatchJobStatus status = client.getStatus(jobId);
+    Assert.assertTrue(status.isCompleted());
+    Assert.assertEquals(2, status.getCompleted());
+    Assert.assertEquals(0, client.resumeInterrupted());
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnknownJobIsRejected() throws IOException {
+    client.getStatus("local-batch-0000");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testJobIdCannotEscapeTheDirectory() throws IOException {
+    client.getStatus("../secrets");
+  }
+
+  private List<String> requestLines(String... prompts) {
+    List<String> lines = new ArrayList<>();
+    List<String> batch = Arrays.asList(prompts);
+    for (int i = 0; i < batch.size(); i++) {
+      lines.add(BatchJsonl.requestLine(i, batch.get(i), configuration));
+    }
+    return lines;
+  }
+}
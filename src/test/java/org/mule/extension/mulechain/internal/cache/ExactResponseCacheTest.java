@@ -0,0 +1,111 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.cache;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mule.extension.mulechain.api.metadata.TokenUsage;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ExactResponseCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testKeyDependsOnEveryPart() {
+    String key = ExactResponseCache.key("OPENAI/gpt-4o-mini/", "scope", "[\"hello\"]");
+
+    Assert.assertTrue(key.startsWith("OPENAI/gpt-4o-mini/"));
+    Assert.assertEquals(key, ExactResponseCache.key("OPENAI/gpt-4o-mini/", "scope", "[\"hello\"]"));
+    Assert.assertNotEquals(key, ExactResponseCache.key("OPENAI/gpt-4o-mini/", "scope", "[\"hello!\"]"));
+    Assert.assertNotEquals(ExactResponseCache.key("", "ab", "c"), ExactResponseCache.key("", "a", "bc"));
+  }
+
+  @Test
+  public void testResponsesSurviveReopening() throws Exception {
+    String path = new File(folder.getRoot(), "responses.db").getAbsolutePath();
+    String key = ExactResponseCache.key("OPENAI/gpt-4o-mini/", "hello");
+    try (ExactResponseCache cache = new ExactResponseCache(path, 10, 0)) {
+      cache.put(key, new CachedResponse("{\"response\":\"hi\"}", new TokenUsage(3, 1, 4), null));
+    }
+
+    try (ExactResponseCache cache = new ExactResponseCache(path, 10, 0)) {
+      CachedResponse response = cache.get(key);
+      Assert.assertNotNull(response);
+      Assert.assertEquals("{\"response\":\"hi\"}", response.getResponse());
+      Assert.assertEquals(4, response.getTokenUsage().getTotalCount());
+      Assert.assertEquals(1, cache.getFileHits());
+
+      cache.get(key);
+      Assert.assertEquals(1, cache.getHeapHits());
+      Assert.assertEquals(1.0, cache.getHitRatio(), 0.0);
+    }
+  }
+
+  @Test
+  public void testCachesOnTheSamePathShareTheFile() throws Exception {
+    String path = new File(folder.getRoot(), "responses.db").getAbsolutePath();
+    String key = ExactResponseCache.key("OPENAI/gpt-4o-mini/", "hello");
+    try (ExactResponseCache second = new ExactResponseCache(path, 10, 0)) {
+      try (ExactResponseCache first = new ExactResponseCache(path, 10, 0)) {
+        first.put(key, new CachedResponse("hi", null, null));
+      }
+      Assert.assertEquals("hi", second.get(key).getResponse());
+    }
+  }
+
+  @Test
+  public void testFileHeldByAnotherWriterIsRejected() throws Exception {
+    File file = new File(folder.getRoot(), "responses.db");
+    DB other = DBMaker.fileDB(file).transactionEnable().make();
+    try {
+      new ExactResponseCache(file.getAbsolutePath(), 10, 0).close();
+      Assert.fail("The locked file was opened");
+    } catch (IllegalStateException e) {
+      Assert.assertTrue(e.getMessage().contains("single writer"));
+    } finally {
+      other.close();
+    }
+  }
+
+  @Test
+  public void testInvalidatePrefix() throws Exception {
+    String path = new File(folder.getRoot(), "responses.db").getAbsolutePath();
+    try (ExactResponseCache cache = new ExactResponseCache(path, 10, 0)) {
+      String first = ExactResponseCache.key("OPENAI/gpt-4o-mini/", "a");
+      String second = ExactResponseCache.key("OPENAI/gpt-4o/", "b");
+      cache.put(first, new CachedResponse("a", null, null));
+      cache.put(second, new CachedResponse("b", null, null));
+
+      Assert.assertEquals(1, cache.invalidatePrefix("OPENAI/gpt-4o-mini/"));
+      Assert.assertNull(cache.get(first));
+      Assert.assertNotNull(cache.get(second));
+      Assert.assertEquals(1, cache.getFileSize());
+    }
+  }
+
+  @Test
+  public void testPersistedResponsesExpireAfterTtl() throws Exception {
+    String path = new File(folder.getRoot(), "responses.db").getAbsolutePath();
+    AtomicLong now = new AtomicLong(1000);
+    String key = ExactResponseCache.key("", "a");
+    try (ExactResponseCache cache = new ExactResponseCache(path, 10, 500, now::get)) {
+      cache.put(key, new CachedResponse("a", null, null));
+    }
+
+    now.set(1500);
+    try (ExactResponseCache cache = new ExactResponseCache(path, 10, 500, now::get)) {
+      Assert.assertNull(cache.get(key));
+      Assert.assertEquals(0, cache.getFileSize());
+      Assert.assertEquals(1, cache.getMisses());
+    }
+  }
+}
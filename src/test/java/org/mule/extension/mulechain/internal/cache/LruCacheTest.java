@@ -0,0 +1,65 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LruCacheTest {
+
+  @Test
+  public void testLeastRecentlyUsedEntryIsEvicted() {
+    LruCache<String, String> cache = new LruCache<>(2, 0);
+    cache.put("a", "1");
+    cache.put("b", "2");
+    cache.get("a");
+    cache.put("c", "3");
+
+    Assert.assertEquals("1", cache.get("a"));
+    Assert.assertNull(cache.get("b"));
+    Assert.assertEquals("3", cache.get("c"));
+    Assert.assertEquals(1, cache.getEvictions());
+  }
+
+  @Test
+  public void testEntriesExpireAfterTtl() {
+    AtomicLong now = new AtomicLong(1000);
+    LruCache<String, String> cache = new LruCache<>(10, 500, now::get);
+    cache.put("a", "1");
+
+    now.set(1499);
+    Assert.assertEquals("1", cache.get("a"));
+    now.set(1500);
+    Assert.assertNull(cache.get("a"));
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testHitRatio() {
+    LruCache<String, String> cache = new LruCache<>(10, 0);
+    cache.put("a", "1");
+    cache.get("a");
+    cache.get("a");
+    cache.get("a");
+    cache.get("b");
+
+    Assert.assertEquals(3, cache.getHits());
+    Assert.assertEquals(1, cache.getMisses());
+    Assert.assertEquals(0.75, cache.getHitRatio(), 0.0001);
+  }
+
+  @Test
+  public void testInvalidateByPredicate() {
+    LruCache<String, String> cache = new LruCache<>(10, 0);
+    cache.put("chat|1", "1");
+    cache.put("chat|2", "2");
+    cache.put("agent|1", "3");
+
+    Assert.assertEquals(2, cache.invalidateIf(key -> key.startsWith("chat|")));
+    Assert.assertEquals(1, cache.size());
+    Assert.assertEquals("3", cache.get("agent|1"));
+  }
+}
@@ -0,0 +1,31 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.cache;
+
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ModerationCacheTest {
+
+  @Test
+  public void testKeyIgnoresWhitespaceButNotProviderOrModel() {
+    String key = ModerationCache.key("OPENAI", "omni-moderation-latest", "Best regards,\n  John");
+
+    Assert.assertEquals(key, ModerationCache.key("OPENAI", "omni-moderation-latest", " Best regards, John "));
+    Assert.assertNotEquals(key, ModerationCache.key("MISTRAL_AI", "omni-moderation-latest", "Best regards, John"));
+    Assert.assertNotEquals(key, ModerationCache.key("OPENAI", "text-moderation-latest", "Best regards, John"));
+  }
+
+  @Test
+  public void testReportsHitRatio() {
+    ModerationCache cache = new ModerationCache(10, 0);
+    String key = ModerationCache.key("OPENAI", "omni-moderation-latest", "hello");
+
+    Assert.assertNull(cache.get(key));
+    cache.put(key, new JSONObject().put("flagged", false));
+    Assert.assertFalse(cache.get(key).getBoolean("flagged"));
+    Assert.assertEquals(0.5, cache.getHitRatio(), 0.0);
+  }
+}
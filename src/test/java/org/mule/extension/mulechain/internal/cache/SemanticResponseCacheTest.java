@@ -0,0 +1,90 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.cache;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SemanticResponseCacheTest {
+
+  private static final String SCOPE = "OPENAI|gpt-4o-mini|0.7|0.95|500|CHAT-answer-prompt";
+
+  private final AtomicInteger embeddings = new AtomicInteger();
+  private SemanticResponseCache cache;
+
+  @Before
+  public void set_up() {
+    // Letter frequencies: a cheap, deterministic stand-in for a sentence embedding
+    EmbeddingModel model = new EmbeddingModel() {
+
+      @Override
+      public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+        List<Embedding> result = new ArrayList<>();
+        for (TextSegment segment : segments) {
+          embeddings.incrementAndGet();
+          float[] vector = new float[26];
+          for (char c : segment.text().toCharArray()) {
+            if (c >= 'a' && c <= 'z') {
+              vector[c - 'a']++;
+            }
+          }
+          result.add(Embedding.from(vector));
+        }
+        return Response.from(result);
+      }
+    };
+    cache = new SemanticResponseCache(model, 0.97, 100, 0);
+  }
+
+  @Test
+  public void testNearDuplicatePromptIsAnsweredFromCache() {
+    SemanticResponseCache.Lookup miss = cache.lookup(SCOPE, "What is the capital of France?");
+    Assert.assertFalse(miss.isHit());
+    cache.put(miss, new CachedResponse("{\"response\":\"Paris\"}", null, null));
+
+    SemanticResponseCache.Lookup hit = cache.lookup(SCOPE, "what's the capital of France");
+    Assert.assertTrue(hit.isHit());
+    Assert.assertEquals("{\"response\":\"Paris\"}", hit.getResponse().getResponse());
+    Assert.assertTrue(hit.getSimilarity() >= 0.97);
+  }
+
+  @Test
+  public void testUnrelatedPromptMisses() {
+    cache.put(cache.lookup(SCOPE, "What is the capital of France?"),
+              new CachedResponse("{\"response\":\"Paris\"}", null, null));
+
+    Assert.assertFalse(cache.lookup(SCOPE, "Summarize this invoice in two bullet points").isHit());
+    Assert.assertEquals(0, cache.getHits());
+    Assert.assertEquals(2, cache.getMisses());
+  }
+
+  @Test
+  public void testResponsesAreNotSharedAcrossScopes() {
+    cache.put(cache.lookup(SCOPE, "What is the capital of France?"),
+              new CachedResponse("{\"response\":\"Paris\"}", null, null));
+
+    Assert.assertFalse(cache.lookup("OPENAI|gpt-4o|0.7|0.95|500|CHAT-answer-prompt", "What is the capital of France?").isHit());
+  }
+
+  @Test
+  public void testSameNormalizedPromptSkipsEmbedding() {
+    cache.put(cache.lookup(SCOPE, "What is the capital of France?"),
+              new CachedResponse("{\"response\":\"Paris\"}", null, null));
+    int before = embeddings.get();
+
+    SemanticResponseCache.Lookup hit = cache.lookup(SCOPE, "  what is the   CAPITAL of france? ");
+    Assert.assertTrue(hit.isHit());
+    Assert.assertEquals(1.0, hit.getSimilarity(), 0.0);
+    Assert.assertEquals(before, embeddings.get());
+  }
+}
@@ -0,0 +1,73 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ModerationClientTest {
+
+  private HttpServer server;
+  private final AtomicReference<String> lastRequest = new AtomicReference<>();
+
+  @Before
+  public void set_up() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/v1/moderations", exchange -> {
+      lastRequest.set(IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8));
+      boolean authorized = "Bearer good-key".equals(exchange.getRequestHeaders().getFirst("Authorization"));
+      byte[] body = (authorized ? "{\"results\":[{\"flagged\":false},{\"flagged\":true}]}" : "{\"error\":\"bad key\"}")
+          .getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(authorized ? 200 : 401, body.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(body);
+      }
+    });
+    server.start();
+  }
+
+  @After
+  public void tear_down() {
+    server.stop(0);
+  }
+
+  @Test
+  public void testModeratesArrayOfInputsInOneRequest() throws IOException {
+    JSONObject payload = new JSONObject().put("model", "omni-moderation-latest").put("input", new JSONArray().put("a").put("b"));
+
+    JSONObject response = client("good-key").moderate(payload);
+
+    Assert.assertEquals(2, response.getJSONArray("results").length());
+    Assert.assertEquals(2, new JSONObject(lastRequest.get()).getJSONArray("input").length());
+  }
+
+  @Test
+  public void testErrorStatusFailsWithTheProviderMessage() {
+    try {
+      client("bad-key").moderate(new JSONObject().put("input", "a"));
+      Assert.fail("An error status must fail the request");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("401"));
+      Assert.assertTrue(e.getMessage().contains("bad key"));
+    }
+  }
+
+  private ModerationClient client(String apiKey) {
+    return new ModerationClient("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/moderations", apiKey,
+                                Duration.ofSeconds(5));
+  }
+}
@@ -7,6 +7,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
+import org.mule.extension.mulechain.internal.config.util.LangchainLLMInitializerUtil;
 
 import java.time.Duration;
 
@@ -67,15 +68,8 @@ public class OpenAiLogProbsClientTest {
     assertFalse("gpt-3.5-turbo should include temperature", shouldUseMaxCompletionTokens(client, "gpt-3.5-turbo"));
   }
 
-  // Helper method to access private method for testing
+  // The client shares the detection of the initializers
   private boolean shouldUseMaxCompletionTokens(OpenAiLogProbsClient client, String model) {
-    try {
-      java.lang.reflect.Method method = client.getClass().getDeclaredMethod("shouldUseMaxCompletionTokens",
-                                                                            String.class);
-      method.setAccessible(true);
-      return (Boolean) method.invoke(client, model);
-    } catch (Exception e) {
-      throw new RuntimeException("Failed to invoke shouldUseMaxCompletionTokens method", e);
-    }
+    return LangchainLLMInitializerUtil.shouldUseMaxCompletionTokens(model);
   }
 }
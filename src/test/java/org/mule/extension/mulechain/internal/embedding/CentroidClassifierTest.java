@@ -0,0 +1,76 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mule.extension.mulechain.internal.llm.type.ModerationModelType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class CentroidClassifierTest {
+
+  /** Embeds a text by counting positive and negative words. */
+  private static final EmbeddingModel WORD_COUNT_MODEL = segments -> {
+    List<Embedding> embeddings = new ArrayList<>();
+    for (TextSegment segment : segments) {
+      float positive = 0.1f;
+      float negative = 0.1f;
+      for (String word : segment.text().toLowerCase().split("\\W+")) {
+        if (word.equals("great") || word.equals("love")) {
+          positive++;
+        } else if (word.equals("awful") || word.equals("hate")) {
+          negative++;
+        }
+      }
+      embeddings.add(Embedding.from(new float[] {positive, negative}));
+    }
+    return Response.from(embeddings);
+  };
+
+  @Test
+  public void testClassifiesWithMargin() {
+    Map<String, List<String>> examples = CentroidClassifier.examples(new JSONObject()
+        .put("POSITIVE", Arrays.asList("great product", "I love it"))
+        .put("NEGATIVE", Arrays.asList("awful service", "I hate it")));
+    CentroidClassifier classifier = CentroidClassifier.train(WORD_COUNT_MODEL, examples);
+
+    CentroidClassifier.Prediction clear = classifier.classify("great, I love it");
+    Assert.assertEquals("POSITIVE", clear.getLabel());
+    Assert.assertTrue(clear.getMargin() > 0.5);
+
+    CentroidClassifier.Prediction ambiguous = classifier.classify("great but awful");
+    Assert.assertTrue(ambiguous.getMargin() < 0.05);
+  }
+
+  @Test
+  public void testLocalModerationHasTheProviderShape() {
+    Map<String, List<String>> examples = CentroidClassifier.examples(new JSONObject()
+        .put("safe", Arrays.asList("great product", "I love it"))
+        .put("harassment", Arrays.asList("awful service", "I hate it")));
+    CentroidClassifier classifier = CentroidClassifier.train(WORD_COUNT_MODEL, examples);
+
+    JSONObject response = ModerationModelType.fromPrediction(classifier.classify("I hate it, awful"), "safe", "local");
+    Assert.assertEquals("local", response.getString("model"));
+    JSONObject result = response.getJSONArray("results").getJSONObject(0);
+    Assert.assertTrue(result.getBoolean("flagged"));
+    Assert.assertEquals(Collections.singleton("harassment"), result.getJSONObject("categories").keySet());
+    Assert.assertTrue(result.getJSONObject("categories").getBoolean("harassment"));
+    Assert.assertTrue(result.getJSONObject("category_scores").getDouble("harassment") > 0.9);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNeedsTwoLabels() {
+    CentroidClassifier.train(WORD_COUNT_MODEL, Collections.singletonMap("POSITIVE", Arrays.asList("great")));
+  }
+}
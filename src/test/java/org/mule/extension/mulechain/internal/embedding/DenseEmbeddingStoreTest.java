@@ -0,0 +1,106 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+public class DenseEmbeddingStoreTest {
+
+  @Test
+  public void testSearchMatchesInMemoryStore() {
+    assertSameMatches(500, 16, null);
+  }
+
+  @Test
+  public void testParallelSearchMatchesInMemoryStore() {
+    // Large enough to be split across the pool
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      assertSameMatches(DenseEmbeddingStore.PARALLEL_THRESHOLD / 8 + 1000, 8, pool);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testTiesKeepInsertionOrder() {
+    InMemoryEmbeddingStore<TextSegment> source = new InMemoryEmbeddingStore<>();
+    for (int i = 0; i < 20; i++) {
+      source.add("id-" + i, Embedding.from(new float[] {1f, i % 2}), TextSegment.from("segment " + i));
+    }
+    DenseEmbeddingStore store = new DenseEmbeddingStore(source);
+
+    List<EmbeddingMatch<TextSegment>> matches = store.findRelevant(Embedding.from(new float[] {1f, 0f}), 4);
+    Assert.assertEquals(Arrays.asList("id-0", "id-2", "id-4", "id-6"),
+                        matches.stream().map(EmbeddingMatch::embeddingId).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testEmptyStore() {
+    DenseEmbeddingStore store = new DenseEmbeddingStore(new InMemoryEmbeddingStore<>());
+    Assert.assertTrue(store.findRelevant(Embedding.from(new float[] {1f, 0f}), 3).isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testQueryOfAnotherDimensionIsRejected() {
+    InMemoryEmbeddingStore<TextSegment> source = new InMemoryEmbeddingStore<>();
+    source.add(Embedding.from(new float[] {1f, 0f}), TextSegment.from("segment"));
+    DenseEmbeddingStore store = new DenseEmbeddingStore(source);
+    store.findRelevant(Embedding.from(new float[] {1f, 0f}), 1);
+
+    store.findRelevant(Embedding.from(new float[] {1f, 0f, 0f}), 1);
+  }
+
+  private static void assertSameMatches(int size, int dimension, ForkJoinPool pool) {
+    Random random = new Random(42);
+    InMemoryEmbeddingStore<TextSegment> expected = new InMemoryEmbeddingStore<>();
+    for (int i = 0; i < size; i++) {
+      TextSegment segment = TextSegment.from("segment " + i, Metadata.from("parity", i % 2 == 0 ? "even" : "odd")
+          .put("absolute_directory_path", "/docs/" + i % 7));
+      expected.add("id-" + i, Embedding.from(randomVector(dimension, random)), i % 50 == 0 ? null : segment);
+    }
+    DenseEmbeddingStore dense = new DenseEmbeddingStore(expected);
+    DenseEmbeddingStore store = pool != null ? dense.parallel(pool) : dense;
+
+    for (int q = 0; q < 5; q++) {
+      Embedding query = Embedding.from(randomVector(dimension, random));
+      Assert.assertEquals(expected.findRelevant(query, 10, 0.0), store.findRelevant(query, 10, 0.0));
+      Assert.assertEquals(expected.findRelevant(query, 25, 0.7), store.findRelevant(query, 25, 0.7));
+
+      EmbeddingSearchRequest filtered = EmbeddingSearchRequest.builder().queryEmbedding(query).maxResults(5)
+          .filter(metadataKey("parity").isEqualTo("odd")).build();
+      Assert.assertEquals(expected.search(filtered).matches(), store.search(filtered).matches());
+
+      EmbeddingSearchRequest prefiltered = EmbeddingSearchRequest.builder().queryEmbedding(query).maxResults(5)
+          .filter(new MetadataPrefixFilter("absolute_directory_path", Collections.singletonList("/docs/3"))
+              .and(metadataKey("parity").isEqualTo("odd")))
+          .build();
+      Assert.assertEquals(expected.search(prefiltered).matches(), store.search(prefiltered).matches());
+    }
+  }
+
+  private static float[] randomVector(int dimension, Random random) {
+    float[] vector = new float[dimension];
+    for (int i = 0; i < dimension; i++) {
+      vector[i] = (float) random.nextGaussian();
+    }
+    return vector;
+  }
+}
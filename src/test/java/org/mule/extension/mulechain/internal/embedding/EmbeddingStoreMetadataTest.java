@@ -0,0 +1,77 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mule.extension.mulechain.api.config.EmbeddingStoreFormat;
+import org.mule.extension.mulechain.internal.helpers.IndexParameters;
+import org.mule.extension.mulechain.internal.operation.LangchainEmbeddingStoresOperations;
+import org.mule.runtime.extension.api.exception.ModuleException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class EmbeddingStoreMetadataTest {
+
+  private Path directory;
+  private String storeName;
+
+  @Before
+  public void set_up() throws IOException {
+    directory = Files.createTempDirectory("store-metadata");
+    storeName = directory.resolve("store.json").toString();
+  }
+
+  @After
+  public void tear_down() throws IOException {
+    Files.deleteIfExists(directory.resolve("store.json.meta.json"));
+    Files.deleteIfExists(directory.resolve("store.json"));
+    Files.deleteIfExists(directory);
+  }
+
+  @Test
+  public void testStoreWithoutMetadataIsAccepted() {
+    EmbeddingStoreMetadata.verify(storeName, "all-minilm-l6-v2", 384);
+  }
+
+  @Test
+  public void testSameModelIsAccepted() throws IOException {
+    EmbeddingStoreMetadata.record(storeName, "all-minilm-l6-v2", 384);
+    EmbeddingStoreMetadata.verify(storeName, "all-minilm-l6-v2", 384);
+  }
+
+  @Test
+  public void testOtherModelIsRefused() throws IOException {
+    EmbeddingStoreMetadata.record(storeName, "all-minilm-l6-v2", 384);
+    try {
+      EmbeddingStoreMetadata.verify(storeName, "all-minilm-l6-v2-q", 384);
+      Assert.fail("Expected the quantized model to be refused");
+    } catch (ModuleException e) {
+      Assert.assertTrue(e.getMessage().contains("all-minilm-l6-v2-q"));
+    }
+  }
+
+  @Test
+  public void testFirstRecordedModelIsKept() throws IOException {
+    EmbeddingStoreMetadata.record(storeName, "all-minilm-l6-v2", 384);
+    EmbeddingStoreMetadata.record(storeName, "custom-onnx:model.onnx:mean", 768);
+    EmbeddingStoreMetadata.verify(storeName, "all-minilm-l6-v2", 384);
+  }
+
+  @Test
+  public void testRecreatedStoreAcceptsAnotherModel() throws IOException {
+    LangchainEmbeddingStoresOperations operations = new LangchainEmbeddingStoresOperations();
+    operations.createEmbedding(storeName, EmbeddingStoreFormat.JSON, new IndexParameters());
+    EmbeddingStoreMetadata.record(storeName, "all-minilm-l6-v2", 384);
+
+    operations.createEmbedding(storeName, EmbeddingStoreFormat.JSON, new IndexParameters());
+    EmbeddingStoreMetadata.verify(storeName, "custom-onnx:model.onnx:mean", 768);
+    EmbeddingStoreMetadata.record(storeName, "custom-onnx:model.onnx:mean", 768);
+    EmbeddingStoreMetadata.verify(storeName, "custom-onnx:model.onnx:mean", 768);
+  }
+}
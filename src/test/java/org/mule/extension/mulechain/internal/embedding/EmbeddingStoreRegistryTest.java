@@ -0,0 +1,92 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+public class EmbeddingStoreRegistryTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @After
+  public void tear_down() {
+    EmbeddingStoreRegistry.clear();
+    EmbeddingStoreRegistry.setMaxBytes(EmbeddingStoreRegistry.DEFAULT_MAX_BYTES);
+  }
+
+  @Test
+  public void testUnchangedStoreIsNotReloaded() throws IOException {
+    String storeName = save("store.json", "first").toString();
+
+    Assert.assertSame(EmbeddingStoreRegistry.get(storeName, false), EmbeddingStoreRegistry.get(storeName, false));
+    Assert.assertNotSame(EmbeddingStoreRegistry.get(storeName, false), EmbeddingStoreRegistry.get(storeName, true));
+  }
+
+  @Test
+  public void testStoreRewrittenByAnotherProcessIsReloaded() throws IOException {
+    Path path = save("store.json", "first");
+    EmbeddingStore<TextSegment> first = EmbeddingStoreRegistry.get(path.toString(), false);
+
+    save("store.json", "second, longer segment");
+    Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 1000));
+
+    Assert.assertNotSame(first, EmbeddingStoreRegistry.get(path.toString(), false));
+  }
+
+  @Test
+  public void testWrittenStoreIsServedWithoutReload() throws IOException {
+    String storeName = save("store.json", "first").toString();
+    EmbeddingStoreRegistry.get(storeName, false);
+
+    store("second").serializeToFile(storeName);
+    // The store recorded by the writer differs from the file only to tell whether the file was loaded again
+    EmbeddingStoreRegistry.written(storeName, store("written"));
+
+    EmbeddingStore<TextSegment> served = EmbeddingStoreRegistry.get(storeName, false);
+    Assert.assertEquals("written",
+                        served.findRelevant(Embedding.from(new float[] {0.1f, 0.2f, 0.3f}), 1).get(0).embedded().text());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedStoreIsEvicted() throws IOException {
+    Path first = save("first.json", "first");
+    Path second = save("second.json", "second");
+    Path third = save("third.json", "third");
+    EmbeddingStoreRegistry.setMaxBytes(Files.size(first) + Files.size(second));
+
+    EmbeddingStore<TextSegment> firstStore = EmbeddingStoreRegistry.get(first.toString(), false);
+    EmbeddingStoreRegistry.get(second.toString(), false);
+    EmbeddingStoreRegistry.get(first.toString(), false);
+    EmbeddingStoreRegistry.get(third.toString(), false);
+
+    Assert.assertEquals(2, EmbeddingStoreRegistry.size());
+    Assert.assertSame(firstStore, EmbeddingStoreRegistry.get(first.toString(), false));
+  }
+
+  private Path save(String fileName, String text) {
+    Path path = folder.getRoot().toPath().resolve(fileName);
+    store(text).serializeToFile(path);
+    return path;
+  }
+
+  private static InMemoryEmbeddingStore<TextSegment> store(String text) {
+    InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+    store.add(Embedding.from(new float[] {0.1f, 0.2f, 0.3f}), TextSegment.from(text));
+    return store;
+  }
+}
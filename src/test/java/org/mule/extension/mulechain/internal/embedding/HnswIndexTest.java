@@ -0,0 +1,93 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class HnswIndexTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testRecallAgainstExactSearch() throws IOException {
+    MappedEmbeddingStore store = randomStore(2000, 24, new Random(7));
+    HnswIndex index = HnswIndex.build(store, HnswIndex.DEFAULT_M, 100);
+
+    Random random = new Random(11);
+    int found = 0;
+    int queries = 50;
+    for (int q = 0; q < queries; q++) {
+      float[] query = randomVector(24, random);
+      EmbeddingSearchRequest request = EmbeddingSearchRequest.builder().queryEmbedding(Embedding.from(query))
+          .maxResults(10).minScore(0.0).build();
+      Set<String> expected = ids(store.search(request).matches());
+      found += intersection(expected, ids(store.search(request, index.search(store, query, 64), null).matches()));
+    }
+    double recall = found / (queries * 10.0);
+    Assert.assertTrue("Recall@10 was " + recall, recall >= 0.9);
+  }
+
+  @Test
+  public void testSavedIndexAnswersLikeBuiltIndex() throws IOException {
+    MappedEmbeddingStore store = randomStore(300, 8, new Random(3));
+    HnswIndex index = HnswIndex.build(store, 8, 64);
+    Path path = folder.getRoot().toPath().resolve("segment.hnsw");
+    index.save(path);
+    HnswIndex loaded = HnswIndex.load(path);
+
+    float[] query = randomVector(8, new Random(5));
+    Assert.assertArrayEquals(index.search(store, query, 20), loaded.search(store, query, 20));
+  }
+
+  private MappedEmbeddingStore randomStore(int size, int dimension, Random random) throws IOException {
+    EmbeddingBatch batch = new EmbeddingBatch();
+    for (int i = 0; i < size; i++) {
+      batch.add("id-" + i, Embedding.from(randomVector(dimension, random)), TextSegment.from("segment " + i));
+    }
+    Path path = folder.newFile().toPath();
+    MappedEmbeddingStore.write(path, batch);
+    return MappedEmbeddingStore.open(path);
+  }
+
+  private static float[] randomVector(int dimension, Random random) {
+    float[] vector = new float[dimension];
+    for (int i = 0; i < dimension; i++) {
+      vector[i] = (float) random.nextGaussian();
+    }
+    return vector;
+  }
+
+  private static Set<String> ids(List<EmbeddingMatch<TextSegment>> matches) {
+    Set<String> ids = new HashSet<>();
+    for (EmbeddingMatch<TextSegment> match : matches) {
+      ids.add(match.embeddingId());
+    }
+    return ids;
+  }
+
+  private static int intersection(Set<String> expected, Set<String> actual) {
+    int count = 0;
+    for (String id : actual) {
+      if (expected.contains(id)) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,111 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+public class MappedEmbeddingStoreTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testEntriesRoundTrip() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("store.bin");
+    UUID uuid = UUID.randomUUID();
+    EmbeddingBatch batch = new EmbeddingBatch();
+    batch.add("first", Embedding.from(new float[] {0.1f, 0.2f}),
+              TextSegment.from("Café menu", Metadata.from("file_name", "menu.txt").put("index", 3)
+                  .put("size", 12L).put("ratio", 0.5f).put("weight", 0.25d).put("uuid", uuid.toString())));
+    batch.add("second", Embedding.from(new float[] {0.3f, 0.4f}), null);
+    MappedEmbeddingStore.write(path, batch);
+
+    MappedEmbeddingStore store = MappedEmbeddingStore.open(path);
+    Assert.assertTrue(MappedEmbeddingStore.isMapped(path));
+    Assert.assertEquals(2, store.size());
+    Assert.assertEquals(2, store.dimension());
+    Assert.assertEquals("second", store.id(1));
+    Assert.assertArrayEquals(new float[] {0.3f, 0.4f}, store.embedding(1).vector(), 0f);
+    Assert.assertNull(store.segment(1));
+
+    TextSegment segment = store.segment(0);
+    Assert.assertEquals("Café menu", segment.text());
+    Assert.assertEquals("menu.txt", segment.metadata().getString("file_name"));
+    Assert.assertEquals(Integer.valueOf(3), segment.metadata().getInteger("index"));
+    Assert.assertEquals(Long.valueOf(12), segment.metadata().getLong("size"));
+    Assert.assertEquals(Float.valueOf(0.5f), segment.metadata().getFloat("ratio"));
+    Assert.assertEquals(Double.valueOf(0.25d), segment.metadata().getDouble("weight"));
+    Assert.assertEquals(uuid.toString(), segment.metadata().getString("uuid"));
+  }
+
+  @Test
+  public void testSearchMatchesInMemoryStore() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("store.bin");
+    Random random = new Random(42);
+    EmbeddingBatch batch = new EmbeddingBatch();
+    InMemoryEmbeddingStore<TextSegment> expected = new InMemoryEmbeddingStore<>();
+    for (int i = 0; i < 200; i++) {
+      float[] vector = new float[16];
+      for (int j = 0; j < vector.length; j++) {
+        vector[j] = random.nextFloat() - 0.5f;
+      }
+      TextSegment segment = TextSegment.from("segment " + i, Metadata.from("parity", i % 2 == 0 ? "even" : "odd")
+          .put("file_name", "file-" + i % 10 + ".txt"));
+      batch.add("id-" + i, Embedding.from(vector), segment);
+      expected.add("id-" + i, Embedding.from(vector), segment);
+    }
+    MappedEmbeddingStore.write(path, batch);
+    MappedEmbeddingStore store = MappedEmbeddingStore.open(path);
+
+    Embedding query = batch.embedding(7);
+    assertSameMatches(expected.findRelevant(query, 10, 0.55), store.findRelevant(query, 10, 0.55));
+
+    EmbeddingSearchRequest filtered = EmbeddingSearchRequest.builder().queryEmbedding(query).maxResults(5)
+        .filter(metadataKey("parity").isEqualTo("odd")).build();
+    List<EmbeddingMatch<TextSegment>> matches = store.search(filtered).matches();
+    assertSameMatches(expected.search(filtered).matches(), matches);
+    Assert.assertEquals(5, matches.size());
+
+    EmbeddingSearchRequest prefiltered = EmbeddingSearchRequest.builder().queryEmbedding(query).maxResults(5)
+        .filter(metadataKey("file_name").isIn("file-3.txt", "file-4.txt")).build();
+    assertSameMatches(expected.search(prefiltered).matches(), store.search(prefiltered).matches());
+  }
+
+  @Test
+  public void testEmptyStore() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("store.bin");
+    MappedEmbeddingStore.write(path);
+
+    MappedEmbeddingStore store = MappedEmbeddingStore.open(path);
+    Assert.assertEquals(0, store.size());
+    Assert.assertTrue(store.findRelevant(Embedding.from(new float[] {1f, 0f}), 3).isEmpty());
+  }
+
+  private static void assertSameMatches(List<EmbeddingMatch<TextSegment>> expected,
+                                        List<EmbeddingMatch<TextSegment>> actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assert.assertEquals(expected.get(i).embeddingId(), actual.get(i).embeddingId());
+      Assert.assertEquals(expected.get(i).score(), actual.get(i).score(), 1e-12);
+      Assert.assertEquals(expected.get(i).embedded(), actual.get(i).embedded());
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+public class MetadataIndexTest {
+
+  private static final List<TextSegment> SEGMENTS = Arrays.asList(
+                                                                  segment("/docs/a", "one.txt"),
+                                                                  segment("/docs/a", "two.txt"),
+                                                                  segment("/docs/b", "one.txt"),
+                                                                  null,
+                                                                  segment("/other", "three.txt"));
+
+  @Test
+  public void testFiltersResolveToMatchingEntries() {
+    MetadataIndex index = MetadataIndex.build(SEGMENTS.size(), SEGMENTS::get, false);
+
+    Assert.assertArrayEquals(new int[] {0, 2}, index.candidates(metadataKey("file_name").isEqualTo("one.txt")));
+    Assert.assertArrayEquals(new int[] {1, 4},
+                             index.candidates(metadataKey("file_name").isIn("two.txt", "three.txt", "missing.txt")));
+    Assert.assertArrayEquals(new int[] {0, 1, 2},
+                             index.candidates(new MetadataPrefixFilter("absolute_directory_path",
+                                                                       Collections.singletonList("/docs/"))));
+    Assert.assertArrayEquals(new int[] {2}, index.candidates(metadataKey("absolute_directory_path").isEqualTo("/docs/b")
+        .and(metadataKey("file_name").isEqualTo("one.txt"))));
+    Assert.assertArrayEquals(new int[0], index.candidates(metadataKey("url").isEqualTo("https://example.com")));
+  }
+
+  @Test
+  public void testUnresolvableFiltersScanEveryEntry() {
+    MetadataIndex index = MetadataIndex.build(SEGMENTS.size(), SEGMENTS::get, false);
+
+    Assert.assertNull(index.candidates(metadataKey("author").isEqualTo("someone")));
+    Assert.assertNull(index.candidates(metadataKey("file_name").isEqualTo("one.txt")
+        .or(metadataKey("author").isEqualTo("someone"))));
+    // Only the resolvable side of a conjunction narrows the candidates
+    Assert.assertArrayEquals(new int[] {0, 2}, index.candidates(metadataKey("file_name").isEqualTo("one.txt")
+        .and(metadataKey("author").isEqualTo("someone"))));
+  }
+
+  @Test
+  public void testEntriesWithoutSegmentAreKeptWhenTheyPassFilters() {
+    MetadataIndex index = MetadataIndex.build(SEGMENTS.size(), SEGMENTS::get, true);
+
+    Assert.assertArrayEquals(new int[] {0, 2, 3}, index.candidates(metadataKey("file_name").isEqualTo("one.txt")));
+  }
+
+  private static TextSegment segment(String directory, String fileName) {
+    return TextSegment.from(fileName, Metadata.from("absolute_directory_path", directory).put("file_name", fileName)
+        .put("full_path", directory + "/" + fileName));
+  }
+}
@@ -0,0 +1,139 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mule.extension.mulechain.api.config.VectorQuantization;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class QuantizedVectorsTest {
+
+  private static final int DIMENSION = 32;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testScalarQuantizationRecall() throws IOException {
+    MappedEmbeddingStore store = clusteredStore(2000, new Random(7));
+    QuantizedVectors codes = QuantizedVectors.build(store, VectorQuantization.SCALAR_INT8);
+
+    Assert.assertTrue(DIMENSION * Float.BYTES / codes.bytesPerVector() >= 4);
+    assertRecall(store, codes, 1, 0.9);
+  }
+
+  @Test
+  public void testProductQuantizationRecall() throws IOException {
+    MappedEmbeddingStore store = clusteredStore(2000, new Random(7));
+    QuantizedVectors codes = QuantizedVectors.build(store, VectorQuantization.PRODUCT);
+
+    Assert.assertTrue(DIMENSION * Float.BYTES / codes.bytesPerVector() >= 16);
+    assertRecall(store, codes, 1, 0.5);
+    assertRecall(store, codes, 4, 0.9);
+  }
+
+  @Test
+  public void testSavedCodesScoreLikeBuiltCodes() throws IOException {
+    MappedEmbeddingStore store = clusteredStore(300, new Random(3));
+    float[] query = store.vector(42);
+    for (VectorQuantization quantization : new VectorQuantization[] {VectorQuantization.SCALAR_INT8,
+        VectorQuantization.PRODUCT}) {
+      QuantizedVectors codes = QuantizedVectors.build(store, quantization);
+      Path path = folder.getRoot().toPath().resolve("segment" + quantization);
+      codes.save(path);
+      QuantizedVectors loaded = QuantizedVectors.load(path, quantization);
+
+      Assert.assertArrayEquals(codes.top(query, 20).indexes(), loaded.top(query, 20).indexes());
+      Assert.assertArrayEquals(codes.top(query, 20).scores(), loaded.top(query, 20).scores(), 0d);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncatedCodesAreRejected() throws IOException {
+    QuantizedVectors codes = QuantizedVectors.build(clusteredStore(300, new Random(3)), VectorQuantization.SCALAR_INT8);
+    Path path = folder.getRoot().toPath().resolve("truncated");
+    codes.save(path);
+    byte[] bytes = Files.readAllBytes(path);
+    Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+
+    QuantizedVectors.load(path, VectorQuantization.SCALAR_INT8);
+  }
+
+  /**
+   * Compares the ids found by scanning the codes, and scoring again {@code rerankFactor} times the requested results at
+   * full precision, with those of an exact search.
+   */
+  private static void assertRecall(MappedEmbeddingStore store, QuantizedVectors codes, int rerankFactor, double minimum) {
+    Random random = new Random(11);
+    int found = 0;
+    int queries = 50;
+    for (int q = 0; q < queries; q++) {
+      float[] query = store.vector(random.nextInt(store.size())).clone();
+      for (int i = 0; i < query.length; i++) {
+        query[i] += (float) (random.nextGaussian() * 0.1);
+      }
+      EmbeddingSearchRequest request = EmbeddingSearchRequest.builder().queryEmbedding(Embedding.from(query))
+          .maxResults(10).minScore(0.0).build();
+      QuantizedVectors.Candidates candidates = codes.top(query, 10 * rerankFactor);
+      List<EmbeddingMatch<TextSegment>> matches = store.search(request, candidates.indexes(),
+                                                               rerankFactor > 1 ? null : candidates.scores())
+          .matches();
+      found += intersection(ids(store.search(request).matches()), ids(matches));
+    }
+    double recall = found / (queries * 10.0);
+    Assert.assertTrue("Recall@10 was " + recall, recall >= minimum);
+  }
+
+  /**
+   * Embeddings of real text are grouped around topics, which random vectors drawn around a few centres imitate.
+   */
+  private MappedEmbeddingStore clusteredStore(int size, Random random) throws IOException {
+    float[][] centres = new float[20][DIMENSION];
+    for (float[] centre : centres) {
+      for (int i = 0; i < DIMENSION; i++) {
+        centre[i] = (float) random.nextGaussian();
+      }
+    }
+    EmbeddingBatch batch = new EmbeddingBatch();
+    for (int n = 0; n < size; n++) {
+      float[] centre = centres[random.nextInt(centres.length)];
+      float[] vector = new float[DIMENSION];
+      for (int i = 0; i < DIMENSION; i++) {
+        vector[i] = centre[i] + (float) (random.nextGaussian() * 0.3);
+      }
+      batch.add("id-" + n, Embedding.from(vector), TextSegment.from("segment " + n));
+    }
+    Path path = folder.newFile().toPath();
+    MappedEmbeddingStore.write(path, batch);
+    return MappedEmbeddingStore.open(path);
+  }
+
+  private static Set<String> ids(List<EmbeddingMatch<TextSegment>> matches) {
+    Set<String> ids = new HashSet<>();
+    for (EmbeddingMatch<TextSegment> match : matches) {
+      ids.add(match.embeddingId());
+    }
+    return ids;
+  }
+
+  private static int intersection(Set<String> expected, Set<String> actual) {
+    actual.retainAll(expected);
+    return actual.size();
+  }
+}
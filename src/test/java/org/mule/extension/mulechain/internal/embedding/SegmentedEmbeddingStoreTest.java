@@ -0,0 +1,174 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import org.junit.Assert;
+import org.mule.extension.mulechain.api.config.VectorQuantization;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class SegmentedEmbeddingStoreTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testAppendWritesNewSegmentOnly() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("store.bin");
+    SegmentedEmbeddingStore.create(path, HnswIndex.DEFAULT_M, HnswIndex.DEFAULT_EF_CONSTRUCTION, VectorQuantization.NONE);
+    long baseSize = Files.size(path);
+
+    SegmentedEmbeddingStore.append(path, batch("a", 1f, 0f), Runnable::run);
+    SegmentedEmbeddingStore.append(path, batch("b", 0f, 1f), Runnable::run);
+
+    Assert.assertEquals(baseSize, Files.size(path));
+    SegmentedEmbeddingStore store = SegmentedEmbeddingStore.open(path);
+    Assert.assertEquals(3, store.segmentCount());
+    Assert.assertEquals(2, store.size());
+
+    List<EmbeddingMatch<TextSegment>> matches = store.findRelevant(Embedding.from(new float[] {0.2f, 1f}), 2);
+    Assert.assertEquals("b", matches.get(0).embedded().text());
+    Assert.assertEquals("a", matches.get(1).embedded().text());
+  }
+
+  @Test
+  public void testCompactionMergesSegments() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("store.bin");
+    SegmentedEmbeddingStore.create(path, HnswIndex.DEFAULT_M, HnswIndex.DEFAULT_EF_CONSTRUCTION, VectorQuantization.NONE);
+    for (int i = 0; i < 4; i++) {
+      SegmentedEmbeddingStore.append(path, batch("segment " + i, i, 1f), Runnable::run);
+    }
+    SegmentedEmbeddingStore before = SegmentedEmbeddingStore.open(path);
+
+    Assert.assertTrue(SegmentedEmbeddingStore.compact(path, 2));
+
+    SegmentedEmbeddingStore after = SegmentedEmbeddingStore.open(path);
+    Assert.assertEquals(1, after.segmentCount());
+    Assert.assertEquals(4, after.size());
+    Assert.assertFalse(Files.exists(path.resolveSibling("store.bin.seg-1")));
+    Embedding query = Embedding.from(new float[] {3f, 1f});
+    Assert.assertEquals(before.findRelevant(query, 4), after.findRelevant(query, 4));
+    // Stores opened before the compaction keep reading the segments they mapped
+    Assert.assertEquals(4, before.size());
+  }
+
+  @Test
+  public void testCreateDropsPreviousSegments() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("store.bin");
+    SegmentedEmbeddingStore.create(path, HnswIndex.DEFAULT_M, HnswIndex.DEFAULT_EF_CONSTRUCTION, VectorQuantization.NONE);
+    SegmentedEmbeddingStore.append(path, batch("a", 1f, 0f), Runnable::run);
+
+    SegmentedEmbeddingStore.create(path, HnswIndex.DEFAULT_M, HnswIndex.DEFAULT_EF_CONSTRUCTION, VectorQuantization.NONE);
+
+    Assert.assertFalse(Files.exists(path.resolveSibling("store.bin.seg-1")));
+    Assert.assertFalse(Files.exists(HnswIndex.indexPath(path.resolveSibling("store.bin.seg-1"))));
+    Assert.assertEquals(0, SegmentedEmbeddingStore.open(path).size());
+  }
+
+  @Test
+  public void testApproximateSearchUsesSegmentIndexes() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("store.bin");
+    SegmentedEmbeddingStore.create(path, 4, 32, VectorQuantization.NONE);
+    SegmentedEmbeddingStore.append(path, batch("a", 1f, 0f), Runnable::run);
+    SegmentedEmbeddingStore.append(path, batch("b", 0f, 1f), Runnable::run);
+    Assert.assertTrue(Files.exists(HnswIndex.indexPath(path.resolveSibling("store.bin.seg-1"))));
+
+    SegmentedEmbeddingStore store = SegmentedEmbeddingStore.open(path);
+    Embedding query = Embedding.from(new float[] {0.2f, 1f});
+    Assert.assertEquals(store.findRelevant(query, 2), store.approximate(8).findRelevant(query, 2));
+  }
+
+  @Test
+  public void testQuantizedSearchUsesSegmentCodes() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("store.bin");
+    SegmentedEmbeddingStore.create(path, 4, 32, VectorQuantization.SCALAR_INT8);
+    SegmentedEmbeddingStore.append(path, batch("a", 1f, 0f), Runnable::run);
+    SegmentedEmbeddingStore.append(path, batch("b", 0f, 1f), Runnable::run);
+    Path segment = path.resolveSibling("store.bin.seg-1");
+    Assert.assertTrue(Files.exists(QuantizedVectors.codesPath(segment, VectorQuantization.SCALAR_INT8)));
+
+    SegmentedEmbeddingStore store = SegmentedEmbeddingStore.open(path);
+    Embedding query = Embedding.from(new float[] {0.2f, 1f});
+    Assert.assertEquals(store.findRelevant(query, 2), store.quantized(2).findRelevant(query, 2));
+
+    SegmentedEmbeddingStore.create(path, 4, 32, VectorQuantization.NONE);
+    Assert.assertFalse(Files.exists(QuantizedVectors.codesPath(segment, VectorQuantization.SCALAR_INT8)));
+  }
+
+  @Test
+  public void testQueuedCompactionsMergeOnce() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("store.bin");
+    SegmentedEmbeddingStore.create(path, HnswIndex.DEFAULT_M, HnswIndex.DEFAULT_EF_CONSTRUCTION, VectorQuantization.NONE);
+    List<Runnable> queued = new ArrayList<>();
+    int appended = SegmentedEmbeddingStore.COMPACTION_THRESHOLD + 3;
+    for (int i = 0; i < appended; i++) {
+      SegmentedEmbeddingStore.append(path, batch("segment " + i, i, 1f), queued::add);
+    }
+    Assert.assertTrue(queued.size() > 1);
+
+    queued.get(0).run();
+    String merged = new String(Files.readAllBytes(SegmentedEmbeddingStore.manifestPath(path)));
+    // The compactions queued behind the first find too few segments left to merge
+    for (Runnable compaction : queued.subList(1, queued.size())) {
+      compaction.run();
+    }
+
+    Assert.assertEquals(merged, new String(Files.readAllBytes(SegmentedEmbeddingStore.manifestPath(path))));
+    SegmentedEmbeddingStore store = SegmentedEmbeddingStore.open(path);
+    Assert.assertEquals(1, store.segmentCount());
+    Assert.assertEquals(appended, store.size());
+  }
+
+  @Test
+  public void testConcurrentCompactionsDoNotDuplicateEntries() throws Exception {
+    Path path = folder.getRoot().toPath().resolve("store.bin");
+    SegmentedEmbeddingStore.create(path, HnswIndex.DEFAULT_M, HnswIndex.DEFAULT_EF_CONSTRUCTION, VectorQuantization.NONE);
+    int appended = 20;
+    for (int i = 0; i < appended; i++) {
+      SegmentedEmbeddingStore.append(path, batch("segment " + i, i, 1f), compaction -> {
+      });
+    }
+
+    // Two compactors, as two configurations would run, started together on the same store
+    CountDownLatch start = new CountDownLatch(1);
+    Callable<Boolean> compaction = () -> {
+      start.await();
+      return SegmentedEmbeddingStore.compact(path, 2);
+    };
+    ExecutorService compactors = Executors.newFixedThreadPool(2);
+    try {
+      Future<Boolean> first = compactors.submit(compaction);
+      Future<Boolean> second = compactors.submit(compaction);
+      start.countDown();
+      Assert.assertTrue(first.get() ^ second.get());
+    } finally {
+      compactors.shutdownNow();
+    }
+
+    SegmentedEmbeddingStore store = SegmentedEmbeddingStore.open(path);
+    Assert.assertEquals(1, store.segmentCount());
+    Assert.assertEquals(appended, store.size());
+  }
+
+  private static EmbeddingBatch batch(String text, float x, float y) {
+    EmbeddingBatch batch = new EmbeddingBatch();
+    batch.add(Embedding.from(new float[] {x, y}), TextSegment.from(text));
+    return batch;
+  }
+}
@@ -0,0 +1,44 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.embedding;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mule.extension.mulechain.api.config.EmbeddingModelType;
+import org.mule.extension.mulechain.api.config.EmbeddingPoolingMode;
+
+import java.nio.file.NoSuchFileException;
+
+public class SharedEmbeddingModelTest {
+
+  @Test
+  public void testThreadingIsNotPartOfTheModelKey() {
+    EmbeddingModelSettings first =
+        new EmbeddingModelSettings(EmbeddingModelType.ALL_MINILM_L6_V2, null, null, null, 1, 1, 0);
+    EmbeddingModelSettings second =
+        new EmbeddingModelSettings(EmbeddingModelType.ALL_MINILM_L6_V2, null, null, null, 4, 2, 8);
+
+    Assert.assertEquals(first, second);
+    Assert.assertEquals(first.hashCode(), second.hashCode());
+    Assert.assertFalse(first.hasSameThreading(second));
+  }
+
+  @Test
+  public void testFailedLoadDoesNotKeepTheModelInUse() {
+    EmbeddingModelSettings settings = new EmbeddingModelSettings(EmbeddingModelType.CUSTOM_ONNX, "missing/model.onnx",
+                                                                 "missing/tokenizer.json", EmbeddingPoolingMode.MEAN,
+                                                                 0, 0, 0);
+    EmbeddingModel model = SharedEmbeddingModel.delegate(settings);
+
+    for (int attempt = 0; attempt < 2; attempt++) {
+      try {
+        model.dimension();
+        Assert.fail("Expected the missing model to fail loading");
+      } catch (IllegalStateException e) {
+        Assert.assertTrue(e.getCause() instanceof NoSuchFileException);
+      }
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.helpers;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mule.extension.mulechain.api.metadata.TokenUsage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BatchChatServiceTest {
+
+  private ExecutorService executor;
+  private ChatLanguageModel model;
+
+  @Before
+  public void set_up() {
+    executor = Executors.newFixedThreadPool(3);
+    model = mock(ChatLanguageModel.class);
+    when(model.generate(any(UserMessage.class))).thenAnswer(invocation -> {
+      String prompt = ((UserMessage) invocation.getArgument(0)).singleText();
+      if (prompt.contains("fail")) {
+        throw new IllegalStateException("rate limited");
+      }
+      Thread.sleep(prompt.length() % 3 * 10L);
+      return Response.from(AiMessage.from("echo " + prompt),
+                           new dev.langchain4j.model.output.TokenUsage(2, 3));
+    });
+  }
+
+  @After
+  public void tear_down() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testResultsKeepInputOrder() {
+    List<String> prompts = Arrays.asList("a", "bb", "ccc", "dddd", "eeeee");
+    List<BatchChatService.ItemResult> results = BatchChatService.execute(model, prompts, executor);
+
+    Assert.assertEquals(5, results.size());
+    for (int i = 0; i < prompts.size(); i++) {
+      Assert.assertEquals(i, results.get(i).getIndex());
+      Assert.assertEquals("echo " + prompts.get(i), results.get(i).getResponse());
+    }
+  }
+
+  @Test
+  public void testFailingItemDoesNotFailTheBatch() {
+    List<BatchChatService.ItemResult> results =
+        BatchChatService.execute(model, Arrays.asList("first", "please fail", "third"), executor);
+
+    Assert.assertTrue(results.get(0).isSuccess());
+    Assert.assertFalse(results.get(1).isSuccess());
+    Assert.assertEquals("rate limited", results.get(1).getError());
+    Assert.assertTrue(results.get(2).isSuccess());
+
+    TokenUsage usage = BatchChatService.aggregateTokenUsage(results);
+    Assert.assertEquals(4, usage.getInputCount());
+    Assert.assertEquals(6, usage.getOutputCount());
+    Assert.assertEquals(10, usage.getTotalCount());
+
+    JSONObject json = BatchChatService.toJson(results);
+    Assert.assertEquals("rate limited", json.getJSONArray("responses").getJSONObject(1).getString("error"));
+  }
+
+  @Test
+  public void testBudgetIsAppliedToEachItem() {
+    List<BatchChatService.ItemResult> results =
+        BatchChatService.execute(model, Arrays.asList("short", "much too long"), prompt -> {
+          if (prompt.length() > 10) {
+            throw new IllegalArgumentException("over budget");
+          }
+          return prompt.toUpperCase();
+        }, executor);
+
+    Assert.assertEquals("echo SHORT", results.get(0).getResponse());
+    Assert.assertEquals("over budget", results.get(1).getError());
+    Assert.assertNull(results.get(1).getTokenUsage());
+  }
+
+  @Test
+  public void testVariableSetsAreAppliedToTheTemplate() {
+    List<String> prompts = BatchChatService.toPrompts("[\"plain\", {\"city\": \"Paris\"}]", "Describe {{city}}");
+    Assert.assertEquals(Arrays.asList("plain", "Describe Paris"), prompts);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testVariableSetWithoutTemplateIsRejected() {
+    BatchChatService.toPrompts("[{\"city\": \"Paris\"}]", null);
+  }
+}
@@ -0,0 +1,126 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.helpers;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BatchSentimentServiceTest {
+
+  private ExecutorService executor;
+
+  @Before
+  public void set_up() {
+    executor = Executors.newFixedThreadPool(2);
+  }
+
+  @After
+  public void tear_down() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testPackStaysUnderBudget() {
+    List<String> texts = new ArrayList<>();
+    List<Integer> indexes = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      texts.add(String.join("", Collections.nCopies(200, "x")));
+      indexes.add(i);
+    }
+
+    List<List<Integer>> requests = BatchSentimentService.pack(texts, indexes, 1000);
+
+    // 80 instruction tokens, then 62 tokens per text: 14 texts per request
+    Assert.assertEquals(8, requests.size());
+    Assert.assertEquals(14, requests.get(0).size());
+    Assert.assertEquals(Integer.valueOf(14), requests.get(1).get(0));
+  }
+
+  @Test
+  public void testOversizedTextGetsItsOwnRequest() {
+    List<String> texts = Arrays.asList("short", String.join("", Collections.nCopies(8000, "x")), "short");
+
+    List<List<Integer>> requests = BatchSentimentService.pack(texts, Arrays.asList(0, 1, 2), 1000);
+
+    Assert.assertEquals(Arrays.asList(Arrays.asList(0), Arrays.asList(1), Arrays.asList(2)), requests);
+  }
+
+  @Test
+  public void testOnlyUnreadableItemsAreRetried() {
+    AtomicBoolean firstCall = new AtomicBoolean(true);
+    List<Integer> retried = Collections.synchronizedList(new ArrayList<>());
+    ChatLanguageModel model = mock(ChatLanguageModel.class);
+    when(model.generate(anyList())).thenAnswer(invocation -> {
+      List<ChatMessage> messages = invocation.getArgument(0);
+      JSONArray items = new JSONArray(((UserMessage) messages.get(1)).singleText());
+      JSONArray answer = new JSONArray();
+      boolean first = firstCall.getAndSet(false);
+      for (int i = 0; i < items.length(); i++) {
+        int index = items.getJSONObject(i).getInt("index");
+        if (!first) {
+          retried.add(index);
+        }
+        if (first && index == 1) {
+          answer.put(new JSONObject().put("index", index).put("score", "unsure"));
+        } else {
+          answer.put(new JSONObject().put("index", index).put("score", index == 0 ? 0.9 : -0.6));
+        }
+      }
+      return Response.from(AiMessage.from(answer.toString()), new dev.langchain4j.model.output.TokenUsage(10, 5));
+    });
+
+    BatchSentimentService.BatchResult result =
+        BatchSentimentService.analyze(model, Arrays.asList("great", "meh", "bad"), 3000, 2, executor);
+
+    Assert.assertEquals(2, result.getRequestCount());
+    Assert.assertEquals(Collections.singletonList(1), retried);
+    Assert.assertEquals(0.9, result.getScore(0), 0.0);
+    Assert.assertEquals(-0.6, result.getScore(1), 0.0);
+    Assert.assertNull(result.getError(1));
+    Assert.assertEquals(30, result.getTokenUsage().getTotalCount());
+  }
+
+  @Test
+  public void testItemsStillUnreadableAfterRetriesReportAnError() {
+    ChatLanguageModel model = mock(ChatLanguageModel.class);
+    when(model.generate(anyList())).thenReturn(Response.from(AiMessage.from("I cannot help with that")));
+
+    BatchSentimentService.BatchResult result =
+        BatchSentimentService.analyze(model, Arrays.asList("a", "b"), 3000, 1, executor);
+
+    Assert.assertEquals(2, result.getRequestCount());
+    Assert.assertNull(result.getScore(0));
+    Assert.assertNotNull(result.getError(1));
+  }
+
+  @Test
+  public void testParseSkipsInvalidItems() {
+    Map<Integer, Double> scores = BatchSentimentService.parse("Here you go: [{\"index\":0,\"score\":2},{\"score\":0.1},3]");
+
+    Assert.assertEquals(1, scores.size());
+    Assert.assertEquals(1.0, scores.get(0), 0.0);
+  }
+}
@@ -0,0 +1,53 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.helpers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.commons.io.IOUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class JsonResponseWriterTest {
+
+  @Test
+  public void testWritesPayloadSpanningManyChunks() throws IOException {
+    JsonResponseWriter writer = new JsonResponseWriter();
+    JsonGenerator json = writer.generator();
+    json.writeStartObject();
+    json.writeStringField("response", "answer with \"quotes\" and ünïcödé");
+    json.writeArrayFieldStart("sources");
+    for (int i = 0; i < 5000; i++) {
+      json.writeStartObject();
+      json.writeNumberField("index", i);
+      JsonResponseWriter.writeOptionalField(json, "url", i % 2 == 0 ? "https://example.com/" + i : null);
+      json.writeEndObject();
+    }
+    json.writeEndArray();
+    json.writeEndObject();
+
+    JSONObject payload = new JSONObject(IOUtils.toString(writer.toInputStream(), StandardCharsets.UTF_8));
+
+    Assert.assertEquals("answer with \"quotes\" and ünïcödé", payload.getString("response"));
+    JSONArray sources = payload.getJSONArray("sources");
+    Assert.assertEquals(5000, sources.length());
+    Assert.assertEquals(4999, sources.getJSONObject(4999).getInt("index"));
+    Assert.assertEquals("https://example.com/4998", sources.getJSONObject(4998).getString("url"));
+    Assert.assertFalse(sources.getJSONObject(4999).has("url"));
+  }
+
+  @Test
+  public void testSmallPayloadFitsTheFirstChunk() throws IOException {
+    JsonResponseWriter writer = new JsonResponseWriter();
+    writer.generator().writeStartObject();
+    writer.generator().writeStringField("response", "ok");
+    writer.generator().writeEndObject();
+
+    Assert.assertEquals("{\"response\":\"ok\"}", IOUtils.toString(writer.toInputStream(), StandardCharsets.UTF_8));
+  }
+}
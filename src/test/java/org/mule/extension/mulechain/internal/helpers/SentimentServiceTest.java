@@ -0,0 +1,55 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.helpers;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SentimentServiceTest {
+
+  @Test
+  public void testScoreAndReplyInOneCall() {
+    ChatLanguageModel model = mock(ChatLanguageModel.class);
+    when(model.supportedCapabilities()).thenReturn(Collections.emptySet());
+    when(model.generate(anyList())).thenReturn(Response.from(AiMessage.from("{\"score\": 0.8, \"reply\": \"Glad to hear!\"}"),
+                                                             new dev.langchain4j.model.output.TokenUsage(20, 8)));
+
+    SentimentService.SentimentResult result = SentimentService.analyze(model, "I love it", true);
+
+    Assert.assertEquals(0.8, result.getScore(), 0.0);
+    Assert.assertEquals("Glad to hear!", result.getReply());
+    Assert.assertEquals(28, result.getTokenUsage().getTotalCount());
+    verify(model, times(1)).generate(anyList());
+  }
+
+  @Test
+  public void testParseToleratesSurroundingTextAndClampsScore() {
+    SentimentService.SentimentResult result =
+        SentimentService.parse("```json\n{\"score\": -3}\n```", false, null);
+
+    Assert.assertEquals(-1.0, result.getScore(), 0.0);
+    Assert.assertNull(result.getReply());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseRejectsMissingReply() {
+    SentimentService.parse("{\"score\": 0.2}", true, null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseRejectsPlainText() {
+    SentimentService.parse("The sentiment is positive", false, null);
+  }
+}
@@ -0,0 +1,78 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.helpers;
+
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mule.extension.mulechain.api.config.TokenBudgetStrategy;
+import org.mule.extension.mulechain.internal.constants.MuleChainConstants;
+import org.mule.extension.mulechain.internal.error.MuleChainErrorType;
+import org.mule.runtime.extension.api.exception.ModuleException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class TokenBudgetServiceTest {
+
+  private static final OpenAiTokenizer TOKENIZER = new OpenAiTokenizer();
+  private static final String TEXT = "one two three four five six seven eight nine ten eleven twelve";
+
+  @Test
+  public void testInputUnderBudgetIsSentAsIs() {
+    TokenBudgetService.BudgetedInput input = TokenBudgetService.apply(TOKENIZER, TEXT, 100, TokenBudgetStrategy.FAIL);
+
+    Assert.assertEquals(TEXT, input.getText());
+    Assert.assertFalse(input.isTruncated());
+    Assert.assertEquals(TOKENIZER.encode(TEXT).size(), input.getTokens());
+
+    Map<String, String> attributes = input.addTo(new HashMap<>());
+    Assert.assertEquals(String.valueOf(input.getTokens()), attributes.get(MuleChainConstants.ESTIMATED_INPUT_TOKENS));
+    Assert.assertFalse(attributes.containsKey(MuleChainConstants.TRUNCATED));
+  }
+
+  @Test
+  public void testNoBudgetDisablesSizing() {
+    Assert.assertFalse(TokenBudgetService.apply(TOKENIZER, TEXT, 0, TokenBudgetStrategy.FAIL).isTruncated());
+  }
+
+  @Test
+  public void testFailStrategyRejectsInputOverBudget() {
+    try {
+      TokenBudgetService.apply(TOKENIZER, TEXT, 4, TokenBudgetStrategy.FAIL);
+      Assert.fail("Expected the input to be rejected");
+    } catch (ModuleException e) {
+      Assert.assertEquals(MuleChainErrorType.TOKEN_BUDGET_EXCEEDED, e.getType());
+    }
+  }
+
+  @Test
+  public void testTruncationStrategies() {
+    TokenBudgetService.BudgetedInput end = TokenBudgetService.apply(TOKENIZER, TEXT, 4, TokenBudgetStrategy.TRUNCATE_END);
+    Assert.assertTrue(end.isTruncated());
+    Assert.assertEquals(4, end.getTokens());
+    Assert.assertEquals("one two three four", end.getText());
+    Assert.assertEquals(String.valueOf(true), end.addTo(new HashMap<>()).get(MuleChainConstants.TRUNCATED));
+
+    TokenBudgetService.BudgetedInput start =
+        TokenBudgetService.apply(TOKENIZER, TEXT, 4, TokenBudgetStrategy.TRUNCATE_START);
+    Assert.assertEquals(" nine ten eleven twelve", start.getText());
+
+    TokenBudgetService.BudgetedInput middle =
+        TokenBudgetService.apply(TOKENIZER, TEXT, 8, TokenBudgetStrategy.TRUNCATE_MIDDLE);
+    Assert.assertEquals(TOKENIZER.encode(middle.getText()).size(), middle.getTokens());
+    Assert.assertTrue(middle.getTokens() <= 8);
+    Assert.assertTrue(middle.getText().startsWith("one two"));
+    Assert.assertTrue(middle.getText().contains("\n...\n"));
+    Assert.assertTrue(middle.getText().endsWith(" twelve"));
+  }
+
+  @Test
+  public void testMiddleTruncationBelowTheMarkerSizeKeepsTheStart() {
+    TokenBudgetService.BudgetedInput middle =
+        TokenBudgetService.apply(TOKENIZER, TEXT, 2, TokenBudgetStrategy.TRUNCATE_MIDDLE);
+    Assert.assertEquals("one two", middle.getText());
+    Assert.assertEquals(2, middle.getTokens());
+  }
+}
@@ -0,0 +1,83 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.streaming;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BlockingStreamingChatModelTest {
+
+  @Test
+  public void testAnswerIsStreamedAsOneToken() throws Exception {
+    ChatLanguageModel model = mock(ChatLanguageModel.class);
+    when(model.generate(anyList())).thenReturn(Response.from(AiMessage.from("Hello there")));
+    List<String> tokens = new ArrayList<>();
+    CompletableFuture<Response<AiMessage>> completed = new CompletableFuture<>();
+
+    new BlockingStreamingChatModel(model, Runnable::run).generate("Hi", new StreamingResponseHandler<AiMessage>() {
+
+      @Override
+      public void onNext(String token) {
+        tokens.add(token);
+      }
+
+      @Override
+      public void onComplete(Response<AiMessage> response) {
+        completed.complete(response);
+      }
+
+      @Override
+      public void onError(Throwable error) {
+        completed.completeExceptionally(error);
+      }
+    });
+
+    Assert.assertEquals("Hello there", completed.get(5, TimeUnit.SECONDS).content().text());
+    Assert.assertEquals(1, tokens.size());
+  }
+
+  @Test
+  public void testModelFailureReachesOnError() throws Exception {
+    ChatLanguageModel model = mock(ChatLanguageModel.class);
+    when(model.generate(anyList())).thenThrow(new IllegalStateException("unavailable"));
+    CompletableFuture<Response<AiMessage>> completed = new CompletableFuture<>();
+
+    new BlockingStreamingChatModel(model, Runnable::run).generate("Hi", new StreamingResponseHandler<AiMessage>() {
+
+      @Override
+      public void onNext(String token) {}
+
+      @Override
+      public void onComplete(Response<AiMessage> response) {
+        completed.complete(response);
+      }
+
+      @Override
+      public void onError(Throwable error) {
+        completed.completeExceptionally(error);
+      }
+    });
+
+    try {
+      completed.get(5, TimeUnit.SECONDS);
+      Assert.fail("Expected the generation to fail");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.streaming;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class StreamBufferTest {
+
+  @Test(timeout = 10000)
+  public void testWriterWaitsForSlowReader() throws IOException {
+    StreamBuffer buffer = new StreamBuffer(16, Duration.ofSeconds(5));
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      expected.append("token-").append(i).append(' ');
+    }
+    CompletableFuture.runAsync(() -> {
+      for (int i = 0; i < 500; i++) {
+        buffer.write("token-" + i + " ");
+      }
+      buffer.complete();
+    });
+
+    Assert.assertEquals(expected.toString(), IOUtils.toString(buffer.getInputStream(), StandardCharsets.UTF_8));
+  }
+
+  @Test(timeout = 10000)
+  public void testProviderErrorFailsReader() {
+    StreamBuffer buffer = new StreamBuffer(64, Duration.ZERO);
+    buffer.write("partial");
+    buffer.fail(new IllegalStateException("rate limited"));
+
+    try {
+      IOUtils.toString(buffer.getInputStream(), StandardCharsets.UTF_8);
+      Assert.fail("Expected the read to fail");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void testIdleTimeoutFailsReader() {
+    StreamBuffer buffer = new StreamBuffer(64, Duration.ofMillis(100));
+
+    try {
+      buffer.getInputStream().read();
+      Assert.fail("Expected the read to time out");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("idle timeout"));
+    }
+    try {
+      buffer.write("late");
+      Assert.fail("Expected the write to be cancelled");
+    } catch (CancellationException expected) {
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void testClosingReaderCancelsBlockedWriter() throws Exception {
+    StreamBuffer buffer = new StreamBuffer(4, Duration.ZERO);
+    InputStream inputStream = buffer.getInputStream();
+    CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> buffer.write("more than four bytes"));
+
+    Thread.sleep(100);
+    Assert.assertFalse(writer.isDone());
+    inputStream.close();
+
+    try {
+      writer.get(5, TimeUnit.SECONDS);
+      Assert.fail("Expected the write to be cancelled");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof CancellationException);
+    }
+  }
+}
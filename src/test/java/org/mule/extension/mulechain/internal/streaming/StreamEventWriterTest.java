@@ -0,0 +1,81 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.streaming;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import org.apache.commons.io.IOUtils;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mule.extension.mulechain.api.config.StreamFraming;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+public class StreamEventWriterTest {
+
+  @Test
+  public void testRawFramingWritesTextOnly() throws IOException {
+    StreamBuffer buffer = new StreamBuffer(1024, Duration.ZERO);
+    StreamEventWriter events = new StreamEventWriter(buffer, StreamFraming.RAW);
+    events.delta("Hello");
+    events.delta(" world");
+    events.done(Response.from(AiMessage.from("Hello world"), new TokenUsage(3, 2), FinishReason.STOP));
+
+    Assert.assertEquals("Hello world", IOUtils.toString(buffer.getInputStream(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testSseFramingEndsWithUsageAndFinishReason() throws IOException {
+    StreamBuffer buffer = new StreamBuffer(1024, Duration.ZERO);
+    StreamEventWriter events = new StreamEventWriter(buffer, StreamFraming.SSE);
+    events.delta("Say \"hi\"\n");
+    events.done(Response.from(AiMessage.from("Say \"hi\"\n"), new TokenUsage(3, 2), FinishReason.STOP));
+
+    String[] frames = IOUtils.toString(buffer.getInputStream(), StandardCharsets.UTF_8).split("\n\n");
+    Assert.assertEquals(2, frames.length);
+    Assert.assertTrue(frames[0].startsWith("event: delta\ndata: "));
+    Assert.assertEquals("Say \"hi\"\n", new JSONObject(frames[0].substring(frames[0].indexOf('{'))).getString("text"));
+
+    Assert.assertTrue(frames[1].startsWith("event: done\ndata: "));
+    JSONObject done = new JSONObject(frames[1].substring(frames[1].indexOf('{')));
+    Assert.assertEquals(5, done.getJSONObject("tokenUsage").getInt("totalCount"));
+    Assert.assertEquals("STOP", done.getString("finishReason"));
+    Assert.assertTrue(done.has("latencyMillis"));
+    Assert.assertTrue(done.has("timeToFirstTokenMillis"));
+  }
+
+  @Test
+  public void testNdjsonFramingEndsWithErrorEvent() throws IOException {
+    StreamBuffer buffer = new StreamBuffer(1024, Duration.ZERO);
+    StreamEventWriter events = new StreamEventWriter(buffer, StreamFraming.NDJSON);
+    events.delta("Partial");
+    events.error(new IllegalStateException("rate limited"));
+
+    String[] lines = IOUtils.toString(buffer.getInputStream(), StandardCharsets.UTF_8).split("\n");
+    Assert.assertEquals(2, lines.length);
+    Assert.assertEquals("delta", new JSONObject(lines[0]).getString("type"));
+    JSONObject error = new JSONObject(lines[1]);
+    Assert.assertEquals("error", error.getString("type"));
+    Assert.assertEquals("rate limited", error.getString("error"));
+  }
+
+  @Test
+  public void testEventsAfterTheReaderClosedAreDropped() throws IOException {
+    StreamBuffer buffer = new StreamBuffer(1024, Duration.ZERO);
+    StreamEventWriter events = new StreamEventWriter(buffer, StreamFraming.SSE);
+    events.delta("First");
+    buffer.getInputStream().close();
+
+    events.delta("Second");
+    Assert.assertTrue(events.isClosed());
+    events.delta("Third");
+    events.error(new IllegalStateException("not reported"));
+    events.done(Response.from(AiMessage.from("First Second Third")));
+  }
+}
@@ -0,0 +1,59 @@
+/**
+ * (c) 2003-2024 MuleSoft, Inc. The software in this package is published under the terms of the Commercial Free Software license V.1 a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package org.mule.extension.mulechain.internal.streaming;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import org.apache.commons.io.IOUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mule.extension.mulechain.api.config.StreamFraming;
+import org.mule.extension.mulechain.internal.config.LangchainLLMConfiguration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StreamingResponderTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test(timeout = 10000)
+  public void testSourcesEventPrecedesAnswer() throws IOException {
+    ChatLanguageModel model = mock(ChatLanguageModel.class);
+    when(model.generate(anyList())).thenReturn(Response.from(AiMessage.from("The answer")));
+    LangchainLLMConfiguration configuration = mock(LangchainLLMConfiguration.class);
+    when(configuration.getStreamBufferSize()).thenReturn(16);
+    when(configuration.getStreamIdleTimeoutSeconds()).thenReturn(5L);
+    when(configuration.getInteractiveExecutor()).thenReturn(executor);
+    when(configuration.getStreamingModel()).thenReturn(new BlockingStreamingChatModel(model, executor));
+
+    // Larger than the buffer, so that writing it on the calling thread would block
+    JSONObject sources = new JSONObject().put("sources", new JSONArray().put("a segment longer than the stream buffer"));
+
+    String[] lines = IOUtils.toString(StreamingResponder.stream(configuration, StreamFraming.NDJSON,
+                                                                UserMessage.from("Question"), "sources", sources)
+        .getOutput(), StandardCharsets.UTF_8).split("\n");
+
+    Assert.assertEquals(3, lines.length);
+    Assert.assertEquals("sources", new JSONObject(lines[0]).getString("type"));
+    Assert.assertEquals("The answer", new JSONObject(lines[1]).getString("text"));
+    Assert.assertEquals("done", new JSONObject(lines[2]).getString("type"));
+  }
+}